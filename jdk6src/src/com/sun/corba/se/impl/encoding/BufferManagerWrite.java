@@ -7,12 +7,20 @@
 
 package com.sun.corba.se.impl.encoding;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
 import com.sun.corba.se.spi.logging.CORBALogDomains;
 
 import com.sun.corba.se.spi.orb.ORB;
 
+import com.sun.corba.se.spi.transport.CorbaConnection;
+
 import com.sun.corba.se.impl.encoding.ByteBufferWithInfo;
 
+import com.sun.corba.se.impl.transport.GatheringConnection;
+
 import com.sun.corba.se.impl.logging.ORBUtilSystemException;
 
 /**
@@ -122,6 +130,36 @@ public abstract class BufferManagerWrite
      */
      abstract public void close();
 
+    /**
+     * Send the given fragments of the current message.  If the
+     * connection is a GatheringConnection they are sent with a single
+     * gathering write, otherwise with one write per fragment.  The
+     * caller must hold the connection's writeLock.
+     */
+    protected void sendFragmentsWithoutLock(CorbaConnection conn,
+					    List fragments)
+    {
+	CDROutputObject cdrOutputObject = (CDROutputObject)outputObject;
+	ByteBuffer[] byteBuffers = new ByteBuffer[fragments.size()];
+	for (int i = 0; i < byteBuffers.length; i++) {
+	    byteBuffers[i] = cdrOutputObject.prepareForWrite(
+		(ByteBufferWithInfo)fragments.get(i), conn);
+	}
+	try {
+	    if (conn instanceof GatheringConnection) {
+		((GatheringConnection)conn).write(byteBuffers);
+	    } else {
+		for (int i = 0; i < byteBuffers.length; i++) {
+		    conn.write(byteBuffers[i]);
+		}
+	    }
+	} catch (IOException e) {
+	    // As in SocketOrChannelConnectionImpl.sendWithoutLock, the
+	    // output stream cleans up the connection when it sees this.
+	    throw wrapper.writeErrorSend(e);
+	}
+    }
+
 
     // XREVISIT - Currently a java.lang.Object during
     // the rip-int-generic transition.  Should eventually
@@ -7,6 +7,7 @@
 package com.sun.corba.se.impl.encoding;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.LinkedList;
@@ -21,6 +22,7 @@ import com.sun.corba.se.impl.protocol.giopmsgheaders.FragmentMessage;
 import com.sun.corba.se.spi.orb.ORB;
 import com.sun.corba.se.impl.encoding.CDROutputObject;
 import com.sun.corba.se.impl.orbutil.ORBUtility;
+import com.sun.corba.se.spi.transport.CorbaConnection;
 import com.sun.corba.se.pept.transport.Connection;
 import com.sun.corba.se.pept.transport.ByteBufferPool;
 import com.sun.corba.se.pept.encoding.OutputObject;
@@ -91,9 +93,15 @@ public class BufferManagerWriteCollect extends BufferManagerWrite
         // Enqueue the last fragment
         queue.enqueue(((CDROutputObject)outputObject).getByteBufferWithInfo());
 
+        // Take all fragments off the queue so that they can be sent
+        // with a single gathering write.
+        ArrayList fragments = new ArrayList(queue.size());
         Iterator bufs = iterator();
+        while (bufs.hasNext()) {
+            fragments.add(bufs.next());
+        }
 
-        Connection conn = 
+        CorbaConnection conn = (CorbaConnection)
                           ((OutputObject)outputObject).getMessageMediator().
                                                        getConnection();
 
@@ -107,18 +115,23 @@ public class BufferManagerWriteCollect extends BufferManagerWrite
 
         try {
 
+            sendFragmentsWithoutLock(conn, fragments);
+
+            sentFragment = true;
+
+            sentFullMessage = true;
+            
+        } finally {
+
+            conn.writeUnlock();
+
             // Get a reference to ByteBufferPool so that the ByteBufferWithInfo
             // ByteBuffer can be released to the ByteBufferPool
             ByteBufferPool byteBufferPool = orb.getByteBufferPool();
 
-            while (bufs.hasNext()) {
-                
-                ByteBufferWithInfo bbwi = (ByteBufferWithInfo)bufs.next();
-                ((CDROutputObject)outputObject).setByteBufferWithInfo(bbwi);
-                
-                conn.sendWithoutLock(((CDROutputObject)outputObject));
+            for (int i = 0; i < fragments.size(); i++) {
 
-                sentFragment = true;
+                ByteBufferWithInfo bbwi = (ByteBufferWithInfo)fragments.get(i);
 
                 // Release ByteBufferWithInfo's ByteBuffer back to the pool
                 // of ByteBuffers.
@@ -136,12 +149,6 @@ public class BufferManagerWriteCollect extends BufferManagerWrite
                 bbwi.byteBuffer = null;
                 bbwi = null;
             }
-
-            sentFullMessage = true;
-            
-        } finally {
-
-            conn.writeUnlock();
         }
     }
 
@@ -7,7 +7,10 @@
 package com.sun.corba.se.impl.encoding;
 
 import java.nio.ByteBuffer;
+import java.security.AccessController;
+import java.util.ArrayList;
 
+import com.sun.corba.se.impl.orbutil.GetPropertyAction;
 import com.sun.corba.se.impl.orbutil.ORBConstants;
 import com.sun.corba.se.impl.protocol.giopmsgheaders.Message;
 import com.sun.corba.se.impl.protocol.giopmsgheaders.MessageBase;
@@ -16,6 +19,8 @@ import com.sun.corba.se.impl.encoding.BufferManagerWrite;
 import com.sun.corba.se.impl.encoding.ByteBufferWithInfo;
 import com.sun.corba.se.impl.encoding.CDROutputObject;
 import com.sun.corba.se.spi.orb.ORB;
+import com.sun.corba.se.spi.transport.CorbaConnection;
+import com.sun.corba.se.pept.transport.ByteBufferPool;
 import com.sun.corba.se.pept.transport.Connection;
 import com.sun.corba.se.pept.encoding.OutputObject;
 
@@ -24,13 +29,39 @@ import com.sun.corba.se.pept.encoding.OutputObject;
  */
 public class BufferManagerWriteStream extends BufferManagerWrite
 {
+    // Number of fragments collected before they are sent together with
+    // a single gathering write.  A value of 1, the default, sends every
+    // fragment as soon as it is full, reusing its buffer for the next
+    // one.
+    private static final int FRAGMENT_BATCH_SIZE = getFragmentBatchSize();
+
     private int fragmentCount = 0;
 
+    // Full fragments waiting to be sent, oldest first.
+    private ArrayList pendingFragments = new ArrayList();
+
     BufferManagerWriteStream( ORB orb )
     {
 	super(orb) ;
     }
 
+    private static int getFragmentBatchSize()
+    {
+	String value = (String)AccessController.doPrivileged(
+	    new GetPropertyAction(
+		ORBConstants.GIOP_FRAGMENT_WRITE_BATCH_SIZE_PROPERTY));
+	if (value != null) {
+	    try {
+		int size = Integer.parseInt(value.trim());
+		if (size >= 1)
+		    return size;
+	    } catch (NumberFormatException e) {
+		// use the default
+	    }
+	}
+	return ORBConstants.DEFAULT_GIOP_FRAGMENT_WRITE_BATCH_SIZE;
+    }
+
     public boolean sentFragment() {
         return fragmentCount > 0;
     }
@@ -48,16 +79,27 @@ public class BufferManagerWriteStream extends BufferManagerWrite
         // Set the fragment's moreFragments field to true
         MessageBase.setFlag(bbwi.byteBuffer, Message.MORE_FRAGMENTS_BIT);
 
-        sendFragment(false);
+	if (FRAGMENT_BATCH_SIZE == 1) {
+	    sendFragment(false);
+
+	    // Reuse the old buffer
 
-        // Reuse the old buffer
+	    // REVISIT - need to account for case when needed > available
+	    // even after fragmenting.  This is the large array case, so
+	    // the caller should retry when it runs out of space.
+	    bbwi.position(0);
+	    bbwi.buflen = bbwi.byteBuffer.limit();
+	    bbwi.fragmented = true;
+	} else {
+	    // Keep the full fragment, and continue in a new buffer.
+	    pendingFragments.add(bbwi);
+	    if (pendingFragments.size() >= FRAGMENT_BATCH_SIZE)
+		sendPendingFragments(null);
 
-        // REVISIT - need to account for case when needed > available
-        // even after fragmenting.  This is the large array case, so
-        // the caller should retry when it runs out of space.
-        bbwi.position(0);
-        bbwi.buflen = bbwi.byteBuffer.limit();
-        bbwi.fragmented = true;
+	    ByteBufferWithInfo newBbwi = new ByteBufferWithInfo(orb, this);
+	    newBbwi.fragmented = true;
+	    ((CDROutputObject)outputObject).setByteBufferWithInfo(newBbwi);
+	}
 
         // Now we must marshal in the fragment header/GIOP header
 
@@ -71,6 +113,13 @@ public class BufferManagerWriteStream extends BufferManagerWrite
 
     private void sendFragment(boolean isLastFragment)
     {
+	if (pendingFragments.size() > 0) {
+	    // Send the collected fragments and the current one together.
+	    sendPendingFragments(
+		((CDROutputObject)outputObject).getByteBufferWithInfo());
+	    return;
+	}
+
         Connection conn = ((OutputObject)outputObject).getMessageMediator().getConnection();
 
 	// REVISIT: need an ORB
@@ -90,6 +139,48 @@ public class BufferManagerWriteStream extends BufferManagerWrite
 
     }
 
+    // Send all pending fragments, followed by current if it is not
+    // null, with one gathering write.  The pending fragments' buffers
+    // are then released to the pool; current stays with the stream.
+    private void sendPendingFragments(ByteBufferWithInfo current)
+    {
+	if (current != null)
+	    pendingFragments.add(current);
+
+        CorbaConnection conn = (CorbaConnection)
+	    ((OutputObject)outputObject).getMessageMediator().getConnection();
+
+        conn.writeLock();
+
+        try {
+	    sendFragmentsWithoutLock(conn, pendingFragments);
+
+            fragmentCount += pendingFragments.size();
+
+        } finally {
+
+            conn.writeUnlock();
+
+	    if (current != null)
+		pendingFragments.remove(pendingFragments.size() - 1);
+	    releasePendingFragments();
+        }
+    }
+
+    private void releasePendingFragments()
+    {
+	ByteBufferPool byteBufferPool = orb.getByteBufferPool();
+	for (int i = 0; i < pendingFragments.size(); i++) {
+	    ByteBufferWithInfo bbwi =
+		(ByteBufferWithInfo)pendingFragments.get(i);
+	    if (bbwi.byteBuffer != null) {
+		byteBufferPool.releaseByteBuffer(bbwi.byteBuffer);
+		bbwi.byteBuffer = null;
+	    }
+	}
+	pendingFragments.clear();
+    }
+
     // Sends the last fragment
     public void sendMessage ()
     {
@@ -101,8 +192,12 @@ public class BufferManagerWriteStream extends BufferManagerWrite
     /**
      * Close the BufferManagerWrite and do any outstanding cleanup.
      *
-     * No work to do for a BufferManagerWriteStream
+     * For a BufferManagerWriteStream any fragments that were collected
+     * but not sent must have their ByteBuffer released to the
+     * ByteBufferPool.
      */
-    public void close(){};
+    public void close() {
+	releasePendingFragments();
+    }
 
 }
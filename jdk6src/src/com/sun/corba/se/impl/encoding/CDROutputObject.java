@@ -153,13 +153,22 @@ public class CDROutputObject extends CorbaOutputObject
     public void writeTo(CorbaConnection connection)
 	throws java.io.IOException 
     {
+	connection.write(prepareForWrite(getByteBufferWithInfo(), connection));
+    }
 
+    /**
+     * Update the GIOP MessageHeader size field of the given fragment
+     * of this stream and return its ByteBuffer, positioned so that
+     * the whole fragment is written.  Used by writeTo, and by buffer
+     * managers that write several fragments at once.
+     */
+    ByteBuffer prepareForWrite(ByteBufferWithInfo bbwi,
+			       CorbaConnection connection)
+    {
         //
         // Update the GIOP MessageHeader size field.
         //
 
-        ByteBufferWithInfo bbwi = getByteBufferWithInfo();
-
         getMessageHeader().setSize(bbwi.byteBuffer, bbwi.getSize());
 
         if (orb() != null) {
@@ -171,7 +180,7 @@ public class CDROutputObject extends CorbaOutputObject
 	    }
         }
 	bbwi.byteBuffer.position(0).limit(bbwi.getSize());
-	connection.write(bbwi.byteBuffer);
+	return bbwi.byteBuffer;
     }
 
     /** overrides create_input_stream from CDROutputStream */
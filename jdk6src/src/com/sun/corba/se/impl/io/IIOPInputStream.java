@@ -1929,33 +1929,20 @@ public class IIOPInputStream
         // it is a type for which we need to load a stub, convert
         // the type to the correct stub type.
         
-        int callType = ValueHandlerImpl.kValueType;
+        int callType = field.getCallType();
         boolean narrow = false;
         
         if (fieldType.isInterface()) { 
-            boolean loadStubClass = false;
-            
-            if (java.rmi.Remote.class.isAssignableFrom(fieldType)) {
-                
-                // RMI Object reference...
-                callType = ValueHandlerImpl.kRemoteType;
-                
-            } else if (org.omg.CORBA.Object.class.isAssignableFrom(fieldType)){
-                
-                // IDL Object reference...
-                callType = ValueHandlerImpl.kRemoteType;
-                loadStubClass = true;
-                
-            } else if (vhandler.isAbstractBase(fieldType)) {
-                // IDL Abstract Object reference...
-                
-                callType = ValueHandlerImpl.kAbstractType;
-                loadStubClass = true;
-            } else if (ObjectStreamClassCorbaExt.isAbstractInterface(fieldType)) {
-                // RMI Abstract Object reference...
-                
-                callType = ValueHandlerImpl.kAbstractType;
-            }
+            // IDL Object references and IDL Abstract Object references
+            // need a stub; RMI Object references and RMI Abstract
+            // Object references are narrowed.
+            boolean loadStubClass;
+            if (callType == ValueHandlerImpl.kRemoteType)
+                loadStubClass =
+                    !java.rmi.Remote.class.isAssignableFrom(fieldType);
+            else
+                loadStubClass = (callType == ValueHandlerImpl.kAbstractType) &&
+                    vhandler.isAbstractBase(fieldType);
             
             if (loadStubClass) {
                 try {
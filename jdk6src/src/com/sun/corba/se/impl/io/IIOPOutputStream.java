@@ -43,7 +43,6 @@ import sun.corba.Bridge ;
 
 import com.sun.corba.se.impl.io.ObjectStreamClass;
 import com.sun.corba.se.impl.util.Utility;
-import com.sun.corba.se.impl.util.RepositoryId;
 
 import com.sun.corba.se.spi.logging.CORBALogDomains ;
 import com.sun.corba.se.impl.logging.UtilSystemException ;
@@ -691,30 +690,7 @@ public class IIOPOutputStream
         }
         else {
             Class type = field.getType();
-            int callType = ValueHandlerImpl.kValueType;
-					
-            if (type.isInterface()) { 
-                String className = type.getName();
-                
-                if (java.rmi.Remote.class.isAssignableFrom(type)) {
-                    
-                    // RMI Object reference...
-                    
-                    callType = ValueHandlerImpl.kRemoteType;
-                    
-                    
-                } else if (org.omg.CORBA.Object.class.isAssignableFrom(type)){
-                    
-                    // IDL Object reference...
-                    callType = ValueHandlerImpl.kRemoteType;
-                    
-                } else if (RepositoryId.isAbstractBase(type)) {
-                    // IDL Abstract Object reference...
-                    callType = ValueHandlerImpl.kAbstractType;
-                } else if (ObjectStreamClassCorbaExt.isAbstractInterface(type)) {
-                    callType = ValueHandlerImpl.kAbstractType;
-                }
-            }
+            int callType = field.getCallType();
 					
             switch (callType) {
             case ValueHandlerImpl.kRemoteType: 
@@ -738,7 +714,9 @@ public class IIOPOutputStream
     }
 
     /* Write the fields of the specified class by invoking the appropriate
-     * write* method on this class.
+     * write* method on this class.  Field values are read through the
+     * bridge using the offsets precomputed in the ObjectStreamFields, so
+     * primitive values are written without reflection or boxing.
      */
     private void outputClassFields(Object o, Class cl,
 				   ObjectStreamField[] fields)
@@ -750,51 +728,39 @@ public class IIOPOutputStream
     		throw new InvalidClassException(cl.getName(),
 						"Nonexistent field " + fields[i].getName());
 
-	    try {
-		switch (fields[i].getTypeCode()) {
-		    case 'B':
-			byte byteValue = fields[i].getField().getByte( o ) ;
-			orbStream.write_octet(byteValue);
-			break;
-		    case 'C':
-			char charValue = fields[i].getField().getChar( o ) ;
-			orbStream.write_wchar(charValue);
-			break;
-		    case 'F':
-			float floatValue = fields[i].getField().getFloat( o ) ;
-			orbStream.write_float(floatValue);
-			break;
-		    case 'D' :
-			double doubleValue = fields[i].getField().getDouble( o ) ;
-			orbStream.write_double(doubleValue);
-			break;
-		    case 'I':
-			int intValue = fields[i].getField().getInt( o ) ;
-			orbStream.write_long(intValue);
-			break;
-		    case 'J':
-			long longValue = fields[i].getField().getLong( o ) ;
-			orbStream.write_longlong(longValue);
-			break;
-		    case 'S':
-			short shortValue = fields[i].getField().getShort( o ) ;
-			orbStream.write_short(shortValue);
-			break;
-		    case 'Z':
-			boolean booleanValue = fields[i].getField().getBoolean( o ) ;
-			orbStream.write_boolean(booleanValue);
-			break;
-		    case '[':
-		    case 'L':
-			Object objectValue = fields[i].getField().get( o ) ;
-			writeObjectField(fields[i], objectValue);
-			break;
-		    default:
-			// XXX I18N, Logging needed.
-			throw new InvalidClassException(cl.getName());
-		}
-	    } catch (IllegalAccessException exc) {
-		throw wrapper.illegalFieldAccess( exc, fields[i].getName() ) ;
+	    long fieldID = fields[i].getFieldID() ;
+	    switch (fields[i].getTypeCode()) {
+		case 'B':
+		    orbStream.write_octet(bridge.getByte( o, fieldID ));
+		    break;
+		case 'C':
+		    orbStream.write_wchar(bridge.getChar( o, fieldID ));
+		    break;
+		case 'F':
+		    orbStream.write_float(bridge.getFloat( o, fieldID ));
+		    break;
+		case 'D' :
+		    orbStream.write_double(bridge.getDouble( o, fieldID ));
+		    break;
+		case 'I':
+		    orbStream.write_long(bridge.getInt( o, fieldID ));
+		    break;
+		case 'J':
+		    orbStream.write_longlong(bridge.getLong( o, fieldID ));
+		    break;
+		case 'S':
+		    orbStream.write_short(bridge.getShort( o, fieldID ));
+		    break;
+		case 'Z':
+		    orbStream.write_boolean(bridge.getBoolean( o, fieldID ));
+		    break;
+		case '[':
+		case 'L':
+		    writeObjectField(fields[i], bridge.getObject( o, fieldID ));
+		    break;
+		default:
+		    // XXX I18N, Logging needed.
+		    throw new InvalidClassException(cl.getName());
 	    }
     	}
     }
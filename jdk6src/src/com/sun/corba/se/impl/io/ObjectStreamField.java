@@ -239,6 +239,19 @@ public class ObjectStreamField implements Comparable
 	return fieldID ;
     }
 
+    /* Returns the ValueHandlerImpl call type used to marshal the value
+     * of this (object) field.  It is computed on first use and kept
+     * with the field, and so with the cached ObjectStreamClass.
+     */
+    int getCallType() {
+	int result = callType ;
+	if (result < 0) {
+	    result = ValueHandlerImpl.getCallType( getType() ) ;
+	    callType = result ;
+	}
+	return result ;
+    }
+
     private String name;		// the name of the field
     private char type;			// type first byte of the type signature
     private Field field;		// Reflected field
@@ -252,4 +265,5 @@ public class ObjectStreamField implements Comparable
 
     private String signature;   // the signature of the field
     private long fieldID = Bridge.INVALID_FIELD_OFFSET ; 
+    private int callType = -1 ;	// see getCallType
 }
@@ -110,6 +110,34 @@ public class ValueHandlerImpl implements javax.rmi.CORBA.ValueHandlerMultiFormat
     public static final short kAbstractType = 1;
     public static final short kValueType = 2;
 
+    /**
+     * Returns the call type (kRemoteType, kAbstractType or kValueType)
+     * used to marshal a value whose declared type is the given field
+     * or array component type.  For interfaces this reflects over all
+     * of the interface's methods, so callers marshaling many values of
+     * one type should compute it once; ObjectStreamField caches it.
+     */
+    static int getCallType(Class type)
+    {
+	if (!type.isInterface())
+	    return kValueType;
+
+	if (java.rmi.Remote.class.isAssignableFrom(type)) {
+	    // RMI Object reference...
+	    return kRemoteType;
+	} else if (org.omg.CORBA.Object.class.isAssignableFrom(type)) {
+	    // IDL Object reference...
+	    return kRemoteType;
+	} else if (RepositoryId.isAbstractBase(type)) {
+	    // IDL Abstract Object reference...
+	    return kAbstractType;
+	} else if (ObjectStreamClassCorbaExt.isAbstractInterface(type)) {
+	    // RMI Abstract Object reference...
+	    return kAbstractType;
+	}
+	return kValueType;
+    }
+
     private Hashtable inputStreamPairs = null;
     private Hashtable outputStreamPairs = null;
     private CodeBase codeBase = null;
@@ -526,24 +554,7 @@ public class ValueHandlerImpl implements javax.rmi.CORBA.ValueHandlerMultiFormat
             Object[] array = (Object[])((Object)obj);
             length = array.length;
             out.write_ulong(length);
-	    int callType = kValueType;
-			
-	    if (type.isInterface()) { 
-		String className = type.getName();
-				
-		if (java.rmi.Remote.class.isAssignableFrom(type)) {
-		    // RMI Object reference...
-		    callType = kRemoteType;
-		} else if (org.omg.CORBA.Object.class.isAssignableFrom(type)){
-		    // IDL Object reference...
-		    callType = kRemoteType;
-		} else if (RepositoryId.isAbstractBase(type)) {
-		    // IDL Abstract Object reference...
-		    callType = kAbstractType;
-		} else if (ObjectStreamClassCorbaExt.isAbstractInterface(type)) {
-		    callType = kAbstractType;
-	        }
-	    }
+	    int callType = getCallType(type);
 			
 	    for (i = 0; i < length; i++) {
 		switch (callType) {
@@ -687,36 +698,16 @@ public class ValueHandlerImpl implements javax.rmi.CORBA.ValueHandlerMultiFormat
 		// If it is a componentType for which we need to load a stub,
 		// convert the componentType to the correct stub type.
 				
-                int callType = kValueType;
+                int callType = getCallType(componentType);
                 boolean narrow = false;
 				
                 if (componentType.isInterface()) { 
-                    boolean loadStubClass = false;
-                    // String className = componentType.getName();
-                        
-                    if (java.rmi.Remote.class.isAssignableFrom(componentType)) {
-						
-                        // RMI Object reference...
-                        callType = kRemoteType;
-                        
-                        // for better performance, load the stub class once
-                        // instead of for each element of the array
-                        loadStubClass = true;
-                    } else if (org.omg.CORBA.Object.class.isAssignableFrom(componentType)){
-                        // IDL Object reference...
-                        callType = kRemoteType;
-                        loadStubClass = true;
-                    } else if (RepositoryId.isAbstractBase(componentType)) {
-                        // IDL Abstract Object reference...
-                        callType = kAbstractType;
-                        loadStubClass = true;
-                    } else if (ObjectStreamClassCorbaExt.isAbstractInterface(componentType)) {
-                        
-                        // RMI Abstract Object reference...
-                        
-                        // componentType = null;
-                        callType = kAbstractType;
-                    }
+                    // RMI and IDL Object references and IDL Abstract
+                    // Object references need a stub.  For better
+                    // performance, load the stub class once instead of
+                    // for each element of the array.
+                    boolean loadStubClass = (callType == kRemoteType) ||
+                        RepositoryId.isAbstractBase(componentType);
 
                     if (loadStubClass) {
                         try {
@@ -249,7 +249,7 @@ public class ORBImpl extends com.sun.corba.se.spi.orb.ORB
 
     private ObjectKeyFactory objectKeyFactory ;
 
-    private ThreadPoolManager threadpoolMgr;
+    private volatile ThreadPoolManager threadpoolMgr;
 
     private void dprint( String msg )
     {
@@ -1836,6 +1836,12 @@ public class ORBImpl extends com.sun.corba.se.spi.orb.ORB
 
     public ThreadPoolManager getThreadPoolManager() 
     {
+	// Every dispatch looks up the pool, so avoid the lock once the
+	// manager has been created.
+	ThreadPoolManager mgr = threadpoolMgr;
+	if (mgr != null) {
+	    return mgr;
+	}
 	synchronized (threadPoolManagerAccessLock) {
 	    if (threadpoolMgr == null) {
 		threadpoolMgr = new ThreadPoolManagerImpl( threadGroup );
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package com.sun.corba.se.impl.orbutil;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.corba.se.spi.monitoring.LongMonitoredAttributeBase;
+import com.sun.corba.se.spi.monitoring.MonitoredObject;
+import com.sun.corba.se.spi.monitoring.MonitoringConstants;
+import com.sun.corba.se.spi.monitoring.MonitoringFactories;
+
+/**
+ * A bounded cache that can be read and updated concurrently without
+ * locking, for the JVM wide caches of the ORB such as the repository
+ * ID caches.
+ * <p>
+ * With weak keys, keys are compared by identity and an entry goes away
+ * when its key is garbage collected, so that caching information about
+ * a Class does not keep its class loader alive.  When the cache grows
+ * past its maximum size, arbitrary entries are dropped until it is back
+ * to three quarters of the maximum; cached values must therefore be
+ * recomputable.
+ * <p>
+ * Hit and miss counts and the size of each cache are reported under
+ * the "cache" node of the ORB monitoring root.
+ */
+public class ConcurrentCache
+{
+    private final String name;
+    private final int maxSize;
+    private final ConcurrentHashMap map = new ConcurrentHashMap();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Queue of collected WeakKeys; null unless the keys are weak.
+    private final ReferenceQueue queue;
+
+    // The key of an entry of a cache with weak keys.  Lookups use a
+    // WeakKey that is not registered with the queue.
+    private static final class WeakKey extends WeakReference
+    {
+	private final int hash;
+
+	WeakKey(Object key, ReferenceQueue queue)
+	{
+	    super(key, queue);
+	    hash = System.identityHashCode(key);
+	}
+
+	public int hashCode()
+	{
+	    return hash;
+	}
+
+	public boolean equals(Object obj)
+	{
+	    if (obj == this)
+		return true;
+	    if (!(obj instanceof WeakKey))
+		return false;
+	    Object key = get();
+	    return key != null && key == ((WeakKey)obj).get();
+	}
+    }
+
+    /**
+     * Create a cache that holds at most maxSize entries and reports its
+     * statistics under the given name.
+     */
+    public ConcurrentCache(String name, int maxSize, boolean weakKeys)
+    {
+	this.name = name;
+	this.maxSize = maxSize;
+	this.queue = weakKeys ? new ReferenceQueue() : null;
+	initializeMonitoring();
+    }
+
+    public String getName()
+    {
+	return name;
+    }
+
+    /**
+     * Returns the value cached for key, or null if there is none.
+     */
+    public Object get(Object key)
+    {
+	Object value;
+	if (queue == null) {
+	    value = map.get(key);
+	} else {
+	    expungeStaleEntries();
+	    value = map.get(new WeakKey(key, null));
+	}
+	if (value != null)
+	    hits.increment();
+	else
+	    misses.increment();
+	return value;
+    }
+
+    /**
+     * Caches value for key unless the cache already has a value for it.
+     * Returns the value that is now cached for key.
+     */
+    public Object putIfAbsent(Object key, Object value)
+    {
+	Object k = (queue == null) ? key : new WeakKey(key, queue);
+	Object old = map.putIfAbsent(k, value);
+	if (old != null)
+	    return old;
+	if (size.incrementAndGet() > maxSize)
+	    trim();
+	return value;
+    }
+
+    public void remove(Object key)
+    {
+	Object k = (queue == null) ? key : new WeakKey(key, null);
+	if (map.remove(k) != null)
+	    size.decrementAndGet();
+    }
+
+    public int size()
+    {
+	return size.get();
+    }
+
+    public long getHitCount()
+    {
+	return hits.sum();
+    }
+
+    public long getMissCount()
+    {
+	return misses.sum();
+    }
+
+    private void trim()
+    {
+	expungeStaleEntries();
+	int target = maxSize - maxSize / 4;
+	Iterator keys = map.keySet().iterator();
+	while (size.get() > target && keys.hasNext()) {
+	    if (map.remove(keys.next()) != null)
+		size.decrementAndGet();
+	}
+    }
+
+    private void expungeStaleEntries()
+    {
+	Object stale;
+	while ((stale = queue.poll()) != null) {
+	    // A collected WeakKey only equals itself.
+	    if (map.remove(stale) != null)
+		size.decrementAndGet();
+	}
+    }
+
+    private void initializeMonitoring()
+    {
+	MonitoredObject root = MonitoringFactories.getMonitoringManagerFactory().
+	    createMonitoringManager(MonitoringConstants.DEFAULT_MONITORING_ROOT,
+		null).getRootMonitoredObject();
+
+	MonitoredObject cacheRoot;
+	MonitoredObject cacheMO;
+	synchronized (root) {
+	    cacheRoot = root.getChild(MonitoringConstants.CACHE_MONITORING_ROOT);
+	    if (cacheRoot == null) {
+		cacheRoot = MonitoringFactories.getMonitoredObjectFactory().
+		    createMonitoredObject(
+			MonitoringConstants.CACHE_MONITORING_ROOT,
+			MonitoringConstants.CACHE_MONITORING_ROOT_DESCRIPTION);
+		root.addChild(cacheRoot);
+	    }
+	    if (cacheRoot.getChild(name) != null)
+		return;
+	    cacheMO = MonitoringFactories.getMonitoredObjectFactory().
+		createMonitoredObject(name,
+		    MonitoringConstants.CACHE_MONITORING_DESCRIPTION);
+	    cacheRoot.addChild(cacheMO);
+	}
+
+	cacheMO.addAttribute(new LongMonitoredAttributeBase(
+		MonitoringConstants.CACHE_HIT_COUNT,
+		MonitoringConstants.CACHE_HIT_COUNT_DESCRIPTION) {
+	    public Object getValue() {
+		return new Long(ConcurrentCache.this.getHitCount());
+	    }
+	});
+	cacheMO.addAttribute(new LongMonitoredAttributeBase(
+		MonitoringConstants.CACHE_MISS_COUNT,
+		MonitoringConstants.CACHE_MISS_COUNT_DESCRIPTION) {
+	    public Object getValue() {
+		return new Long(ConcurrentCache.this.getMissCount());
+	    }
+	});
+	cacheMO.addAttribute(new LongMonitoredAttributeBase(
+		MonitoringConstants.CACHE_SIZE,
+		MonitoringConstants.CACHE_SIZE_DESCRIPTION) {
+	    public Object getValue() {
+		return new Long(ConcurrentCache.this.size());
+	    }
+	});
+    }
+}
+
+// End of file.
@@ -162,10 +162,15 @@ public class ORBConstants {
     public static final String GIOP_11_BUFFMGR                  = SUN_PREFIX + "giop.ORBGIOP11BuffMgr";
     public static final String GIOP_12_BUFFMGR                  = SUN_PREFIX + "giop.ORBGIOP12BuffMgr";
     public static final String GIOP_TARGET_ADDRESSING           = SUN_PREFIX + "giop.ORBTargetAddressing";    
+    // Number of GIOP fragments the streaming buffer manager collects
+    // before sending them with one gathering write.  The default of 1
+    // sends each fragment as soon as it is full.
+    public static final String GIOP_FRAGMENT_WRITE_BATCH_SIZE_PROPERTY = SUN_PREFIX + "giop.ORBFragmentWriteBatchSize";
     public static final int GIOP_DEFAULT_FRAGMENT_SIZE = 1024;
     public static final int GIOP_DEFAULT_BUFFER_SIZE = 1024;
     public static final int DEFAULT_GIOP_11_BUFFMGR = 0; //Growing
     public static final int DEFAULT_GIOP_12_BUFFMGR = 2; //Streaming
+    public static final int DEFAULT_GIOP_FRAGMENT_WRITE_BATCH_SIZE = 1;
     public static final short ADDR_DISP_OBJKEY = 0; // object key used for target addressing
     public static final short ADDR_DISP_PROFILE = 1; // iop profile used for target addressing
     public static final short ADDR_DISP_IOR = 2; // ior used for target addressing
@@ -261,6 +266,25 @@ public class ORBConstants {
     public static final String DISABLE_DIRECT_BYTE_BUFFER_USE_PROPERTY =
 	SUN_PREFIX + "transport.ORBDisableDirectByteBufferUse" ;
 
+    // Number of ByteBufferPool size classes.  Class n holds direct
+    // ByteBuffers of the GIOP fragment size times 2^n; larger requests
+    // get non-pooled heap ByteBuffers.
+    public static final String BYTE_BUFFER_POOL_SIZE_CLASSES_PROPERTY =
+	SUN_PREFIX + "transport.ORBByteBufferPoolSizeClasses" ;
+
+    // Maximum number of bytes of free direct ByteBuffers kept by the
+    // ByteBufferPool before it trims itself.
+    public static final String BYTE_BUFFER_POOL_HIGH_WATER_MARK_PROPERTY =
+	SUN_PREFIX + "transport.ORBByteBufferPoolHighWaterMark" ;
+
+    // Maximum number of cached outbound connections to one endpoint.
+    // A new connection is opened only when every cached connection to
+    // the endpoint has requests outstanding; otherwise requests go to
+    // the connection with the fewest outstanding requests.
+    public static final String MAX_CONNECTIONS_PER_ENDPOINT_PROPERTY =
+	SUN_PREFIX + "transport.ORBMaxConnectionsPerEndpoint" ;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT = 1 ;
+
     public static final String SOCKET        = "Socket";
     public static final String SOCKETCHANNEL = "SocketChannel";
 
@@ -393,6 +417,10 @@ public class ORBConstants {
     public static final String THREADPOOL_DEFAULT_NAME = "default-threadpool";
     // Default name of the workqueue
     public static final String WORKQUEUE_DEFAULT_NAME = "default-workqueue";
+    // "true" selects the work-stealing ThreadPool implementation in the
+    // default ThreadPoolManager
+    public static final String USE_WORK_STEALING_THREADPOOL_PROPERTY =
+	SUN_PREFIX + "threadpool.ORBUseWorkStealingThreadPool";
 
     // Constants for minor code bases **************************************************************
     // This is the value that pre-Merlin Sun ORBs incorrectly used.  We preserve this
@@ -16,7 +16,6 @@
 package com.sun.corba.se.impl.orbutil;
 
 import java.util.Stack;
-import java.util.Hashtable;
 import java.util.EmptyStackException;
 import java.util.Enumeration;
 
@@ -68,24 +67,28 @@ class RepositoryIdPool_1_3 extends Stack {
 
 }
 
-public class RepositoryIdCache_1_3 extends Hashtable {
+public class RepositoryIdCache_1_3 {
 
     private RepositoryIdPool_1_3 pool = new RepositoryIdPool_1_3();
+
+    // Maps repository ID strings to parsed RepositoryId_1_3s.  Lookups do not
+    // lock, and the number of cached IDs is bounded.
+    private final ConcurrentCache ids =
+        new ConcurrentCache("repositoryIds_1_3", 4096, false);
     
     public RepositoryIdCache_1_3() {
         pool.setCaches(this);    
     }
     
-    public final synchronized RepositoryId_1_3 getId(String key) {
-        RepositoryId_1_3 repId = (RepositoryId_1_3)super.get(key);
+    public final RepositoryId_1_3 getId(String key) {
+        RepositoryId_1_3 repId = (RepositoryId_1_3)ids.get(key);
 
         if (repId != null)
             return repId;
         else {
             //repId = pool.popId().init(key);
 	    repId = new RepositoryId_1_3(key);
-            put(key, repId);
-            return repId;
+            return (RepositoryId_1_3)ids.putIfAbsent(key, repId);
         }
 
     }
@@ -5,13 +5,17 @@
 
 package com.sun.corba.se.impl.orbutil.threadpool;
 
+import java.security.AccessController;
+
 import com.sun.corba.se.spi.orbutil.threadpool.NoSuchThreadPoolException;
 import com.sun.corba.se.spi.orbutil.threadpool.ThreadPool;
 import com.sun.corba.se.spi.orbutil.threadpool.ThreadPoolManager;
 import com.sun.corba.se.spi.orbutil.threadpool.ThreadPoolChooser;
 
 import com.sun.corba.se.impl.orbutil.threadpool.ThreadPoolImpl;
+import com.sun.corba.se.impl.orbutil.threadpool.WorkStealingThreadPoolImpl;
 import com.sun.corba.se.impl.orbutil.ORBConstants;
+import com.sun.corba.se.impl.orbutil.GetPropertyAction;
 
 public class ThreadPoolManagerImpl implements ThreadPoolManager 
 { 
@@ -26,8 +30,15 @@ public class ThreadPoolManagerImpl implements ThreadPoolManager
 	// die after the idle timeout.
 	// XXX Should there be cleanup when ORB.shutdown is called if the
 	// ORB owns the ThreadPool?
-	threadPool = new ThreadPoolImpl( tg,
-	    ORBConstants.THREADPOOL_DEFAULT_NAME ) ;
+	String useWorkStealing = (String)AccessController.doPrivileged(
+	    new GetPropertyAction(
+		ORBConstants.USE_WORK_STEALING_THREADPOOL_PROPERTY ) ) ;
+	if ("true".equalsIgnoreCase( useWorkStealing ))
+	    threadPool = new WorkStealingThreadPoolImpl( tg,
+		ORBConstants.THREADPOOL_DEFAULT_NAME ) ;
+	else
+	    threadPool = new ThreadPoolImpl( tg,
+		ORBConstants.THREADPOOL_DEFAULT_NAME ) ;
     }
 
     /** 
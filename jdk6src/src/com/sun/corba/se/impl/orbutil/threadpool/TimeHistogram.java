@@ -0,0 +1,95 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package com.sun.corba.se.impl.orbutil.threadpool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of elapsed times in milliseconds that can be updated and
+ * read concurrently without locking.  Bucket 0 counts times below 1 ms,
+ * bucket i counts times in [2^(i-1), 2^i) ms, and the last bucket
+ * counts everything longer.
+ * <p>
+ * Every worker records into the same histogram, so each counter is a
+ * striped adder rather than a single atomic word.
+ */
+class TimeHistogram
+{
+    private static final int BUCKETS = 18 ;	// last bucket: >= 65536 ms
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS] ;
+    private final LongAdder count = new LongAdder() ;
+    private final LongAdder total = new LongAdder() ;
+
+    TimeHistogram()
+    {
+	for (int i = 0; i < BUCKETS; i++)
+	    counts[i] = new LongAdder() ;
+    }
+
+    void record( long millis )
+    {
+	if (millis < 0)
+	    millis = 0 ;
+	int bucket = 0 ;
+	long bound = 1 ;
+	while (millis >= bound && bucket < BUCKETS - 1) {
+	    bucket++ ;
+	    bound <<= 1 ;
+	}
+	counts[bucket].increment() ;
+	count.increment() ;
+	total.add( millis ) ;
+    }
+
+    long getCount()
+    {
+	return count.sum() ;
+    }
+
+    /**
+     * Average of all recorded times, or 0 if nothing has been recorded.
+     */
+    long getAverage()
+    {
+	long n = count.sum() ;
+	return n == 0 ? 0 : total.sum() / n ;
+    }
+
+    /**
+     * Returns a snapshot of the bucket counts.  The buckets are read
+     * one at a time, so the snapshot may include some records that
+     * were added while it was taken.
+     */
+    long[] getCounts()
+    {
+	long[] result = new long[BUCKETS] ;
+	for (int i = 0; i < BUCKETS; i++)
+	    result[i] = counts[i].sum() ;
+	return result ;
+    }
+
+    /**
+     * Returns the non-empty buckets as "&lt;lower bound&gt;ms=count"
+     * pairs, for example "0ms=12 4ms=3".
+     */
+    public String toString()
+    {
+	long[] snapshot = getCounts() ;
+	StringBuffer sb = new StringBuffer() ;
+	for (int i = 0; i < BUCKETS; i++) {
+	    if (snapshot[i] == 0)
+		continue ;
+	    if (sb.length() > 0)
+		sb.append( ' ' ) ;
+	    long lower = (i == 0) ? 0 : (1L << (i - 1)) ;
+	    sb.append( lower ).append( "ms=" ).append( snapshot[i] ) ;
+	}
+	return sb.toString() ;
+    }
+}
+
+// End of file.
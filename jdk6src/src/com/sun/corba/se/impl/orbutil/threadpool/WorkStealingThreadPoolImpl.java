@@ -0,0 +1,432 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package com.sun.corba.se.impl.orbutil.threadpool;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.sun.corba.se.spi.orbutil.threadpool.NoSuchWorkQueueException;
+import com.sun.corba.se.spi.orbutil.threadpool.ThreadPool;
+import com.sun.corba.se.spi.orbutil.threadpool.Work;
+import com.sun.corba.se.spi.orbutil.threadpool.WorkQueue;
+
+import com.sun.corba.se.impl.orbutil.ORBConstants;
+
+import com.sun.corba.se.spi.monitoring.MonitoringConstants;
+import com.sun.corba.se.spi.monitoring.MonitoredObject;
+import com.sun.corba.se.spi.monitoring.MonitoringFactories;
+import com.sun.corba.se.spi.monitoring.LongMonitoredAttributeBase;
+import com.sun.corba.se.spi.monitoring.StringMonitoredAttributeBase;
+
+/**
+ * A ThreadPool whose workers take work from per-worker stripes of a
+ * WorkStealingWorkQueueImpl and steal from each other when idle, so that
+ * enqueueing and dequeueing work never contends on a single monitor.
+ * <p>
+ * The pool keeps the growth policy of ThreadPoolImpl: when work is added
+ * and no worker is available a new worker is created (up to the maximum
+ * for a bounded pool), since a worker may block waiting for the result of
+ * another queued work item.  Idle workers park and exit after the
+ * inactivity timeout if there are more than the minimum number of them.
+ */
+public class WorkStealingThreadPoolImpl implements ThreadPool
+{
+    private static final AtomicInteger threadCounter = new AtomicInteger(); // serial counter useful for debugging
+
+    private WorkStealingWorkQueueImpl workQueue;
+
+    // Stores the number of available worker threads, that is, workers
+    // that are not currently running a work item.
+    private final AtomicInteger availableWorkerThreads = new AtomicInteger();
+
+    // Stores the number of threads in the threadpool currently
+    private final AtomicInteger currentThreadCount = new AtomicInteger();
+
+    // Minimum number of worker threads created at instantiation of the threadpool
+    private int minWorkerThreads = 0;
+
+    // Maximum number of worker threads in the threadpool
+    private int maxWorkerThreads = 0;
+
+    // Inactivity timeout value for worker threads to exit and stop running
+    private long inactivityTimeout;
+
+    // Workers parked waiting for work.  A producer that removes a worker
+    // from this queue owns the job of waking it up.
+    private final ConcurrentLinkedQueue idleWorkers = new ConcurrentLinkedQueue();
+
+    // Distribution of the time taken to execute work items
+    private final TimeHistogram workCompletionTime = new TimeHistogram();
+
+    // Name of the ThreadPool
+    private String name;
+
+    // MonitoredObject for ThreadPool
+    private MonitoredObject threadpoolMonitoredObject;
+
+    // ThreadGroup in which threads should be created
+    private ThreadGroup threadGroup ;
+
+    /**
+     * This constructor is used to create an unbounded threadpool
+     */
+    public WorkStealingThreadPoolImpl(ThreadGroup tg, String threadpoolName) {
+	this(tg, 0, Integer.MAX_VALUE, ORBConstants.DEFAULT_INACTIVITY_TIMEOUT,
+	    threadpoolName);
+    }
+
+    /**
+     * This constructor is used to create bounded threadpool
+     */
+    public WorkStealingThreadPoolImpl(ThreadGroup tg, int minSize, int maxSize,
+	long timeout, String threadpoolName)
+    {
+	minWorkerThreads = minSize;
+	maxWorkerThreads = maxSize;
+	inactivityTimeout = timeout;
+	threadGroup = tg ;
+	name = threadpoolName;
+	workQueue = new WorkStealingWorkQueueImpl(this,
+	    ORBConstants.WORKQUEUE_DEFAULT_NAME,
+	    2 * Runtime.getRuntime().availableProcessors());
+	for (int i = 0; i < minWorkerThreads; i++) {
+	    createWorkerThread();
+	}
+	initializeMonitoring();
+    }
+
+    // Setup monitoring for this threadpool
+    private void initializeMonitoring() {
+	// Get root monitored object
+	MonitoredObject root = MonitoringFactories.getMonitoringManagerFactory().
+		createMonitoringManager(MonitoringConstants.DEFAULT_MONITORING_ROOT, null).
+		getRootMonitoredObject();
+
+	// Create the threadpool monitoring root
+	MonitoredObject threadPoolMonitoringObjectRoot = root.getChild(
+		    MonitoringConstants.THREADPOOL_MONITORING_ROOT);
+	if (threadPoolMonitoringObjectRoot == null) {
+	    threadPoolMonitoringObjectRoot =  MonitoringFactories.
+		    getMonitoredObjectFactory().createMonitoredObject(
+		    MonitoringConstants.THREADPOOL_MONITORING_ROOT,
+		    MonitoringConstants.THREADPOOL_MONITORING_ROOT_DESCRIPTION);
+	    root.addChild(threadPoolMonitoringObjectRoot);
+	}
+	threadpoolMonitoredObject = MonitoringFactories.
+		    getMonitoredObjectFactory().
+		    createMonitoredObject(name,
+		    MonitoringConstants.THREADPOOL_MONITORING_DESCRIPTION);
+
+	threadPoolMonitoringObjectRoot.addChild(threadpoolMonitoredObject);
+
+	LongMonitoredAttributeBase b1 = new
+	    LongMonitoredAttributeBase(MonitoringConstants.THREADPOOL_CURRENT_NUMBER_OF_THREADS,
+		    MonitoringConstants.THREADPOOL_CURRENT_NUMBER_OF_THREADS_DESCRIPTION) {
+		public Object getValue() {
+		    return new Long(WorkStealingThreadPoolImpl.this.currentNumberOfThreads());
+		}
+	    };
+	threadpoolMonitoredObject.addAttribute(b1);
+	LongMonitoredAttributeBase b2 = new
+	    LongMonitoredAttributeBase(MonitoringConstants.THREADPOOL_NUMBER_OF_AVAILABLE_THREADS,
+		    MonitoringConstants.THREADPOOL_NUMBER_OF_AVAILABLE_THREADS_DESCRIPTION) {
+		public Object getValue() {
+		    return new Long(WorkStealingThreadPoolImpl.this.numberOfAvailableThreads());
+		}
+	    };
+	threadpoolMonitoredObject.addAttribute(b2);
+	LongMonitoredAttributeBase b3 = new
+	    LongMonitoredAttributeBase(MonitoringConstants.THREADPOOL_NUMBER_OF_BUSY_THREADS,
+		    MonitoringConstants.THREADPOOL_NUMBER_OF_BUSY_THREADS_DESCRIPTION) {
+		public Object getValue() {
+		    return new Long(WorkStealingThreadPoolImpl.this.numberOfBusyThreads());
+		}
+	    };
+	threadpoolMonitoredObject.addAttribute(b3);
+	LongMonitoredAttributeBase b4 = new
+	    LongMonitoredAttributeBase(MonitoringConstants.THREADPOOL_AVERAGE_WORK_COMPLETION_TIME,
+		    MonitoringConstants.THREADPOOL_AVERAGE_WORK_COMPLETION_TIME_DESCRIPTION) {
+		public Object getValue() {
+		    return new Long(WorkStealingThreadPoolImpl.this.averageWorkCompletionTime());
+		}
+	    };
+	threadpoolMonitoredObject.addAttribute(b4);
+	LongMonitoredAttributeBase b5 = new
+	    LongMonitoredAttributeBase(MonitoringConstants.THREADPOOL_CURRENT_PROCESSED_COUNT,
+		    MonitoringConstants.THREADPOOL_CURRENT_PROCESSED_COUNT_DESCRIPTION) {
+		public Object getValue() {
+		    return new Long(WorkStealingThreadPoolImpl.this.currentProcessedCount());
+		}
+	    };
+	threadpoolMonitoredObject.addAttribute(b5);
+	StringMonitoredAttributeBase b6 = new
+	    StringMonitoredAttributeBase(MonitoringConstants.THREADPOOL_WORK_COMPLETION_TIME_HISTOGRAM,
+		    MonitoringConstants.THREADPOOL_WORK_COMPLETION_TIME_HISTOGRAM_DESCRIPTION) {
+		public Object getValue() {
+		    return workCompletionTime.toString();
+		}
+	    };
+	threadpoolMonitoredObject.addAttribute(b6);
+
+	// Add the monitored object for the WorkQueue
+
+	threadpoolMonitoredObject.addChild(workQueue.getMonitoredObject());
+    }
+
+    // Package private method to get the monitored object for this
+    // class
+    MonitoredObject getMonitoredObject() {
+	return threadpoolMonitoredObject;
+    }
+
+    public WorkQueue getAnyWorkQueue()
+    {
+	return workQueue;
+    }
+
+    public WorkQueue getWorkQueue(int queueId)
+	throws NoSuchWorkQueueException
+    {
+	if (queueId != 0)
+	    throw new NoSuchWorkQueueException();
+	return workQueue;
+    }
+
+    /**
+     * Returns the home stripe of the calling thread if it is a worker of
+     * this pool, or -1 otherwise.
+     */
+    int homeStripeOfCurrentThread() {
+	Thread t = Thread.currentThread();
+	if (t instanceof WorkerThread && ((WorkerThread)t).getPool() == this)
+	    return ((WorkerThread)t).homeStripe;
+	return -1;
+    }
+
+    /**
+     * To be called from the workqueue when work is added to the
+     * workQueue.  Wakes up a parked worker if there is one, otherwise
+     * creates a new worker if none is available.
+     */
+    void notifyForAvailableWork() {
+	WorkerThread idle = (WorkerThread)idleWorkers.poll();
+	if (idle != null) {
+	    LockSupport.unpark(idle);
+	} else if (availableWorkerThreads.get() == 0) {
+	    createWorkerThread();
+	}
+    }
+
+    /**
+     * Create a worker thread, unless the pool already has its maximum
+     * number of threads.
+     */
+    void createWorkerThread() {
+	for (;;) {
+	    int count = currentThreadCount.get();
+	    if (count >= maxWorkerThreads) {
+		// See the REVISIT note in ThreadPoolImpl.createWorkerThread
+		// about a bounded pool running out of threads.
+		return;
+	    }
+	    if (currentThreadCount.compareAndSet(count, count + 1))
+		break;
+	}
+	availableWorkerThreads.incrementAndGet();
+
+	WorkerThread thread = new WorkerThread(threadGroup, getName());
+
+        // The thread must be set to a daemon thread so the
+        // VM can exit if the only threads left are PooledThreads
+        // or other daemons.  We don't want to rely on the
+        // calling thread always being a daemon.
+
+        // Catch exceptions since setDaemon can cause a
+        // security exception to be thrown under netscape
+        // in the Applet mode
+        try {
+            thread.setDaemon(true);
+        } catch (Exception e) {
+	    // REVISIT - need to do some logging here
+	}
+
+        thread.start();
+    }
+
+    public int minimumNumberOfThreads() {
+        return minWorkerThreads;
+    }
+
+    public int maximumNumberOfThreads() {
+        return maxWorkerThreads;
+    }
+
+    public long idleTimeoutForThreads() {
+        return inactivityTimeout;
+    }
+
+    public int currentNumberOfThreads() {
+	return currentThreadCount.get();
+    }
+
+    public int numberOfAvailableThreads() {
+	return availableWorkerThreads.get();
+    }
+
+    public int numberOfBusyThreads() {
+	return currentThreadCount.get() - availableWorkerThreads.get();
+    }
+
+    /**
+     * This method returns the average elapsed time taken to complete a Work
+     * item in milliseconds.  This method does not lock.
+     */
+    public long averageWorkCompletionTime() {
+	return workCompletionTime.getAverage();
+    }
+
+    /**
+     * This method returns the number of Work items processed by the threadpool
+     */
+    public long currentProcessedCount() {
+	return workCompletionTime.getCount();
+    }
+
+    /**
+     * Returns the distribution of the time taken to complete work items.
+     * See TimeHistogram for the bucket bounds.
+     */
+    public long[] workCompletionTimeHistogram() {
+	return workCompletionTime.getCounts();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int numberOfWorkQueues() {
+        return 1;
+    }
+
+    private class WorkerThread extends Thread
+    {
+        private int threadId = 0; // unique id for the thread
+	// stripe of the work queue this worker takes work from first
+	final int homeStripe;
+        // thread pool this WorkerThread belongs too
+        private String threadPoolName;
+	// name seen by Thread.getName()
+	private StringBuffer workerThreadName = new StringBuffer();
+
+        WorkerThread(ThreadGroup tg, String threadPoolName) {
+	    super(tg, "Idle");
+	    this.threadId = threadCounter.getAndIncrement();
+	    this.homeStripe = threadId & (workQueue.numberOfStripes() - 1);
+            this.threadPoolName = threadPoolName;
+	    setName(composeWorkerThreadName(threadPoolName, "Idle"));
+        }
+
+	WorkStealingThreadPoolImpl getPool() {
+	    return WorkStealingThreadPoolImpl.this;
+	}
+
+	// Returns the next work item, or null if this thread has been
+	// idle for the inactivity timeout and may exit.
+	private Work awaitWork() {
+	    long deadline = System.currentTimeMillis() + inactivityTimeout;
+	    for (;;) {
+		Work work = workQueue.pollWork(homeStripe);
+		if (work != null)
+		    return work;
+
+		// Advertise that we are about to park, then look again so
+		// that work added in between is not missed.
+		idleWorkers.offer(this);
+		work = workQueue.pollWork(homeStripe);
+		if (work != null) {
+		    if (!idleWorkers.remove(this)) {
+			// A producer already claimed us to process its
+			// work; pass the wakeup on.
+			notifyForAvailableWork();
+		    }
+		    return work;
+		}
+
+		long remaining = deadline - System.currentTimeMillis();
+		if (remaining > 0)
+		    LockSupport.parkNanos(this, remaining * 1000000L);
+
+		if (idleWorkers.remove(this) &&
+		    System.currentTimeMillis() >= deadline) {
+		    // Nobody woke us up and the timeout expired.
+		    return null;
+		}
+	    }
+	}
+
+        public void run() {
+            while (true) {
+		Work currentWork = awaitWork();
+		if (currentWork == null) {
+		    int count = currentThreadCount.get();
+		    if (count > minWorkerThreads &&
+			currentThreadCount.compareAndSet(count, count - 1)) {
+			availableWorkerThreads.decrementAndGet();
+			// Work queued after awaitWork gave up found neither
+			// an idle worker nor a need for a new one, so look
+			// once more and leave a replacement to run it.
+			if (workQueue.workItemsInQueue() > 0)
+			    createWorkerThread();
+			// This thread can exit.
+			return;
+		    }
+		    // Go back to waiting for work
+		    continue;
+		}
+
+		// As in ThreadPoolImpl, make sure that a thread is left to
+		// process queued work, since the work item we are about to
+		// run may wait for one of them.
+		if (availableWorkerThreads.decrementAndGet() == 0 &&
+		    workQueue.workItemsInQueue() > 0) {
+		    createWorkerThread();
+		}
+
+		// Set the thread name for debugging.
+		setName(composeWorkerThreadName(threadPoolName,
+				  Integer.toString(this.threadId)));
+
+		long start = System.currentTimeMillis();
+		try {
+		    // Do the work
+		    currentWork.doWork();
+		} catch (Throwable t) {
+		    // Ignore all errors.
+		    ;
+		}
+		workCompletionTime.record(System.currentTimeMillis() - start);
+
+		// set currentWork to null so that the work item can be
+		// garbage collected
+		currentWork = null;
+		availableWorkerThreads.incrementAndGet();
+
+		setName(composeWorkerThreadName(threadPoolName, "Idle"));
+	    }
+        }
+
+	private String composeWorkerThreadName(String poolName, String workerName) {
+            workerThreadName.setLength(0);
+	    workerThreadName.append("p: ").append(poolName);
+	    workerThreadName.append("; w: ").append(workerName);
+	    return workerThreadName.toString();
+	}
+    } // End of WorkerThread class
+
+}
+
+// End of file.
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package com.sun.corba.se.impl.orbutil.threadpool;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.corba.se.spi.orbutil.threadpool.ThreadPool;
+import com.sun.corba.se.spi.orbutil.threadpool.Work;
+import com.sun.corba.se.spi.orbutil.threadpool.WorkQueue;
+
+import com.sun.corba.se.spi.monitoring.MonitoringConstants;
+import com.sun.corba.se.spi.monitoring.MonitoringFactories;
+import com.sun.corba.se.spi.monitoring.MonitoredObject;
+import com.sun.corba.se.spi.monitoring.LongMonitoredAttributeBase;
+import com.sun.corba.se.spi.monitoring.StringMonitoredAttributeBase;
+
+/**
+ * WorkQueue used by WorkStealingThreadPoolImpl.  Instead of a single
+ * synchronized FIFO the queue is split into a fixed number of lock-free
+ * stripes.  Each worker thread has a home stripe that it takes work from
+ * first, and steals from the other stripes when its own is empty.  Work
+ * added by a worker thread goes to its home stripe; work added by any
+ * other thread (reader, listener or selector threads) is spread over the
+ * stripes round robin.
+ * <p>
+ * All statistics are kept in atomic counters, so reading them for
+ * monitoring never blocks producers or workers.
+ */
+public class WorkStealingWorkQueueImpl implements WorkQueue
+{
+    private WorkStealingThreadPoolImpl workerThreadPool;
+    private final ConcurrentLinkedQueue[] stripes;
+    private final int stripeMask;
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    private final AtomicInteger workItemsInQueue = new AtomicInteger();
+    private final LongAdder workItemsAdded = new LongAdder();
+    private final TimeHistogram timeInQueue = new TimeHistogram();
+
+    // Name of the work queue
+    private String name;
+
+    // MonitoredObject for work queue
+    private MonitoredObject workqueueMonitoredObject;
+
+    public WorkStealingWorkQueueImpl(WorkStealingThreadPoolImpl workerThreadPool,
+	String name, int numberOfStripes)
+    {
+	int n = 1;
+	while (n < numberOfStripes)
+	    n <<= 1;
+	stripes = new ConcurrentLinkedQueue[n];
+	for (int i = 0; i < n; i++)
+	    stripes[i] = new ConcurrentLinkedQueue();
+	stripeMask = n - 1;
+	this.workerThreadPool = workerThreadPool;
+	this.name = name;
+	initializeMonitoring();
+    }
+
+    // Setup monitoring for this workqueue
+    private void initializeMonitoring() {
+	workqueueMonitoredObject = MonitoringFactories.
+			    getMonitoredObjectFactory().
+			    createMonitoredObject(name,
+			    MonitoringConstants.WORKQUEUE_MONITORING_DESCRIPTION);
+
+	LongMonitoredAttributeBase b1 = new
+	    LongMonitoredAttributeBase(MonitoringConstants.WORKQUEUE_TOTAL_WORK_ITEMS_ADDED,
+		    MonitoringConstants.WORKQUEUE_TOTAL_WORK_ITEMS_ADDED_DESCRIPTION) {
+		public Object getValue() {
+		    return new Long(WorkStealingWorkQueueImpl.this.totalWorkItemsAdded());
+		}
+	    };
+	workqueueMonitoredObject.addAttribute(b1);
+	LongMonitoredAttributeBase b2 = new
+	    LongMonitoredAttributeBase(MonitoringConstants.WORKQUEUE_WORK_ITEMS_IN_QUEUE,
+		    MonitoringConstants.WORKQUEUE_WORK_ITEMS_IN_QUEUE_DESCRIPTION) {
+		public Object getValue() {
+		    return new Long(WorkStealingWorkQueueImpl.this.workItemsInQueue());
+		}
+	    };
+	workqueueMonitoredObject.addAttribute(b2);
+	LongMonitoredAttributeBase b3 = new
+	    LongMonitoredAttributeBase(MonitoringConstants.WORKQUEUE_AVERAGE_TIME_IN_QUEUE,
+		    MonitoringConstants.WORKQUEUE_AVERAGE_TIME_IN_QUEUE_DESCRIPTION) {
+		public Object getValue() {
+		    return new Long(WorkStealingWorkQueueImpl.this.averageTimeInQueue());
+		}
+	    };
+	workqueueMonitoredObject.addAttribute(b3);
+	StringMonitoredAttributeBase b4 = new
+	    StringMonitoredAttributeBase(MonitoringConstants.WORKQUEUE_TIME_IN_QUEUE_HISTOGRAM,
+		    MonitoringConstants.WORKQUEUE_TIME_IN_QUEUE_HISTOGRAM_DESCRIPTION) {
+		public Object getValue() {
+		    return timeInQueue.toString();
+		}
+	    };
+	workqueueMonitoredObject.addAttribute(b4);
+    }
+
+    // Package private method to get the monitored object for this
+    // class
+    MonitoredObject getMonitoredObject() {
+	return workqueueMonitoredObject;
+    }
+
+    public void addWork(Work work) {
+	work.setEnqueueTime(System.currentTimeMillis());
+	int stripe = workerThreadPool.homeStripeOfCurrentThread();
+	if (stripe < 0)
+	    stripe = nextStripe.getAndIncrement();
+	stripes[stripe & stripeMask].offer(work);
+	workItemsInQueue.incrementAndGet();
+	workItemsAdded.increment();
+	workerThreadPool.notifyForAvailableWork();
+    }
+
+    /**
+     * Take a work item, looking in the given home stripe first and then
+     * stealing from the others.  Returns null if every stripe is empty.
+     */
+    Work pollWork(int homeStripe) {
+	for (int i = 0; i <= stripeMask; i++) {
+	    Work workItem = (Work)stripes[(homeStripe + i) & stripeMask].poll();
+	    if (workItem != null) {
+		workItemsInQueue.decrementAndGet();
+		timeInQueue.record(System.currentTimeMillis() - workItem.getEnqueueTime());
+		return workItem;
+	    }
+	}
+	return null;
+    }
+
+    int numberOfStripes() {
+	return stripeMask + 1;
+    }
+
+    public void setThreadPool(ThreadPool workerThreadPool) {
+	this.workerThreadPool = (WorkStealingThreadPoolImpl)workerThreadPool;
+    }
+
+    public ThreadPool getThreadPool() {
+	return workerThreadPool;
+    }
+
+    public long totalWorkItemsAdded() {
+	return workItemsAdded.sum();
+    }
+
+    public int workItemsInQueue() {
+	return workItemsInQueue.get();
+    }
+
+    /**
+     * Returns the average time in milliseconds that work items spent
+     * in the queue.  This method does not lock.
+     */
+    public long averageTimeInQueue() {
+	return timeInQueue.getAverage();
+    }
+
+    /**
+     * Returns the distribution of the time work items spent in the
+     * queue.  See TimeHistogram for the bucket bounds.
+     */
+    public long[] timeInQueueHistogram() {
+	return timeInQueue.getCounts();
+    }
+
+    public String getName() {
+	return name;
+    }
+}
+
+// End of file.
@@ -138,6 +138,10 @@ public class CorbaClientRequestDispatcherImpl
 	synchronized (lock) {
 	    if (contactInfo.isConnectionBased()) {
 		if (contactInfo.shouldCacheConnection()) {
+		    // get returns null both when nothing is cached and when
+		    // every cached connection is busy and the endpoint may
+		    // have another one; either way a connection is created
+		    // and cached below.
 		    connection = (CorbaConnection)
 			orb.getTransportManager()
 			.getOutboundConnectionCache(contactInfo).get(contactInfo);
@@ -8,32 +8,135 @@
 package com.sun.corba.se.impl.transport;
 
 import java.nio.ByteBuffer;
+import java.security.AccessController;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.sun.corba.se.spi.orb.ORB;
 
 import com.sun.corba.se.pept.transport.ByteBufferPool;
 
+import com.sun.corba.se.impl.orbutil.GetPropertyAction;
+import com.sun.corba.se.impl.orbutil.ORBConstants;
+import com.sun.corba.se.impl.orbutil.ORBUtility;
+
 /**
  * @author Charlie Hunt
  */
 
 public class ByteBufferPoolImpl implements ByteBufferPool
 {
+    // Default number of size classes above the ORB fragment size.
+    // With the default 1024 byte fragment size the largest pooled
+    // buffer is 1024 << 10 = 1 MB.
+    private static final int DEFAULT_SIZE_CLASSES = 11;
+
+    // Default high-water mark for the bytes kept in all shards together.
+    private static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
     private ORB itsOrb;
     private int itsByteBufferSize;
-    private ArrayList itsPool;
-    private int itsObjectCounter = 0;
+    private Shard[] itsShards;
+    private int itsShardMask;
+    private int itsNumberOfSizeClasses;
+    private long itsShardHighWaterMark;
+    private AtomicInteger itsObjectCounter = new AtomicInteger();
     private boolean debug;
 
+    // Used with debug to find buffers that are never released (leaks)
+    // or released twice.  Maps each outstanding buffer to the stack
+    // trace of the thread that got it.
+    private Map itsOutstanding;
+
     // Construct a ByteBufferPool for a pool of NIO ByteBuffers
-    // of ORB fragment size.
+    // whose sizes are the ORB fragment size times a power of two.
     public ByteBufferPoolImpl(ORB theORB)
     {
         itsByteBufferSize = theORB.getORBData().getGIOPFragmentSize();
-        itsPool = new ArrayList();
         itsOrb = theORB;
         debug = theORB.transportDebugFlag;
+
+        itsNumberOfSizeClasses = getIntProperty(
+            ORBConstants.BYTE_BUFFER_POOL_SIZE_CLASSES_PROPERTY,
+            DEFAULT_SIZE_CLASSES);
+        if (itsNumberOfSizeClasses < 1)
+            itsNumberOfSizeClasses = 1;
+        // don't let the largest class overflow an int
+        while (itsNumberOfSizeClasses > 1 &&
+               ((long)itsByteBufferSize << (itsNumberOfSizeClasses - 1))
+                   > Integer.MAX_VALUE)
+            itsNumberOfSizeClasses--;
+
+        int numberOfShards = 1;
+        while (numberOfShards < Runtime.getRuntime().availableProcessors())
+            numberOfShards <<= 1;
+        itsShards = new Shard[numberOfShards];
+        for (int i = 0; i < numberOfShards; i++)
+            itsShards[i] = new Shard(itsNumberOfSizeClasses);
+        itsShardMask = numberOfShards - 1;
+
+        long maxPooledBytes = getIntProperty(
+            ORBConstants.BYTE_BUFFER_POOL_HIGH_WATER_MARK_PROPERTY, -1);
+        if (maxPooledBytes < 0)
+            maxPooledBytes = DEFAULT_MAX_POOLED_BYTES;
+        itsShardHighWaterMark = maxPooledBytes / numberOfShards;
+
+        if (debug)
+            itsOutstanding = new IdentityHashMap();
+    }
+
+    private static int getIntProperty(String name, int defaultValue)
+    {
+        String value = (String)AccessController.doPrivileged(
+            new GetPropertyAction(name));
+        if (value == null)
+            return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    // Free buffers of one thread's share of the pool, one stack per
+    // size class.  All fields are guarded by the Shard's monitor.
+    private static final class Shard
+    {
+        final ArrayList[] pools;
+        long pooledBytes;
+
+        Shard(int numberOfSizeClasses)
+        {
+            pools = new ArrayList[numberOfSizeClasses];
+            for (int i = 0; i < numberOfSizeClasses; i++)
+                pools[i] = new ArrayList();
+        }
+    }
+
+    // Pick the shard for the calling thread.  Buffers are usually
+    // released by the thread that got them, so they tend to stay in
+    // the same shard.
+    private Shard shardForCurrentThread()
+    {
+        long id = Thread.currentThread().getId();
+        return itsShards[(int)(id ^ (id >>> 16)) & itsShardMask];
+    }
+
+    // Return the size class whose buffers hold theSize bytes, or -1 if
+    // theSize is larger than the largest class.
+    private int sizeClassFor(int theSize)
+    {
+        int sizeClass = 0;
+        long classSize = itsByteBufferSize;
+        while (classSize < theSize) {
+            sizeClass++;
+            classSize <<= 1;
+            if (sizeClass >= itsNumberOfSizeClasses)
+                return -1;
+        }
+        return sizeClass;
     }
 
     /*
@@ -43,49 +146,61 @@ public class ByteBufferPoolImpl implements ByteBufferPool
      * 3. ByteBufferWithInfo(ORB, BufferManagerWrite) - constructor
     */
 
-    // If the requested ByteBuffer size is less than or equal to
-    // the ORB fragment size, and we have not disabled use of
-    // direct byte buffers (normally for debugging purposes)
-    // then get a DirectByteBuffer from the
-    // pool if there is one, if there is not one in the pool,
-    // then allocate a a DirectByteBuffer of ORB fragment size.
+    // If we have not disabled use of direct byte buffers (normally for
+    // debugging purposes) and the requested ByteBuffer size fits in one
+    // of the size classes, get a DirectByteBuffer of the smallest
+    // class that fits from the calling thread's shard of the pool.
+    // If there is not one in the pool, allocate a DirectByteBuffer of
+    // that class size.  The returned buffer is cleared, so its limit
+    // is its capacity, which may be larger than theAskSize.
     //
-    // If the request ByteBuffer size is greater than the ORB fragment
-    // size, allocate a new non-direct ByteBuffer.
+    // If the requested ByteBuffer size is larger than the largest size
+    // class, allocate a new non-direct ByteBuffer.
     public ByteBuffer getByteBuffer(int theAskSize)
     {
         ByteBuffer abb = null;
+        int sizeClass = sizeClassFor(theAskSize);
 
-        if ((theAskSize <= itsByteBufferSize) &&
+        if ((sizeClass >= 0) &&
 	    !itsOrb.getORBData().disableDirectByteBufferUse())
         {
-            // check if there's one in the pool, if not allocate one.
-            int poolSize;
-            synchronized (itsPool)
+            Shard shard = shardForCurrentThread();
+            synchronized (shard)
             {
-                poolSize = itsPool.size();
+                ArrayList pool = shard.pools[sizeClass];
+                int poolSize = pool.size();
                 if (poolSize > 0)
                 {
-                    abb = (ByteBuffer)itsPool.remove(poolSize - 1);
-
-                    // clear ByteBuffer before returning it
-                    abb.clear();
+                    abb = (ByteBuffer)pool.remove(poolSize - 1);
+                    shard.pooledBytes -= abb.capacity();
                 }
             }
 
-            // NOTE: Moved the 'else' part of the above if statement
-            //       outside the synchronized block since it is likely
-            //       less expensive to check poolSize than to allocate a
-            //       DirectByteBuffer in the synchronized block.
-            if (poolSize <= 0)
+            // Allocate outside the synchronized block since it is
+            // likely expensive to allocate a DirectByteBuffer.
+            if (abb == null)
             {
-                abb = ByteBuffer.allocateDirect(itsByteBufferSize);
+                abb = ByteBuffer.allocateDirect(itsByteBufferSize << sizeClass);
+            }
+            else
+            {
+                // clear ByteBuffer before returning it
+                abb.clear();
+            }
+
+            if (debug)
+            {
+                synchronized (itsOutstanding)
+                {
+                    itsOutstanding.put(abb, new Throwable(
+                        Thread.currentThread().getName() +
+                        ": ByteBuffer (" + System.identityHashCode(abb) +
+                        ") of " + abb.capacity() + " bytes not released"));
+                }
             }
 
             // increment the number of ByteBuffers gotten from pool
-            // IMPORTANT: Since this counter is used only for information
-            //            purposes, it does not use synchronized access.
-            itsObjectCounter++;
+            itsObjectCounter.incrementAndGet();
         }
         else
         {
@@ -110,63 +225,58 @@ public class ByteBufferPoolImpl implements ByteBufferPool
      * 8. CorbaMessageMediatorImpl.releaseByteBufferToPool()
     */
 
-    // If the ByteBuffer is a DirectByteBuffer, add it to the pool.
+    // If the ByteBuffer is a DirectByteBuffer of one of our size
+    // classes, add it to the calling thread's shard of the pool.
+    // If that takes the shard over its high-water mark, trim the shard
+    // back to half of it, dropping the largest buffers first.
     // Otherwise, set its reference to null since it's not kept in
     // the pool and caller is saying he/she is done with it.
-    // NOTE: The size of the ByteBuffer is not checked with the
-    //       this pool's ByteBuffer size since only DirectByteBuffers
-    //       ever allocated. Hence, only DirectByteBuffer are checked
-    //       here. An additional check could be added here for that though.
     public void releaseByteBuffer(ByteBuffer thebb) 
     {
         if (thebb.isDirect())
         {
-            synchronized (itsPool)
+            if (debug)
             {
-                // use with debug to determine if byteBuffer is already
-                // in the pool.
-                boolean refInPool = false;
-                int bbAddr = 0;
-
-                if (debug)
-                {
-                    // Check to make sure we don't have 'thebb' reference
-                    // already in the pool before adding it.
-
-                    for (int i = 0; i < itsPool.size() && refInPool == false; i++)
-                    {
-                         ByteBuffer tmpbb = (ByteBuffer)itsPool.get(i);
-                         if (thebb == tmpbb)
-                         {
-                             refInPool = true;
-                             bbAddr = System.identityHashCode(thebb);
-                         }
-                    }
-
-                }
-
-                // NOTE: The else part of this if will only get called
-                //       if debug = true and refInPool = true, see logic above.
-                if (refInPool == false || debug == false)
+                Object allocation;
+                synchronized (itsOutstanding)
                 {
-                    // add ByteBuffer back to the pool
-                    itsPool.add(thebb);
+                    allocation = itsOutstanding.remove(thebb);
                 }
-                else // otherwise, log a stack trace with duplicate message
+                if (allocation == null)
                 {
+                    // Either released twice or never gotten from the
+                    // pool: log a stack trace saying which.
                     String threadName = Thread.currentThread().getName();
+                    String what = isPooled(thebb) ?
+                        ": Duplicate ByteBuffer reference (" :
+                        ": Unpooled or foreign ByteBuffer reference (";
                     Throwable t =
-                            new Throwable(threadName + 
-                                         ": Duplicate ByteBuffer reference (" +
-                                         bbAddr + ")");
+                            new Throwable(threadName + what +
+                                         System.identityHashCode(thebb) + ")");
                     t.printStackTrace(System.out);
+                    return;
                 }
             }
 
             // decrement the count of ByteBuffers released
-            // IMPORTANT: Since this counter is used only for information
-            //            purposes, it does not use synchronized access.
-            itsObjectCounter--;
+            itsObjectCounter.decrementAndGet();
+
+            int sizeClass = sizeClassFor(thebb.capacity());
+            if (sizeClass < 0 ||
+                (itsByteBufferSize << sizeClass) != thebb.capacity())
+            {
+                // Not one of ours; let it be garbage collected.
+                return;
+            }
+
+            Shard shard = shardForCurrentThread();
+            synchronized (shard)
+            {
+                shard.pools[sizeClass].add(thebb);
+                shard.pooledBytes += thebb.capacity();
+                if (shard.pooledBytes > itsShardHighWaterMark)
+                    trim(shard, itsShardHighWaterMark / 2);
+            }
         }
         else
         {
@@ -175,14 +285,80 @@ public class ByteBufferPoolImpl implements ByteBufferPool
         }
     }
 
+    // Used with debug to tell whether thebb is already in one of the
+    // shards, that is, whether it has been released twice.
+    private boolean isPooled(ByteBuffer thebb)
+    {
+        for (int i = 0; i < itsShards.length; i++)
+        {
+            Shard shard = itsShards[i];
+            synchronized (shard)
+            {
+                for (int j = 0; j < shard.pools.length; j++)
+                {
+                    ArrayList pool = shard.pools[j];
+                    for (int k = 0; k < pool.size(); k++)
+                    {
+                        if (pool.get(k) == thebb)
+                            return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Drop pooled buffers, largest first, until the shard holds at
+    // most lowWaterMark bytes.  Must be called holding the shard's
+    // monitor.
+    private void trim(Shard shard, long lowWaterMark)
+    {
+        for (int i = shard.pools.length - 1;
+             i >= 0 && shard.pooledBytes > lowWaterMark; i--)
+        {
+            ArrayList pool = shard.pools[i];
+            while (pool.size() > 0 && shard.pooledBytes > lowWaterMark)
+            {
+                ByteBuffer bb = (ByteBuffer)pool.remove(pool.size() - 1);
+                shard.pooledBytes -= bb.capacity();
+            }
+        }
+    }
+
 
     // Get a count of the outstanding allocated DirectByteBuffers.
     // (Those allocated and have not been returned to the pool).
-    // IMPORTANT: Since this counter is used only for information
-    //            purposes, it does not use synchronized access.
     public int activeCount()
     {
-         return itsObjectCounter;
+         return itsObjectCounter.get();
+    }
+
+    // With debug on, print the allocation stack trace of every
+    // DirectByteBuffer that has been gotten from the pool and not yet
+    // released.  Returns the number of such buffers.
+    public int reportOutstandingByteBuffers()
+    {
+        if (!debug)
+            return activeCount();
+
+        Object[] allocations;
+        synchronized (itsOutstanding)
+        {
+            allocations = itsOutstanding.values().toArray();
+        }
+        if (allocations.length > 0)
+        {
+            dprint(".reportOutstandingByteBuffers: " + allocations.length +
+                   " ByteBuffer(s) not released to the pool");
+            for (int i = 0; i < allocations.length; i++)
+                ((Throwable)allocations[i]).printStackTrace(System.out);
+        }
+        return allocations.length;
+    }
+
+    private void dprint(String msg)
+    {
+        ORBUtility.dprint("ByteBufferPoolImpl", msg);
     }
 }
 
@@ -7,6 +7,8 @@
 
 package com.sun.corba.se.impl.transport;
 
+import java.security.AccessController;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -21,9 +23,12 @@ import com.sun.corba.se.spi.monitoring.MonitoringConstants;
 import com.sun.corba.se.spi.monitoring.MonitoringFactories;
 import com.sun.corba.se.spi.monitoring.MonitoredObject;
 import com.sun.corba.se.spi.orb.ORB;
+import com.sun.corba.se.spi.transport.CorbaConnection;
 import com.sun.corba.se.spi.transport.CorbaConnectionCache;
 import com.sun.corba.se.spi.transport.CorbaContactInfo;
 
+import com.sun.corba.se.impl.orbutil.GetPropertyAction;
+import com.sun.corba.se.impl.orbutil.ORBConstants;
 import com.sun.corba.se.impl.orbutil.ORBUtility;
 
 /**
@@ -35,13 +40,33 @@ public class CorbaOutboundConnectionCacheImpl
     implements
 	OutboundConnectionCache
 {
+    // Maps a ContactInfo to the ArrayList of its cached Connections.
     protected Hashtable connectionCache;
+    protected int maxConnectionsPerEndpoint;
 
     public CorbaOutboundConnectionCacheImpl(ORB orb, ContactInfo contactInfo) 
     {
 	super(orb, contactInfo.getConnectionCacheType(),
 	      ((CorbaContactInfo)contactInfo).getMonitoringName());
 	this.connectionCache = new Hashtable();
+	this.maxConnectionsPerEndpoint = getMaxConnectionsPerEndpoint();
+    }
+
+    private static int getMaxConnectionsPerEndpoint()
+    {
+	String value = (String)AccessController.doPrivileged(
+	    new GetPropertyAction(
+		ORBConstants.MAX_CONNECTIONS_PER_ENDPOINT_PROPERTY));
+	if (value != null) {
+	    try {
+		int max = Integer.parseInt(value.trim());
+		if (max >= 1)
+		    return max;
+	    } catch (NumberFormatException e) {
+		// use the default
+	    }
+	}
+	return ORBConstants.DEFAULT_MAX_CONNECTIONS_PER_ENDPOINT;
     }
 
     ////////////////////////////////////////////////////
@@ -49,6 +74,12 @@ public class CorbaOutboundConnectionCacheImpl
     // pept.transport.OutboundConnectionCache
     //
     
+    // Returns the cached connection to the endpoint with the fewest
+    // outstanding requests.  Returns null, so that the caller creates
+    // and puts a new connection, if there is none or if all of them
+    // have outstanding requests and the endpoint may have more.
+    // CorbaClientRequestDispatcherImpl.beginRequest, the only caller,
+    // already treats null as a cache miss and opens a connection.
     public Connection get(ContactInfo contactInfo) 
     {
 	if (orb.transportDebugFlag) {
@@ -56,7 +87,26 @@ public class CorbaOutboundConnectionCacheImpl
 	}
 	synchronized (backingStore()) {
 	    dprintStatistics();
-	    return (Connection) connectionCache.get(contactInfo);
+	    ArrayList connections = (ArrayList) connectionCache.get(contactInfo);
+	    if (connections == null) {
+		return null;
+	    }
+	    CorbaConnection leastLoaded = null;
+	    int leastOutstanding = Integer.MAX_VALUE;
+	    for (int i = 0; i < connections.size(); i++) {
+		CorbaConnection connection = (CorbaConnection) connections.get(i);
+		int outstanding =
+		    connection.getResponseWaitingRoom().numberRegistered();
+		if (outstanding < leastOutstanding) {
+		    leastLoaded = connection;
+		    leastOutstanding = outstanding;
+		}
+	    }
+	    if (leastOutstanding > 0 &&
+		connections.size() < maxConnectionsPerEndpoint) {
+		return null;
+	    }
+	    return leastLoaded;
 	}
     }
     
@@ -67,7 +117,14 @@ public class CorbaOutboundConnectionCacheImpl
 		   + connection);
 	}
 	synchronized (backingStore()) {
-	    connectionCache.put(contactInfo, connection);
+	    ArrayList connections = (ArrayList) connectionCache.get(contactInfo);
+	    if (connections == null) {
+		connections = new ArrayList(1);
+		connectionCache.put(contactInfo, connections);
+	    }
+	    if (! connections.contains(connection)) {
+		connections.add(connection);
+	    }
 	    connection.setConnectionCache(this);
 	    dprintStatistics();
 	}
@@ -91,9 +148,37 @@ public class CorbaOutboundConnectionCacheImpl
     // Implementation
     //
 
+    // Removes one connection to the endpoint, leaving any other cached
+    // connections to it in place.  Called when the connection is purged.
+    public void remove(ContactInfo contactInfo, Connection connection)
+    {
+	if (orb.transportDebugFlag) {
+	    dprint(".remove: " + contactInfo + " " + contactInfo.hashCode() + " "
+		   + connection);
+	}
+	synchronized (backingStore()) {
+	    if (contactInfo != null) {
+		ArrayList connections =
+		    (ArrayList) connectionCache.get(contactInfo);
+		if (connections != null) {
+		    connections.remove(connection);
+		    if (connections.isEmpty()) {
+			connectionCache.remove(contactInfo);
+		    }
+		}
+	    }
+	    dprintStatistics();
+	}
+    }
+
     public Collection values()
     {
-	return connectionCache.values();
+	ArrayList result = new ArrayList(connectionCache.size());
+	Iterator lists = connectionCache.values().iterator();
+	while (lists.hasNext()) {
+	    result.addAll((Collection) lists.next());
+	}
+	return result;
     }
 
     protected Object backingStore()
@@ -7,7 +7,8 @@
 
 package com.sun.corba.se.impl.transport;
 
-import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.omg.CORBA.CompletionStatus;
 import org.omg.CORBA.SystemException;
@@ -36,6 +37,9 @@ public class CorbaResponseWaitingRoomImpl
     implements
 	CorbaResponseWaitingRoom
 {
+    // The response future of one outstanding request.  It is completed
+    // by the reader thread, with either the reply or an exception, and
+    // awaited by the client thread.  The fields are guarded by done.
     final static class OutCallDesc
     {
         java.lang.Object done = new java.lang.Object();
@@ -43,14 +47,24 @@ public class CorbaResponseWaitingRoomImpl
 	MessageMediator messageMediator;
         SystemException exception;
         InputObject inputObject;
+
+	// Must be called holding done.
+	void complete(InputObject is, SystemException ex)
+	{
+	    inputObject = is;
+	    exception = ex;
+	    done.notify();
+	}
     }
 
     private ORB orb;
     private ORBUtilSystemException wrapper ;
 
     private CorbaConnection connection;
-    // Maps requestId to an OutCallDesc.
-    private Hashtable out_calls = null; // REVISIT - use int hastable/map
+    // Maps requestId to an OutCallDesc.  Registering, completing and
+    // unregistering different requests do not block each other, so
+    // many requests can be outstanding on one connection.
+    private ConcurrentHashMap out_calls = null;
 
     public CorbaResponseWaitingRoomImpl(ORB orb, CorbaConnection connection)
     {
@@ -58,7 +72,7 @@ public class CorbaResponseWaitingRoomImpl
 	wrapper = ORBUtilSystemException.get( orb, 
 	    CORBALogDomains.RPC_TRANSPORT ) ;
 	this.connection = connection;
-        out_calls = new Hashtable();
+        out_calls = new ConcurrentHashMap();
     }
 
     ////////////////////////////////////////////////////
@@ -223,14 +237,12 @@ public class CorbaResponseWaitingRoomImpl
 	    messageMediator.setReplyHeader(header);
 	    messageMediator.setInputObject(is);
 	    inputObject.setMessageMediator(messageMediator);
-            call.inputObject = is;
-            call.done.notify();
+            call.complete(is, null);
         }
     }
 
     public int numberRegistered()
     {
-        // Note: Hashtable.size() is not synchronized
 	return out_calls.size();
     }
 
@@ -247,9 +259,9 @@ public class CorbaResponseWaitingRoomImpl
 	}
 
         OutCallDesc call;
-        java.util.Enumeration e = out_calls.elements();
-        while(e.hasMoreElements()) {
-            call = (OutCallDesc) e.nextElement();
+        Iterator e = out_calls.values().iterator();
+        while(e.hasNext()) {
+            call = (OutCallDesc) e.next();
         
             synchronized(call.done){
                 // anything waiting for BufferManagerRead's fragment queue
@@ -266,9 +278,7 @@ public class CorbaResponseWaitingRoomImpl
                     int requestId = corbaMsgMediator.getRequestId();
                     bufferManager.cancelProcessing(requestId);
                 }
-                call.inputObject = null;
-                call.exception = systemException;
-                call.done.notify();
+                call.complete(null, systemException);
             }
         }
     }
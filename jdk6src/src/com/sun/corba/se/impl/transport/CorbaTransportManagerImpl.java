@@ -165,6 +165,12 @@ public class CorbaTransportManagerImpl
 		dprint(".close->");
 	    }
 	    getSelector(0).close();
+	    if (orb.transportDebugFlag) {
+		ByteBufferPool pool = orb.getByteBufferPool();
+		if (pool instanceof ByteBufferPoolImpl) {
+		    ((ByteBufferPoolImpl)pool).reportOutstandingByteBuffers();
+		}
+	    }
 	} finally {
 	    if (orb.transportDebugFlag) {
 		dprint(".close<-");
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package com.sun.corba.se.impl.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Optionally implemented by a {@link
+ * com.sun.corba.se.spi.transport.CorbaConnection} that can write
+ * several buffers with one call, such as the fragments of a GIOP
+ * message.  Buffer managers check for it with <code>instanceof</code>
+ * and otherwise write the buffers one at a time, so connections from
+ * other transports need not implement it.
+ */
+public interface GatheringConnection
+{
+    /**
+     * Write the given buffers in order.  The caller must hold the
+     * connection's writeLock.
+     */
+    public void write(ByteBuffer[] byteBuffers)
+	throws IOException;
+}
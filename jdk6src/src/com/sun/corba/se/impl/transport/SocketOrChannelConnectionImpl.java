@@ -79,6 +79,7 @@ public class SocketOrChannelConnectionImpl
 	EventHandlerBase
     implements
         CorbaConnection,
+	GatheringConnection,
 	Work
 {
     public static boolean dprintWriteLocks = false;
@@ -731,6 +732,40 @@ public class SocketOrChannelConnectionImpl
 	getConnectionCache().stampTime(this);
     }
 
+    // Write several buffers, such as the fragments of one message, in
+    // order.  With a SocketChannel this is a single gathering write
+    // (repeated only if the channel does not take all bytes at once).
+    public void write(ByteBuffer[] byteBuffers)
+	throws IOException
+    {
+	if (byteBuffers.length == 1) {
+	    write(byteBuffers[0]);
+	    return;
+	}
+	if (shouldUseDirectByteBuffers()) {
+	    ByteBuffer last = byteBuffers[byteBuffers.length - 1];
+            // IMPORTANT: For non-blocking SocketChannels, there's no guarantee
+            //            all bytes are written on first write attempt.
+            do {
+                getSocketChannel().write(byteBuffers);
+            }
+            while (last.hasRemaining());
+
+	} else {
+	    java.io.OutputStream os = getSocket().getOutputStream();
+	    for (int i = 0; i < byteBuffers.length; i++) {
+		if (! byteBuffers[i].hasArray()) {
+		    throw wrapper.unexpectedDirectByteBufferWithNonChannelSocket();
+		}
+		os.write(byteBuffers[i].array(), 0, byteBuffers[i].limit());
+	    }
+	    os.flush();
+	}
+
+	// TimeStamp connection to indicate it has been used
+	getConnectionCache().stampTime(this);
+    }
+
     /**
      * Note:it is possible for this to be called more than once
      */
@@ -1480,7 +1515,13 @@ public class SocketOrChannelConnectionImpl
 	    responseWaitingRoom.signalExceptionToAllWaiters(systemException);
 
 	    if (contactInfo != null) {
-		((OutboundConnectionCache)getConnectionCache()).remove(contactInfo);
+		ConnectionCache cache = getConnectionCache();
+		if (cache instanceof CorbaOutboundConnectionCacheImpl) {
+		    ((CorbaOutboundConnectionCacheImpl)cache)
+			.remove(contactInfo, this);
+		} else {
+		    ((OutboundConnectionCache)cache).remove(contactInfo);
+		}
 	    } else if (acceptor != null) {
 		((InboundConnectionCache)getConnectionCache()).remove(this);
 	    }
@@ -17,7 +17,9 @@ package com.sun.corba.se.impl.util;
 
 import java.util.StringTokenizer;
 import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 
 // Imports for using codebase URL to load class
@@ -29,6 +31,7 @@ import org.omg.CORBA.portable.IDLEntity;
 //import com.sun.corba.se.impl.util.JDKBridge;
 //import com.sun.corba.se.impl.util.IdentityHashtable;
 import com.sun.corba.se.impl.io.ObjectStreamClass;
+import com.sun.corba.se.impl.orbutil.ConcurrentCache;
 
 import javax.rmi.CORBA.Util;
 
@@ -75,12 +78,20 @@ public class RepositoryId {
 
     }
 
-    private static IdentityHashtable classToRepStr = new IdentityHashtable();
-    private static IdentityHashtable classIDLToRepStr = new IdentityHashtable();
-    private static IdentityHashtable classSeqToRepStr = new IdentityHashtable();
+    // The Class keyed caches have weak keys, so that a cached repository
+    // ID does not keep its class (and class loader) alive.
+    private static ConcurrentCache classToRepStr =
+	new ConcurrentCache("classToRepositoryId", 4096, true);
+    private static ConcurrentCache classIDLToRepStr =
+	new ConcurrentCache("classToIDLRepositoryId", 4096, true);
+    private static ConcurrentCache classSeqToRepStr =
+	new ConcurrentCache("classToSequenceRepositoryId", 4096, true);
 
     private static IdentityHashtable repStrToByteArray = new IdentityHashtable();
-    private static Hashtable repStrToClass = new Hashtable();
+    // Values are WeakReferences to the Class, for the same reason.  This
+    // map is not bounded: getAnyClassFromType() falls back to it when the
+    // class cannot be loaded, so its entries cannot be recomputed.
+    private static ConcurrentHashMap repStrToClass = new ConcurrentHashMap();
 
     private String repId = null;
     private boolean isSupportedFormat = true;
@@ -469,7 +480,8 @@ public class RepositoryId {
         try {
 	    return getClassFromType();
 	} catch (ClassNotFoundException cnfe) {
-	    Class clz = (Class)repStrToClass.get(repId);
+	    WeakReference ref = (WeakReference)repStrToClass.get(repId);
+	    Class clz = (ref == null) ? null : (Class)ref.get();
 	    if (clz != null)
 		return clz;
 	    else
@@ -642,8 +654,6 @@ public class RepositoryId {
      * @param clazz The Java class to create a repository ID for
      **/
     public static String createSequenceRepID(java.lang.Class clazz){
-	synchronized (classSeqToRepStr){
-		
         String repid = (String)classSeqToRepStr.get(clazz);
 	if (repid != null)
 	    return repid;
@@ -672,10 +682,8 @@ public class RepositoryId {
 	    buf.append(createHashString(clazz));
 	    repid = buf.toString();
 	}
-	classSeqToRepStr.put(originalClazz,repid);
+	classSeqToRepStr.putIfAbsent(originalClazz,repid);
 	return repid;
-	}
-
     }
 
 
@@ -706,7 +714,6 @@ public class RepositoryId {
     public static String createForJavaType(java.io.Serializable ser)
         throws com.sun.corba.se.impl.io.TypeMismatchException
     {
-	synchronized (classToRepStr) {
 	String repid = createForSpecialCase(ser);
 	if (repid != null)
 	    return repid;
@@ -719,11 +726,10 @@ public class RepositoryId {
 	repid = kValuePrefix + convertToISOLatin1(clazz.getName()) +
 	    createHashString(clazz);
 
-	classToRepStr.put(clazz, repid);
-	    repStrToClass.put(repid, clazz);
+	classToRepStr.putIfAbsent(clazz, repid);
+	repStrToClass.put(repid, new WeakReference(clazz));
         return repid;
     }
-    }
 
     /**
      * Creates a repository ID for a normal Java Type.
@@ -734,7 +740,6 @@ public class RepositoryId {
     public static String createForJavaType(Class clz)
         throws com.sun.corba.se.impl.io.TypeMismatchException
     {
-	synchronized (classToRepStr){
 	String repid = createForSpecialCase(clz);
 	if (repid != null)
 	    return repid;
@@ -746,11 +751,10 @@ public class RepositoryId {
         repid = kValuePrefix + convertToISOLatin1(clz.getName()) +
 	    createHashString(clz);
 
-	classToRepStr.put(clz, repid);
-	    repStrToClass.put(repid, clz);
+	classToRepStr.putIfAbsent(clz, repid);
+	repStrToClass.put(repid, new WeakReference(clz));
         return repid;
     }
-    }
 
     /**
      * Creates a repository ID for an IDL Java Type.
@@ -763,17 +767,15 @@ public class RepositoryId {
     public static String createForIDLType(Class ser, int major, int minor)
         throws com.sun.corba.se.impl.io.TypeMismatchException
     {
-	synchronized (classIDLToRepStr){
 	String repid = (String)classIDLToRepStr.get(ser);
 	if (repid != null)
 	    return repid;
 
         repid = kIDLPrefix + convertToISOLatin1(ser.getName()).replace('.','/') +
 	    ":" + major + "." + minor;
-	classIDLToRepStr.put(ser, repid);
+	classIDLToRepStr.putIfAbsent(ser, repid);
 	return repid;
     }
-    }
 
     private static String getIdFromHelper(Class clazz){
     	try {
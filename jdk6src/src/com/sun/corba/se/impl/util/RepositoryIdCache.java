@@ -16,10 +16,11 @@
 package com.sun.corba.se.impl.util;
 
 import java.util.Stack;
-import java.util.Hashtable;
 import java.util.EmptyStackException;
 import java.util.Enumeration;
 
+import com.sun.corba.se.impl.orbutil.ConcurrentCache;
+
 // Really limited pool - in this case just creating several at a time...
 class RepositoryIdPool extends Stack {
     
@@ -68,24 +69,28 @@ class RepositoryIdPool extends Stack {
 
 }
 
-public class RepositoryIdCache extends Hashtable {
+public class RepositoryIdCache {
 
     private RepositoryIdPool pool = new RepositoryIdPool();
+
+    // Maps repository ID strings to parsed RepositoryIds.  Lookups do not
+    // lock, and the number of cached IDs is bounded.
+    private final ConcurrentCache ids =
+        new ConcurrentCache("repositoryIds", 4096, false);
     
     public RepositoryIdCache() {
         pool.setCaches(this);    
     }
     
-    public final synchronized RepositoryId getId(String key) {
-        RepositoryId repId = (RepositoryId)super.get(key);
+    public final RepositoryId getId(String key) {
+        RepositoryId repId = (RepositoryId)ids.get(key);
 
         if (repId != null)
             return repId;
         else {
             //repId = pool.popId().init(key);
 	    repId = new RepositoryId(key);
-            put(key, repId);
-            return repId;
+            return (RepositoryId)ids.putIfAbsent(key, repId);
         }
 
     }
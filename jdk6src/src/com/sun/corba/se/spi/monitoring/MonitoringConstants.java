@@ -77,6 +77,10 @@ public interface MonitoringConstants
 	"currentProcessedCount";
     public static final String THREADPOOL_CURRENT_PROCESSED_COUNT_DESCRIPTION =
 	"Number of Work items processed by the ThreadPool";
+    public static final String THREADPOOL_WORK_COMPLETION_TIME_HISTOGRAM =
+	"workCompletionTimeHistogram";
+    public static final String THREADPOOL_WORK_COMPLETION_TIME_HISTOGRAM_DESCRIPTION =
+	"Distribution of the elapsed time taken to complete work items";
 
     public static final String WORKQUEUE_MONITORING_DESCRIPTION =
 	"Monitoring for a Work Queue";
@@ -92,6 +96,29 @@ public interface MonitoringConstants
 	"averageTimeInQueue";
     public static final String WORKQUEUE_AVERAGE_TIME_IN_QUEUE_DESCRIPTION =
 	"Average time a work item waits in the work queue";
+    public static final String WORKQUEUE_TIME_IN_QUEUE_HISTOGRAM =
+	"timeInQueueHistogram";
+    public static final String WORKQUEUE_TIME_IN_QUEUE_HISTOGRAM_DESCRIPTION =
+	"Distribution of the time work items wait in the work queue";
+
+    //
+    // Cache Monitoring
+    //
+
+    public static final String CACHE_MONITORING_ROOT = "cache";
+    public static final String CACHE_MONITORING_ROOT_DESCRIPTION =
+	"Statistics for the caches shared by all ORBs";
+    public static final String CACHE_MONITORING_DESCRIPTION =
+	"Monitoring for a Cache";
+    public static final String CACHE_HIT_COUNT = "hitCount";
+    public static final String CACHE_HIT_COUNT_DESCRIPTION =
+	"Number of lookups that found an entry in the cache";
+    public static final String CACHE_MISS_COUNT = "missCount";
+    public static final String CACHE_MISS_COUNT_DESCRIPTION =
+	"Number of lookups that did not find an entry in the cache";
+    public static final String CACHE_SIZE = "size";
+    public static final String CACHE_SIZE_DESCRIPTION =
+	"Number of entries in the cache";
 }
 
 // End of file.
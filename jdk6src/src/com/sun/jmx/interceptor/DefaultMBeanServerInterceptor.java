@@ -9,8 +9,12 @@ package com.sun.jmx.interceptor;
 
 // java import
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.WeakHashMap;
@@ -108,7 +112,9 @@ public class DefaultMBeanServerInterceptor implements MBeanServerInterceptor {
      *  DefaultMBeanServerInterceptor */
     private final transient MBeanServerDelegate delegate;
 
-    /** The Repository object used by the DefaultMBeanServerInterceptor */
+    /** The Repository object used by the DefaultMBeanServerInterceptor.
+     *  It is safe for concurrent use, so it is called without holding
+     *  any lock of this interceptor. */
     private final transient Repository repository;
 
     /** Wrappers for client listeners.  */
@@ -420,10 +426,8 @@ public class DefaultMBeanServerInterceptor implements MBeanServerInterceptor {
 	if (instance instanceof MBeanRegistration)
             preDeregisterInvoke((MBeanRegistration) instance);
 
-        synchronized (this) {
-            repository.remove(name);
-            // may throw InstanceNotFoundException
-        }
+        repository.remove(name);
+        // may throw InstanceNotFoundException
 
         /**
          * Checks if the unregistered MBean is a ClassLoader
@@ -505,10 +509,7 @@ public class DefaultMBeanServerInterceptor implements MBeanServerInterceptor {
                                                 QueryExp query) {
         // Query the MBeans on the repository
         //
-        Set<NamedObject> list = null;
-        synchronized(this) {
-            list = repository.query(name, query);
-        }
+        Set<NamedObject> list = repository.query(name, query);
 
         if (queryByRepo) {
             // The repository performs the filtering
@@ -564,10 +565,7 @@ public class DefaultMBeanServerInterceptor implements MBeanServerInterceptor {
     private Set<ObjectName> queryNamesImpl(ObjectName name, QueryExp query) {
         // Query the MBeans on the repository
         //
-        Set<NamedObject> list = null;
-        synchronized(this) {
-            list = repository.query(name, query);
-        }
+        Set<NamedObject> list = repository.query(name, query);
 
         if (queryByRepo) {
             // The repository performs the filtering
@@ -589,9 +587,7 @@ public class DefaultMBeanServerInterceptor implements MBeanServerInterceptor {
 //  	/* Permission check */
 //  	checkMBeanPermission(null, null, name, "isRegistered");
 
-        synchronized(this) {
-            return (repository.contains(name));
-        }
+        return (repository.contains(name));
     }
 
     public String[] getDomains()  {
@@ -633,7 +629,7 @@ public class DefaultMBeanServerInterceptor implements MBeanServerInterceptor {
 	}
     }
 
-    public synchronized Integer getMBeanCount() {
+    public Integer getMBeanCount() {
         return (repository.getCount());
     }
 
@@ -730,6 +726,179 @@ public class DefaultMBeanServerInterceptor implements MBeanServerInterceptor {
         }
     }
 
+    /**
+     * Reads the given attributes of every MBean that matches name and
+     * query, in one pass over the repository.  The MBeans are taken in
+     * {@link ObjectName} order, starting after the name <code>after</code>
+     * (or from the first if it is null), and at most
+     * <code>maxResults</code> of them are read, so that callers can
+     * page through a large set of MBeans.  Each MBean is read with a
+     * single call to its <code>getAttributes</code> method, which for
+     * Standard MBeans and MXBeans goes through the getters precomputed
+     * in their {@link com.sun.jmx.mbeanserver.PerInterface}.
+     * <p>
+     * The same permissions are checked as for {@link #queryNames}
+     * followed by {@link #getAttributes(ObjectName, String[])} on each
+     * name, except that an MBean the caller may not read is left out
+     * instead of causing an exception.  An MBean whose getAttributes
+     * method throws is left out too.
+     *
+     * @return the attributes read, in ObjectName order.
+     */
+    public SortedMap<ObjectName,AttributeList>
+	    getAttributes(ObjectName name, QueryExp query,
+			  String[] attributes, ObjectName after,
+			  int maxResults) {
+
+        if (attributes == null) {
+            throw new RuntimeOperationsException(new
+		IllegalArgumentException("Attributes cannot be null"),
+                "Exception occurred trying to invoke the getter on the MBean");
+        }
+
+        if (isTraceOn()) {
+            trace("getAttributes", "Pattern= " + name + ", after= " + after);
+        }
+
+	final SecurityManager sm = System.getSecurityManager();
+	if (sm != null) {
+	    // Check if the caller has the right to invoke 'queryNames'
+	    //
+	    checkMBeanPermission((String) null, null, null, "queryNames");
+	}
+
+	// The matching MBeans are resolved and sorted once, and the
+	// sorted array is reused by the following chunks for as long as
+	// no MBean is registered or unregistered.  Each chunk starts
+	// with a binary search for the cursor.  The query is only
+	// applied to the MBeans that end up in this chunk.
+	//
+	final NamedObject[] candidates =
+	    sortedCandidates(name, queryByRepo ? query : null);
+	int start = 0;
+	if (after != null) {
+	    int lo = 0, hi = candidates.length;
+	    while (lo < hi) {
+		final int mid = (lo + hi) >>> 1;
+		if (candidates[mid].getName().compareTo(after) <= 0)
+		    lo = mid + 1;
+		else
+		    hi = mid;
+	    }
+	    start = lo;
+	}
+	if (queryByRepo)
+	    query = null;
+
+	final SortedMap<ObjectName,AttributeList> result =
+	    new TreeMap<ObjectName,AttributeList>();
+	MBeanServer oldServer = null;
+	if (query != null) {
+	    oldServer = QueryEval.getMBeanServer();
+	    query.setMBeanServer(server);
+	}
+	try {
+	    for (int i = start; i < candidates.length; i++) {
+		if (result.size() >= maxResults)
+		    break;
+		final NamedObject no = candidates[i];
+		final ObjectName mbeanName = no.getName();
+		final DynamicMBean instance = no.getObject();
+		String[] allowedAttributes = attributes;
+		if (sm != null) {
+		    final String classname = safeGetClassName(instance);
+		    try {
+			checkMBeanPermission(classname, null, mbeanName,
+					     "queryNames");
+			checkMBeanPermission(classname, null, mbeanName,
+					     "getAttribute");
+		    } catch (SecurityException e) {
+			// OK: Do not read this MBean
+			continue;
+		    }
+		    List<String> allowedList =
+			new ArrayList<String>(attributes.length);
+		    for (String attr : attributes) {
+			try {
+			    checkMBeanPermission(classname, attr,
+						 mbeanName, "getAttribute");
+			    allowedList.add(attr);
+			} catch (SecurityException e) {
+			    // OK: Do not add this attribute to the list
+			}
+		    }
+		    allowedAttributes = allowedList.toArray(new String[0]);
+		}
+		if (query != null) {
+		    boolean res;
+		    try {
+			res = query.apply(mbeanName);
+		    } catch (Exception e) {
+			res = false;
+		    }
+		    if (!res)
+			continue;
+		}
+		try {
+		    result.put(mbeanName,
+			       instance.getAttributes(allowedAttributes));
+		} catch (Exception e) {
+		    debugX("getAttributes", e);
+		}
+	    }
+	} finally {
+	    // See objectInstancesFromFilteredNamedObjects.
+	    if (query != null)
+		query.setMBeanServer(oldServer);
+	}
+	return result;
+    }
+
+    /**
+     * Returns the MBeans that match name, sorted by ObjectName.  The
+     * last result is kept and returned again for the same name (and
+     * query, if the repository applies it) as long as the repository
+     * has not changed, so that paging through n MBeans sorts them once
+     * rather than once per chunk.
+     */
+    private NamedObject[] sortedCandidates(ObjectName name, QueryExp query) {
+	final long generation = repository.getGeneration();
+	final SortedCandidates cached = sortedCandidates;
+	if (cached != null && cached.generation == generation &&
+	    cached.query == query &&
+	    (name == null ? cached.name == null : name.equals(cached.name)))
+	    return cached.sorted;
+
+	final Set<NamedObject> list = repository.query(name, query);
+	final NamedObject[] sorted = list.toArray(new NamedObject[list.size()]);
+	Arrays.sort(sorted, new Comparator<NamedObject>() {
+	    public int compare(NamedObject o1, NamedObject o2) {
+		return o1.getName().compareTo(o2.getName());
+	    }
+	});
+	sortedCandidates =
+	    new SortedCandidates(name, query, generation, sorted);
+	return sorted;
+    }
+
+    /** The result of the last call to sortedCandidates. */
+    private static class SortedCandidates {
+	SortedCandidates(ObjectName name, QueryExp query, long generation,
+			 NamedObject[] sorted) {
+	    this.name = name;
+	    this.query = query;
+	    this.generation = generation;
+	    this.sorted = sorted;
+	}
+
+	final ObjectName name;
+	final QueryExp query;
+	final long generation;
+	final NamedObject[] sorted;
+    }
+
+    private transient volatile SortedCandidates sortedCandidates;
+
     public void setAttribute(ObjectName name, Attribute attribute)
 	throws InstanceNotFoundException, AttributeNotFoundException,
 	       InvalidAttributeValueException, MBeanException,
@@ -1084,15 +1253,12 @@ public class DefaultMBeanServerInterceptor implements MBeanServerInterceptor {
 		IllegalArgumentException("Object name cannot be null"),
 			       "Exception occurred trying to get an MBean");
         }
-        DynamicMBean obj = null;
-        synchronized(this) {
-            obj = repository.retrieve(name);
-            if (obj == null) {
-		if (isTraceOn()) {
-		    trace("getMBean", name+": Found no object");
-		}
-		throw new InstanceNotFoundException(name.toString());
-            }
+        DynamicMBean obj = repository.retrieve(name);
+        if (obj == null) {
+	    if (isTraceOn()) {
+		trace("getMBean", name+": Found no object");
+	    }
+	    throw new InstanceNotFoundException(name.toString());
         }
         return obj;
     }
@@ -1480,9 +1646,7 @@ public class DefaultMBeanServerInterceptor implements MBeanServerInterceptor {
         // Let the repository do the work.
 
         try {
-            synchronized(this) {
-                repository.addMBean(object, logicalName);
-            }
+            repository.addMBean(object, logicalName);
         }  catch (InstanceAlreadyExistsException e) {
             if (object instanceof MBeanRegistration) {
                 postRegisterInvoke((MBeanRegistration) object, false, true);
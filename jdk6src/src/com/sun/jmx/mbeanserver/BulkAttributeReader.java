@@ -0,0 +1,97 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package com.sun.jmx.mbeanserver;
+
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistration;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.QueryExp;
+import javax.management.ReflectionException;
+
+/**
+ * <p>An MBean that reads attributes of many MBeans in one operation,
+ * so that a remote client can scrape a large MBean Server in a few
+ * round trips instead of one per MBean.  It is not registered by
+ * default; register it with any name, for example:</p>
+ *
+ * <pre>
+ * mbs.registerMBean(new BulkAttributeReader(),
+ *                   new ObjectName("com.sun.jmx:type=BulkAttributeReader"));
+ * </pre>
+ *
+ * <p>In the default MBean Server the matching MBeans are resolved from
+ * the repository once per call, and the permissions that would be
+ * checked by <code>queryNames</code> and <code>getAttributes</code>
+ * are checked for each MBean.</p>
+ *
+ * @since 1.6
+ */
+public class BulkAttributeReader
+        implements BulkAttributeReaderMBean, MBeanRegistration {
+
+    private volatile MBeanServer server;
+
+    public SortedMap<ObjectName,AttributeList>
+            getAttributes(ObjectName name, QueryExp query,
+                          String[] attributes, ObjectName after,
+                          int maxResults) {
+        final MBeanServer mbs = server;
+        if (mbs == null)
+            throw new IllegalStateException("Not registered");
+        if (attributes == null)
+            throw new IllegalArgumentException("Attributes cannot be null");
+
+        if (mbs instanceof JmxMBeanServer) {
+            return ((JmxMBeanServer) mbs).getAttributes(name, query,
+                                                        attributes, after,
+                                                        maxResults);
+        }
+
+        // Some other MBean Server: one call per MBean.
+        final SortedSet<ObjectName> names =
+            new TreeSet<ObjectName>(mbs.queryNames(name, query));
+        final SortedMap<ObjectName,AttributeList> result = Util.newSortedMap();
+        for (ObjectName mbeanName : names) {
+            if (result.size() >= maxResults)
+                break;
+            if (after != null && mbeanName.compareTo(after) <= 0)
+                continue;
+            try {
+                result.put(mbeanName, mbs.getAttributes(mbeanName, attributes));
+            } catch (InstanceNotFoundException e) {
+                // Unregistered since the query: leave it out
+            } catch (ReflectionException e) {
+                // Could not be read: leave it out
+            } catch (SecurityException e) {
+                // May not be read: leave it out
+            }
+        }
+        return result;
+    }
+
+    public ObjectName preRegister(MBeanServer server, ObjectName name) {
+        this.server = server;
+        return name;
+    }
+
+    public void postRegister(Boolean registrationDone) {
+        if (!registrationDone.booleanValue())
+            server = null;
+    }
+
+    public void preDeregister() {
+    }
+
+    public void postDeregister() {
+        server = null;
+    }
+}
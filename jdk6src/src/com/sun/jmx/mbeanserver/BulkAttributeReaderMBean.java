@@ -0,0 +1,45 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package com.sun.jmx.mbeanserver;
+
+import java.util.SortedMap;
+
+import javax.management.AttributeList;
+import javax.management.ObjectName;
+import javax.management.QueryExp;
+
+/**
+ * Management interface of {@link BulkAttributeReader}.
+ *
+ * @since 1.6
+ */
+public interface BulkAttributeReaderMBean {
+    /**
+     * <p>Reads the given attributes of every MBean that matches
+     * <code>name</code> and <code>query</code>, taking the MBeans in
+     * {@link ObjectName} order and returning at most
+     * <code>maxResults</code> of them.  To read all the MBeans, call
+     * this with <code>after</code> null, then with <code>after</code>
+     * set to the last key of the previous result, until a result has
+     * fewer than <code>maxResults</code> entries.</p>
+     *
+     * <p>MBeans that the caller may not read, or whose attributes
+     * could not be read, are left out of the result.</p>
+     *
+     * @param name the object name pattern of the MBeans to read, or
+     * null for all MBeans.
+     * @param query a query to select the MBeans, or null.
+     * @param attributes the attributes to read from each MBean.
+     * @param after only MBeans whose names come after this one are
+     * read, or null to start at the first.
+     * @param maxResults the maximum number of MBeans to read.
+     *
+     * @return the attributes read, keyed by MBean name.
+     */
+    public SortedMap<ObjectName,AttributeList>
+        getAttributes(ObjectName name, QueryExp query, String[] attributes,
+                      ObjectName after, int maxResults);
+}
@@ -12,6 +12,10 @@ import java.util.Iterator;
 import java.util.ArrayList;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.lang.reflect.InvocationTargetException; 
 import java.lang.reflect.Method; 
 import java.lang.reflect.Constructor;
@@ -666,6 +670,72 @@ public final class JmxMBeanServer
    
     } 
 
+    /**
+     * Reads the values of several attributes of every MBean that
+     * matches a pattern and a query, in one call.  The MBeans are read
+     * in {@link ObjectName} order, starting after <code>after</code>,
+     * and at most <code>maxResults</code> of them are returned, so that
+     * a caller can page through many MBeans by passing the last name
+     * of one chunk as <code>after</code> for the next.  MBeans that the
+     * caller may not read, or whose attributes could not be read, are
+     * left out.
+     *
+     * @param name The object name pattern identifying the MBeans to be
+     *     read. If null, all the MBeans are read.
+     * @param query The query expression to be applied for selecting 
+     *     MBeans. If null no query expression will be applied.
+     * @param attributes A list of the attributes to be retrieved from
+     *     each MBean.
+     * @param after Only MBeans whose names come after this one are
+     *     read. If null, reading starts at the first MBean.
+     * @param maxResults The maximum number of MBeans to read.
+     *
+     * @return The attributes read, keyed by MBean name.
+     *
+     * @exception RuntimeOperationsException Wraps an 
+     *     <CODE>{@link java.lang.IllegalArgumentException}</CODE>: 
+     *     The attributes in parameter is null.
+     */
+    public SortedMap<ObjectName,AttributeList>
+	    getAttributes(ObjectName name, QueryExp query,
+			  String[] attributes, ObjectName after,
+			  int maxResults) {
+
+	if (mbsInterceptor instanceof DefaultMBeanServerInterceptor) {
+	    return ((DefaultMBeanServerInterceptor) mbsInterceptor).
+		getAttributes(cloneObjectName(name), query, attributes,
+			      after, maxResults);
+	}
+
+	// Some other interceptor: fall back to one call per MBean.
+	if (attributes == null) {
+	    throw new RuntimeOperationsException(new
+		IllegalArgumentException("Attributes cannot be null"),
+                "Exception occurred trying to invoke the getter on the MBean");
+	}
+	final SortedSet<ObjectName> names = new TreeSet<ObjectName>(
+	    mbsInterceptor.queryNames(cloneObjectName(name), query));
+	final SortedMap<ObjectName,AttributeList> result =
+	    new TreeMap<ObjectName,AttributeList>();
+	for (ObjectName mbeanName : names) {
+	    if (result.size() >= maxResults)
+		break;
+	    if (after != null && mbeanName.compareTo(after) <= 0)
+		continue;
+	    try {
+		result.put(mbeanName,
+			   mbsInterceptor.getAttributes(mbeanName, attributes));
+	    } catch (InstanceNotFoundException e) {
+		// Unregistered since the query: leave it out
+	    } catch (ReflectionException e) {
+		// Could not be read: leave it out
+	    } catch (SecurityException e) {
+		// May not be read: leave it out
+	    }
+	}
+	return result;
+    } 
+
     /**
      * Sets the value of a specific attribute of a named MBean. The MBean
      * is identified by its object name.
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package com.sun.jmx.mbeanserver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.LongMaxUpdater;
+
+/**
+ * <p>Scheduling statistics of the monitors of
+ * <code>javax.management.monitor</code>, which all share the same
+ * scheduler and executor threads.  A growing scheduling lag means that
+ * those threads cannot keep up with the granularity periods of the
+ * monitors.  The statistics are global to the JVM; this MBean is not
+ * registered by default, register it with any name, for example:</p>
+ *
+ * <pre>
+ * mbs.registerMBean(new MonitorStatistics(),
+ *                   new ObjectName("com.sun.jmx:type=MonitorStatistics"));
+ * </pre>
+ *
+ * @since 1.6
+ */
+public class MonitorStatistics implements MonitorStatisticsMBean {
+
+    // Updated by every monitor task, read only when the MBean is
+    // queried, hence striped counters.
+    private static final LongAdder observations = new LongAdder();
+    private static final AtomicLong lastLag = new AtomicLong();
+    private static final LongMaxUpdater maxLag = new LongMaxUpdater();
+    private static final LongAdder totalLag = new LongAdder();
+    private static final LongAdder coalescedReads = new LongAdder();
+
+    /**
+     * Records that an observation started <code>lag</code> milliseconds
+     * after it was due.
+     */
+    public static void recordObservation(long lag) {
+        if (lag < 0)
+            lag = 0;
+        observations.increment();
+        totalLag.add(lag);
+        lastLag.set(lag);
+        maxLag.update(lag);
+    }
+
+    /**
+     * Records that an attribute read was shared with another monitor.
+     */
+    public static void recordCoalescedRead() {
+        coalescedReads.increment();
+    }
+
+    public long getObservationCount() {
+        return observations.sum();
+    }
+
+    public long getLastSchedulingLag() {
+        return lastLag.get();
+    }
+
+    public long getMaxSchedulingLag() {
+        final long max = maxLag.max();
+        return (max < 0) ? 0 : max;
+    }
+
+    public long getAverageSchedulingLag() {
+        final long n = observations.sum();
+        return (n == 0) ? 0 : totalLag.sum() / n;
+    }
+
+    public long getCoalescedReadCount() {
+        return coalescedReads.sum();
+    }
+
+    public void reset() {
+        observations.reset();
+        lastLag.set(0);
+        maxLag.reset();
+        totalLag.reset();
+        coalescedReads.reset();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package com.sun.jmx.mbeanserver;
+
+/**
+ * Management interface of {@link MonitorStatistics}.
+ *
+ * @since 1.6
+ */
+public interface MonitorStatisticsMBean {
+    /**
+     * Number of observations made by the monitors of
+     * <code>javax.management.monitor</code> since the last reset.
+     */
+    public long getObservationCount();
+
+    /**
+     * How late, in milliseconds, the last observation started
+     * compared to when it was due.
+     */
+    public long getLastSchedulingLag();
+
+    /**
+     * Largest scheduling lag, in milliseconds, since the last reset.
+     */
+    public long getMaxSchedulingLag();
+
+    /**
+     * Average scheduling lag, in milliseconds, since the last reset.
+     */
+    public long getAverageSchedulingLag();
+
+    /**
+     * Number of attribute reads that were satisfied by a read of the
+     * same attribute of the same MBean already in progress for another
+     * monitor.
+     */
+    public long getCoalescedReadCount();
+
+    /**
+     * Sets all the counts and lags back to zero.
+     */
+    public void reset();
+}
@@ -18,6 +18,7 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
@@ -1241,26 +1242,36 @@ public abstract class OpenConverter {
             // that accepts just the items that are present.  Because of
             // the ambiguity check in applicable(), we know there must be
             // at most one maximally applicable constructor.
+            // Successive CompositeData values usually share the same
+            // CompositeType instance, so we remember the constructor
+            // chosen for the last one.
             CompositeType ct = cd.getCompositeType();
-            BitSet present = new BitSet();
-            for (int i = 0; i < itemNames.length; i++) {
-                if (ct.getType(itemNames[i]) != null)
-                    present.set(i);
-            }
-            
-            Constr max = null;
-            for (Constr constr : annotatedConstructors) {
-                if (subset(constr.presentParams, present) &&
-                        (max == null ||
-                         subset(max.presentParams, constr.presentParams)))
-                    max = constr;
-            }
-            
-            if (max == null) {
-                final String msg =
-                    "No constructor has a @ConstructorProperties for this set of " +
-                    "items: " + ct.keySet();
-                throw new InvalidObjectException(msg);
+            Constr max;
+            final LastChoice last = lastChoice;
+            if (last != null && last.compositeType == ct)
+                max = last.constr;
+            else {
+                BitSet present = new BitSet();
+                for (int i = 0; i < itemNames.length; i++) {
+                    if (ct.getType(itemNames[i]) != null)
+                        present.set(i);
+                }
+
+                max = null;
+                for (Constr constr : annotatedConstructors) {
+                    if (subset(constr.presentParams, present) &&
+                            (max == null ||
+                             subset(max.presentParams, constr.presentParams)))
+                        max = constr;
+                }
+
+                if (max == null) {
+                    final String msg =
+                        "No constructor has a @ConstructorProperties for this set of " +
+                        "items: " + ct.keySet();
+                    throw new InvalidObjectException(msg);
+                }
+                lastChoice = new LastChoice(ct, max);
             }
             
             Object[] params = new Object[max.presentParams.cardinality()];
@@ -1300,8 +1311,18 @@ public abstract class OpenConverter {
                 this.presentParams = presentParams;
             }
         }
+
+        private static class LastChoice {
+            final CompositeType compositeType;
+            final Constr constr;
+            LastChoice(CompositeType compositeType, Constr constr) {
+                this.compositeType = compositeType;
+                this.constr = constr;
+            }
+        }
         
         private List<Constr> annotatedConstructors;
+        private volatile LastChoice lastChoice;
     }
 
     /** Builder for when the target class is an interface and contains
@@ -1343,18 +1364,36 @@ public abstract class OpenConverter {
             }
 	    if (bad != null)
 		return "contains methods other than getters (" + bad + ")";
+
+            /* Look up the proxy class once rather than for every
+             * CompositeData we convert.  */
+            try {
+                proxyConstructor =
+                    Proxy.getProxyClass(targetClass.getClassLoader(),
+                                        new Class[] {targetClass})
+                        .getConstructor(InvocationHandler.class);
+            } catch (Exception e) {
+                return "cannot make proxy class (" + e + ")";
+            }
 	    return null; // success!
 	}
 
 	final Object fromCompositeData(MXBeanLookup lookup, CompositeData cd,
                                  String[] itemNames,
-                                 OpenConverter[] converters) {
-	    final Class targetClass = getTargetClass();
-	    return
-		Proxy.newProxyInstance(targetClass.getClassLoader(),
-				       new Class[] {targetClass},
-				       new CompositeDataInvocationHandler(cd));
+                                 OpenConverter[] converters)
+                throws InvalidObjectException {
+            try {
+                return proxyConstructor.newInstance(
+                    new Object[] {new CompositeDataInvocationHandler(cd)});
+            } catch (Exception e) {
+                final String msg =
+                    "Exception constructing proxy for " +
+                    getTargetClass().getName();
+                throw invalidObjectException(msg, e);
+            }
 	}
+
+        private Constructor proxyConstructor;
     }
 
     static InvalidObjectException invalidObjectException(String msg,
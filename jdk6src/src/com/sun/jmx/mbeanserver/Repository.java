@@ -10,11 +10,15 @@ package com.sun.jmx.mbeanserver;
 import com.sun.jmx.defaults.ServiceName;
 import com.sun.jmx.trace.Trace;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.management.DynamicMBean;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
@@ -26,6 +30,12 @@ import javax.management.RuntimeOperationsException;
 /**
  * The RepositorySupport implements the Repository interface.
  * This repository does not support persistency.
+ * <p>
+ * The repository is safe for concurrent use without external locking:
+ * lookups, registrations and queries do not block each other.  Each
+ * domain keeps an index from key property (key, value) pairs to the
+ * MBeans that have them, so that patterns such as
+ * <code>d:type=Queue,*</code> do not scan the whole domain.
  *
  * @since 1.5
  */
@@ -35,17 +45,26 @@ public class Repository {
 
     /**
      * The structure for storing the objects is very basic.
-     * A Hashtable is used for storing the different domains
-     * For each domain, a hashtable contains the instances with
+     * A concurrent map is used for storing the different domains.
+     * For each domain, a DomainTable contains the instances with
      * canonical key property list string as key and named object
      * aggregated from given object name and mbean instance as value.
+     * A domain table is removed when its last MBean is unregistered,
+     * except for the table of the default domain, which is kept even
+     * when empty and is skipped by getDomains().
      */
-    private final Map<String,Map<String,NamedObject>> domainTb;
+    private final ConcurrentMap<String,DomainTable> domainTb;
 
     /**
      * Number of elements contained in the Repository
      */
-    private int nbElements = 0;
+    private final AtomicInteger nbElements = new AtomicInteger();
+
+    /**
+     * Incremented each time an MBean is added or removed, so that a
+     * caller can tell whether a view of the contents is still current.
+     */
+    private final AtomicLong generation = new AtomicLong();
 
     /**
      * Domain name of the server the repository is attached to.
@@ -205,32 +224,132 @@ public class Repository {
         }
     }
 
+    /* The MBeans registered in one domain, with an index on their key
+     * properties.  All maps are concurrent, so lookups and queries take
+     * no lock.  Registrations and unregistrations in the domain hold the
+     * lock of the table, so that an MBean and its index entries are
+     * added or removed together, and that nothing is added to a table
+     * once it has been unlinked from the repository. */
+    private final static class DomainTable {
+        final ConcurrentMap<String,NamedObject> objects =
+            new ConcurrentHashMap<String,NamedObject>();
+
+        // true once the table has been removed from domainTb; guarded
+        // by the lock of the table
+        boolean unlinked = false;
+
+        // key -> value -> (canonical key property list -> named object)
+        private final ConcurrentMap<String,
+            ConcurrentMap<String,ConcurrentMap<String,NamedObject>>> index =
+            new ConcurrentHashMap<String,
+                ConcurrentMap<String,ConcurrentMap<String,NamedObject>>>();
+
+        void addToIndex(String cstr, NamedObject no) {
+            final Map<String,String> props =
+                no.getName().getKeyPropertyList();
+            for (Map.Entry<String,String> prop : props.entrySet()) {
+                ConcurrentMap<String,ConcurrentMap<String,NamedObject>>
+                    values = index.get(prop.getKey());
+                if (values == null) {
+                    values = new ConcurrentHashMap<String,
+                        ConcurrentMap<String,NamedObject>>();
+                    final ConcurrentMap<String,
+                        ConcurrentMap<String,NamedObject>> old =
+                        index.putIfAbsent(prop.getKey(), values);
+                    if (old != null) values = old;
+                }
+                // An empty bucket may be unlinked by a concurrent
+                // removeFromIndex; retry until ours is still linked.
+                while (true) {
+                    ConcurrentMap<String,NamedObject> bucket =
+                        values.get(prop.getValue());
+                    if (bucket == null) {
+                        bucket = new ConcurrentHashMap<String,NamedObject>();
+                        final ConcurrentMap<String,NamedObject> old =
+                            values.putIfAbsent(prop.getValue(), bucket);
+                        if (old != null) bucket = old;
+                    }
+                    bucket.put(cstr, no);
+                    if (values.get(prop.getValue()) == bucket) break;
+                }
+            }
+        }
+
+        void removeFromIndex(String cstr, NamedObject no) {
+            final Map<String,String> props =
+                no.getName().getKeyPropertyList();
+            for (Map.Entry<String,String> prop : props.entrySet()) {
+                final ConcurrentMap<String,
+                    ConcurrentMap<String,NamedObject>> values =
+                    index.get(prop.getKey());
+                if (values == null) continue;
+                final ConcurrentMap<String,NamedObject> bucket =
+                    values.get(prop.getValue());
+                if (bucket == null) continue;
+                bucket.remove(cstr, no);
+                if (bucket.isEmpty()) values.remove(prop.getValue(), bucket);
+            }
+        }
+
+        /* Returns the MBeans whose key property <code>key</code> has
+         * the given value; the result is a live view. */
+        Collection<NamedObject> withKeyProperty(String key, String value) {
+            final ConcurrentMap<String,ConcurrentMap<String,NamedObject>>
+                values = index.get(key);
+            if (values == null) return null;
+            final ConcurrentMap<String,NamedObject> bucket = values.get(value);
+            if (bucket == null) return null;
+            return bucket.values();
+        }
+    }
+
     /**
-     * Add all the matching objects from the given hashtable in the
+     * Add all the matching objects from the given domain table in the
      * result set for the given ObjectNamePattern
      * Do not check whether the domains match (only check for matching
      * key property lists - see <i>matchKeys()</i>)
+     * If the pattern has no wildcard in its key property list the MBean
+     * is looked up directly; otherwise, if the pattern gives the exact
+     * value of at least one key property, only the MBeans with the
+     * rarest such (key, value) pair are matched.  Only patterns without
+     * any such pair scan the whole domain.
      **/
-    private void addAllMatching(final Map<String,NamedObject> moiTb,
+    private void addAllMatching(final DomainTable dt,
                                 final Set<NamedObject> result,
                                 final ObjectNamePattern pattern) {
-        synchronized (moiTb) {
-            for (NamedObject no : moiTb.values()) {
-                final ObjectName on = no.getName();
-                // if all couples (property, value) are contained
-                if (pattern.matchKeys(on)) result.add(no);
-            }
+        if (!pattern.isPropertyListPattern &&
+            !pattern.isPropertyValuePattern) {
+            final NamedObject no = dt.objects.get(pattern.properties);
+            if (no != null) result.add(no);
+            return;
+        }
+
+        Collection<NamedObject> candidates = dt.objects.values();
+        for (int i = 0; i < pattern.keys.length; i++) {
+            if (pattern.isPropertyValuePattern &&
+                pattern.pattern.isPropertyValuePattern(pattern.keys[i]))
+                continue;
+            final Collection<NamedObject> c =
+                dt.withKeyProperty(pattern.keys[i], pattern.values[i]);
+            if (c == null) return;  // no MBean has this (key, value)
+            if (c.size() < candidates.size()) candidates = c;
+        }
+
+        for (NamedObject no : candidates) {
+            final ObjectName on = no.getName();
+            // if all couples (property, value) are contained
+            if (pattern.matchKeys(on)) result.add(no);
         }
     }
 
-    private void addNewDomMoi(final DynamicMBean object, final String dom,
-                              final ObjectName name) {
-        final Map<String,NamedObject> moiTb =
-            new HashMap<String,NamedObject>();
-        moiTb.put(name.getCanonicalKeyPropertyListString(),
-                  new NamedObject(name, object));
-        domainTb.put(dom, moiTb);
-        nbElements++;
+    private DomainTable getOrCreateDomainTable(final String dom) {
+        DomainTable dt = domainTb.get(dom);
+        if (dt == null) {
+            dt = new DomainTable();
+            final DomainTable old = domainTb.putIfAbsent(dom, dt);
+            if (old != null) dt = old;
+        }
+        return dt;
     }
 
     /** Match a string against a shell-style pattern.  The only pattern
@@ -330,12 +449,12 @@ public class Repository {
             dom = domain;
         }
 
-        Map<String,NamedObject> moiTb = domainTb.get(dom);
-        if (moiTb == null) {
+        DomainTable dt = domainTb.get(dom);
+        if (dt == null) {
             return null; // No domain containing registered object names
         }
 
-        return moiTb.get(name.getCanonicalKeyPropertyListString());
+        return dt.objects.get(name.getCanonicalKeyPropertyListString());
     }
 
     // Private methods <=============================================
@@ -350,7 +469,7 @@ public class Repository {
      * Construct a new repository with the given default domain.
      */
     public Repository(String domain) {
-        domainTb = new HashMap<String,Map<String,NamedObject>>(5);
+        domainTb = new ConcurrentHashMap<String,DomainTable>(5);
 
         if (domain != null && domain.length() != 0)
             this.domain = domain;
@@ -358,7 +477,7 @@ public class Repository {
             this.domain = ServiceName.DOMAIN;
 
         // Creates an new hastable for the default domain
-        domainTb.put(this.domain.intern(), new HashMap<String,NamedObject>());
+        domainTb.put(this.domain.intern(), new DomainTable());
     }
 
     /**
@@ -368,19 +487,14 @@ public class Repository {
      * @since.unbundled JMX RI 1.2
      */
     public String[] getDomains() {
-        final List<String> result;
-        synchronized(domainTb) {
-            // Temporary list
-            result = new ArrayList<String>(domainTb.size());
-            for (Map.Entry<String,Map<String,NamedObject>> entry :
-                     domainTb.entrySet()) {
-                // Skip domains that are in the table but have no
-                // MBean registered in them
-                // in particular the default domain may be like this
-                Map<String,NamedObject> t = entry.getValue();
-                if (t != null && t.size() != 0)
-                    result.add(entry.getKey());
-            }
+        // Temporary list
+        final List<String> result = new ArrayList<String>(domainTb.size());
+        for (Map.Entry<String,DomainTable> entry : domainTb.entrySet()) {
+            // Skip domains that are in the table but have no
+            // MBean registered in them
+            // in particular the default domain may be like this
+            if (!entry.getValue().objects.isEmpty())
+                result.add(entry.getKey());
         }
 
         // Make an array from result.
@@ -440,21 +554,24 @@ public class Repository {
                     "Repository: domain name cannot be JMImplementation"));
         }
 
-        // If domain not already exists, add it to the hash table
-        final Map<String,NamedObject> moiTb = domainTb.get(dom);
-        if (moiTb == null) {
-            addNewDomMoi(object, dom, name);
-            return;
-        } else {
-            // Add instance if not already present
-            String cstr = name.getCanonicalKeyPropertyListString();
-            NamedObject elmt= moiTb.get(cstr);
-            if (elmt != null) {
-                throw new InstanceAlreadyExistsException(name.toString());
-            } else {
-                nbElements++;
-                moiTb.put(cstr, new NamedObject(name, object));
+        final String cstr = name.getCanonicalKeyPropertyListString();
+        final NamedObject no = new NamedObject(name, object);
+        while (true) {
+            // If domain not already exists, add it to the hash table
+            final DomainTable dt = getOrCreateDomainTable(dom);
+            synchronized (dt) {
+                // The last MBean of the domain was removed meanwhile
+                if (dt.unlinked) continue;
+
+                // Add instance if not already present
+                if (dt.objects.putIfAbsent(cstr, no) != null) {
+                    throw new InstanceAlreadyExistsException(name.toString());
+                }
+                dt.addToIndex(cstr, no);
             }
+            nbElements.incrementAndGet();
+            generation.incrementAndGet();
+            return;
         }
     }
 
@@ -534,10 +651,8 @@ public class Repository {
 
         // All names in all domains
         if (name == ObjectName.WILDCARD) {
-            synchronized(domainTb) {
-                for (Map<String,NamedObject> moiTb : domainTb.values()) {
-                    result.addAll(moiTb.values());
-                }
+            for (DomainTable dt : domainTb.values()) {
+                result.addAll(dt.objects.values());
             }
             return result;
         }
@@ -547,27 +662,37 @@ public class Repository {
 
         // All names in default domain
         if (name.getDomain().length() == 0) {
-            final Map<String,NamedObject> moiTb = domainTb.get(domain);
+            final DomainTable dt = domainTb.get(domain);
             if (canonical_key_property_list_string.length() == 0)
-                result.addAll(moiTb.values());
+                result.addAll(dt.objects.values());
             else
-                addAllMatching(moiTb, result, new ObjectNamePattern(name));
+                addAllMatching(dt, result, new ObjectNamePattern(name));
             return result;
         }
 
         // Pattern matching in the domain name (*, ?)
-        synchronized (domainTb) {
-            char[] dom2Match = name.getDomain().toCharArray();
-            for (String domain : domainTb.keySet()) {
-                char[] theDom = domain.toCharArray();
-                if (wildmatch(theDom, dom2Match)) {
-                    final Map<String,NamedObject> moiTb = domainTb.get(domain);
-                    if (canonical_key_property_list_string.length() == 0)
-                        result.addAll(moiTb.values());
-                    else
-                        addAllMatching(moiTb, result,
-                                       new ObjectNamePattern(name));
-                }
+        final ObjectNamePattern namePattern =
+            (canonical_key_property_list_string.length() == 0) ?
+            null : new ObjectNamePattern(name);
+        if (!name.isDomainPattern()) {
+            final DomainTable dt = domainTb.get(name.getDomain());
+            if (dt != null) {
+                if (namePattern == null)
+                    result.addAll(dt.objects.values());
+                else
+                    addAllMatching(dt, result, namePattern);
+            }
+            return result;
+        }
+        char[] dom2Match = name.getDomain().toCharArray();
+        for (Map.Entry<String,DomainTable> entry : domainTb.entrySet()) {
+            char[] theDom = entry.getKey().toCharArray();
+            if (wildmatch(theDom, dom2Match)) {
+                final DomainTable dt = entry.getValue();
+                if (namePattern == null)
+                    result.addAll(dt.objects.values());
+                else
+                    addAllMatching(dt, result, namePattern);
             }
         }
         return result;
@@ -596,30 +721,30 @@ public class Repository {
         if (dom.length() == 0) dom = domain;
 
         // Find the domain subtable
-        Map<String,NamedObject> moiTb = domainTb.get(dom);
-        if (moiTb == null) {
+        DomainTable dt = domainTb.get(dom);
+        if (dt == null) {
             throw new InstanceNotFoundException(name.toString());
         }
 
         // Remove the corresponding element
-        if (moiTb.remove(name.getCanonicalKeyPropertyListString()) == null) {
-            throw new InstanceNotFoundException(name.toString());
+        final String cstr = name.getCanonicalKeyPropertyListString();
+        synchronized (dt) {
+            final NamedObject no = dt.objects.remove(cstr);
+            if (no == null) {
+                throw new InstanceNotFoundException(name.toString());
+            }
+            dt.removeFromIndex(cstr, no);
+
+            // No more object for this domain, we remove this domain table
+            if (dt.objects.isEmpty() && !dom.equals(domain)) {
+                dt.unlinked = true;
+                domainTb.remove(dom, dt);
+            }
         }
 
         // We removed it !
-        nbElements--;
-
-        // No more object for this domain, we remove this domain hashtable
-        if (moiTb.isEmpty()) {
-            domainTb.remove(dom);
-
-            // set a new default domain table (always present)
-            // need to reinstantiate a hashtable because of possible
-            // big buckets array size inside table, never cleared,
-            // thus the new !
-            if (dom == domain)
-                domainTb.put(domain, new HashMap<String,NamedObject>());
-        }
+        nbElements.decrementAndGet();
+        generation.incrementAndGet();
     }
 
     /**
@@ -628,7 +753,18 @@ public class Repository {
      * @return  Number of MBeans.
      */
     public Integer getCount() {
-        return new Integer(nbElements);
+        return new Integer(nbElements.get());
+    }
+
+    /**
+     * Gets a number that changes each time an MBean is added to or
+     * removed from the repository.  A query made after reading this
+     * value is still current as long as the value has not changed.
+     *
+     * @return  The current generation of the repository.
+     */
+    public long getGeneration() {
+        return generation.get();
     }
 
     /**
@@ -14,12 +14,15 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.InstanceNotFoundException;
 import javax.management.ListenerNotFoundException;
@@ -98,12 +101,19 @@ public class ArrayNotificationBuffer implements NotificationBuffer {
             dispose();
     }
 
+    /* Readers may still be looking at the old ring.  It is no longer
+       written, except to clear the slots of dropped notifications, and
+       a reader that misses a notification in it will look again in
+       the new one.  */
     private void resize(int newSize) {
 	if (newSize == queueSize)
 	    return;
-	while (queue.size() > newSize)
+	while (nextSequenceNumber - earliestSequenceNumber > newSize)
 	    dropNotification();
-	queue.resize(newSize);
+	BufferedNotification[] newRing = new BufferedNotification[newSize];
+	for (long seq = earliestSequenceNumber; seq < nextSequenceNumber; seq++)
+	    newRing[slot(newRing, seq)] = ring[slot(ring, seq)];
+	ring = newRing;
 	queueSize = newSize;
     }
 
@@ -147,7 +157,7 @@ public class ArrayNotificationBuffer implements NotificationBuffer {
 
         this.mBeanServer = mbs;
         this.queueSize = queueSize;
-        this.queue = new ArrayQueue<NamedNotification>(queueSize);
+        this.ring = new BufferedNotification[queueSize];
         this.earliestSequenceNumber = System.currentTimeMillis();
         this.nextSequenceNumber = this.earliestSequenceNumber;
 
@@ -263,119 +273,173 @@ public class ArrayNotificationBuffer implements NotificationBuffer {
             new ArrayList<TargetedNotification>();
 
         /* On exit from this loop, notifs, earliestSeq, and nextSeq must
-           all be correct values for the returned NotificationResult.  */
+           all be correct values for the returned NotificationResult.
+
+           The loop takes no lock except to wait for new notifications.
+           Each fetch has its own cursor, nextSeq, and reads the ring
+           without synchronization: a slot whose sequence number is not
+           the one we want has been dropped or has moved to a resized
+           ring, and we go round the loop again to find out which.  */
+    fetch:
         while (true) {
             logger.debug("fetchNotifications", "main loop starts");
 
-            NamedNotification candidate;
-
-            /* Get the next available notification regardless of filters,
-               or wait for one to arrive if there is none.  */
-            synchronized (this) {
-		
-                /* First time through.  The current earliestSequenceNumber
-                   is the first one we could have examined.  */
-                if (earliestSeq < 0) {
-                    earliestSeq = earliestSequenceNumber();
-                    if (logger.debugOn()) {
-                        logger.debug("fetchNotifications",
-                              "earliestSeq=" + earliestSeq);
-                    }
-                    if (nextSeq < earliestSeq) {
-                        nextSeq = earliestSeq;
-                        logger.debug("fetchNotifications", 
-				     "nextSeq=earliestSeq");
-                    }
-                } else
-                    earliestSeq = earliestSequenceNumber();
-
-                /* If many notifications have been dropped since the
-                   last time through, nextSeq could now be earlier
-                   than the current earliest.  If so, notifications
-                   may have been lost and we return now so the caller
-                   can see this next time it calls.  */
+            /* Read nextSequenceNumber before the ring, so that the ring
+               holds every notification before it that was not
+               dropped.  */
+            final long next = nextSequenceNumber;
+            final BufferedNotification[] ring = this.ring;
+
+            /* First time through.  The current earliestSequenceNumber
+               is the first one we could have examined.  */
+            if (earliestSeq < 0) {
+                earliestSeq = earliestSequenceNumber;
+                if (logger.debugOn()) {
+                    logger.debug("fetchNotifications",
+                          "earliestSeq=" + earliestSeq);
+                }
                 if (nextSeq < earliestSeq) {
-                    logger.trace("fetchNotifications",
-                          "nextSeq=" + nextSeq + " < " + "earliestSeq=" +
-                          earliestSeq + " so may have lost notifs");
-                    break;
+                    nextSeq = earliestSeq;
+                    logger.debug("fetchNotifications", 
+                                 "nextSeq=earliestSeq");
                 }
+            } else
+                earliestSeq = earliestSequenceNumber;
+
+            /* If many notifications have been dropped since the
+               last time through, nextSeq could now be earlier
+               than the current earliest.  If so, notifications
+               may have been lost and we return now so the caller
+               can see this next time it calls.  */
+            if (nextSeq < earliestSeq) {
+                logger.trace("fetchNotifications",
+                      "nextSeq=" + nextSeq + " < " + "earliestSeq=" +
+                      earliestSeq + " so may have lost notifs");
+                break;
+            }
 
-                if (nextSeq < nextSequenceNumber()) {
-                    candidate = notificationAt(nextSeq);
-                    if (logger.debugOn()) {
-                        logger.debug("fetchNotifications", "candidate: " + 
-				     candidate);
-                        logger.debug("fetchNotifications", "nextSeq now " + 
-				     nextSeq);
-                    }
-                } else {
-                    /* nextSeq is the largest sequence number.  If we
-                       already got notifications, return them now.
-                       Otherwise wait for some to arrive, with
-                       timeout.  */
-                    if (notifs.size() > 0) {
-                        logger.debug("fetchNotifications",
-                              "no more notifs but have some so don't wait");
-                        break;
+            if (nextSeq >= next) {
+                /* nextSeq is the largest sequence number.  If we
+                   already got notifications, return them now.
+                   Otherwise wait for some to arrive, with
+                   timeout.  */
+                if (notifs.size() > 0) {
+                    logger.debug("fetchNotifications",
+                          "no more notifs but have some so don't wait");
+                    break;
+                }
+                long toWait = endTime - System.currentTimeMillis();
+                if (toWait <= 0) {
+                    logger.debug("fetchNotifications", "timeout");
+                    break;
+                }
+                synchronized (this) {
+                    /* dispose called */
+                    if (disposed) {
+                        if (logger.debugOn())
+                            logger.debug("fetchNotifications", 
+                                         "dispose callled, no wait");
+                        return new NotificationResult(earliestSequenceNumber,
+                                                      nextSequenceNumber, 
+                                                      new TargetedNotification[0]);
                     }
-                    long toWait = endTime - System.currentTimeMillis();
-                    if (toWait <= 0) {
-                        logger.debug("fetchNotifications", "timeout");
-                        break;
+                    if (nextSeq >= nextSequenceNumber) {
+                        if (logger.debugOn())
+                            logger.debug("fetchNotifications", 
+                                         "wait(" + toWait + ")");
+                        wait(toWait);
                     }
-		    
-		    /* dispose called */
-		    if (isDisposed()) {
-			if (logger.debugOn())
-			    logger.debug("fetchNotifications", 
-					 "dispose callled, no wait");
-			return new NotificationResult(earliestSequenceNumber(),
-						  nextSequenceNumber(), 
-						  new TargetedNotification[0]);
-		    }
-		    
-		    if (logger.debugOn())
-			logger.debug("fetchNotifications", 
-				     "wait(" + toWait + ")");
-		    wait(toWait);
-		    
-                    continue;
                 }
+                continue;
             }
-	    
-            /* We have a candidate notification.  See if it matches
-               our filters.  We do this outside the synchronized block
-               so we don't hold up everyone accessing the buffer
-               (including notification senders) while we evaluate
-               potentially slow filters.  */
-            ObjectName name = candidate.getObjectName();
-            Notification notif = candidate.getNotification();
-            List<TargetedNotification> matchedNotifs =
-                new ArrayList<TargetedNotification>();
-            logger.debug("fetchNotifications", 
-			 "applying filter to candidate");
-            filter.apply(matchedNotifs, name, notif);
-
-            if (matchedNotifs.size() > 0) {
-                /* We only check the max size now, so that our
-                   returned nextSeq is as large as possible.  This
-                   prevents the caller from thinking it missed
-                   interesting notifications when in fact we knew they
-                   weren't.  */
-                if (maxNotifications <= 0) {
-                    logger.debug("fetchNotifications", 
-				 "reached maxNotifications");
-                    break;
+
+            /* Only notifications from these MBeans, and of types with
+               these prefixes, can match.  Either may be null for any.
+               If the index chains lead to at most a quarter of the
+               notifications from nextSeq on, we walk them and sort what
+               they lead to.  Otherwise looking at every notification
+               costs less.  */
+            final Set<ObjectName> sources = filter.getSourceNames();
+            final Set<String> types = filter.getTypePrefixes();
+            final long range = next - nextSeq;
+            final long limit = range / 4;
+            List<Chain> chains = null;
+            boolean bySender = false;
+            if (sources != null && sources.size() <= limit) {
+                chains = chains(fromSender, sources, null, limit);
+                bySender = true;
+            }
+            if (chains == null && types != null &&
+                ofType.size() <= limit) {
+                chains = chains(ofType, null, types, limit);
+                bySender = false;
+            }
+            List<BufferedNotification> candidates = null;
+            if (chains != null) {
+                candidates = new ArrayList<BufferedNotification>();
+                for (Chain chain : chains) {
+                    if (!collect(candidates, ring, chain.latest, nextSeq,
+                                 next, bySender ? null : sources,
+                                 bySender ? types : null, bySender))
+                        continue fetch;
+                }
+                Collections.sort(candidates, seqOrder);
+                if (logger.debugOn()) {
+                    logger.debug("fetchNotifications", candidates.size() +
+                                 " indexed candidates before " + next);
+                }
+            }
+
+            /* We have the candidate notifications, or we look at every
+               notification before next.  See if they match our
+               filters.  No lock is held, so we don't hold up anyone
+               accessing the buffer (including notification senders)
+               while we evaluate potentially slow filters.  */
+            int ncandidates = (candidates == null) ?
+                (int) range : candidates.size();
+            for (int i = 0; i < ncandidates; i++) {
+                final BufferedNotification candidate;
+                if (candidates != null) {
+                    candidate = candidates.get(i);
+                } else {
+                    final long seq = nextSeq + i;
+                    candidate = ring[slot(ring, seq)];
+                    if (candidate == null || candidate.seq != seq) {
+                        nextSeq = seq;
+                        continue fetch;
+                    }
+                    if (!candidate.matches(sources, types))
+                        continue;
+                }
+                ObjectName name = candidate.notif.getObjectName();
+                Notification notif = candidate.notif.getNotification();
+                List<TargetedNotification> matchedNotifs =
+                    new ArrayList<TargetedNotification>();
+                logger.debug("fetchNotifications", 
+			     "applying filter to candidate");
+                filter.apply(matchedNotifs, name, notif);
+
+                if (matchedNotifs.size() > 0) {
+                    /* We only check the max size now, so that our
+                       returned nextSeq is as large as possible.  This
+                       prevents the caller from thinking it missed
+                       interesting notifications when in fact we knew they
+                       weren't.  */
+                    if (maxNotifications <= 0) {
+                        logger.debug("fetchNotifications", 
+				     "reached maxNotifications");
+                        nextSeq = candidate.seq;
+                        break fetch;
+                    }
+                    --maxNotifications;
+                    if (logger.debugOn())
+                        logger.debug("fetchNotifications", "add: " + 
+				     matchedNotifs);
+                    notifs.addAll(matchedNotifs);
                 }
-                --maxNotifications;
-                if (logger.debugOn())
-                    logger.debug("fetchNotifications", "add: " + 
-				 matchedNotifs);
-                notifs.addAll(matchedNotifs);
             }
 
-            ++nextSeq;
+            nextSeq = next;
         } // end while
 
         /* Construct and return the result.  */
@@ -392,19 +456,24 @@ public class ArrayNotificationBuffer implements NotificationBuffer {
         return nr;
     }
 
-    synchronized long earliestSequenceNumber() {
+    long earliestSequenceNumber() {
         return earliestSequenceNumber;
     }
 
-    synchronized long nextSequenceNumber() {
+    long nextSequenceNumber() {
         return nextSequenceNumber;
     }
 
+    /* Notifications are added by one thread at a time, holding the
+       buffer lock, but fetchNotifications reads them without it.  The
+       slot is written before the indexes, and both before
+       nextSequenceNumber, so a reader that sees a sequence number in
+       nextSequenceNumber or in an index finds its notification.  */
     synchronized void addNotification(NamedNotification notif) {
         if (logger.traceOn())
             logger.trace("addNotification", notif.toString());
 
-        while (queue.size() >= queueSize) {
+        while (nextSequenceNumber - earliestSequenceNumber >= queueSize) {
 	    dropNotification();
             if (logger.debugOn()) {
                 logger.debug("addNotification",
@@ -412,29 +481,166 @@ public class ArrayNotificationBuffer implements NotificationBuffer {
                       earliestSequenceNumber);
             }
         }
-        queue.add(notif);
-        nextSequenceNumber++;
+        final long seq = nextSequenceNumber;
+        final ObjectName sender = notif.getObjectName();
+        final String type = notif.getNotification().getType();
+        final Chain senderChain = chain(fromSender, sender);
+        final Chain typeChain = (type == null) ? null : chain(ofType, type);
+        ring[slot(ring, seq)] = new BufferedNotification(seq, notif, type,
+            senderChain.latest,
+            (typeChain == null) ? -1 : typeChain.latest);
+        senderChain.add(seq);
+        if (typeChain != null)
+            typeChain.add(seq);
+        nextSequenceNumber = seq + 1;
         if (logger.debugOn())
             logger.debug("addNotification", "nextSeq=" + nextSequenceNumber);
         notifyAll();
     }
 
     private void dropNotification() {
-	queue.remove(0);
-	earliestSequenceNumber++;
+	final long seq = earliestSequenceNumber;
+	final int i = slot(ring, seq);
+	final BufferedNotification dropped = ring[i];
+	ring[i] = null;
+	earliestSequenceNumber = seq + 1;
+	/* Forget senders and types with nothing left in the buffer.  */
+	final ObjectName sender = dropped.notif.getObjectName();
+	if (--fromSender.get(sender).count == 0)
+	    fromSender.remove(sender);
+	if (dropped.type != null && --ofType.get(dropped.type).count == 0)
+	    ofType.remove(dropped.type);
     }
 
-    synchronized NamedNotification notificationAt(long seqNo) {
-        long index = seqNo - earliestSequenceNumber;
-        if (index < 0 || index > Integer.MAX_VALUE) {
-            final String msg = "Bad sequence number: " + seqNo + " (earliest "
-                + earliestSequenceNumber + ")";
-            logger.trace("notificationAt", msg);
-            throw new IllegalArgumentException(msg);
+    /* Return the chain of the given sender or type, creating it if
+       there is none.  Must be called holding the buffer lock.  */
+    private static <K> Chain chain(ConcurrentHashMap<K, Chain> index, K key) {
+        Chain chain = index.get(key);
+        if (chain == null) {
+            chain = new Chain();
+            index.put(key, chain);
         }
-        return queue.get((int) index);
+        return chain;
     }
 
+    /* Return the chains of the given senders (sources) or of the types
+       matching the given prefixes (types), or null if they hold more
+       than limit notifications between them.  */
+    private static <K> List<Chain> chains(ConcurrentHashMap<K, Chain> index,
+                                          Set<K> sources,
+                                          Set<String> types,
+                                          long limit) {
+        List<Chain> chains = new ArrayList<Chain>();
+        long count = 0;
+        if (sources != null) {
+            for (K key : sources) {
+                Chain chain = index.get(key);
+                if (chain != null) {
+                    chains.add(chain);
+                    if ((count += chain.count) > limit)
+                        return null;
+                }
+            }
+        } else {
+            for (Map.Entry<K, Chain> e : index.entrySet()) {
+                if (typeMatches(types, (String) e.getKey())) {
+                    chains.add(e.getValue());
+                    if ((count += e.getValue().count) > limit)
+                        return null;
+                }
+            }
+        }
+        return chains;
+    }
+
+    private static int slot(BufferedNotification[] ring, long seq) {
+        return (int) (seq % ring.length);
+    }
+
+    /* Walk back the chain of notifications from one sender (bySender)
+       or of one type, starting at sequence number latest, and add to
+       candidates those before next and at or after nextSeq that come
+       from one of sources and have a type with one of the prefixes in
+       types (either null for any).  Return false if a notification in
+       the chain is no longer in ring, in which case the caller must
+       start again with the current ring.  */
+    private static boolean collect(List<BufferedNotification> candidates,
+                                   BufferedNotification[] ring,
+                                   long latest, long nextSeq, long next,
+                                   Set<ObjectName> sources,
+                                   Set<String> types,
+                                   boolean bySender) {
+        for (long seq = latest; seq >= nextSeq; ) {
+            BufferedNotification n = ring[slot(ring, seq)];
+            if (n == null || n.seq != seq)
+                return false;
+            if (seq < next && n.matches(sources, types))
+                candidates.add(n);
+            seq = bySender ? n.prevFromSender : n.prevOfType;
+        }
+        return true;
+    }
+
+    static boolean typeMatches(Set<String> prefixes, String type) {
+        if (type == null)
+            return false;
+        for (String prefix : prefixes) {
+            if (type.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+    /* A notification in the ring.  It is never modified once it is
+       there, so readers may see it without synchronization.  Besides
+       its own sequence number it holds those of the previous
+       notification from the same sender and of the same type, or -1,
+       which chain together the notifications that an index entry
+       leads to.  */
+    private static class BufferedNotification {
+        BufferedNotification(long seq, NamedNotification notif, String type,
+                             long prevFromSender, long prevOfType) {
+            this.seq = seq;
+            this.notif = notif;
+            this.type = type;
+            this.prevFromSender = prevFromSender;
+            this.prevOfType = prevOfType;
+        }
+
+        boolean matches(Set<ObjectName> sources, Set<String> types) {
+            return (sources == null || sources.contains(notif.getObjectName()))
+                && (types == null || typeMatches(types, type));
+        }
+
+        final long seq;
+        final NamedNotification notif;
+        final String type;
+        final long prevFromSender;
+        final long prevOfType;
+    }
+
+    /* The notifications in the buffer from one sender or of one type.
+       Only written with the buffer lock held; fetchNotifications reads
+       latest to start walking the chain, and count to decide whether
+       to.  */
+    private static class Chain {
+        void add(long seq) {
+            latest = seq;
+            count++;
+        }
+
+        volatile long latest = -1;
+        volatile int count;
+    }
+
+    private static final Comparator<BufferedNotification> seqOrder =
+        new Comparator<BufferedNotification>() {
+            public int compare(BufferedNotification a,
+                               BufferedNotification b) {
+                return (a.seq < b.seq) ? -1 : ((a.seq == b.seq) ? 0 : 1);
+            }
+        };
+
     private static class NamedNotification {
         NamedNotification(ObjectName sender, Notification notif) {
             this.sender = sender;
@@ -723,10 +929,20 @@ public class ArrayNotificationBuffer implements NotificationBuffer {
 			"ArrayNotificationBuffer");
 
     private final MBeanServer mBeanServer;
-    private final ArrayQueue<NamedNotification> queue;
+    /* The notification with sequence number seq is in
+       ring[seq % ring.length] if earliestSequenceNumber <= seq <
+       nextSequenceNumber.  These three fields are only written with
+       the buffer lock held.  */
+    private volatile BufferedNotification[] ring;
     private int queueSize;
-    private long earliestSequenceNumber;
-    private long nextSequenceNumber;
+    private volatile long earliestSequenceNumber;
+    private volatile long nextSequenceNumber;
+    /* The indexes: a Chain for each sender and each type with
+       notifications in the buffer.  */
+    private final ConcurrentHashMap<ObjectName, Chain> fromSender =
+        new ConcurrentHashMap<ObjectName, Chain>();
+    private final ConcurrentHashMap<String, Chain> ofType =
+        new ConcurrentHashMap<String, Chain>();
     private Set<ObjectName> createdDuringQuery;
 
     static final String broadcasterClass =
@@ -8,6 +8,7 @@
 package com.sun.jmx.remote.internal;
 
 import java.util.List;
+import java.util.Set;
 import javax.management.Notification;
 import javax.management.ObjectName;
 import javax.management.remote.TargetedNotification;
@@ -19,4 +20,24 @@ public interface NotificationBufferFilter {
      */
     public void apply(List<TargetedNotification> targetedNotifs,
             ObjectName source, Notification notif);
+
+    /**
+     * Return the names of the MBeans whose notifications can match this
+     * filter, or null if notifications from any MBean can.  The buffer
+     * skips notifications from other MBeans without calling
+     * {@link #apply apply}.  The caller may keep the returned set, so
+     * it must not change afterwards.
+     */
+    public Set<ObjectName> getSourceNames();
+
+    /**
+     * Return prefixes of the types of the notifications that can match
+     * this filter, or null if notifications of any type can.  A
+     * notification matches a prefix if its type starts with it, as in
+     * {@link javax.management.NotificationFilterSupport}.  The buffer
+     * skips notifications of other types without calling
+     * {@link #apply apply}.  The caller may keep the returned set, so
+     * it must not change afterwards.
+     */
+    public Set<String> getTypePrefixes();
 }
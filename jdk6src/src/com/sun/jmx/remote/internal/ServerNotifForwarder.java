@@ -30,8 +30,10 @@ import javax.management.MBeanServer;
 import javax.management.Notification;
 import javax.management.NotificationBroadcaster;
 import javax.management.NotificationFilter;
+import javax.management.NotificationFilterSupport;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
+import javax.management.relation.MBeanServerNotificationFilter;
 import javax.management.remote.NotificationResult;
 import javax.management.remote.TargetedNotification;
 import javax.management.MalformedObjectNameException;
@@ -122,6 +124,7 @@ public class ServerNotifForwarder {
                 set.add(idaf);
             }
             listenerMap.put(nn, set);
+            interestChanged();
         }
         
         return id;
@@ -196,6 +199,7 @@ public class ServerNotifForwarder {
                 listenerMap.remove(name);
             else
                 set.remove(idaf);
+            interestChanged();
         }
     }
     
@@ -240,7 +244,62 @@ public class ServerNotifForwarder {
                 }
             }
         }
+
+        public Set<ObjectName> getSourceNames() {
+            synchronized (listenerMap) {
+                if (sourceNames == null)
+                    sourceNames = Collections.unmodifiableSet(
+                        new HashSet<ObjectName>(listenerMap.keySet()));
+                return sourceNames;
+            }
+        }
+
+        public Set<String> getTypePrefixes() {
+            synchronized (listenerMap) {
+                if (!typePrefixesValid) {
+                    typePrefixes = computeTypePrefixes();
+                    typePrefixesValid = true;
+                }
+                return typePrefixes;
+            }
+        }
     };
+
+    /* The sets returned by bufferFilter.getSourceNames and
+     * getTypePrefixes are computed when first asked for after a
+     * listener is added or removed, not at each fetch.  Must be called
+     * holding the listenerMap lock.
+     */
+    private void interestChanged() {
+        sourceNames = null;
+        typePrefixes = null;
+        typePrefixesValid = false;
+    }
+
+    /* Return the union of the types enabled by the filters of all our
+     * listeners, or null if one of them may enable any type.  Only
+     * NotificationFilterSupport and MBeanServerNotificationFilter are
+     * known to accept no other types than those they enable; a subclass
+     * could override isNotificationEnabled to accept more.  Must be
+     * called holding the listenerMap lock.
+     */
+    private Set<String> computeTypePrefixes() {
+        Set<String> prefixes = new HashSet<String>();
+        for (Set<IdAndFilter> set : listenerMap.values()) {
+            for (IdAndFilter idaf : set) {
+                final NotificationFilter nf = idaf.getFilter();
+                if (nf == null)
+                    return null;
+                final Class<?> c = nf.getClass();
+                if (c != NotificationFilterSupport.class &&
+                    c != MBeanServerNotificationFilter.class)
+                    return null;
+                prefixes.addAll(
+                    ((NotificationFilterSupport) nf).getEnabledTypes());
+            }
+        }
+        return Collections.unmodifiableSet(prefixes);
+    }
     
     public NotificationResult fetchNotifs(long startSequenceNumber,
         long timeout,
@@ -283,6 +342,7 @@ public class ServerNotifForwarder {
             
             synchronized(listenerMap) {
                 listenerMap.clear();
+                interestChanged();
             }
         }
         
@@ -428,6 +488,10 @@ public class ServerNotifForwarder {
     private NotificationBuffer notifBuffer;
     private Map<ObjectName, Set<IdAndFilter>> listenerMap =
             new HashMap<ObjectName, Set<IdAndFilter>>();
+    // Guarded by listenerMap, see interestChanged()
+    private Set<ObjectName> sourceNames;
+    private Set<String> typePrefixes;
+    private boolean typePrefixesValid;
     
     private boolean terminated = false;
     private final int[] terminationLock = new int[0];
@@ -1553,6 +1553,18 @@ public abstract class SnmpMibTable extends SnmpMibNode
             //
             throw noSuchInstanceException;
         }
+
+        // A walk asks for the successor of the row we returned last: 
+        // if so, that is simply the next position, no need to search.
+        // The cursor is only a hint, and is checked against the table.
+        //
+        final SnmpOid[] oids = tableoids;
+        final int cursor = walkCursor;
+        if (cursor >= 0 && cursor + 1 < tablecount && 
+            cursor + 1 < oids.length && resOid.equals(oids[cursor])) {
+            walkCursor = cursor + 1;
+            return oids[cursor + 1];
+        }
         
         // First find the oid. This will allow to speed up retrieval process
         // during smart discovery of table (using the getNext) as the 
@@ -1572,6 +1584,7 @@ public abstract class SnmpMibTable extends SnmpMibNode
             try {
 		// XX last = (SnmpOid) oids.elementAt(newPos);
 		last = tableoids[newPos];
+		walkCursor = newPos;
             } catch(ArrayIndexOutOfBoundsException e) {
                 throw noSuchInstanceException;
             } 
@@ -1603,6 +1616,7 @@ public abstract class SnmpMibTable extends SnmpMibNode
         if (size == 0) 
             throw noSuchInstanceException;
 	// XX return (SnmpOid) oids.firstElement();      
+	walkCursor = 0;
 	return tableoids[0];      
     }
     
@@ -2253,9 +2267,6 @@ public abstract class SnmpMibTable extends SnmpMibNode
             if (comp == 0)
                 return curr;
       
-            if (oid.equals(pos) == true) {
-                return curr;
-            }
             if (comp > 0) {
                 low = curr + 1;
             } else {
@@ -2372,8 +2383,9 @@ public abstract class SnmpMibTable extends SnmpMibNode
 		// Save old vector
 	 	final SnmpOid[] olde = tableoids;
 
-		// Allocate larger vectors
-		tablesize += Delta;
+		// Allocate larger vectors. Grow geometrically, so that
+		// filling a large table does not copy it over and over.
+		tablesize += Math.max(Delta, tablesize / 2);
 		tableoids = new SnmpOid[tablesize];
 
 		// Check pos validity
@@ -2475,6 +2487,13 @@ public abstract class SnmpMibTable extends SnmpMibNode
     private int     tablesize      = Delta;
     private SnmpOid tableoids[]    = new SnmpOid[tablesize];
 
+    /**
+     * Position of the row last returned by getNextOid(), or -1.
+     * Consecutive GETNEXT steps of a walk usually ask for the row that
+     * follows it.
+     */
+    private transient volatile int walkCursor = -1;
+
     /**
      * The list of entries.
      * @serial
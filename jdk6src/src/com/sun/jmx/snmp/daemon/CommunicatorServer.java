@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Vector;
 import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // jmx import
 //
@@ -188,8 +189,11 @@ public abstract class CommunicatorServer
     int maxActiveClientCount = 1 ;
 
     /**
+     * Incremented once by <CODE>doReceive</CODE> (or any other receive
+     * loop) for each client taken; the value returned by that increment
+     * is the client's id.
      */
-    transient int servedClientCount = 0 ;
+    transient AtomicInteger servedClientCount = new AtomicInteger() ;
 
     /**
      * The host name used by this CommunicatorServer.
@@ -630,7 +634,7 @@ public abstract class CommunicatorServer
      *         <CODE>stop</CODE> method.
      */
     int getServedClientCount() {
-        return servedClientCount ;
+        return servedClientCount.get() ;
     }
   
     /**
@@ -782,7 +786,6 @@ public abstract class CommunicatorServer
             // Main loop
             // ----------------------
             while (!stopRequested) {
-                servedClientCount++;	
                 doReceive() ;
                 waitIfTooManyClients() ;
                 doProcess() ;
@@ -986,7 +989,7 @@ public abstract class CommunicatorServer
      * Call to <CODE>wait()</CODE> is terminated when a client handler 
      * thread calls <CODE>notifyClientHandlerDeleted(this)</CODE> ;
      */
-    private synchronized void waitIfTooManyClients() 
+    synchronized void waitIfTooManyClients() 
 	throws InterruptedException {
         while (getActiveClientCount() >= maxActiveClientCount) {
             if (isTraceOn()) {
@@ -1095,7 +1098,7 @@ public abstract class CommunicatorServer
 	stateLock = new Object();
 	state = OFFLINE;
         stopRequested = false;
-        servedClientCount = 0;
+        servedClientCount = new AtomicInteger();
         clientHandlerVector = new Vector<ClientHandler>();
 	fatherThread = Thread.currentThread();
 	mainThread = null;
@@ -17,6 +17,7 @@ package com.sun.jmx.snmp.daemon;
 //
 import java.util.Vector;
 import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
 import java.net.DatagramSocket;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
@@ -182,7 +183,6 @@ public class SnmpAdaptorServer extends CommunicatorServer
     private transient DatagramSocket  socket          = null;
     transient DatagramSocket          trapSocket      = null;
     private transient SnmpSession     informSession   = null;
-    private transient DatagramPacket  packet          = null;
     transient Vector                  mibs            = new Vector();
     private transient SnmpMibTree     root;
 
@@ -209,96 +209,98 @@ public class SnmpAdaptorServer extends CommunicatorServer
         
     // VARIABLES REQUIRED FOR IMPLEMENTING SNMP GROUP (MIBII)
     //-------------------------------------------------------
+    // The counters are updated concurrently by every request handler
+    // thread, so they are striped adders rather than plain ints.
     
     /**
      * The <CODE>snmpOutTraps</CODE> value defined in MIB-II.
      */
-    int snmpOutTraps=0;
+    final LongAdder snmpOutTraps = new LongAdder();
     
     /**
      * The <CODE>snmpOutGetResponses</CODE> value defined in MIB-II.
      */
-    private int snmpOutGetResponses=0;
+    private final LongAdder snmpOutGetResponses = new LongAdder();
 
     /**
      * The <CODE>snmpOutGenErrs</CODE> value defined in MIB-II.
      */
-    private int snmpOutGenErrs=0;
+    private final LongAdder snmpOutGenErrs = new LongAdder();
 
     /**
      * The <CODE>snmpOutBadValues</CODE> value defined in MIB-II.
      */
-    private int snmpOutBadValues=0;
+    private final LongAdder snmpOutBadValues = new LongAdder();
 
     /**
      * The <CODE>snmpOutNoSuchNames</CODE> value defined in MIB-II.
      */
-    private int snmpOutNoSuchNames=0;
+    private final LongAdder snmpOutNoSuchNames = new LongAdder();
 
     /**
      * The <CODE>snmpOutTooBigs</CODE> value defined in MIB-II.
      */
-    private int snmpOutTooBigs=0;
+    private final LongAdder snmpOutTooBigs = new LongAdder();
 
     /**
      * The <CODE>snmpOutPkts</CODE> value defined in MIB-II.
      */
-    int snmpOutPkts=0;
+    final LongAdder snmpOutPkts = new LongAdder();
 
     /**
      * The <CODE>snmpInASNParseErrs</CODE> value defined in MIB-II.
      */
-    private int snmpInASNParseErrs=0;
+    private final LongAdder snmpInASNParseErrs = new LongAdder();
 
     /**
      * The <CODE>snmpInBadCommunityUses</CODE> value defined in MIB-II.
      */
-    private int snmpInBadCommunityUses=0;
+    private final LongAdder snmpInBadCommunityUses = new LongAdder();
 
     /**
      * The <CODE>snmpInBadCommunityNames</CODE> value defined in MIB-II.
      */
-    private int snmpInBadCommunityNames=0;
+    private final LongAdder snmpInBadCommunityNames = new LongAdder();
 
     /**
      * The <CODE>snmpInBadVersions</CODE> value defined in MIB-II.
      */
-    private int snmpInBadVersions=0;
+    private final LongAdder snmpInBadVersions = new LongAdder();
 
     /**
      * The <CODE>snmpInGetRequests</CODE> value defined in MIB-II.
      */
-    private int snmpInGetRequests=0;
+    private final LongAdder snmpInGetRequests = new LongAdder();
 
     /**
      * The <CODE>snmpInGetNexts</CODE> value defined in MIB-II.
      */
-    private int snmpInGetNexts=0;
+    private final LongAdder snmpInGetNexts = new LongAdder();
 
     /**
      * The <CODE>snmpInSetRequests</CODE> value defined in MIB-II.
      */
-    private int snmpInSetRequests=0;
+    private final LongAdder snmpInSetRequests = new LongAdder();
 
     /**
      * The <CODE>snmpInPkts</CODE> value defined in MIB-II.
      */
-    private int snmpInPkts=0;
+    private final LongAdder snmpInPkts = new LongAdder();
 
     /**
      * The <CODE>snmpInTotalReqVars</CODE> value defined in MIB-II.
      */
-    private int snmpInTotalReqVars=0;
+    private final LongAdder snmpInTotalReqVars = new LongAdder();
 
     /**
      * The <CODE>snmpInTotalSetVars</CODE> value defined in MIB-II.
      */
-    private int snmpInTotalSetVars=0;
+    private final LongAdder snmpInTotalSetVars = new LongAdder();
 
     /**
      * The <CODE>snmpInTotalSetVars</CODE> value defined in rfc 1907 MIB-II.
      */
-    private int snmpSilentDrops=0;
+    private final LongAdder snmpSilentDrops = new LongAdder();
     
     private static final String InterruptSysCallMsg = 
 	"Interrupted system call";
@@ -324,6 +326,27 @@ public class SnmpAdaptorServer extends CommunicatorServer
 	}
     }
 
+    /**
+     * Number of threads receiving requests on the adaptor socket,
+     * including the main thread of the adaptor.  Set with the
+     * "com.sun.jmx.snmp.receivers" system property; the default is 1.
+     */
+    private static int receiverNumber = 1;
+
+    static {
+	String s = System.getProperty("com.sun.jmx.snmp.receivers");
+
+	if (s != null) {
+	    try {
+		receiverNumber = Math.max(1, Integer.parseInt(s));
+	    } catch (NumberFormatException e) {
+		System.err.println("Got wrong value for " +
+				   "com.sun.jmx.snmp.receivers: "+s);
+		System.err.println("Use the default value: "+receiverNumber);
+	    }
+	}
+    }
+
     // PUBLIC CONSTRUCTORS
     //--------------------
     
@@ -816,7 +839,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpOutTraps</CODE> value.
      */
     public Long getSnmpOutTraps() {
-        return new Long(snmpOutTraps);
+        return counter32(snmpOutTraps);
     }
   
     /**
@@ -825,7 +848,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpOutGetResponses</CODE> value.
      */
     public Long getSnmpOutGetResponses() {
-        return new Long(snmpOutGetResponses);
+        return counter32(snmpOutGetResponses);
     }
   
     /**
@@ -834,7 +857,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpOutGenErrs</CODE> value.
      */
     public Long getSnmpOutGenErrs() {
-        return new Long(snmpOutGenErrs);
+        return counter32(snmpOutGenErrs);
     }
   
     /**
@@ -843,7 +866,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpOutBadValues</CODE> value.
      */
     public Long getSnmpOutBadValues() {
-        return new Long(snmpOutBadValues);
+        return counter32(snmpOutBadValues);
     }
   
     /**
@@ -852,7 +875,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpOutNoSuchNames</CODE> value.
      */
     public Long getSnmpOutNoSuchNames() {
-        return new Long(snmpOutNoSuchNames);
+        return counter32(snmpOutNoSuchNames);
     }
   
     /**
@@ -861,7 +884,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpOutTooBigs</CODE> value.
      */
     public Long getSnmpOutTooBigs() {
-        return new Long(snmpOutTooBigs);
+        return counter32(snmpOutTooBigs);
     }
   
     /**
@@ -870,7 +893,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInASNParseErrs</CODE> value.
      */
     public Long getSnmpInASNParseErrs() {
-        return new Long(snmpInASNParseErrs);
+        return counter32(snmpInASNParseErrs);
     }
   
     /**
@@ -879,7 +902,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInBadCommunityUses</CODE> value.
      */
     public Long getSnmpInBadCommunityUses() {
-        return new Long(snmpInBadCommunityUses);
+        return counter32(snmpInBadCommunityUses);
     }
   
     /**
@@ -889,7 +912,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInBadCommunityNames</CODE> value.
      */
     public Long getSnmpInBadCommunityNames() {
-        return new Long(snmpInBadCommunityNames);
+        return counter32(snmpInBadCommunityNames);
     }
   
     /**
@@ -898,7 +921,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInBadVersions</CODE> value.
      */
     public Long getSnmpInBadVersions() {
-        return new Long(snmpInBadVersions);
+        return counter32(snmpInBadVersions);
     }
   
     /**
@@ -907,7 +930,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpOutPkts</CODE> value.
      */
     public Long getSnmpOutPkts() {
-        return new Long(snmpOutPkts);
+        return counter32(snmpOutPkts);
     }
   
     /**
@@ -916,7 +939,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInPkts</CODE> value.
      */
     public Long getSnmpInPkts() {
-        return new Long(snmpInPkts);
+        return counter32(snmpInPkts);
     }
   
     /**
@@ -925,7 +948,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInGetRequests</CODE> value.
      */
     public Long getSnmpInGetRequests() {
-        return new Long(snmpInGetRequests);
+        return counter32(snmpInGetRequests);
     }
   
     /**
@@ -934,7 +957,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInGetNexts</CODE> value.
      */
     public Long getSnmpInGetNexts() {
-        return new Long(snmpInGetNexts);
+        return counter32(snmpInGetNexts);
     }
   
     /**
@@ -943,7 +966,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInSetRequests</CODE> value.
      */
     public Long getSnmpInSetRequests() {
-        return new Long(snmpInSetRequests);
+        return counter32(snmpInSetRequests);
     }
   
     /**
@@ -952,7 +975,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInTotalSetVars</CODE> value.
      */
     public Long getSnmpInTotalSetVars() {
-        return new Long(snmpInTotalSetVars);
+        return counter32(snmpInTotalSetVars);
     }
   
     /**
@@ -961,7 +984,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @return The <CODE>snmpInTotalReqVars</CODE> value.
      */
     public Long getSnmpInTotalReqVars() {
-        return new Long(snmpInTotalReqVars);
+        return counter32(snmpInTotalReqVars);
     }
     
     /**
@@ -973,7 +996,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
      * @since 1.5
      */
     public Long getSnmpSilentDrops() {
-        return new Long(snmpSilentDrops);
+        return counter32(snmpSilentDrops);
     }
 
     /**
@@ -1216,10 +1239,21 @@ public class SnmpAdaptorServer extends CommunicatorServer
 	throws CommunicationException, InterruptedException {
 
         try {
+	    final DatagramSocket s;
 	    synchronized (this) {
-		socket = new DatagramSocket(port, address) ;
+		socket = s = new DatagramSocket(port, address) ;
 	    }
 	    dbgTag = makeDebugTag();
+
+	    // Start the additional receive loops.  They stop when 
+	    // doUnbind() closes the socket.
+	    //
+	    for (int i = 1; i < receiverNumber; i++) {
+		final Thread t = new Thread(new Receiver(s),
+					    "SnmpAdaptorServer receiver " + i);
+		t.setDaemon(true);
+		t.start();
+	    }
         } catch (SocketException e) {
             if (e.getMessage().equals(InterruptSysCallMsg))
                 throw new InterruptedException(e.toString()) ;
@@ -1286,21 +1320,7 @@ public class SnmpAdaptorServer extends CommunicatorServer
         // Let's wait for something to be received.
         //
         try {
-            packet = new DatagramPacket(new byte[bufferSize], bufferSize) ;
-            socket.receive(packet);
-	    int state = getState();
-	    
-	    if(state != ONLINE) {
-		if (isTraceOn()) {
-		    trace("doReceive", 
-		       "received a message but state not online, returning.");
-		}
-		return;
-	    }
-	    
-	    createSnmpRequestHandler(this, servedClientCount, socket, 
-				     packet, root, mibs, ipacl, pduFactory,
-				     userDataFactory, topMBS, objectName);
+	    receive(socket, servedClientCount.incrementAndGet());
         } catch (SocketException e) {
             // Let's check if we have been interrupted by stop().
             //
@@ -1320,6 +1340,63 @@ public class SnmpAdaptorServer extends CommunicatorServer
         }
     }
   
+    /**
+     * Reads a packet from the given socket and hands it to a new
+     * request handler.  A packet received while the adaptor is not 
+     * ONLINE is dropped.
+     */
+    private void receive(DatagramSocket s, int id) throws Exception {
+	final DatagramPacket packet = 
+	    new DatagramPacket(new byte[bufferSize], bufferSize) ;
+	s.receive(packet);
+	int state = getState();
+	    
+	if(state != ONLINE) {
+	    if (isTraceOn()) {
+		trace("doReceive", 
+		      "received a message but state not online, returning.");
+	    }
+	    return;
+	}
+	    
+	createSnmpRequestHandler(this, id, s, 
+				 packet, root, mibs, ipacl, pduFactory,
+				 userDataFactory, topMBS, objectName);
+    }
+
+    /**
+     * An additional receive loop on the adaptor socket.  Datagram 
+     * sockets can be read by several threads at once, each getting
+     * different packets, so this lets the agent decode and dispatch
+     * requests on several threads.  The loop ends when the socket is 
+     * closed.
+     */
+    private class Receiver implements Runnable {
+	Receiver(DatagramSocket s) {
+	    receiveSocket = s;
+	}
+
+	public void run() {
+	    while (!receiveSocket.isClosed()) {
+		try {
+		    receive(receiveSocket,
+			    servedClientCount.incrementAndGet());
+		    waitIfTooManyClients();
+		} catch (InterruptedException e) {
+		    return;
+		} catch (Exception e) {
+		    if (receiveSocket.isClosed())
+			return;
+		    if (isDebugOn()) {
+			debug("Receiver.run", "Unexpected exception = "+e);
+		    }
+		}
+	    }
+	}
+
+	private final DatagramSocket receiveSocket;
+    }
+  
     protected void doError(Exception e) throws CommunicationException {
         return;
     }
@@ -2142,8 +2219,8 @@ public class SnmpAdaptorServer extends CommunicatorServer
             trace("sendTrapMessage", "sent to " + msg.address + ":" + 
 		  msg.port);
         }
-        snmpOutTraps++;
-        snmpOutPkts++;
+        snmpOutTraps.increment();
+        snmpOutPkts.increment();
     }
   
     /**
@@ -2473,42 +2550,42 @@ public class SnmpAdaptorServer extends CommunicatorServer
         switch(pduType)  {
             
         case pduGetRequestPdu:
-            snmpInGetRequests++;
+            snmpInGetRequests.increment();
             break;
         case pduGetNextRequestPdu:
-            snmpInGetNexts++;
+            snmpInGetNexts.increment();
             break;
         case pduSetRequestPdu:
-            snmpInSetRequests++;
+            snmpInSetRequests.increment();
             break;
         default:
             break;
         }
-        snmpInPkts++ ;
+        snmpInPkts.increment();
     }
   
     void updateErrorCounters(int errorStatus) {
         switch(errorStatus) {
             
         case snmpRspNoError:
-            snmpOutGetResponses++;
+            snmpOutGetResponses.increment();
             break;
         case snmpRspGenErr:
-            snmpOutGenErrs++;
+            snmpOutGenErrs.increment();
             break;
         case snmpRspBadValue:
-            snmpOutBadValues++;
+            snmpOutBadValues.increment();
             break;
         case snmpRspNoSuchName:
-            snmpOutNoSuchNames++;
+            snmpOutNoSuchNames.increment();
             break;
         case snmpRspTooBig:
-            snmpOutTooBigs++;
+            snmpOutTooBigs.increment();
             break;
         default:
             break;
         }
-        snmpOutPkts++ ;
+        snmpOutPkts.increment();
     }
   
     void updateVarCounters(int pduType, int n) {
@@ -2517,32 +2594,32 @@ public class SnmpAdaptorServer extends CommunicatorServer
         case pduGetRequestPdu:
         case pduGetNextRequestPdu:
         case pduGetBulkRequestPdu:
-            snmpInTotalReqVars += n ;
+            snmpInTotalReqVars.add(n);
             break ;
         case pduSetRequestPdu:
-            snmpInTotalSetVars += n ;
+            snmpInTotalSetVars.add(n);
             break ;
         }
     }
   
     void incSnmpInASNParseErrs(int n) {
-        snmpInASNParseErrs += n ;
+        snmpInASNParseErrs.add(n);
     }
   
     void incSnmpInBadVersions(int n) {
-        snmpInBadVersions += n ;
+        snmpInBadVersions.add(n);
     }
   
     void incSnmpInBadCommunityUses(int n) {
-        snmpInBadCommunityUses += n ;
+        snmpInBadCommunityUses.add(n);
     }
   
     void incSnmpInBadCommunityNames(int n) {
-        snmpInBadCommunityNames += n ;
+        snmpInBadCommunityNames.add(n);
     }
     
     void incSnmpSilentDrops(int n) {
-        snmpSilentDrops += n ;
+        snmpSilentDrops.add(n);
     }
     // PRIVATE METHODS
     //----------------
@@ -2554,6 +2631,14 @@ public class SnmpAdaptorServer extends CommunicatorServer
     long getSysUpTime() {
         return (System.currentTimeMillis() - startUpTime) / 10 ;
     }
+
+    /**
+     * Returns the current value of a MIB-II counter, wrapped to the
+     * 32 bits of a <CODE>Counter32</CODE>.
+     */
+    private static Long counter32(LongAdder counter) {
+        return new Long(counter.sum() & 0xFFFFFFFFL);
+    }
   
     /**
      * Control the way the SnmpAdaptorServer service is deserialized.
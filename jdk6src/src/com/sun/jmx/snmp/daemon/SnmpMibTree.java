@@ -30,6 +30,12 @@ import com.sun.jmx.snmp.agent.SnmpMibAgent;
 /**
  * The class is used for building a tree representation of the different
  * root oids of the supported MIBs. Each node is associated to a specific MIB.
+ * <p>
+ * Lookups do not lock: the children of a node are kept in an array sorted
+ * by arc value that is never modified, only replaced by a new array when
+ * a MIB is registered or unregistered, so a lookup running concurrently 
+ * sees either the old or the new children of each node.  Registrations 
+ * and unregistrations are serialized on the tree.
  */
 final class SnmpMibTree {
     
@@ -38,7 +44,7 @@ final class SnmpMibTree {
       root= new TreeNode(-1, null, null);
     }
     
-    public void setDefaultAgent(SnmpMibAgent def) {
+    public synchronized void setDefaultAgent(SnmpMibAgent def) {
         defaultAgent= def;
         root.agent= def;
     }
@@ -47,11 +53,11 @@ final class SnmpMibTree {
         return defaultAgent;
     }
   
-    public void register(SnmpMibAgent agent) {
+    public synchronized void register(SnmpMibAgent agent) {
         root.registerNode(agent);
     }
 
-    public void register(SnmpMibAgent agent, long[] oid) {
+    public synchronized void register(SnmpMibAgent agent, long[] oid) {
       root.registerNode(oid, 0, agent);
     }
   
@@ -59,14 +65,16 @@ final class SnmpMibTree {
         TreeNode node= root.retrieveMatchingBranch(oid.longValue(), 0);
         if (node == null)
             return defaultAgent;
-        else
-	    if(node.getAgentMib() == null)
+        else {
+	    final SnmpMibAgent agent= node.getAgentMib();
+	    if(agent == null)
 		return defaultAgent;
 	    else
-		return node.getAgentMib();
+		return agent;
+	}
     }
 
-    public void unregister(SnmpMibAgent agent, SnmpOid[] oids) {
+    public synchronized void unregister(SnmpMibAgent agent, SnmpOid[] oids) {
 	for(int i = 0; i < oids.length; i++) {
 	    long[] oid = oids[i].longValue();
 	    TreeNode node = root.retrieveMatchingBranch(oid, 0);
@@ -77,7 +85,7 @@ final class SnmpMibTree {
     }
 
     
-    public void unregister(SnmpMibAgent agent) {
+    public synchronized void unregister(SnmpMibAgent agent) {
 	
 	root.removeAgentFully(agent);
     }
@@ -91,12 +99,14 @@ final class SnmpMibTree {
         node.removeAgent(agent);
     }
     */
-    public void printTree() {
+    public synchronized void printTree() {
         root.printTree(">");
     }
    
-    private SnmpMibAgent defaultAgent;    
-    private TreeNode root;
+    private volatile SnmpMibAgent defaultAgent;    
+    private final TreeNode root;
+
+    private static final TreeNode[] noChildren = new TreeNode[0];
     
     // A SnmpMibTree object is a tree of TreeNode
     //
@@ -111,7 +121,7 @@ final class SnmpMibTree {
 	    TreeNode node= retrieveChild(oid, cursor);
             if (node == null)
                 return this;
-            if (children.size() == 0) {
+            if (children.length == 0) {
                 // In this case, the node does not have any children. So no point to
                 // continue the search ...
                 return node;
@@ -151,9 +161,9 @@ final class SnmpMibTree {
             if (children == null) {
                 return;
             }
-            for(Enumeration e= children.elements(); e.hasMoreElements(); ) {
-                TreeNode node= (TreeNode) e.nextElement();
-                node.printTree(ident);
+            final TreeNode[] nodes= children;
+            for(int i= 0; i < nodes.length; i++) {
+                nodes[i].printTree(ident);
             }
         }
 	
@@ -171,17 +181,21 @@ final class SnmpMibTree {
         }
 	
 	private void removeAgentFully(SnmpMibAgent agent) {
-	    Vector v = new Vector();
-	    for(Enumeration e= children.elements(); e.hasMoreElements(); ) {
+	    final TreeNode[] nodes= children;
+	    final TreeNode[] kept= new TreeNode[nodes.length];
+	    int nkept= 0;
+	    for(int i= 0; i < nodes.length; i++) {
 		
-                TreeNode node= (TreeNode) e.nextElement();
+                TreeNode node= nodes[i];
                 node.removeAgentFully(agent);
-		if(node.agents.isEmpty())
-		    v.add(node);
+		if(!node.agents.isEmpty())
+		    kept[nkept++]= node;
 		
             }
-	    for(Enumeration e= v.elements(); e.hasMoreElements(); ) {
-		children.removeElement(e.nextElement());
+	    if (nkept < nodes.length) {
+		final TreeNode[] newChildren= new TreeNode[nkept];
+		System.arraycopy(kept, 0, newChildren, 0, nkept);
+		children= newChildren;
 	    }
             removeAgent(agent);
 	    
@@ -213,7 +227,7 @@ final class SnmpMibTree {
                 //
                 long theValue= oid[cursor];
 		child= new TreeNode(theValue, agent, this);
-                children.addElement(child);
+                addChild(child);
             }
 	    else
 		if (agents.contains(agent) == false) {
@@ -229,25 +243,50 @@ final class SnmpMibTree {
 	      child.registerNode(oid, cursor+1, agent);
         }
 	
+        /**
+         * Binary search of the children, which are sorted by value.
+         */
         private TreeNode retrieveChild(long[] oid, int current) {
             long theValue= oid[current];
+            final TreeNode[] nodes= children;
 	
-            for(Enumeration e= children.elements(); e.hasMoreElements(); ) {
-                TreeNode node= (TreeNode) e.nextElement();
-                if (node.match(theValue))
-                    return node;
+            int low= 0;
+            int high= nodes.length - 1;
+            while (low <= high) {
+                int mid= (low + high) >>> 1;
+                long midValue= nodes[mid].nodeValue;
+                if (midValue < theValue)
+                    low= mid + 1;
+                else if (midValue > theValue)
+                    high= mid - 1;
+                else
+                    return nodes[mid];
             }
             return null;
         }
-      
-        final private boolean match(long value) {
-            return (nodeValue == value) ? true : false;
+
+        /**
+         * Publish a new children array with the given child inserted at
+         * its place in value order.
+         */
+        private void addChild(TreeNode child) {
+            final TreeNode[] nodes= children;
+            int i= 0;
+            while (i < nodes.length && nodes[i].nodeValue < child.nodeValue)
+                i++;
+            final TreeNode[] newChildren= new TreeNode[nodes.length + 1];
+            System.arraycopy(nodes, 0, newChildren, 0, i);
+            newChildren[i]= child;
+            System.arraycopy(nodes, i, newChildren, i + 1, nodes.length - i);
+            children= newChildren;
         }
       
-        private Vector children= new Vector();
+        // Replaced, never modified, so that lookups need no lock.
+        private volatile TreeNode[] children= noChildren;
+        // Only used under the tree lock.
         private Vector agents= new Vector();
-        private long nodeValue;
-        protected SnmpMibAgent agent;
+        private final long nodeValue;
+        protected volatile SnmpMibAgent agent;
         private TreeNode parent;
         
     }; // end of class TreeNode
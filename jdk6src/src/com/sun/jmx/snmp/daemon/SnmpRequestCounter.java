@@ -12,6 +12,7 @@
 
 package com.sun.jmx.snmp.daemon;
 
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A static instance of this class is usually created.  It contains a 
@@ -24,8 +25,10 @@ package com.sun.jmx.snmp.daemon;
 final class SnmpRequestCounter {
 	/**
 	 * A counter with value between 1...2^31-1.
+	 * Identifiers must be unique, so this is a single atomic rather
+	 * than a striped counter.
 	 */
-	int reqid = 0 ;
+	private final AtomicInteger reqid = new AtomicInteger() ;
 
 	public SnmpRequestCounter() {}
 
@@ -33,9 +36,12 @@ final class SnmpRequestCounter {
 	 * Returns the next request identifier.
 	 * @return next request identifier.  The value wraps to 1 if it reaches negative value.
 	 */
-	public synchronized int getNewId() {
-		if (++reqid  < 0)
-			reqid = 1 ;
-		return reqid ;
+	public int getNewId() {
+		for (;;) {
+			int current = reqid.get() ;
+			int next = (current == Integer.MAX_VALUE) ? 1 : current + 1 ;
+			if (reqid.compareAndSet(current, next))
+				return next ;
+		}
 	}
 }
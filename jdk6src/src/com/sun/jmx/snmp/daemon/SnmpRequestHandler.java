@@ -23,6 +23,12 @@ import java.io.InterruptedIOException;
 import java.net.DatagramSocket;
 import java.net.DatagramPacket;
 import java.net.SocketException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 // jmx imports
 //
@@ -576,7 +582,8 @@ class SnmpRequestHandler extends ClientHandler implements SnmpDefinitions {
 
 		sub.type= pduSetRequestPdu;
 
-		if (sub.getErrorStatus() != SnmpDefinitions.snmpRspNoError) {
+		errorStatus= sub.getErrorStatus();
+		if (errorStatus != SnmpDefinitions.snmpRspNoError) {
 		    // No point to go any further.
 		    //
 		    if (isDebugOn()) {
@@ -589,18 +596,27 @@ class SnmpRequestHandler extends ClientHandler implements SnmpDefinitions {
             }
         }// end processing check operation for a set PDU.
     
-        // Let's start the sub-requests.
+        // Let's start the sub-requests. Those of a read-only request
+        // are independent of each other, so they run concurrently.
         // 
+        final boolean concurrent = 
+            (req.type != pduSetRequestPdu && nbSubRequest > 1);
+        if (concurrent)
+            runSubRequestsConcurrently(userData);
+
 	i=0;
         for(Enumeration e= subs.elements(); e.hasMoreElements() ;i++) {
             SnmpSubRequestHandler sub= (SnmpSubRequestHandler) e.nextElement();
+            if (!concurrent) {
         /* NPCTE fix for bugId 4492741, esc 0, 16-August 2001 */ 
-	    sub.setUserData(userData);
+	        sub.setUserData(userData);
 	/* end of NPCTE fix for bugId 4492741 */      
 
-	    sub.run();
+	        sub.run();
+            }
 
-            if (sub.getErrorStatus() != SnmpDefinitions.snmpRspNoError) {
+            errorStatus= sub.getErrorStatus();
+            if (errorStatus != SnmpDefinitions.snmpRspNoError) {
                 // No point to go any further.
                 //
                 if (isDebugOn()) {
@@ -617,6 +633,55 @@ class SnmpRequestHandler extends ClientHandler implements SnmpDefinitions {
         return null;
     }
   
+    /**
+     * Runs all the sub-requests and waits for them to complete. All but
+     * the first are handed to the sub-request pool; the current thread
+     * runs the first one, then any that the pool has not started yet.
+     * Sub-requests never wait for each other, so this cannot deadlock 
+     * however busy the pool is.
+     */
+    private void runSubRequestsConcurrently(Object userData) {
+        final SnmpSubRequestHandler[] handlers =
+            new SnmpSubRequestHandler[subs.size()];
+        final FutureTask[] tasks = new FutureTask[handlers.length];
+        int n = 0;
+        for(Enumeration e= subs.elements(); e.hasMoreElements() ;) {
+            SnmpSubRequestHandler sub= (SnmpSubRequestHandler) e.nextElement();
+            sub.setUserData(userData);
+            handlers[n] = sub;
+            tasks[n] = new FutureTask(sub, null);
+            if (n > 0)
+                subRequestExecutor.execute(tasks[n]);
+            n++;
+        }
+
+        tasks[0].run();
+        boolean interrupted = false;
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && subRequestExecutor.remove(tasks[i]))
+                tasks[i].run();
+            while (true) {
+                try {
+                    tasks[i].get();
+                    break;
+                } catch (InterruptedException x) {
+                    interrupted = true;
+                } catch (ExecutionException x) {
+                    // run() turns exceptions into an error status, so
+                    // this is an Error thrown by the MIB.  Report it
+                    // as the error status of the sub-request.
+                    if (isDebugOn()) {
+                        debug("runSubRequestsConcurrently", x.getCause());
+                    }
+                    handlers[i].setError(x.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
     /**
      * Optimize when there is only one sub request
      */
@@ -1145,6 +1210,26 @@ class SnmpRequestHandler extends ClientHandler implements SnmpDefinitions {
     static final private String InterruptSysCallMsg = 
 	"Interrupted system call";
 
+    /**
+     * Threads running the sub-requests of read-only requests that span
+     * several MIBs.  Idle threads go away after a minute.
+     */
+    static final private ThreadPoolExecutor subRequestExecutor;
+    static {
+        final int n = Runtime.getRuntime().availableProcessors();
+        subRequestExecutor =
+            new ThreadPoolExecutor(n, n, 60L, TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    final Thread t = new Thread(r, "SNMP sub-request");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        subRequestExecutor.allowCoreThreadTimeOut(true);
+    }
+
     static final private SnmpStatusException noSuchNameException =
         new SnmpStatusException(SnmpDefinitions.snmpRspNoSuchName) ;
 }
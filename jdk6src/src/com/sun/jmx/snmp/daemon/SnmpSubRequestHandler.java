@@ -460,6 +460,20 @@ class SnmpSubRequestHandler implements SnmpDefinitions, Runnable {
         return SnmpDefinitions.snmpRspGenErr;
     }
 
+    /**
+     * Records a failure that escaped {@link #run}, such as an Error
+     * thrown by the MIB while the sub-request ran in the pool of
+     * {@link SnmpRequestHandler}.
+     */
+    void setError(Throwable t) {
+        if (t instanceof SnmpStatusException) {
+            errorStatus = ((SnmpStatusException) t).getStatus();
+            errorIndex = ((SnmpStatusException) t).getErrorIndex();
+        } else {
+            errorStatus = SnmpDefinitions.snmpRspGenErr;
+        }
+    }
+
     /**
      * The method returns the error status of the operation.
      * The method takes into account the protocol version.
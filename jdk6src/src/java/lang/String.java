@@ -107,6 +107,21 @@ public final class String
     /** use serialVersionUID from JDK 1.0.2 for interoperability */
     private static final long serialVersionUID = -6849794470754667710L;
 
+    /**
+     * Whether substrings that keep only a small part of the character
+     * array of their string get an array of their own, so that they do
+     * not hold the whole array in memory.  This is controlled by the
+     * system property "java.lang.String.compactSubstrings", and is set
+     * by System.initializeSystemClass, before any other thread runs.
+     */
+    static boolean compactSubstrings;
+
+    /**
+     * When compactSubstrings is set, a substring shares the array of its
+     * string only if it uses at least 1/(2^SHARED_SUBSTRING_SHIFT) of it.
+     */
+    private static final int SHARED_SUBSTRING_SHIFT = 2;
+
     /**
      * Class String is special cased within the Serialization Stream Protocol.
      *
@@ -1911,6 +1926,14 @@ public final class String
      * extends to the character at index <code>endIndex - 1</code>.
      * Thus the length of the substring is <code>endIndex-beginIndex</code>.
      * <p>
+     * The substring usually shares the characters of this string, which
+     * are kept in memory for as long as either string is reachable.  If
+     * the system property <code>java.lang.String.compactSubstrings</code>
+     * is <code>true</code> when the virtual machine starts, a substring
+     * that retains less than a quarter of them is given a copy of its own
+     * characters instead, so that short keys cut out of a large document
+     * do not keep the whole document alive.
+     * <p>
      * Examples:
      * <blockquote><pre>
      * "hamburger".substring(4, 8) returns "urge"
@@ -1937,8 +1960,13 @@ public final class String
 	if (beginIndex > endIndex) {
 	    throw new StringIndexOutOfBoundsException(endIndex - beginIndex);
 	}
-	return ((beginIndex == 0) && (endIndex == count)) ? this :
-	    new String(offset + beginIndex, endIndex - beginIndex, value);
+	if ((beginIndex == 0) && (endIndex == count))
+	    return this;
+	int len = endIndex - beginIndex;
+	if (compactSubstrings && len < (value.length >>> SHARED_SUBSTRING_SHIFT))
+	    return new String(0, len, Arrays.copyOfRange(value,
+		offset + beginIndex, offset + endIndex));
+	return new String(offset + beginIndex, len, value);
     }
 
     /**
@@ -1110,6 +1110,14 @@ public final class System {
 	// an initializer only if it is called before sun.misc.VM.booted().
 	sun.misc.VM.allowArraySyntax();
 
+	// Set a boolean to determine whether String.substring copies the
+	// characters it keeps when they are a small part of the string.
+	// This value is controlled by the system property
+	// "java.lang.String.compactSubstrings"; it is read only here, so
+	// that every substring taken afterwards follows the same rule.
+	String.compactSubstrings = "true".equals(
+	    props.getProperty("java.lang.String.compactSubstrings"));
+
 	// Subsystems that are invoked during initialization can invoke
 	// sun.misc.VM.isBooted() in order to avoid doing things that should
 	// wait until the application class loader has been set up.
@@ -539,6 +539,23 @@ public class ArrayList<E> extends AbstractList<E>
 	    elementData[--size] = null;
     }
 
+    /**
+     * Sorts the elements of this list in place, for
+     * {@link Collections#sort(List,Comparator) Collections.sort}, which
+     * would otherwise copy them out to an array and set them back one by
+     * one through a list iterator.
+     *
+     * @param c the comparator, or <tt>null</tt> for the natural ordering
+     */
+    @SuppressWarnings("unchecked")
+    void sort(Comparator<? super E> c) {
+	int expectedModCount = modCount;
+	Arrays.sort((E[]) elementData, 0, size, c);
+	if (modCount != expectedModCount)
+	    throw new ConcurrentModificationException();
+	modCount++;
+    }
+
     /**
      * Checks if the given index is in range.  If not, throws an appropriate
      * runtime exception.  This method does *not* check if the index is
@@ -8,6 +8,7 @@
 package java.util;
 
 import java.lang.reflect.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class contains various methods for manipulating arrays (such as
@@ -45,16 +46,16 @@ public class Arrays {
 
     /**
      * Sorts the specified array of longs into ascending numerical order.
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      */
     public static void sort(long[] a) {
-	sort1(a, 0, a.length);
+	DualPivotQuicksort.sort(a, 0, a.length - 1);
     }
 
     /**
@@ -63,11 +64,11 @@ public class Arrays {
      * <tt>fromIndex</tt>, inclusive, to index <tt>toIndex</tt>, exclusive.
      * (If <tt>fromIndex==toIndex</tt>, the range to be sorted is empty.)
      *
-     * <p>The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * <p>The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element (inclusive) to be
@@ -79,21 +80,21 @@ public class Arrays {
      */
     public static void sort(long[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
-	sort1(a, fromIndex, toIndex-fromIndex);
+	DualPivotQuicksort.sort(a, fromIndex, toIndex - 1);
     }
 
     /**
      * Sorts the specified array of ints into ascending numerical order.
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      */
     public static void sort(int[] a) {
-	sort1(a, 0, a.length);
+	DualPivotQuicksort.sort(a, 0, a.length - 1);
     }
 
     /**
@@ -102,11 +103,11 @@ public class Arrays {
      * <tt>fromIndex</tt>, inclusive, to index <tt>toIndex</tt>, exclusive.
      * (If <tt>fromIndex==toIndex</tt>, the range to be sorted is empty.)<p>
      *
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element (inclusive) to be
@@ -118,21 +119,21 @@ public class Arrays {
      */
     public static void sort(int[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
-	sort1(a, fromIndex, toIndex-fromIndex);
+	DualPivotQuicksort.sort(a, fromIndex, toIndex - 1);
     }
 
     /**
      * Sorts the specified array of shorts into ascending numerical order.
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      */
     public static void sort(short[] a) {
-	sort1(a, 0, a.length);
+	DualPivotQuicksort.sort(a, 0, a.length - 1);
     }
 
     /**
@@ -141,11 +142,11 @@ public class Arrays {
      * <tt>fromIndex</tt>, inclusive, to index <tt>toIndex</tt>, exclusive.
      * (If <tt>fromIndex==toIndex</tt>, the range to be sorted is empty.)<p>
      *
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element (inclusive) to be
@@ -157,21 +158,21 @@ public class Arrays {
      */
     public static void sort(short[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
-	sort1(a, fromIndex, toIndex-fromIndex);
+	DualPivotQuicksort.sort(a, fromIndex, toIndex - 1);
     }
 
     /**
      * Sorts the specified array of chars into ascending numerical order.
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      */
     public static void sort(char[] a) {
-	sort1(a, 0, a.length);
+	DualPivotQuicksort.sort(a, 0, a.length - 1);
     }
 
     /**
@@ -180,11 +181,11 @@ public class Arrays {
      * <tt>fromIndex</tt>, inclusive, to index <tt>toIndex</tt>, exclusive.
      * (If <tt>fromIndex==toIndex</tt>, the range to be sorted is empty.)<p>
      *
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element (inclusive) to be
@@ -196,21 +197,21 @@ public class Arrays {
      */
     public static void sort(char[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
-	sort1(a, fromIndex, toIndex-fromIndex);
+	DualPivotQuicksort.sort(a, fromIndex, toIndex - 1);
     }
 
     /**
      * Sorts the specified array of bytes into ascending numerical order.
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      */
     public static void sort(byte[] a) {
-	sort1(a, 0, a.length);
+	DualPivotQuicksort.sort(a, 0, a.length - 1);
     }
 
     /**
@@ -219,11 +220,11 @@ public class Arrays {
      * <tt>fromIndex</tt>, inclusive, to index <tt>toIndex</tt>, exclusive.
      * (If <tt>fromIndex==toIndex</tt>, the range to be sorted is empty.)<p>
      *
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element (inclusive) to be
@@ -235,7 +236,7 @@ public class Arrays {
      */
     public static void sort(byte[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
-	sort1(a, fromIndex, toIndex-fromIndex);
+	DualPivotQuicksort.sort(a, fromIndex, toIndex - 1);
     }
 
     /**
@@ -255,11 +256,11 @@ public class Arrays {
      * For the purposes of sorting, all NaN values are considered
      * equivalent and equal.
      * <p>
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      */
@@ -287,11 +288,11 @@ public class Arrays {
      * For the purposes of sorting, all NaN values are considered
      * equivalent and equal.
      * <p>
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element (inclusive) to be
@@ -323,11 +324,11 @@ public class Arrays {
      * For the purposes of sorting, all NaN values are considered
      * equivalent and equal.
      * <p>
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      */
@@ -355,11 +356,11 @@ public class Arrays {
      * For the purposes of sorting, all NaN values are considered
      * equivalent and equal.
      * <p>
-     * The sorting algorithm is a tuned quicksort, adapted from Jon
-     * L. Bentley and M. Douglas McIlroy's "Engineering a Sort Function",
-     * Software-Practice and Experience, Vol. 23(11) P. 1249-1265 (November
-     * 1993).  This algorithm offers n*log(n) performance on many data sets
-     * that cause other quicksorts to degrade to quadratic performance.
+     * The sorting algorithm is a Dual-Pivot Quicksort by Vladimir
+     * Yaroslavskiy, Jon Bentley, and Joshua Bloch.  This algorithm offers
+     * n*log(n) performance on many data sets that cause other quicksorts
+     * to degrade to quadratic performance, and is typically faster than
+     * traditional (one-pivot) Quicksort implementations.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element (inclusive) to be
@@ -402,14 +403,15 @@ public class Arrays {
         }
 
         // Main sort phase: quicksort everything but the NaN's
-	sort1(a, fromIndex, n-fromIndex);
+	DualPivotQuicksort.sort(a, fromIndex, n - 1);
 
         // Postprocessing phase: change 0.0's to -0.0's as required
         if (numNegZeros != 0) {
             int j = binarySearch0(a, fromIndex, n, 0.0d); // posn of ANY zero
+            // Stop at fromIndex: zeros before the range are not ours
             do {
                 j--;
-            } while (j>=0 && a[j]==0.0d);
+            } while (j>=fromIndex && a[j]==0.0d);
 
             // j is now one less than the index of the FIRST zero
             for (int k=0; k<numNegZeros; k++)
@@ -446,14 +448,15 @@ public class Arrays {
         }
 
         // Main sort phase: quicksort everything but the NaN's
-	sort1(a, fromIndex, n-fromIndex);
+	DualPivotQuicksort.sort(a, fromIndex, n - 1);
 
         // Postprocessing phase: change 0.0's to -0.0's as required
         if (numNegZeros != 0) {
             int j = binarySearch0(a, fromIndex, n, 0.0f); // posn of ANY zero
+            // Stop at fromIndex: zeros before the range are not ours
             do {
                 j--;
-            } while (j>=0 && a[j]==0.0f);
+            } while (j>=fromIndex && a[j]==0.0f);
 
             // j is now one less than the index of the FIRST zero
             for (int k=0; k<numNegZeros; k++)
@@ -462,597 +465,6 @@ public class Arrays {
     }
 
 
-    /*
-     * The code for each of the seven primitive types is largely identical.
-     * C'est la vie.
-     */
-
-    /**
-     * Sorts the specified sub-array of longs into ascending order.
-     */
-    private static void sort1(long x[], int off, int len) {
-	// Insertion sort on smallest arrays
-	if (len < 7) {
-	    for (int i=off; i<len+off; i++)
-		for (int j=i; j>off && x[j-1]>x[j]; j--)
-		    swap(x, j, j-1);
-	    return;
-	}
-
-	// Choose a partition element, v
-	int m = off + (len >> 1);       // Small arrays, middle element
-	if (len > 7) {
-	    int l = off;
-	    int n = off + len - 1;
-	    if (len > 40) {        // Big arrays, pseudomedian of 9
-		int s = len/8;
-		l = med3(x, l,     l+s, l+2*s);
-		m = med3(x, m-s,   m,   m+s);
-		n = med3(x, n-2*s, n-s, n);
-	    }
-	    m = med3(x, l, m, n); // Mid-size, med of 3
-	}
-	long v = x[m];
-
-	// Establish Invariant: v* (<v)* (>v)* v*
-	int a = off, b = a, c = off + len - 1, d = c;
-	while(true) {
-	    while (b <= c && x[b] <= v) {
-		if (x[b] == v)
-		    swap(x, a++, b);
-		b++;
-	    }
-	    while (c >= b && x[c] >= v) {
-		if (x[c] == v)
-		    swap(x, c, d--);
-		c--;
-	    }
-	    if (b > c)
-		break;
-	    swap(x, b++, c--);
-	}
-
-	// Swap partition elements back to middle
-	int s, n = off + len;
-	s = Math.min(a-off, b-a  );  vecswap(x, off, b-s, s);
-	s = Math.min(d-c,   n-d-1);  vecswap(x, b,   n-s, s);
-
-	// Recursively sort non-partition-elements
-	if ((s = b-a) > 1)
-	    sort1(x, off, s);
-	if ((s = d-c) > 1)
-	    sort1(x, n-s, s);
-    }
-
-    /**
-     * Swaps x[a] with x[b].
-     */
-    private static void swap(long x[], int a, int b) {
-	long t = x[a];
-	x[a] = x[b];
-	x[b] = t;
-    }
-
-    /**
-     * Swaps x[a .. (a+n-1)] with x[b .. (b+n-1)].
-     */
-    private static void vecswap(long x[], int a, int b, int n) {
-	for (int i=0; i<n; i++, a++, b++)
-	    swap(x, a, b);
-    }
-
-    /**
-     * Returns the index of the median of the three indexed longs.
-     */
-    private static int med3(long x[], int a, int b, int c) {
-	return (x[a] < x[b] ?
-		(x[b] < x[c] ? b : x[a] < x[c] ? c : a) :
-		(x[b] > x[c] ? b : x[a] > x[c] ? c : a));
-    }
-
-    /**
-     * Sorts the specified sub-array of integers into ascending order.
-     */
-    private static void sort1(int x[], int off, int len) {
-	// Insertion sort on smallest arrays
-	if (len < 7) {
-	    for (int i=off; i<len+off; i++)
-		for (int j=i; j>off && x[j-1]>x[j]; j--)
-		    swap(x, j, j-1);
-	    return;
-	}
-
-	// Choose a partition element, v
-	int m = off + (len >> 1);       // Small arrays, middle element
-	if (len > 7) {
-	    int l = off;
-	    int n = off + len - 1;
-	    if (len > 40) {        // Big arrays, pseudomedian of 9
-		int s = len/8;
-		l = med3(x, l,     l+s, l+2*s);
-		m = med3(x, m-s,   m,   m+s);
-		n = med3(x, n-2*s, n-s, n);
-	    }
-	    m = med3(x, l, m, n); // Mid-size, med of 3
-	}
-	int v = x[m];
-
-	// Establish Invariant: v* (<v)* (>v)* v*
-	int a = off, b = a, c = off + len - 1, d = c;
-	while(true) {
-	    while (b <= c && x[b] <= v) {
-		if (x[b] == v)
-		    swap(x, a++, b);
-		b++;
-	    }
-	    while (c >= b && x[c] >= v) {
-		if (x[c] == v)
-		    swap(x, c, d--);
-		c--;
-	    }
-	    if (b > c)
-		break;
-	    swap(x, b++, c--);
-	}
-
-	// Swap partition elements back to middle
-	int s, n = off + len;
-	s = Math.min(a-off, b-a  );  vecswap(x, off, b-s, s);
-	s = Math.min(d-c,   n-d-1);  vecswap(x, b,   n-s, s);
-
-	// Recursively sort non-partition-elements
-	if ((s = b-a) > 1)
-	    sort1(x, off, s);
-	if ((s = d-c) > 1)
-	    sort1(x, n-s, s);
-    }
-
-    /**
-     * Swaps x[a] with x[b].
-     */
-    private static void swap(int x[], int a, int b) {
-	int t = x[a];
-	x[a] = x[b];
-	x[b] = t;
-    }
-
-    /**
-     * Swaps x[a .. (a+n-1)] with x[b .. (b+n-1)].
-     */
-    private static void vecswap(int x[], int a, int b, int n) {
-	for (int i=0; i<n; i++, a++, b++)
-	    swap(x, a, b);
-    }
-
-    /**
-     * Returns the index of the median of the three indexed integers.
-     */
-    private static int med3(int x[], int a, int b, int c) {
-	return (x[a] < x[b] ?
-		(x[b] < x[c] ? b : x[a] < x[c] ? c : a) :
-		(x[b] > x[c] ? b : x[a] > x[c] ? c : a));
-    }
-
-    /**
-     * Sorts the specified sub-array of shorts into ascending order.
-     */
-    private static void sort1(short x[], int off, int len) {
-	// Insertion sort on smallest arrays
-	if (len < 7) {
-	    for (int i=off; i<len+off; i++)
-		for (int j=i; j>off && x[j-1]>x[j]; j--)
-		    swap(x, j, j-1);
-	    return;
-	}
-
-	// Choose a partition element, v
-	int m = off + (len >> 1);       // Small arrays, middle element
-	if (len > 7) {
-	    int l = off;
-	    int n = off + len - 1;
-	    if (len > 40) {        // Big arrays, pseudomedian of 9
-		int s = len/8;
-		l = med3(x, l,     l+s, l+2*s);
-		m = med3(x, m-s,   m,   m+s);
-		n = med3(x, n-2*s, n-s, n);
-	    }
-	    m = med3(x, l, m, n); // Mid-size, med of 3
-	}
-	short v = x[m];
-
-	// Establish Invariant: v* (<v)* (>v)* v*
-	int a = off, b = a, c = off + len - 1, d = c;
-	while(true) {
-	    while (b <= c && x[b] <= v) {
-		if (x[b] == v)
-		    swap(x, a++, b);
-		b++;
-	    }
-	    while (c >= b && x[c] >= v) {
-		if (x[c] == v)
-		    swap(x, c, d--);
-		c--;
-	    }
-	    if (b > c)
-		break;
-	    swap(x, b++, c--);
-	}
-
-	// Swap partition elements back to middle
-	int s, n = off + len;
-	s = Math.min(a-off, b-a  );  vecswap(x, off, b-s, s);
-	s = Math.min(d-c,   n-d-1);  vecswap(x, b,   n-s, s);
-
-	// Recursively sort non-partition-elements
-	if ((s = b-a) > 1)
-	    sort1(x, off, s);
-	if ((s = d-c) > 1)
-	    sort1(x, n-s, s);
-    }
-
-    /**
-     * Swaps x[a] with x[b].
-     */
-    private static void swap(short x[], int a, int b) {
-	short t = x[a];
-	x[a] = x[b];
-	x[b] = t;
-    }
-
-    /**
-     * Swaps x[a .. (a+n-1)] with x[b .. (b+n-1)].
-     */
-    private static void vecswap(short x[], int a, int b, int n) {
-	for (int i=0; i<n; i++, a++, b++)
-	    swap(x, a, b);
-    }
-
-    /**
-     * Returns the index of the median of the three indexed shorts.
-     */
-    private static int med3(short x[], int a, int b, int c) {
-	return (x[a] < x[b] ?
-		(x[b] < x[c] ? b : x[a] < x[c] ? c : a) :
-		(x[b] > x[c] ? b : x[a] > x[c] ? c : a));
-    }
-
-
-    /**
-     * Sorts the specified sub-array of chars into ascending order.
-     */
-    private static void sort1(char x[], int off, int len) {
-	// Insertion sort on smallest arrays
-	if (len < 7) {
-	    for (int i=off; i<len+off; i++)
-		for (int j=i; j>off && x[j-1]>x[j]; j--)
-		    swap(x, j, j-1);
-	    return;
-	}
-
-	// Choose a partition element, v
-	int m = off + (len >> 1);       // Small arrays, middle element
-	if (len > 7) {
-	    int l = off;
-	    int n = off + len - 1;
-	    if (len > 40) {        // Big arrays, pseudomedian of 9
-		int s = len/8;
-		l = med3(x, l,     l+s, l+2*s);
-		m = med3(x, m-s,   m,   m+s);
-		n = med3(x, n-2*s, n-s, n);
-	    }
-	    m = med3(x, l, m, n); // Mid-size, med of 3
-	}
-	char v = x[m];
-
-	// Establish Invariant: v* (<v)* (>v)* v*
-	int a = off, b = a, c = off + len - 1, d = c;
-	while(true) {
-	    while (b <= c && x[b] <= v) {
-		if (x[b] == v)
-		    swap(x, a++, b);
-		b++;
-	    }
-	    while (c >= b && x[c] >= v) {
-		if (x[c] == v)
-		    swap(x, c, d--);
-		c--;
-	    }
-	    if (b > c)
-		break;
-	    swap(x, b++, c--);
-	}
-
-	// Swap partition elements back to middle
-	int s, n = off + len;
-	s = Math.min(a-off, b-a  );  vecswap(x, off, b-s, s);
-	s = Math.min(d-c,   n-d-1);  vecswap(x, b,   n-s, s);
-
-	// Recursively sort non-partition-elements
-	if ((s = b-a) > 1)
-	    sort1(x, off, s);
-	if ((s = d-c) > 1)
-	    sort1(x, n-s, s);
-    }
-
-    /**
-     * Swaps x[a] with x[b].
-     */
-    private static void swap(char x[], int a, int b) {
-	char t = x[a];
-	x[a] = x[b];
-	x[b] = t;
-    }
-
-    /**
-     * Swaps x[a .. (a+n-1)] with x[b .. (b+n-1)].
-     */
-    private static void vecswap(char x[], int a, int b, int n) {
-	for (int i=0; i<n; i++, a++, b++)
-	    swap(x, a, b);
-    }
-
-    /**
-     * Returns the index of the median of the three indexed chars.
-     */
-    private static int med3(char x[], int a, int b, int c) {
-	return (x[a] < x[b] ?
-		(x[b] < x[c] ? b : x[a] < x[c] ? c : a) :
-		(x[b] > x[c] ? b : x[a] > x[c] ? c : a));
-    }
-
-
-    /**
-     * Sorts the specified sub-array of bytes into ascending order.
-     */
-    private static void sort1(byte x[], int off, int len) {
-	// Insertion sort on smallest arrays
-	if (len < 7) {
-	    for (int i=off; i<len+off; i++)
-		for (int j=i; j>off && x[j-1]>x[j]; j--)
-		    swap(x, j, j-1);
-	    return;
-	}
-
-	// Choose a partition element, v
-	int m = off + (len >> 1);       // Small arrays, middle element
-	if (len > 7) {
-	    int l = off;
-	    int n = off + len - 1;
-	    if (len > 40) {        // Big arrays, pseudomedian of 9
-		int s = len/8;
-		l = med3(x, l,     l+s, l+2*s);
-		m = med3(x, m-s,   m,   m+s);
-		n = med3(x, n-2*s, n-s, n);
-	    }
-	    m = med3(x, l, m, n); // Mid-size, med of 3
-	}
-	byte v = x[m];
-
-	// Establish Invariant: v* (<v)* (>v)* v*
-	int a = off, b = a, c = off + len - 1, d = c;
-	while(true) {
-	    while (b <= c && x[b] <= v) {
-		if (x[b] == v)
-		    swap(x, a++, b);
-		b++;
-	    }
-	    while (c >= b && x[c] >= v) {
-		if (x[c] == v)
-		    swap(x, c, d--);
-		c--;
-	    }
-	    if (b > c)
-		break;
-	    swap(x, b++, c--);
-	}
-
-	// Swap partition elements back to middle
-	int s, n = off + len;
-	s = Math.min(a-off, b-a  );  vecswap(x, off, b-s, s);
-	s = Math.min(d-c,   n-d-1);  vecswap(x, b,   n-s, s);
-
-	// Recursively sort non-partition-elements
-	if ((s = b-a) > 1)
-	    sort1(x, off, s);
-	if ((s = d-c) > 1)
-	    sort1(x, n-s, s);
-    }
-
-    /**
-     * Swaps x[a] with x[b].
-     */
-    private static void swap(byte x[], int a, int b) {
-	byte t = x[a];
-	x[a] = x[b];
-	x[b] = t;
-    }
-
-    /**
-     * Swaps x[a .. (a+n-1)] with x[b .. (b+n-1)].
-     */
-    private static void vecswap(byte x[], int a, int b, int n) {
-	for (int i=0; i<n; i++, a++, b++)
-	    swap(x, a, b);
-    }
-
-    /**
-     * Returns the index of the median of the three indexed bytes.
-     */
-    private static int med3(byte x[], int a, int b, int c) {
-	return (x[a] < x[b] ?
-		(x[b] < x[c] ? b : x[a] < x[c] ? c : a) :
-		(x[b] > x[c] ? b : x[a] > x[c] ? c : a));
-    }
-
-
-    /**
-     * Sorts the specified sub-array of doubles into ascending order.
-     */
-    private static void sort1(double x[], int off, int len) {
-	// Insertion sort on smallest arrays
-	if (len < 7) {
-	    for (int i=off; i<len+off; i++)
-		for (int j=i; j>off && x[j-1]>x[j]; j--)
-		    swap(x, j, j-1);
-	    return;
-	}
-
-	// Choose a partition element, v
-	int m = off + (len >> 1);       // Small arrays, middle element
-	if (len > 7) {
-	    int l = off;
-	    int n = off + len - 1;
-	    if (len > 40) {        // Big arrays, pseudomedian of 9
-		int s = len/8;
-		l = med3(x, l,     l+s, l+2*s);
-		m = med3(x, m-s,   m,   m+s);
-		n = med3(x, n-2*s, n-s, n);
-	    }
-	    m = med3(x, l, m, n); // Mid-size, med of 3
-	}
-	double v = x[m];
-
-	// Establish Invariant: v* (<v)* (>v)* v*
-	int a = off, b = a, c = off + len - 1, d = c;
-	while(true) {
-	    while (b <= c && x[b] <= v) {
-		if (x[b] == v)
-		    swap(x, a++, b);
-		b++;
-	    }
-	    while (c >= b && x[c] >= v) {
-		if (x[c] == v)
-		    swap(x, c, d--);
-		c--;
-	    }
-	    if (b > c)
-		break;
-	    swap(x, b++, c--);
-	}
-
-	// Swap partition elements back to middle
-	int s, n = off + len;
-	s = Math.min(a-off, b-a  );  vecswap(x, off, b-s, s);
-	s = Math.min(d-c,   n-d-1);  vecswap(x, b,   n-s, s);
-
-	// Recursively sort non-partition-elements
-	if ((s = b-a) > 1)
-	    sort1(x, off, s);
-	if ((s = d-c) > 1)
-	    sort1(x, n-s, s);
-    }
-
-    /**
-     * Swaps x[a] with x[b].
-     */
-    private static void swap(double x[], int a, int b) {
-	double t = x[a];
-	x[a] = x[b];
-	x[b] = t;
-    }
-
-    /**
-     * Swaps x[a .. (a+n-1)] with x[b .. (b+n-1)].
-     */
-    private static void vecswap(double x[], int a, int b, int n) {
-	for (int i=0; i<n; i++, a++, b++)
-	    swap(x, a, b);
-    }
-
-    /**
-     * Returns the index of the median of the three indexed doubles.
-     */
-    private static int med3(double x[], int a, int b, int c) {
-	return (x[a] < x[b] ?
-		(x[b] < x[c] ? b : x[a] < x[c] ? c : a) :
-		(x[b] > x[c] ? b : x[a] > x[c] ? c : a));
-    }
-
-
-    /**
-     * Sorts the specified sub-array of floats into ascending order.
-     */
-    private static void sort1(float x[], int off, int len) {
-	// Insertion sort on smallest arrays
-	if (len < 7) {
-	    for (int i=off; i<len+off; i++)
-		for (int j=i; j>off && x[j-1]>x[j]; j--)
-		    swap(x, j, j-1);
-	    return;
-	}
-
-	// Choose a partition element, v
-	int m = off + (len >> 1);       // Small arrays, middle element
-	if (len > 7) {
-	    int l = off;
-	    int n = off + len - 1;
-	    if (len > 40) {        // Big arrays, pseudomedian of 9
-		int s = len/8;
-		l = med3(x, l,     l+s, l+2*s);
-		m = med3(x, m-s,   m,   m+s);
-		n = med3(x, n-2*s, n-s, n);
-	    }
-	    m = med3(x, l, m, n); // Mid-size, med of 3
-	}
-	float v = x[m];
-
-	// Establish Invariant: v* (<v)* (>v)* v*
-	int a = off, b = a, c = off + len - 1, d = c;
-	while(true) {
-	    while (b <= c && x[b] <= v) {
-		if (x[b] == v)
-		    swap(x, a++, b);
-		b++;
-	    }
-	    while (c >= b && x[c] >= v) {
-		if (x[c] == v)
-		    swap(x, c, d--);
-		c--;
-	    }
-	    if (b > c)
-		break;
-	    swap(x, b++, c--);
-	}
-
-	// Swap partition elements back to middle
-	int s, n = off + len;
-	s = Math.min(a-off, b-a  );  vecswap(x, off, b-s, s);
-	s = Math.min(d-c,   n-d-1);  vecswap(x, b,   n-s, s);
-
-	// Recursively sort non-partition-elements
-	if ((s = b-a) > 1)
-	    sort1(x, off, s);
-	if ((s = d-c) > 1)
-	    sort1(x, n-s, s);
-    }
-
-    /**
-     * Swaps x[a] with x[b].
-     */
-    private static void swap(float x[], int a, int b) {
-	float t = x[a];
-	x[a] = x[b];
-	x[b] = t;
-    }
-
-    /**
-     * Swaps x[a .. (a+n-1)] with x[b .. (b+n-1)].
-     */
-    private static void vecswap(float x[], int a, int b, int n) {
-	for (int i=0; i<n; i++, a++, b++)
-	    swap(x, a, b);
-    }
-
-    /**
-     * Returns the index of the median of the three indexed floats.
-     */
-    private static int med3(float x[], int a, int b, int c) {
-	return (x[a] < x[b] ?
-		(x[b] < x[c] ? b : x[a] < x[c] ? c : a) :
-		(x[b] > x[c] ? b : x[a] > x[c] ? c : a));
-    }
-
-
     /**
      * Sorts the specified array of objects into ascending order, according to
      * the {@linkplain Comparable natural ordering}
@@ -1065,18 +477,35 @@ public class Arrays {
      * This sort is guaranteed to be <i>stable</i>:  equal elements will
      * not be reordered as a result of the sort.<p>
      *
-     * The sorting algorithm is a modified mergesort (in which the merge is
-     * omitted if the highest element in the low sublist is less than the
-     * lowest element in the high sublist).  This algorithm offers guaranteed
-     * n*log(n) performance.
+     * The sorting algorithm is a stable, adaptive, iterative mergesort
+     * adapted from Tim Peters's list sort for Python (TimSort).  It finds
+     * the runs already present in the array and merges them, so that it
+     * requires far fewer than n*log(n) comparisons when the array is
+     * partially sorted, approximately n comparisons when it is nearly
+     * sorted or in descending order, and offers the guaranteed n*log(n)
+     * performance of a traditional mergesort when it is randomly ordered.
+     * Temporary storage requirements vary from a small constant for
+     * nearly sorted arrays to n/2 object references for randomly ordered
+     * arrays.<p>
+     *
+     * The previous mergesort can be selected, for compatibility with
+     * comparisons that do not obey their contract, by setting the system
+     * property <tt>java.util.Arrays.useLegacyMergeSort</tt> to
+     * <tt>true</tt>.
      *
      * @param a the array to be sorted
      * @throws  ClassCastException if the array contains elements that are not
      *		<i>mutually comparable</i> (for example, strings and integers).
+     * @throws  IllegalArgumentException (optional) if the natural ordering of
+     *		the array elements is found to violate the {@link Comparable}
+     *		contract
      */
     public static void sort(Object[] a) {
-        Object[] aux = (Object[])a.clone();
-        mergeSort(aux, a, 0, a.length, 0);
+        if (LegacyMergeSort.userRequested) {
+            Object[] aux = (Object[])a.clone();
+            mergeSort(aux, a, 0, a.length, 0);
+        } else
+            ComparableTimSort.sort(a, 0, a.length);
     }
 
     /**
@@ -1095,10 +524,21 @@ public class Arrays {
      * This sort is guaranteed to be <i>stable</i>:  equal elements will
      * not be reordered as a result of the sort.<p>
      *
-     * The sorting algorithm is a modified mergesort (in which the merge is
-     * omitted if the highest element in the low sublist is less than the
-     * lowest element in the high sublist).  This algorithm offers guaranteed
-     * n*log(n) performance.
+     * The sorting algorithm is a stable, adaptive, iterative mergesort
+     * adapted from Tim Peters's list sort for Python (TimSort).  It finds
+     * the runs already present in the array and merges them, so that it
+     * requires far fewer than n*log(n) comparisons when the array is
+     * partially sorted, approximately n comparisons when it is nearly
+     * sorted or in descending order, and offers the guaranteed n*log(n)
+     * performance of a traditional mergesort when it is randomly ordered.
+     * Temporary storage requirements vary from a small constant for
+     * nearly sorted arrays to n/2 object references for randomly ordered
+     * arrays.<p>
+     *
+     * The previous mergesort can be selected, for compatibility with
+     * comparisons that do not obey their contract, by setting the system
+     * property <tt>java.util.Arrays.useLegacyMergeSort</tt> to
+     * <tt>true</tt>.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element (inclusive) to be
@@ -1110,11 +550,28 @@ public class Arrays {
      * @throws    ClassCastException if the array contains elements that are
      *		  not <i>mutually comparable</i> (for example, strings and
      *		  integers).
+     * @throws    IllegalArgumentException (optional) if the natural ordering
+     *		  of the array elements is found to violate the
+     *		  {@link Comparable} contract
      */
     public static void sort(Object[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
-	Object[] aux = copyOfRange(a, fromIndex, toIndex);
-        mergeSort(aux, a, fromIndex, toIndex, -fromIndex);
+        if (LegacyMergeSort.userRequested) {
+            Object[] aux = copyOfRange(a, fromIndex, toIndex);
+            mergeSort(aux, a, fromIndex, toIndex, -fromIndex);
+        } else
+            ComparableTimSort.sort(a, fromIndex, toIndex);
+    }
+
+    /**
+     * Whether the user asked for the mergesort of earlier releases, which
+     * does not detect comparisons that violate their contract.
+     */
+    static final class LegacyMergeSort {
+        static final boolean userRequested =
+            java.security.AccessController.doPrivileged(
+                new sun.security.action.GetBooleanAction(
+                    "java.util.Arrays.useLegacyMergeSort")).booleanValue();
     }
 
     /**
@@ -1190,10 +647,21 @@ public class Arrays {
      * This sort is guaranteed to be <i>stable</i>:  equal elements will
      * not be reordered as a result of the sort.<p>
      *
-     * The sorting algorithm is a modified mergesort (in which the merge is
-     * omitted if the highest element in the low sublist is less than the
-     * lowest element in the high sublist).  This algorithm offers guaranteed
-     * n*log(n) performance.
+     * The sorting algorithm is a stable, adaptive, iterative mergesort
+     * adapted from Tim Peters's list sort for Python (TimSort).  It finds
+     * the runs already present in the array and merges them, so that it
+     * requires far fewer than n*log(n) comparisons when the array is
+     * partially sorted, approximately n comparisons when it is nearly
+     * sorted or in descending order, and offers the guaranteed n*log(n)
+     * performance of a traditional mergesort when it is randomly ordered.
+     * Temporary storage requirements vary from a small constant for
+     * nearly sorted arrays to n/2 object references for randomly ordered
+     * arrays.<p>
+     *
+     * The previous mergesort can be selected, for compatibility with
+     * comparisons that do not obey their contract, by setting the system
+     * property <tt>java.util.Arrays.useLegacyMergeSort</tt> to
+     * <tt>true</tt>.
      *
      * @param a the array to be sorted
      * @param c the comparator to determine the order of the array.  A
@@ -1201,13 +669,20 @@ public class Arrays {
      *        {@linkplain Comparable natural ordering} should be used.
      * @throws  ClassCastException if the array contains elements that are
      *		not <i>mutually comparable</i> using the specified comparator.
+     * @throws  IllegalArgumentException (optional) if the comparator is
+     *		found to violate the {@link Comparator} contract
      */
     public static <T> void sort(T[] a, Comparator<? super T> c) {
-	T[] aux = (T[])a.clone();
-        if (c==null)
-            mergeSort(aux, a, 0, a.length, 0);
+        if (LegacyMergeSort.userRequested) {
+            T[] aux = (T[])a.clone();
+            if (c==null)
+                mergeSort(aux, a, 0, a.length, 0);
+            else
+                mergeSort(aux, a, 0, a.length, 0, c);
+        } else if (c==null)
+            ComparableTimSort.sort(a, 0, a.length);
         else
-            mergeSort(aux, a, 0, a.length, 0, c);
+            TimSort.sort(a, 0, a.length, c);
     }
 
     /**
@@ -1223,10 +698,21 @@ public class Arrays {
      * This sort is guaranteed to be <i>stable</i>:  equal elements will
      * not be reordered as a result of the sort.<p>
      *
-     * The sorting algorithm is a modified mergesort (in which the merge is
-     * omitted if the highest element in the low sublist is less than the
-     * lowest element in the high sublist).  This algorithm offers guaranteed
-     * n*log(n) performance.
+     * The sorting algorithm is a stable, adaptive, iterative mergesort
+     * adapted from Tim Peters's list sort for Python (TimSort).  It finds
+     * the runs already present in the array and merges them, so that it
+     * requires far fewer than n*log(n) comparisons when the array is
+     * partially sorted, approximately n comparisons when it is nearly
+     * sorted or in descending order, and offers the guaranteed n*log(n)
+     * performance of a traditional mergesort when it is randomly ordered.
+     * Temporary storage requirements vary from a small constant for
+     * nearly sorted arrays to n/2 object references for randomly ordered
+     * arrays.<p>
+     *
+     * The previous mergesort can be selected, for compatibility with
+     * comparisons that do not obey their contract, by setting the system
+     * property <tt>java.util.Arrays.useLegacyMergeSort</tt> to
+     * <tt>true</tt>.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element (inclusive) to be
@@ -1237,18 +723,25 @@ public class Arrays {
      *        {@linkplain Comparable natural ordering} should be used.
      * @throws ClassCastException if the array contains elements that are not
      *	       <i>mutually comparable</i> using the specified comparator.
-     * @throws IllegalArgumentException if <tt>fromIndex &gt; toIndex</tt>
+     * @throws IllegalArgumentException if <tt>fromIndex &gt; toIndex</tt> or
+     *	       (optional) if the comparator is found to violate the
+     *	       {@link Comparator} contract
      * @throws ArrayIndexOutOfBoundsException if <tt>fromIndex &lt; 0</tt> or
      *	       <tt>toIndex &gt; a.length</tt>
      */
     public static <T> void sort(T[] a, int fromIndex, int toIndex,
 				Comparator<? super T> c) {
         rangeCheck(a.length, fromIndex, toIndex);
-	T[] aux = (T[])copyOfRange(a, fromIndex, toIndex);
-        if (c==null)
-            mergeSort(aux, a, fromIndex, toIndex, -fromIndex);
+        if (LegacyMergeSort.userRequested) {
+            T[] aux = (T[])copyOfRange(a, fromIndex, toIndex);
+            if (c==null)
+                mergeSort(aux, a, fromIndex, toIndex, -fromIndex);
+            else
+                mergeSort(aux, a, fromIndex, toIndex, -fromIndex, c);
+        } else if (c==null)
+            ComparableTimSort.sort(a, fromIndex, toIndex);
         else
-            mergeSort(aux, a, fromIndex, toIndex, -fromIndex, c);
+            TimSort.sort(a, fromIndex, toIndex, c);
     }
 
     /**
@@ -1311,6 +804,292 @@ public class Arrays {
             throw new ArrayIndexOutOfBoundsException(toIndex);
     }
 
+    // Parallel sorting
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * <p>The sorting algorithm is a parallel sort-merge that breaks
+     * the array into sub-arrays that are themselves sorted and then merged.
+     * When the sub-array length reaches a minimum granularity, the
+     * sub-array is sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method.  If the length of the specified array is less
+     * than the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(int[]) Arrays.sort} method.  The algorithm
+     * requires a working space no greater than the size of the original
+     * array.  The {@link java.util.concurrent.ForkJoinPool#commonPool()
+     * ForkJoin common pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     * @since 1.7
+     */
+    public static void parallelSort(int[] a) {
+        parallelSort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical
+     * order.  The range to be sorted extends from the index
+     * <tt>fromIndex</tt>, inclusive, to the index <tt>toIndex</tt>,
+     * exclusive.  If <tt>fromIndex == toIndex</tt>, the range to be
+     * sorted is empty.
+     *
+     * <p>The algorithm is the one described for
+     * {@link #parallelSort(int[])}.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @throws IllegalArgumentException if <tt>fromIndex &gt; toIndex</tt>
+     * @throws ArrayIndexOutOfBoundsException if <tt>fromIndex &lt; 0</tt> or
+     *	       <tt>toIndex &gt; a.length</tt>
+     * @since 1.7
+     */
+    public static void parallelSort(int[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p;
+        if (n <= ArraysParallelSortHelpers.MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            sort(a, fromIndex, toIndex);
+        else
+            ArraysParallelSortHelpers.invoke(
+                new ArraysParallelSortHelpers.FJInt.Sorter(
+                    a, new int[n], fromIndex, n, 0,
+                    ArraysParallelSortHelpers.granularity(n, p)));
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * <p>The sorting algorithm is a parallel sort-merge that breaks
+     * the array into sub-arrays that are themselves sorted and then merged.
+     * When the sub-array length reaches a minimum granularity, the
+     * sub-array is sorted using the appropriate {@link Arrays#sort(long[])
+     * Arrays.sort} method.  If the length of the specified array is less
+     * than the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(long[]) Arrays.sort} method.  The algorithm
+     * requires a working space no greater than the size of the original
+     * array.  The {@link java.util.concurrent.ForkJoinPool#commonPool()
+     * ForkJoin common pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     * @since 1.7
+     */
+    public static void parallelSort(long[] a) {
+        parallelSort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical
+     * order.  The range to be sorted extends from the index
+     * <tt>fromIndex</tt>, inclusive, to the index <tt>toIndex</tt>,
+     * exclusive.  If <tt>fromIndex == toIndex</tt>, the range to be
+     * sorted is empty.
+     *
+     * <p>The algorithm is the one described for
+     * {@link #parallelSort(long[])}.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @throws IllegalArgumentException if <tt>fromIndex &gt; toIndex</tt>
+     * @throws ArrayIndexOutOfBoundsException if <tt>fromIndex &lt; 0</tt> or
+     *	       <tt>toIndex &gt; a.length</tt>
+     * @since 1.7
+     */
+    public static void parallelSort(long[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p;
+        if (n <= ArraysParallelSortHelpers.MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            sort(a, fromIndex, toIndex);
+        else
+            ArraysParallelSortHelpers.invoke(
+                new ArraysParallelSortHelpers.FJLong.Sorter(
+                    a, new long[n], fromIndex, n, 0,
+                    ArraysParallelSortHelpers.granularity(n, p)));
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * <p>The sorting algorithm is a parallel sort-merge that breaks
+     * the array into sub-arrays that are themselves sorted and then merged.
+     * When the sub-array length reaches a minimum granularity, the
+     * sub-array is sorted using the appropriate {@link Arrays#sort(double[])
+     * Arrays.sort} method.  If the length of the specified array is less
+     * than the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(double[]) Arrays.sort} method.  The algorithm
+     * requires a working space no greater than the size of the original
+     * array.  The {@link java.util.concurrent.ForkJoinPool#commonPool()
+     * ForkJoin common pool} is used to execute any parallel tasks.
+     *
+     * <p>The ordering is the one of {@link #sort(double[])}: <tt>-0.0</tt>
+     * sorts before <tt>0.0</tt>, and <tt>NaN</tt> after all other values.
+     *
+     * @param a the array to be sorted
+     * @since 1.7
+     */
+    public static void parallelSort(double[] a) {
+        parallelSort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical
+     * order.  The range to be sorted extends from the index
+     * <tt>fromIndex</tt>, inclusive, to the index <tt>toIndex</tt>,
+     * exclusive.  If <tt>fromIndex == toIndex</tt>, the range to be
+     * sorted is empty.
+     *
+     * <p>The algorithm is the one described for
+     * {@link #parallelSort(double[])}.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @throws IllegalArgumentException if <tt>fromIndex &gt; toIndex</tt>
+     * @throws ArrayIndexOutOfBoundsException if <tt>fromIndex &lt; 0</tt> or
+     *	       <tt>toIndex &gt; a.length</tt>
+     * @since 1.7
+     */
+    public static void parallelSort(double[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p;
+        if (n <= ArraysParallelSortHelpers.MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            sort(a, fromIndex, toIndex);
+        else
+            ArraysParallelSortHelpers.invoke(
+                new ArraysParallelSortHelpers.FJDouble.Sorter(
+                    a, new double[n], fromIndex, n, 0,
+                    ArraysParallelSortHelpers.granularity(n, p)));
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order, according
+     * to the {@linkplain Comparable natural ordering} of its elements.
+     * All elements in the array must implement the {@link Comparable}
+     * interface and be <i>mutually comparable</i>.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * <p>The sorting algorithm is a parallel sort-merge that breaks
+     * the array into sub-arrays that are themselves sorted and then merged.
+     * When the sub-array length reaches a minimum granularity, the
+     * sub-array is sorted using the appropriate {@link Arrays#sort(Object[])
+     * Arrays.sort} method.  If the length of the specified array is less
+     * than the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(Object[]) Arrays.sort} method.  The algorithm
+     * requires a working space no greater than the size of the original
+     * array.  The {@link java.util.concurrent.ForkJoinPool#commonPool()
+     * ForkJoin common pool} is used to execute any parallel tasks.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @throws ClassCastException if the array contains elements that are not
+     *         <i>mutually comparable</i> (for example, strings and integers)
+     * @since 1.7
+     */
+    public static <T extends Comparable<? super T>> void parallelSort(T[] a) {
+        parallelSort(a, 0, a.length, null);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of objects into
+     * ascending order, according to the
+     * {@linkplain Comparable natural ordering} of its elements.  The range
+     * to be sorted extends from index <tt>fromIndex</tt>, inclusive, to
+     * index <tt>toIndex</tt>, exclusive.  This sort is guaranteed to be
+     * <i>stable</i>.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element (inclusive) to be
+     *        sorted
+     * @param toIndex the index of the last element (exclusive) to be sorted
+     * @throws IllegalArgumentException if <tt>fromIndex &gt; toIndex</tt>
+     * @throws ArrayIndexOutOfBoundsException if <tt>fromIndex &lt; 0</tt> or
+     *	       <tt>toIndex &gt; a.length</tt>
+     * @throws ClassCastException if the array contains elements that are
+     *         not <i>mutually comparable</i>
+     * @since 1.7
+     */
+    public static <T extends Comparable<? super T>>
+    void parallelSort(T[] a, int fromIndex, int toIndex) {
+        parallelSort(a, fromIndex, toIndex, null);
+    }
+
+    /**
+     * Sorts the specified array of objects according to the order induced
+     * by the specified comparator.  This sort is guaranteed to be
+     * <i>stable</i>.  The algorithm is the one described for
+     * {@link #parallelSort(Comparable[])}.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param cmp the comparator to determine the order of the array.  A
+     *        <tt>null</tt> value indicates that the elements'
+     *        {@linkplain Comparable natural ordering} should be used.
+     * @throws ClassCastException if the array contains elements that are
+     *         not <i>mutually comparable</i> using the specified comparator
+     * @since 1.7
+     */
+    public static <T> void parallelSort(T[] a, Comparator<? super T> cmp) {
+        parallelSort(a, 0, a.length, cmp);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of objects according
+     * to the order induced by the specified comparator.  The range to be
+     * sorted extends from index <tt>fromIndex</tt>, inclusive, to index
+     * <tt>toIndex</tt>, exclusive.  This sort is guaranteed to be
+     * <i>stable</i>.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element (inclusive) to be
+     *        sorted
+     * @param toIndex the index of the last element (exclusive) to be sorted
+     * @param cmp the comparator to determine the order of the array.  A
+     *        <tt>null</tt> value indicates that the elements'
+     *        {@linkplain Comparable natural ordering} should be used.
+     * @throws IllegalArgumentException if <tt>fromIndex &gt; toIndex</tt>
+     * @throws ArrayIndexOutOfBoundsException if <tt>fromIndex &lt; 0</tt> or
+     *	       <tt>toIndex &gt; a.length</tt>
+     * @throws ClassCastException if the array contains elements that are
+     *         not <i>mutually comparable</i>
+     * @since 1.7
+     */
+    public static <T> void parallelSort(T[] a, int fromIndex, int toIndex,
+                                        Comparator<? super T> cmp) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        if (cmp == null)
+            cmp = NaturalOrder.INSTANCE;
+        int n = toIndex - fromIndex, p;
+        if (n <= ArraysParallelSortHelpers.MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            sort(a, fromIndex, toIndex, cmp);
+        else {
+            T[] w = (T[])Array.newInstance(a.getClass().getComponentType(), n);
+            ArraysParallelSortHelpers.invoke(
+                new ArraysParallelSortHelpers.FJObject.Sorter<T>(
+                    a, w, fromIndex, n, 0,
+                    ArraysParallelSortHelpers.granularity(n, p), cmp));
+        }
+    }
+
+    /**
+     * A comparator that implements the natural ordering of a group of
+     * mutually comparable elements.
+     */
+    static final class NaturalOrder implements Comparator<Object> {
+        static final NaturalOrder INSTANCE = new NaturalOrder();
+        public int compare(Object first, Object second) {
+            return ((Comparable<Object>)first).compareTo(second);
+        }
+    }
+
     // Searching
 
     /**
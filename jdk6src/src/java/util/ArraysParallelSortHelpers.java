@@ -0,0 +1,439 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Helper utilities for the parallel sort methods in Arrays.parallelSort.
+ *
+ * For each element type there is a sorter task and a merger task.
+ * The sorter splits its range into four quarters, sorts them in
+ * parallel, merges the two pairs of quarters into the workspace array,
+ * and then merges the two halves from the workspace back into the
+ * array.  Ranges at most the granularity in size are sorted with the
+ * sequential Arrays.sort.  The merger splits the larger of its two
+ * sorted runs at its middle, finds the matching split point in the
+ * other run by binary search, and merges the two resulting pairs in
+ * parallel.  Runs are split so that equal elements keep their order,
+ * so the object sort is stable.
+ *
+ * The workspace array has the size of the range to sort; index i of
+ * the array corresponds to index i - base of the workspace, where
+ * base is the start of the range.
+ */
+class ArraysParallelSortHelpers {
+
+    private ArraysParallelSortHelpers() {
+    }
+
+    /**
+     * The minimum array length below which a parallel sort is not
+     * worth the overhead and the sequential sort is used.
+     */
+    static final int MIN_ARRAY_SORT_GRAN = 1 << 13;
+
+    /**
+     * Returns the size of the ranges to sort sequentially for an
+     * array of length n sorted with the given parallelism.
+     */
+    static int granularity(int n, int parallelism) {
+        int g = n / (parallelism << 2);
+        return (g <= MIN_ARRAY_SORT_GRAN) ? MIN_ARRAY_SORT_GRAN : g;
+    }
+
+    /**
+     * Runs the given top-level sort task: in the current pool when
+     * called from a worker thread, otherwise in the common pool.
+     */
+    static void invoke(ForkJoinTask<?> task) {
+        if (ForkJoinTask.inForkJoinPool())
+            task.invoke();
+        else
+            ForkJoinPool.commonPool().invoke(task);
+    }
+
+    static final class FJInt {
+        static final class Sorter extends RecursiveAction {
+            final int[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(int[] a, int[] w, int base, int size,
+                   int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                int[] a = this.a, w = this.w;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    Arrays.sort(a, b, b + n);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q;
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            final int[] a, w; // merge from a into w
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger(int[] a, int[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                int[] a = this.a, w = this.w;
+                int lb = lbase, ln = lsize, rb = rbase, rn = rsize;
+                int k = wbase, g = gran;
+                Link forked = null;
+                while (ln > 0 && rn > 0 && ln + rn > g) {
+                    int lh, rh;
+                    if (ln >= rn) {
+                        // split left at its middle; the right part
+                        // starts at the first element not less than it
+                        lh = ln >>> 1;
+                        int split = a[lb + lh];
+                        int lo = 0, hi = rn;
+                        while (lo < hi) {
+                            int mid = (lo + hi) >>> 1;
+                            if (a[rb + mid] < split) lo = mid + 1; else hi = mid;
+                        }
+                        rh = lo;
+                    } else {
+                        // split right at its middle; the left part
+                        // ends after the last element not greater than it
+                        rh = rn >>> 1;
+                        int split = a[rb + rh];
+                        int lo = 0, hi = ln;
+                        while (lo < hi) {
+                            int mid = (lo + hi) >>> 1;
+                            if (a[lb + mid] <= split) lo = mid + 1; else hi = mid;
+                        }
+                        lh = lo;
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh, rb + rh,
+                                          rn - rh, k + lh + rh, g);
+                    m.fork();
+                    forked = new Link(m, forked);
+                    ln = lh;
+                    rn = rh;
+                }
+                int le = lb + ln, re = rb + rn;
+                while (lb < le && rb < re) {
+                    int x = a[lb], y = a[rb];
+                    if (x <= y) { w[k++] = x; lb++; }
+                    else        { w[k++] = y; rb++; }
+                }
+                if (lb < le)
+                    System.arraycopy(a, lb, w, k, le - lb);
+                else if (rb < re)
+                    System.arraycopy(a, rb, w, k, re - rb);
+                Link.joinAll(forked);
+            }
+        }
+    }
+
+    static final class FJLong {
+        static final class Sorter extends RecursiveAction {
+            final long[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(long[] a, long[] w, int base, int size,
+                   int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                long[] a = this.a, w = this.w;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    Arrays.sort(a, b, b + n);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q;
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            final long[] a, w; // merge from a into w
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger(long[] a, long[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                long[] a = this.a, w = this.w;
+                int lb = lbase, ln = lsize, rb = rbase, rn = rsize;
+                int k = wbase, g = gran;
+                Link forked = null;
+                while (ln > 0 && rn > 0 && ln + rn > g) {
+                    int lh, rh;
+                    if (ln >= rn) {
+                        // split left at its middle; the right part
+                        // starts at the first element not less than it
+                        lh = ln >>> 1;
+                        long split = a[lb + lh];
+                        int lo = 0, hi = rn;
+                        while (lo < hi) {
+                            int mid = (lo + hi) >>> 1;
+                            if (a[rb + mid] < split) lo = mid + 1; else hi = mid;
+                        }
+                        rh = lo;
+                    } else {
+                        // split right at its middle; the left part
+                        // ends after the last element not greater than it
+                        rh = rn >>> 1;
+                        long split = a[rb + rh];
+                        int lo = 0, hi = ln;
+                        while (lo < hi) {
+                            int mid = (lo + hi) >>> 1;
+                            if (a[lb + mid] <= split) lo = mid + 1; else hi = mid;
+                        }
+                        lh = lo;
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh, rb + rh,
+                                          rn - rh, k + lh + rh, g);
+                    m.fork();
+                    forked = new Link(m, forked);
+                    ln = lh;
+                    rn = rh;
+                }
+                int le = lb + ln, re = rb + rn;
+                while (lb < le && rb < re) {
+                    long x = a[lb], y = a[rb];
+                    if (x <= y) { w[k++] = x; lb++; }
+                    else        { w[k++] = y; rb++; }
+                }
+                if (lb < le)
+                    System.arraycopy(a, lb, w, k, le - lb);
+                else if (rb < re)
+                    System.arraycopy(a, rb, w, k, re - rb);
+                Link.joinAll(forked);
+            }
+        }
+    }
+
+    static final class FJDouble {
+        static final class Sorter extends RecursiveAction {
+            final double[] a, w;
+            final int base, size, wbase, gran;
+            Sorter(double[] a, double[] w, int base, int size,
+                   int wbase, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                double[] a = this.a, w = this.w;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    Arrays.sort(a, b, b + n);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q;
+                invokeAll(new Sorter(a, w, b, q, wb, g),
+                          new Sorter(a, w, b + q, h - q, wb + q, g),
+                          new Sorter(a, w, b + h, q, wb + h, g),
+                          new Sorter(a, w, b + u, n - u, wb + u, g));
+                invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+                          new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+                new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+            }
+        }
+
+        static final class Merger extends RecursiveAction {
+            final double[] a, w; // merge from a into w
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger(double[] a, double[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+            protected void compute() {
+                double[] a = this.a, w = this.w;
+                int lb = lbase, ln = lsize, rb = rbase, rn = rsize;
+                int k = wbase, g = gran;
+                Link forked = null;
+                while (ln > 0 && rn > 0 && ln + rn > g) {
+                    int lh, rh;
+                    if (ln >= rn) {
+                        // split left at its middle; the right part
+                        // starts at the first element not less than it
+                        lh = ln >>> 1;
+                        double split = a[lb + lh];
+                        int lo = 0, hi = rn;
+                        while (lo < hi) {
+                            int mid = (lo + hi) >>> 1;
+                            if (Double.compare(a[rb + mid], split) < 0) lo = mid + 1; else hi = mid;
+                        }
+                        rh = lo;
+                    } else {
+                        // split right at its middle; the left part
+                        // ends after the last element not greater than it
+                        rh = rn >>> 1;
+                        double split = a[rb + rh];
+                        int lo = 0, hi = ln;
+                        while (lo < hi) {
+                            int mid = (lo + hi) >>> 1;
+                            if (Double.compare(a[lb + mid], split) <= 0) lo = mid + 1; else hi = mid;
+                        }
+                        lh = lo;
+                    }
+                    Merger m = new Merger(a, w, lb + lh, ln - lh, rb + rh,
+                                          rn - rh, k + lh + rh, g);
+                    m.fork();
+                    forked = new Link(m, forked);
+                    ln = lh;
+                    rn = rh;
+                }
+                int le = lb + ln, re = rb + rn;
+                while (lb < le && rb < re) {
+                    double x = a[lb], y = a[rb];
+                    if (Double.compare(x, y) <= 0) { w[k++] = x; lb++; }
+                    else        { w[k++] = y; rb++; }
+                }
+                if (lb < le)
+                    System.arraycopy(a, lb, w, k, le - lb);
+                else if (rb < re)
+                    System.arraycopy(a, rb, w, k, re - rb);
+                Link.joinAll(forked);
+            }
+        }
+    }
+
+    static final class FJObject {
+        static final class Sorter<T> extends RecursiveAction {
+            final T[] a, w;
+            final int base, size, wbase, gran;
+            final Comparator<? super T> comparator;
+            Sorter(T[] a, T[] w, int base, int size,
+                   int wbase, int gran,
+                   Comparator<? super T> comparator) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+                this.comparator = comparator;
+            }
+            protected void compute() {
+                T[] a = this.a, w = this.w;
+                Comparator<? super T> c = comparator;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                if (n <= g) {
+                    Arrays.sort(a, b, b + n, c);
+                    return;
+                }
+                int h = n >>> 1, q = h >>> 1, u = h + q;
+                invokeAll(new Sorter<T>(a, w, b, q, wb, g, c),
+                          new Sorter<T>(a, w, b + q, h - q, wb + q, g, c),
+                          new Sorter<T>(a, w, b + h, q, wb + h, g, c),
+                          new Sorter<T>(a, w, b + u, n - u, wb + u, g, c));
+                invokeAll(new Merger<T>(a, w, b, q, b + q, h - q, wb, g, c),
+                          new Merger<T>(a, w, b + h, q, b + u, n - u, wb + h, g, c));
+                new Merger<T>(w, a, wb, h, wb + h, n - h, b, g, c).compute();
+            }
+        }
+
+        static final class Merger<T> extends RecursiveAction {
+            final T[] a, w; // merge from a into w
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            final Comparator<? super T> comparator;
+            Merger(T[] a, T[] w, int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran,
+                   Comparator<? super T> comparator) {
+                this.a = a; this.w = w;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+                this.comparator = comparator;
+            }
+            protected void compute() {
+                T[] a = this.a, w = this.w;
+                Comparator<? super T> c = comparator;
+                int lb = lbase, ln = lsize, rb = rbase, rn = rsize;
+                int k = wbase, g = gran;
+                Link forked = null;
+                while (ln > 0 && rn > 0 && ln + rn > g) {
+                    int lh, rh;
+                    if (ln >= rn) {
+                        // split left at its middle; the right part
+                        // starts at the first element not less than it
+                        lh = ln >>> 1;
+                        T split = a[lb + lh];
+                        int lo = 0, hi = rn;
+                        while (lo < hi) {
+                            int mid = (lo + hi) >>> 1;
+                            if (c.compare(a[rb + mid], split) < 0) lo = mid + 1; else hi = mid;
+                        }
+                        rh = lo;
+                    } else {
+                        // split right at its middle; the left part
+                        // ends after the last element not greater than it
+                        rh = rn >>> 1;
+                        T split = a[rb + rh];
+                        int lo = 0, hi = ln;
+                        while (lo < hi) {
+                            int mid = (lo + hi) >>> 1;
+                            if (c.compare(a[lb + mid], split) <= 0) lo = mid + 1; else hi = mid;
+                        }
+                        lh = lo;
+                    }
+                    Merger<T> m = new Merger<T>(a, w, lb + lh, ln - lh, rb + rh,
+                                          rn - rh, k + lh + rh, g, c);
+                    m.fork();
+                    forked = new Link(m, forked);
+                    ln = lh;
+                    rn = rh;
+                }
+                int le = lb + ln, re = rb + rn;
+                while (lb < le && rb < re) {
+                    T x = a[lb], y = a[rb];
+                    if (c.compare(x, y) <= 0) { w[k++] = x; lb++; }
+                    else        { w[k++] = y; rb++; }
+                }
+                if (lb < le)
+                    System.arraycopy(a, lb, w, k, le - lb);
+                else if (rb < re)
+                    System.arraycopy(a, rb, w, k, re - rb);
+                Link.joinAll(forked);
+            }
+        }
+    }
+
+    /**
+     * A list of forked tasks to join.
+     */
+    static final class Link {
+        final ForkJoinTask<?> task;
+        final Link next;
+        Link(ForkJoinTask<?> task, Link next) {
+            this.task = task; this.next = next;
+        }
+        static void joinAll(Link l) {
+            for (; l != null; l = l.next)
+                l.task.join();
+        }
+    }
+}
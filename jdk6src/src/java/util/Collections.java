@@ -94,25 +94,32 @@ public class Collections {
      *
      * The specified list must be modifiable, but need not be resizable.<p>
      *
-     * The sorting algorithm is a modified mergesort (in which the merge is
-     * omitted if the highest element in the low sublist is less than the
-     * lowest element in the high sublist).  This algorithm offers guaranteed
-     * n log(n) performance.
+     * The sorting algorithm is the adaptive mergesort of
+     * {@link Arrays#sort(Object[])}, which takes approximately n
+     * comparisons when the list is nearly sorted and offers guaranteed
+     * n log(n) performance.<p>
      *
      * This implementation dumps the specified list into an array, sorts
      * the array, and iterates over the list resetting each element
      * from the corresponding position in the array.  This avoids the
      * n<sup>2</sup> log(n) performance that would result from attempting
-     * to sort a linked list in place.
+     * to sort a linked list in place.  An <tt>ArrayList</tt> is sorted in
+     * place, without the copy.
      *
      * @param  list the list to be sorted.
      * @throws ClassCastException if the list contains elements that are not
      *	       <i>mutually comparable</i> (for example, strings and integers).
      * @throws UnsupportedOperationException if the specified list's
      *	       list-iterator does not support the <tt>set</tt> operation.
+     * @throws IllegalArgumentException (optional) if the ordering of the
+     *	       elements is found to violate its contract
      * @see Comparable
      */
     public static <T extends Comparable<? super T>> void sort(List<T> list) {
+	if (list.getClass() == ArrayList.class) {
+	    ((ArrayList<T>) list).sort(null);
+	    return;
+	}
 	Object[] a = list.toArray();
 	Arrays.sort(a);
 	ListIterator<T> i = list.listIterator();
@@ -132,17 +139,18 @@ public class Collections {
      * This sort is guaranteed to be <i>stable</i>:  equal elements will
      * not be reordered as a result of the sort.<p>
      *
-     * The sorting algorithm is a modified mergesort (in which the merge is
-     * omitted if the highest element in the low sublist is less than the
-     * lowest element in the high sublist).  This algorithm offers guaranteed
-     * n log(n) performance.
+     * The sorting algorithm is the adaptive mergesort of
+     * {@link Arrays#sort(Object[])}, which takes approximately n
+     * comparisons when the list is nearly sorted and offers guaranteed
+     * n log(n) performance.<p>
      *
      * The specified list must be modifiable, but need not be resizable.
      * This implementation dumps the specified list into an array, sorts
      * the array, and iterates over the list resetting each element
      * from the corresponding position in the array.  This avoids the
      * n<sup>2</sup> log(n) performance that would result from attempting
-     * to sort a linked list in place.
+     * to sort a linked list in place.  An <tt>ArrayList</tt> is sorted in
+     * place, without the copy.
      *
      * @param  list the list to be sorted.
      * @param  c the comparator to determine the order of the list.  A
@@ -152,9 +160,15 @@ public class Collections {
      *	       <i>mutually comparable</i> using the specified comparator.
      * @throws UnsupportedOperationException if the specified list's
      *	       list-iterator does not support the <tt>set</tt> operation.
+     * @throws IllegalArgumentException (optional) if the ordering of the
+     *	       elements is found to violate its contract
      * @see Comparator
      */
     public static <T> void sort(List<T> list, Comparator<? super T> c) {
+	if (list.getClass() == ArrayList.class) {
+	    ((ArrayList<T>) list).sort(c);
+	    return;
+	}
 	Object[] a = list.toArray();
 	Arrays.sort(a, (Comparator)c);
 	ListIterator i = list.listIterator();
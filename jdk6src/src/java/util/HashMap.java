@@ -7,6 +7,8 @@
 
 package java.util;
 import java.io.*;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 
 /**
  * Hash table based implementation of the <tt>Map</tt> interface.  This
@@ -26,6 +28,14 @@ import java.io.*;
  * capacity too high (or the load factor too low) if iteration performance is
  * important.
  *
+ * <p>When a bucket collects many keys (because their hash codes collide,
+ * by accident or by design), it is converted from a linked list into a
+ * balanced tree ordered by hash code and, when the keys are mutually
+ * {@link Comparable} instances of the same class, by their natural
+ * ordering.  Lookups in such a bucket take logarithmic rather than
+ * linear time.  Buckets shrink back to lists when they become small
+ * again.
+ *
  * <p>An instance of <tt>HashMap</tt> has two parameters that affect its
  * performance: <i>initial capacity</i> and <i>load factor</i>.  The
  * <i>capacity</i> is the number of buckets in the hash table, and the initial
@@ -126,6 +136,27 @@ public class HashMap<K,V>
      */
     static final float DEFAULT_LOAD_FACTOR = 0.75f;
 
+    /**
+     * The bin count threshold for using a tree rather than a list for a
+     * bin.  Bins are converted to trees when adding an element to a bin
+     * with at least this many entries.  At the default load factor a
+     * list this long is very unlikely unless the hash codes collide.
+     */
+    static final int TREEIFY_THRESHOLD = 8;
+
+    /**
+     * The bin count threshold for converting a tree bin back into a list
+     * when it is split during a resize or shrinks by removal; smaller
+     * than TREEIFY_THRESHOLD so that a bin does not flip back and forth.
+     */
+    static final int UNTREEIFY_THRESHOLD = 6;
+
+    /**
+     * The smallest table capacity for which bins may be treeified.
+     * Below it, a long bin causes the table to be resized instead.
+     */
+    static final int MIN_TREEIFY_CAPACITY = 64;
+
     /**
      * The table, resized as necessary. Length MUST Always be a power of two.
      */
@@ -298,9 +329,12 @@ public class HashMap<K,V>
         if (key == null)
             return getForNullKey();
         int hash = hash(key.hashCode());
-        for (Entry<K,V> e = table[indexFor(hash, table.length)];
-             e != null;
-             e = e.next) {
+        Entry<K,V> first = table[indexFor(hash, table.length)];
+        if (first instanceof TreeEntry) {
+            Entry<K,V> e = ((TreeEntry<K,V>)first).getTreeEntry(hash, key);
+            return (e == null) ? null : e.value;
+        }
+        for (Entry<K,V> e = first; e != null; e = e.next) {
             Object k;
             if (e.hash == hash && ((k = e.key) == key || key.equals(k)))
                 return e.value;
@@ -316,7 +350,12 @@ public class HashMap<K,V>
      * others.
      */
     private V getForNullKey() {
-        for (Entry<K,V> e = table[0]; e != null; e = e.next) {
+        Entry<K,V> first = table[0];
+        if (first instanceof TreeEntry) {
+            Entry<K,V> e = ((TreeEntry<K,V>)first).getTreeEntry(0, null);
+            return (e == null) ? null : e.value;
+        }
+        for (Entry<K,V> e = first; e != null; e = e.next) {
             if (e.key == null)
                 return e.value;
         }
@@ -342,9 +381,10 @@ public class HashMap<K,V>
      */
     final Entry<K,V> getEntry(Object key) {
         int hash = (key == null) ? 0 : hash(key.hashCode());
-        for (Entry<K,V> e = table[indexFor(hash, table.length)];
-             e != null;
-             e = e.next) {
+        Entry<K,V> first = table[indexFor(hash, table.length)];
+        if (first instanceof TreeEntry)
+            return ((TreeEntry<K,V>)first).getTreeEntry(hash, key);
+        for (Entry<K,V> e = first; e != null; e = e.next) {
             Object k;
             if (e.hash == hash &&
                 ((k = e.key) == key || (key != null && key.equals(k))))
@@ -371,18 +411,32 @@ public class HashMap<K,V>
             return putForNullKey(value);
         int hash = hash(key.hashCode());
         int i = indexFor(hash, table.length);
-        for (Entry<K,V> e = table[i]; e != null; e = e.next) {
-            Object k;
-            if (e.hash == hash && ((k = e.key) == key || key.equals(k))) {
+        Entry<K,V> first = table[i];
+        int binCount = 0;
+        if (first instanceof TreeEntry) {
+            Entry<K,V> e = ((TreeEntry<K,V>)first).getTreeEntry(hash, key);
+            if (e != null) {
                 V oldValue = e.value;
                 e.value = value;
                 e.recordAccess(this);
                 return oldValue;
             }
+        } else {
+            for (Entry<K,V> e = first; e != null; e = e.next, binCount++) {
+                Object k;
+                if (e.hash == hash && ((k = e.key) == key || key.equals(k))) {
+                    V oldValue = e.value;
+                    e.value = value;
+                    e.recordAccess(this);
+                    return oldValue;
+                }
+            }
         }
 
         modCount++;
         addEntry(hash, key, value, i);
+        if (binCount >= TREEIFY_THRESHOLD)
+            treeifyBin(hash);
         return null;
     }
 
@@ -390,24 +444,38 @@ public class HashMap<K,V>
      * Offloaded version of put for null keys
      */
     private V putForNullKey(V value) {
-        for (Entry<K,V> e = table[0]; e != null; e = e.next) {
-            if (e.key == null) {
+        Entry<K,V> first = table[0];
+        int binCount = 0;
+        if (first instanceof TreeEntry) {
+            Entry<K,V> e = ((TreeEntry<K,V>)first).getTreeEntry(0, null);
+            if (e != null) {
                 V oldValue = e.value;
                 e.value = value;
                 e.recordAccess(this);
                 return oldValue;
             }
+        } else {
+            for (Entry<K,V> e = first; e != null; e = e.next, binCount++) {
+                if (e.key == null) {
+                    V oldValue = e.value;
+                    e.value = value;
+                    e.recordAccess(this);
+                    return oldValue;
+                }
+            }
         }
         modCount++;
         addEntry(0, null, value, 0);
+        if (binCount >= TREEIFY_THRESHOLD)
+            treeifyBin(0);
         return null;
     }
 
     /**
      * This method is used instead of put by constructors and
-     * pseudoconstructors (clone, readObject).  It does not resize the table,
-     * check for comodification, etc.  It calls createEntry rather than
-     * addEntry.
+     * pseudoconstructors (clone, readObject).  It does not resize the table
+     * (except to spread a bin that grows too long), check for
+     * comodification, etc.  It calls createEntry rather than addEntry.
      */
     private void putForCreate(K key, V value) {
         int hash = (key == null) ? 0 : hash(key.hashCode());
@@ -418,16 +486,28 @@ public class HashMap<K,V>
          * clone or deserialize.  It will only happen for construction if the
          * input Map is a sorted map whose ordering is inconsistent w/ equals.
          */
-        for (Entry<K,V> e = table[i]; e != null; e = e.next) {
-            Object k;
-            if (e.hash == hash &&
-                ((k = e.key) == key || (key != null && key.equals(k)))) {
+        Entry<K,V> first = table[i];
+        int binCount = 0;
+        if (first instanceof TreeEntry) {
+            Entry<K,V> e = ((TreeEntry<K,V>)first).getTreeEntry(hash, key);
+            if (e != null) {
                 e.value = value;
                 return;
             }
+        } else {
+            for (Entry<K,V> e = first; e != null; e = e.next, binCount++) {
+                Object k;
+                if (e.hash == hash &&
+                    ((k = e.key) == key || (key != null && key.equals(k)))) {
+                    e.value = value;
+                    return;
+                }
+            }
         }
 
         createEntry(hash, key, value, i);
+        if (binCount >= TREEIFY_THRESHOLD)
+            treeifyBin(hash);
     }
 
     private void putAllForCreate(Map<? extends K, ? extends V> m) {
@@ -446,10 +526,9 @@ public class HashMap<K,V>
      * resize the map, but sets threshold to Integer.MAX_VALUE.
      * This has the effect of preventing future calls.
      *
-     * @param newCapacity the new capacity, MUST be a power of two;
-     *        must be greater than current capacity unless current
-     *        capacity is MAXIMUM_CAPACITY (in which case value
-     *        is irrelevant).
+     * @param newCapacity the new capacity, MUST be twice the current
+     *        capacity unless current capacity is MAXIMUM_CAPACITY (in
+     *        which case value is irrelevant).
      */
     void resize(int newCapacity) {
         Entry[] oldTable = table;
@@ -466,22 +545,46 @@ public class HashMap<K,V>
     }
 
     /**
-     * Transfers all entries from current table to newTable.
+     * Transfers all entries from current table to newTable, which must
+     * be twice as long.  Each bin j is split, preserving the order of its
+     * entries, into bins j and j + oldCapacity of the new table.
      */
     void transfer(Entry[] newTable) {
         Entry[] src = table;
-        int newCapacity = newTable.length;
-        for (int j = 0; j < src.length; j++) {
+        int oldCapacity = src.length;
+        for (int j = 0; j < oldCapacity; j++) {
             Entry<K,V> e = src[j];
             if (e != null) {
                 src[j] = null;
+                if (e instanceof TreeEntry) {
+                    ((TreeEntry<K,V>)e).split(this, newTable, j, oldCapacity);
+                    continue;
+                }
+                Entry<K,V> loHead = null, loTail = null;
+                Entry<K,V> hiHead = null, hiTail = null;
                 do {
-                    Entry<K,V> next = e.next;
-                    int i = indexFor(e.hash, newCapacity);
-                    e.next = newTable[i];
-                    newTable[i] = e;
-                    e = next;
-                } while (e != null);
+                    if ((e.hash & oldCapacity) == 0) {
+                        if (loTail == null)
+                            loHead = e;
+                        else
+                            loTail.next = e;
+                        loTail = e;
+                    } else {
+                        if (hiTail == null)
+                            hiHead = e;
+                        else
+                            hiTail.next = e;
+                        hiTail = e;
+                    }
+                } while ((e = e.next) != null);
+                if (loTail != null) {
+                    loTail.next = null;
+                    newTable[j] = loHead;
+                }
+                if (hiTail != null) {
+                    hiTail.next = null;
+                    newTable[j + oldCapacity] = hiHead;
+                }
             }
         }
     }
@@ -512,11 +615,9 @@ public class HashMap<K,V>
             int targetCapacity = (int)(numKeysToBeAdded / loadFactor + 1);
             if (targetCapacity > MAXIMUM_CAPACITY)
                 targetCapacity = MAXIMUM_CAPACITY;
-            int newCapacity = table.length;
-            while (newCapacity < targetCapacity)
-                newCapacity <<= 1;
-            if (newCapacity > table.length)
-                resize(newCapacity);
+            while (table.length < targetCapacity &&
+                   table.length < MAXIMUM_CAPACITY)
+                resize(2 * table.length);
         }
 
         for (Iterator<? extends Map.Entry<? extends K, ? extends V>> i = m.entrySet().iterator(); i.hasNext(); ) {
@@ -545,11 +646,32 @@ public class HashMap<K,V>
      * for this key.
      */
     final Entry<K,V> removeEntryForKey(Object key) {
+        return removeEntryForKey(key, true);
+    }
+
+    /**
+     * Version of removeEntryForKey for iterators: if <tt>movable</tt> is
+     * false, the remaining entries of a tree bin are neither reordered
+     * nor replaced, so that an iterator can carry on from the removed
+     * entry's successor.
+     */
+    final Entry<K,V> removeEntryForKey(Object key, boolean movable) {
         int hash = (key == null) ? 0 : hash(key.hashCode());
         int i = indexFor(hash, table.length);
         Entry<K,V> prev = table[i];
         Entry<K,V> e = prev;
 
+        if (prev instanceof TreeEntry) {
+            TreeEntry<K,V> p = ((TreeEntry<K,V>)prev).getTreeEntry(hash, key);
+            if (p != null) {
+                modCount++;
+                size--;
+                p.removeTreeEntry(this, table, movable);
+                p.recordRemoval(this);
+            }
+            return p;
+        }
+
         while (e != null) {
             Entry<K,V> next = e.next;
             Object k;
@@ -585,6 +707,17 @@ public class HashMap<K,V>
         Entry<K,V> prev = table[i];
         Entry<K,V> e = prev;
 
+        if (prev instanceof TreeEntry) {
+            TreeEntry<K,V> p = ((TreeEntry<K,V>)prev).getTreeEntry(hash, key);
+            if (p == null || !p.equals(entry))
+                return null;
+            modCount++;
+            size--;
+            p.removeTreeEntry(this, table, true);
+            p.recordRemoval(this);
+            return p;
+        }
+
         while (e != null) {
             Entry<K,V> next = e.next;
             if (e.hash == hash && e.equals(entry)) {
@@ -749,9 +882,8 @@ public class HashMap<K,V>
      * Subclass overrides this to alter the behavior of put method.
      */
     void addEntry(int hash, K key, V value, int bucketIndex) {
-	Entry<K,V> e = table[bucketIndex];
-        table[bucketIndex] = new Entry<K,V>(hash, key, value, e);
-        if (size++ >= threshold)
+        createEntry(hash, key, value, bucketIndex);
+        if (size > threshold)
             resize(2 * table.length);
     }
 
@@ -760,15 +892,669 @@ public class HashMap<K,V>
      * as part of Map construction or "pseudo-construction" (cloning,
      * deserialization).  This version needn't worry about resizing the table.
      *
-     * Subclass overrides this to alter the behavior of HashMap(Map),
-     * clone, and readObject.
+     * The caller must have checked that the key is absent.
      */
     void createEntry(int hash, K key, V value, int bucketIndex) {
 	Entry<K,V> e = table[bucketIndex];
-        table[bucketIndex] = new Entry<K,V>(hash, key, value, e);
+        if (e instanceof TreeEntry)
+            ((TreeEntry<K,V>)e).putTreeEntry(this, table, hash, key, value);
+        else
+            table[bucketIndex] = newEntry(hash, key, value, e);
         size++;
     }
 
+    /*
+     * Factory methods for entries.  Subclass overrides these to keep
+     * its own links between the entries: newEntry and newTreeEntry
+     * create the entry of a new mapping, the replacement methods
+     * convert the entries of a bin between list and tree form.
+     */
+
+    Entry<K,V> newEntry(int hash, K key, V value, Entry<K,V> next) {
+        return new Entry<K,V>(hash, key, value, next);
+    }
+
+    TreeEntry<K,V> newTreeEntry(int hash, K key, V value, Entry<K,V> next) {
+        return new TreeEntry<K,V>(hash, key, value, next);
+    }
+
+    Entry<K,V> replacementEntry(Entry<K,V> p, Entry<K,V> next) {
+        return new Entry<K,V>(p.hash, p.key, p.value, next);
+    }
+
+    TreeEntry<K,V> replacementTreeEntry(Entry<K,V> p, Entry<K,V> next) {
+        return new TreeEntry<K,V>(p.hash, p.key, p.value, next);
+    }
+
+    /**
+     * Converts the list bin holding the given hash into a tree bin,
+     * unless the table is too small, in which case it is resized
+     * instead.
+     */
+    final void treeifyBin(int hash) {
+        Entry[] tab = table;
+        int n = tab.length;
+        if (n < MIN_TREEIFY_CAPACITY) {
+            resize(2 * n);
+            return;
+        }
+        int index = indexFor(hash, n);
+        Entry<K,V> e = tab[index];
+        if (e == null || e instanceof TreeEntry)
+            return;
+        TreeEntry<K,V> hd = null, tl = null;
+        do {
+            TreeEntry<K,V> p = replacementTreeEntry(e, null);
+            if (tl == null)
+                hd = p;
+            else {
+                p.prev = tl;
+                tl.next = p;
+            }
+            tl = p;
+        } while ((e = e.next) != null);
+        tab[index] = hd;
+        hd.treeify(tab);
+    }
+
+    /**
+     * Returns x's Class if it is of the form "class C implements
+     * Comparable<C>", else null.
+     */
+    static Class<?> comparableClassFor(Object x) {
+        if (x instanceof Comparable) {
+            Class<?> c = x.getClass();
+            if (c == String.class) // bypass checks
+                return c;
+            Type[] ts = c.getGenericInterfaces();
+            for (int i = 0; i < ts.length; ++i) {
+                Type t = ts[i];
+                if (t instanceof ParameterizedType) {
+                    ParameterizedType p = (ParameterizedType)t;
+                    Type[] as = p.getActualTypeArguments();
+                    if (p.getRawType() == Comparable.class &&
+                        as != null && as.length == 1 && as[0] == c)
+                        return c;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns k.compareTo(x) if x matches kc (k's screened comparable
+     * class), else 0.
+     */
+    @SuppressWarnings("unchecked") // for cast to Comparable
+    static int compareComparables(Class<?> kc, Object k, Object x) {
+        return (x == null || x.getClass() != kc ? 0 :
+                ((Comparable)k).compareTo(x));
+    }
+
+    /**
+     * Tie-breaking utility for ordering insertions when equal hashCodes
+     * and non-comparable keys.  We don't require a total order, just a
+     * consistent insertion rule to maintain equivalence across
+     * rebalancings.
+     */
+    static int tieBreakOrder(Object a, Object b) {
+        int d;
+        if (a == null || b == null ||
+            (d = a.getClass().getName().
+             compareTo(b.getClass().getName())) == 0)
+            d = (System.identityHashCode(a) <= System.identityHashCode(b) ?
+                 -1 : 1);
+        return d;
+    }
+
+    /**
+     * Entry of a tree bin: a red-black tree ordered by hash, then by
+     * key if the keys are comparable, then by tieBreakOrder.  The
+     * entries of a bin are also kept linked through <tt>next</tt> (and
+     * <tt>prev</tt>) so that iterators and the list operations still
+     * see a list, with the root first except after removal through an
+     * iterator.  Extends LinkedHashMap.Entry so that a tree bin can be
+     * part of either kind of map; in a plain HashMap the extra links
+     * are unused.
+     */
+    static final class TreeEntry<K,V> extends LinkedHashMap.Entry<K,V> {
+        TreeEntry<K,V> parent;  // red-black tree links
+        TreeEntry<K,V> left;
+        TreeEntry<K,V> right;
+        TreeEntry<K,V> prev;    // needed to unlink next upon deletion
+        boolean red;
+
+        TreeEntry(int hash, K key, V value, Entry<K,V> next) {
+            super(hash, key, value, next);
+        }
+
+        void recordAccess(HashMap<K,V> m) {
+            if (m instanceof LinkedHashMap)
+                super.recordAccess(m);
+        }
+
+        void recordRemoval(HashMap<K,V> m) {
+            if (m instanceof LinkedHashMap)
+                super.recordRemoval(m);
+        }
+
+        /**
+         * Returns root of tree containing this entry.
+         */
+        final TreeEntry<K,V> root() {
+            for (TreeEntry<K,V> r = this, p;;) {
+                if ((p = r.parent) == null)
+                    return r;
+                r = p;
+            }
+        }
+
+        /**
+         * Ensures that the given root is the first entry of its bin.
+         */
+        static <K,V> void moveRootToFront(Entry[] tab, TreeEntry<K,V> root) {
+            int index = indexFor(root.hash, tab.length);
+            TreeEntry<K,V> first = (TreeEntry<K,V>)tab[index];
+            if (root != first) {
+                Entry<K,V> rn;
+                tab[index] = root;
+                TreeEntry<K,V> rp = root.prev;
+                if ((rn = root.next) != null)
+                    ((TreeEntry<K,V>)rn).prev = rp;
+                if (rp != null)
+                    rp.next = rn;
+                if (first != null)
+                    first.prev = root;
+                root.next = first;
+                root.prev = null;
+            }
+        }
+
+        /**
+         * Finds the entry starting at root p with the given hash and key.
+         * The kc argument caches comparableClassFor(key) upon first use
+         * comparing keys.
+         */
+        final TreeEntry<K,V> find(int h, Object k, Class<?> kc) {
+            TreeEntry<K,V> p = this;
+            do {
+                int ph, dir; K pk;
+                TreeEntry<K,V> pl = p.left, pr = p.right, q;
+                if ((ph = p.hash) > h)
+                    p = pl;
+                else if (ph < h)
+                    p = pr;
+                else if ((pk = p.key) == k || (k != null && k.equals(pk)))
+                    return p;
+                else if (pl == null)
+                    p = pr;
+                else if (pr == null)
+                    p = pl;
+                else if ((kc != null ||
+                          (kc = comparableClassFor(k)) != null) &&
+                         (dir = compareComparables(kc, k, pk)) != 0)
+                    p = (dir < 0) ? pl : pr;
+                else if ((q = pr.find(h, k, kc)) != null)
+                    return q;
+                else
+                    p = pl;
+            } while (p != null);
+            return null;
+        }
+
+        /**
+         * Calls find for the root of the tree of this bin.
+         */
+        final TreeEntry<K,V> getTreeEntry(int h, Object k) {
+            return ((parent != null) ? root() : this).find(h, k, null);
+        }
+
+        /**
+         * Forms a tree of the entries linked from this entry.
+         */
+        final void treeify(Entry[] tab) {
+            TreeEntry<K,V> root = null;
+            for (TreeEntry<K,V> x = this, next; x != null; x = next) {
+                next = (TreeEntry<K,V>)x.next;
+                x.left = x.right = null;
+                if (root == null) {
+                    x.parent = null;
+                    x.red = false;
+                    root = x;
+                }
+                else {
+                    K k = x.key;
+                    int h = x.hash;
+                    Class<?> kc = null;
+                    for (TreeEntry<K,V> p = root;;) {
+                        int dir, ph;
+                        K pk = p.key;
+                        if ((ph = p.hash) > h)
+                            dir = -1;
+                        else if (ph < h)
+                            dir = 1;
+                        else if ((kc == null &&
+                                  (kc = comparableClassFor(k)) == null) ||
+                                 (dir = compareComparables(kc, k, pk)) == 0)
+                            dir = tieBreakOrder(k, pk);
+
+                        TreeEntry<K,V> xp = p;
+                        if ((p = (dir <= 0) ? p.left : p.right) == null) {
+                            x.parent = xp;
+                            if (dir <= 0)
+                                xp.left = x;
+                            else
+                                xp.right = x;
+                            root = balanceInsertion(root, x);
+                            break;
+                        }
+                    }
+                }
+            }
+            moveRootToFront(tab, root);
+        }
+
+        /**
+         * Returns a list of plain entries replacing those linked from
+         * this entry.
+         */
+        final Entry<K,V> untreeify(HashMap<K,V> map) {
+            Entry<K,V> hd = null, tl = null;
+            for (Entry<K,V> q = this; q != null; q = q.next) {
+                Entry<K,V> p = map.replacementEntry(q, null);
+                if (tl == null)
+                    hd = p;
+                else
+                    tl.next = p;
+                tl = p;
+            }
+            return hd;
+        }
+
+        /**
+         * Tree version of createEntry: adds an entry for a key known to
+         * be absent.
+         */
+        final void putTreeEntry(HashMap<K,V> map, Entry[] tab,
+                                int h, K k, V v) {
+            Class<?> kc = null;
+            TreeEntry<K,V> root = (parent != null) ? root() : this;
+            for (TreeEntry<K,V> p = root;;) {
+                int dir, ph; K pk = p.key;
+                if ((ph = p.hash) > h)
+                    dir = -1;
+                else if (ph < h)
+                    dir = 1;
+                else if ((kc == null &&
+                          (kc = comparableClassFor(k)) == null) ||
+                         (dir = compareComparables(kc, k, pk)) == 0)
+                    dir = tieBreakOrder(k, pk);
+
+                TreeEntry<K,V> xp = p;
+                if ((p = (dir <= 0) ? p.left : p.right) == null) {
+                    Entry<K,V> xpn = xp.next;
+                    TreeEntry<K,V> x = map.newTreeEntry(h, k, v, xpn);
+                    if (dir <= 0)
+                        xp.left = x;
+                    else
+                        xp.right = x;
+                    xp.next = x;
+                    x.parent = x.prev = xp;
+                    if (xpn != null)
+                        ((TreeEntry<K,V>)xpn).prev = x;
+                    moveRootToFront(tab, balanceInsertion(root, x));
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Removes this entry, which must be present in its bin.  This is
+         * messier than typical red-black deletion code because we cannot
+         * swap the contents of an interior entry with a leaf successor
+         * that is pinned by "next" pointers that are accessible
+         * independently during traversal.  So instead we swap the tree
+         * linkages.  If the current tree appears to have too few entries,
+         * the bin is converted back to a plain bin.  (The test triggers
+         * somewhere between 2 and 6 entries, depending on tree structure).
+         */
+        final void removeTreeEntry(HashMap<K,V> map, Entry[] tab,
+                                   boolean movable) {
+            int index = indexFor(hash, tab.length);
+            TreeEntry<K,V> first = (TreeEntry<K,V>)tab[index], root = first, rl;
+            TreeEntry<K,V> succ = (TreeEntry<K,V>)next, pred = prev;
+            if (pred == null)
+                tab[index] = first = succ;
+            else
+                pred.next = succ;
+            if (succ != null)
+                succ.prev = pred;
+            if (first == null)
+                return;
+            if (root.parent != null)
+                root = root.root();
+            if (movable &&
+                (root.right == null ||
+                 (rl = root.left) == null ||
+                 rl.left == null)) {
+                tab[index] = first.untreeify(map);  // too small
+                return;
+            }
+            TreeEntry<K,V> p = this, pl = left, pr = right, replacement;
+            if (pl != null && pr != null) {
+                TreeEntry<K,V> s = pr, sl;
+                while ((sl = s.left) != null) // find successor
+                    s = sl;
+                boolean c = s.red; s.red = p.red; p.red = c; // swap colors
+                TreeEntry<K,V> sr = s.right;
+                TreeEntry<K,V> pp = p.parent;
+                if (s == pr) { // p was s's direct parent
+                    p.parent = s;
+                    s.right = p;
+                }
+                else {
+                    TreeEntry<K,V> sp = s.parent;
+                    if ((p.parent = sp) != null) {
+                        if (s == sp.left)
+                            sp.left = p;
+                        else
+                            sp.right = p;
+                    }
+                    if ((s.right = pr) != null)
+                        pr.parent = s;
+                }
+                p.left = null;
+                if ((p.right = sr) != null)
+                    sr.parent = p;
+                if ((s.left = pl) != null)
+                    pl.parent = s;
+                if ((s.parent = pp) == null)
+                    root = s;
+                else if (p == pp.left)
+                    pp.left = s;
+                else
+                    pp.right = s;
+                if (sr != null)
+                    replacement = sr;
+                else
+                    replacement = p;
+            }
+            else if (pl != null)
+                replacement = pl;
+            else if (pr != null)
+                replacement = pr;
+            else
+                replacement = p;
+            if (replacement != p) {
+                TreeEntry<K,V> pp = replacement.parent = p.parent;
+                if (pp == null)
+                    (root = replacement).red = false;
+                else if (p == pp.left)
+                    pp.left = replacement;
+                else
+                    pp.right = replacement;
+                p.left = p.right = p.parent = null;
+            }
+
+            TreeEntry<K,V> r = p.red ? root : balanceDeletion(root, replacement);
+
+            if (replacement == p) {  // detach
+                TreeEntry<K,V> pp = p.parent;
+                p.parent = null;
+                if (pp != null) {
+                    if (p == pp.left)
+                        pp.left = null;
+                    else if (p == pp.right)
+                        pp.right = null;
+                }
+            }
+            if (movable)
+                moveRootToFront(tab, r);
+        }
+
+        /**
+         * Splits the entries of this tree bin into lower and upper bins
+         * of a table twice as long, untreeifying those that become too
+         * small.  Called only from transfer.
+         *
+         * @param map the map
+         * @param tab the new table
+         * @param index the index of this bin in the old table
+         * @param bit the length of the old table
+         */
+        final void split(HashMap<K,V> map, Entry[] tab, int index, int bit) {
+            // Relink into lo and hi lists, preserving order
+            TreeEntry<K,V> loHead = null, loTail = null;
+            TreeEntry<K,V> hiHead = null, hiTail = null;
+            int lc = 0, hc = 0;
+            for (TreeEntry<K,V> e = this, next; e != null; e = next) {
+                next = (TreeEntry<K,V>)e.next;
+                e.next = null;
+                if ((e.hash & bit) == 0) {
+                    if ((e.prev = loTail) == null)
+                        loHead = e;
+                    else
+                        loTail.next = e;
+                    loTail = e;
+                    ++lc;
+                }
+                else {
+                    if ((e.prev = hiTail) == null)
+                        hiHead = e;
+                    else
+                        hiTail.next = e;
+                    hiTail = e;
+                    ++hc;
+                }
+            }
+
+            if (loHead != null) {
+                if (lc <= UNTREEIFY_THRESHOLD)
+                    tab[index] = loHead.untreeify(map);
+                else {
+                    tab[index] = loHead;
+                    if (hiHead != null) // (else is already treeified)
+                        loHead.treeify(tab);
+                }
+            }
+            if (hiHead != null) {
+                if (hc <= UNTREEIFY_THRESHOLD)
+                    tab[index + bit] = hiHead.untreeify(map);
+                else {
+                    tab[index + bit] = hiHead;
+                    if (loHead != null)
+                        hiHead.treeify(tab);
+                }
+            }
+        }
+
+        /* ------------------------------------------------------------ */
+        // Red-black tree methods, all adapted from CLR
+
+        static <K,V> TreeEntry<K,V> rotateLeft(TreeEntry<K,V> root,
+                                               TreeEntry<K,V> p) {
+            TreeEntry<K,V> r, pp, rl;
+            if (p != null && (r = p.right) != null) {
+                if ((rl = p.right = r.left) != null)
+                    rl.parent = p;
+                if ((pp = r.parent = p.parent) == null)
+                    (root = r).red = false;
+                else if (pp.left == p)
+                    pp.left = r;
+                else
+                    pp.right = r;
+                r.left = p;
+                p.parent = r;
+            }
+            return root;
+        }
+
+        static <K,V> TreeEntry<K,V> rotateRight(TreeEntry<K,V> root,
+                                                TreeEntry<K,V> p) {
+            TreeEntry<K,V> l, pp, lr;
+            if (p != null && (l = p.left) != null) {
+                if ((lr = p.left = l.right) != null)
+                    lr.parent = p;
+                if ((pp = l.parent = p.parent) == null)
+                    (root = l).red = false;
+                else if (pp.right == p)
+                    pp.right = l;
+                else
+                    pp.left = l;
+                l.right = p;
+                p.parent = l;
+            }
+            return root;
+        }
+
+        static <K,V> TreeEntry<K,V> balanceInsertion(TreeEntry<K,V> root,
+                                                     TreeEntry<K,V> x) {
+            x.red = true;
+            for (TreeEntry<K,V> xp, xpp, xppl, xppr;;) {
+                if ((xp = x.parent) == null) {
+                    x.red = false;
+                    return x;
+                }
+                else if (!xp.red || (xpp = xp.parent) == null)
+                    return root;
+                if (xp == (xppl = xpp.left)) {
+                    if ((xppr = xpp.right) != null && xppr.red) {
+                        xppr.red = false;
+                        xp.red = false;
+                        xpp.red = true;
+                        x = xpp;
+                    }
+                    else {
+                        if (x == xp.right) {
+                            root = rotateLeft(root, x = xp);
+                            xpp = (xp = x.parent) == null ? null : xp.parent;
+                        }
+                        if (xp != null) {
+                            xp.red = false;
+                            if (xpp != null) {
+                                xpp.red = true;
+                                root = rotateRight(root, xpp);
+                            }
+                        }
+                    }
+                }
+                else {
+                    if (xppl != null && xppl.red) {
+                        xppl.red = false;
+                        xp.red = false;
+                        xpp.red = true;
+                        x = xpp;
+                    }
+                    else {
+                        if (x == xp.left) {
+                            root = rotateRight(root, x = xp);
+                            xpp = (xp = x.parent) == null ? null : xp.parent;
+                        }
+                        if (xp != null) {
+                            xp.red = false;
+                            if (xpp != null) {
+                                xpp.red = true;
+                                root = rotateLeft(root, xpp);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        static <K,V> TreeEntry<K,V> balanceDeletion(TreeEntry<K,V> root,
+                                                    TreeEntry<K,V> x) {
+            for (TreeEntry<K,V> xp, xpl, xpr;;) {
+                if (x == null || x == root)
+                    return root;
+                else if ((xp = x.parent) == null) {
+                    x.red = false;
+                    return x;
+                }
+                else if (x.red) {
+                    x.red = false;
+                    return root;
+                }
+                else if ((xpl = xp.left) == x) {
+                    if ((xpr = xp.right) != null && xpr.red) {
+                        xpr.red = false;
+                        xp.red = true;
+                        root = rotateLeft(root, xp);
+                        xpr = (xp = x.parent) == null ? null : xp.right;
+                    }
+                    if (xpr == null)
+                        x = xp;
+                    else {
+                        TreeEntry<K,V> sl = xpr.left, sr = xpr.right;
+                        if ((sr == null || !sr.red) &&
+                            (sl == null || !sl.red)) {
+                            xpr.red = true;
+                            x = xp;
+                        }
+                        else {
+                            if (sr == null || !sr.red) {
+                                if (sl != null)
+                                    sl.red = false;
+                                xpr.red = true;
+                                root = rotateRight(root, xpr);
+                                xpr = (xp = x.parent) == null ?
+                                    null : xp.right;
+                            }
+                            if (xpr != null) {
+                                xpr.red = (xp == null) ? false : xp.red;
+                                if ((sr = xpr.right) != null)
+                                    sr.red = false;
+                            }
+                            if (xp != null) {
+                                xp.red = false;
+                                root = rotateLeft(root, xp);
+                            }
+                            x = root;
+                        }
+                    }
+                }
+                else { // symmetric
+                    if (xpl != null && xpl.red) {
+                        xpl.red = false;
+                        xp.red = true;
+                        root = rotateRight(root, xp);
+                        xpl = (xp = x.parent) == null ? null : xp.left;
+                    }
+                    if (xpl == null)
+                        x = xp;
+                    else {
+                        TreeEntry<K,V> sl = xpl.left, sr = xpl.right;
+                        if ((sl == null || !sl.red) &&
+                            (sr == null || !sr.red)) {
+                            xpl.red = true;
+                            x = xp;
+                        }
+                        else {
+                            if (sl == null || !sl.red) {
+                                if (sr != null)
+                                    sr.red = false;
+                                xpl.red = true;
+                                root = rotateLeft(root, xpl);
+                                xpl = (xp = x.parent) == null ?
+                                    null : xp.left;
+                            }
+                            if (xpl != null) {
+                                xpl.red = (xp == null) ? false : xp.red;
+                                if ((sl = xpl.left) != null)
+                                    sl.red = false;
+                            }
+                            if (xp != null) {
+                                xp.red = false;
+                                root = rotateRight(root, xp);
+                            }
+                            x = root;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private abstract class HashIterator<E> implements Iterator<E> {
         Entry<K,V> next;	// next entry to return
         int expectedModCount;	// For fast-fail
@@ -810,7 +1596,7 @@ public class HashMap<K,V>
                 throw new ConcurrentModificationException();
             Object k = current.key;
             current = null;
-            HashMap.this.removeEntryForKey(k);
+            HashMap.this.removeEntryForKey(k, false);
             expectedModCount = modCount;
         }
 
@@ -22,8 +22,11 @@ import java.io.*;
  * <i>initial capacity</i> is simply the capacity at the time the hash table
  * is created.  Note that the hash table is <i>open</i>: in the case of a "hash
  * collision", a single bucket stores multiple entries, which must be searched
- * sequentially.  The <i>load factor</i> is a measure of how full the hash
- * table is allowed to get before its capacity is automatically increased.
+ * sequentially, or once there are many of them, through a balanced tree
+ * ordered by hash code and, for mutually <code>Comparable</code> keys of the
+ * same class, by natural ordering.  The <i>load factor</i> is a measure of
+ * how full the hash table is allowed to get before its capacity is
+ * automatically increased.
  * The initial capacity and load factor parameters are merely hints to
  * the implementation.  The exact details as to when and whether the rehash
  * method is invoked are implementation-dependent.<p>
@@ -137,6 +140,18 @@ public class Hashtable<K,V>
      */
     private transient int modCount = 0;
 
+    /**
+     * A bucket that has more than this many entries is converted into a
+     * tree bin (or the table rehashed if it is still small).
+     */
+    static final int TREEIFY_THRESHOLD = HashMap.TREEIFY_THRESHOLD;
+
+    /**
+     * The smallest table capacity for which buckets may be converted into
+     * tree bins.
+     */
+    static final int MIN_TREEIFY_CAPACITY = HashMap.MIN_TREEIFY_CAPACITY;
+
     /** use serialVersionUID from JDK 1.0.2 for interoperability */
     private static final long serialVersionUID = 1421746759512286392L;
 
@@ -306,6 +321,8 @@ public class Hashtable<K,V>
 	Entry tab[] = table;
 	int hash = key.hashCode();
 	int index = (hash & 0x7FFFFFFF) % tab.length;
+	if (tab[index] instanceof TreeEntry)
+	    return ((TreeEntry<K,V>)tab[index]).getTreeEntry(hash, key) != null;
 	for (Entry<K,V> e = tab[index] ; e != null ; e = e.next) {
 	    if ((e.hash == hash) && e.key.equals(key)) {
 		return true;
@@ -333,6 +350,10 @@ public class Hashtable<K,V>
 	Entry tab[] = table;
 	int hash = key.hashCode();
 	int index = (hash & 0x7FFFFFFF) % tab.length;
+	if (tab[index] instanceof TreeEntry) {
+	    Entry<K,V> e = ((TreeEntry<K,V>)tab[index]).getTreeEntry(hash, key);
+	    return (e == null) ? null : e.value;
+	}
 	for (Entry<K,V> e = tab[index] ; e != null ; e = e.next) {
 	    if ((e.hash == hash) && e.key.equals(key)) {
 		return e.value;
@@ -359,8 +380,14 @@ public class Hashtable<K,V>
 	threshold = (int)(newCapacity * loadFactor);
 	table = newMap;
 
+	boolean trees = false;
 	for (int i = oldCapacity ; i-- > 0 ;) {
-	    for (Entry<K,V> old = oldMap[i] ; old != null ; ) {
+	    Entry<K,V> old = oldMap[i];
+	    if (old instanceof TreeEntry) {
+		trees = true;
+		old = ((TreeEntry<K,V>)old).untreeify();
+	    }
+	    while (old != null) {
 		Entry<K,V> e = old;
 		old = old.next;
 
@@ -369,6 +396,51 @@ public class Hashtable<K,V>
 		newMap[index] = e;
 	    }
 	}
+
+	// Rebuild the trees of the buckets that are still long
+	if (trees) {
+	    for (int i = 0; i < newCapacity; i++) {
+		int n = 0;
+		for (Entry e = newMap[i]; e != null; e = e.next)
+		    n++;
+		if (n > TREEIFY_THRESHOLD)
+		    treeifyBin(newMap, i);
+	    }
+	}
+    }
+
+    /**
+     * Converts the list bucket at the given index into a tree bin.
+     */
+    private static <K,V> void treeifyBin(Entry[] tab, int index) {
+	TreeEntry<K,V> hd = null, tl = null;
+	for (Entry<K,V> e = tab[index]; e != null; e = e.next) {
+	    TreeEntry<K,V> p = new TreeEntry<K,V>(e.hash, e.key, e.value, null);
+	    if (tl == null)
+		hd = p;
+	    else {
+		p.prev = tl;
+		tl.next = p;
+	    }
+	    tl = p;
+	}
+	if (hd != null) {
+	    tab[index] = hd;
+	    hd.treeify(tab);
+	}
+    }
+
+    /**
+     * Links a new entry for a key known to be absent into the bucket at
+     * the given index.
+     */
+    private static <K,V> void linkEntry(Entry[] tab, int index,
+					int hash, K key, V value) {
+	Entry<K,V> e = tab[index];
+	if (e instanceof TreeEntry)
+	    ((TreeEntry<K,V>)e).putTreeEntry(tab, hash, key, value);
+	else
+	    tab[index] = new Entry<K,V>(hash, key, value, e);
     }
 
     /**
@@ -398,12 +470,23 @@ public class Hashtable<K,V>
 	Entry tab[] = table;
 	int hash = key.hashCode();
 	int index = (hash & 0x7FFFFFFF) % tab.length;
-	for (Entry<K,V> e = tab[index] ; e != null ; e = e.next) {
-	    if ((e.hash == hash) && e.key.equals(key)) {
+	int binCount = 0;
+	if (tab[index] instanceof TreeEntry) {
+	    Entry<K,V> e = ((TreeEntry<K,V>)tab[index]).getTreeEntry(hash, key);
+	    if (e != null) {
 		V old = e.value;
 		e.value = value;
 		return old;
 	    }
+	} else {
+	    for (Entry<K,V> e = tab[index] ; e != null ;
+		 e = e.next, binCount++) {
+		if ((e.hash == hash) && e.key.equals(key)) {
+		    V old = e.value;
+		    e.value = value;
+		    return old;
+		}
+	    }
 	}
 
 	modCount++;
@@ -413,12 +496,20 @@ public class Hashtable<K,V>
 
             tab = table;
             index = (hash & 0x7FFFFFFF) % tab.length;
+            binCount = 0;
 	}
 
 	// Creates the new entry.
-	Entry<K,V> e = tab[index];
-	tab[index] = new Entry<K,V>(hash, key, value, e);
+	linkEntry(tab, index, hash, key, value);
 	count++;
+
+	// Spread or treeify a bucket that has become too long
+	if (binCount >= TREEIFY_THRESHOLD) {
+	    if (tab.length < MIN_TREEIFY_CAPACITY)
+		rehash();
+	    else
+		treeifyBin(tab, index);
+	}
 	return null;
     }
 
@@ -435,6 +526,17 @@ public class Hashtable<K,V>
 	Entry tab[] = table;
 	int hash = key.hashCode();
 	int index = (hash & 0x7FFFFFFF) % tab.length;
+	if (tab[index] instanceof TreeEntry) {
+	    TreeEntry<K,V> p = ((TreeEntry<K,V>)tab[index]).getTreeEntry(hash, key);
+	    if (p == null)
+		return null;
+	    modCount++;
+	    p.removeTreeEntry(tab, true);
+	    count--;
+	    V oldValue = p.value;
+	    p.value = null;
+	    return oldValue;
+	}
 	for (Entry<K,V> e = tab[index], prev = null ; e != null ; prev = e, e = e.next) {
 	    if ((e.hash == hash) && e.key.equals(key)) {
 		modCount++;
@@ -491,6 +593,8 @@ public class Hashtable<K,V>
 	    for (int i = table.length ; i-- > 0 ; ) {
 		t.table[i] = (table[i] != null)
 		    ? (Entry<K,V>) table[i].clone() : null;
+		if (table[i] instanceof TreeEntry)
+		    treeifyBin(t.table, i);
 	    }
 	    t.keySet = null;
 	    t.entrySet = null;
@@ -643,6 +747,10 @@ public class Hashtable<K,V>
             int hash = key.hashCode();
             int index = (hash & 0x7FFFFFFF) % tab.length;
 
+            if (tab[index] instanceof TreeEntry) {
+                Entry e = ((TreeEntry)tab[index]).getTreeEntry(hash, key);
+                return e != null && e.equals(entry);
+            }
             for (Entry e = tab[index]; e != null; e = e.next)
                 if (e.hash==hash && e.equals(entry))
                     return true;
@@ -658,6 +766,17 @@ public class Hashtable<K,V>
             int hash = key.hashCode();
             int index = (hash & 0x7FFFFFFF) % tab.length;
 
+            if (tab[index] instanceof TreeEntry) {
+                TreeEntry<K,V> p =
+                    ((TreeEntry<K,V>)tab[index]).getTreeEntry(hash, key);
+                if (p == null || !p.equals(entry))
+                    return false;
+                modCount++;
+                p.removeTreeEntry(tab, true);
+                count--;
+                p.value = null;
+                return true;
+            }
             for (Entry<K,V> e = tab[index], prev = null; e != null;
                  prev = e, e = e.next) {
                 if (e.hash==hash && e.equals(entry)) {
@@ -884,15 +1003,23 @@ public class Hashtable<K,V>
         // This should not happen in deserialized version.
         int hash = key.hashCode();
         int index = (hash & 0x7FFFFFFF) % tab.length;
-        for (Entry<K,V> e = tab[index] ; e != null ; e = e.next) {
-            if ((e.hash == hash) && e.key.equals(key)) {
+        int binCount = 0;
+        if (tab[index] instanceof TreeEntry) {
+            if (((TreeEntry<K,V>)tab[index]).getTreeEntry(hash, key) != null)
                 throw new java.io.StreamCorruptedException();
+        } else {
+            for (Entry<K,V> e = tab[index] ; e != null ; e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    throw new java.io.StreamCorruptedException();
+                }
+                binCount++;
             }
         }
         // Creates the new entry.
-        Entry<K,V> e = tab[index];
-        tab[index] = new Entry<K,V>(hash, key, value, e);
+        linkEntry(tab, index, hash, key, value);
         count++;
+        if (binCount >= TREEIFY_THRESHOLD)
+            treeifyBin(tab, index);
     }
 
     /**
@@ -953,6 +1080,486 @@ public class Hashtable<K,V>
 	}
     }
 
+    /**
+     * Entry of a tree bin.  The entries of a bucket whose chain grew past
+     * TREEIFY_THRESHOLD are kept in a red-black tree ordered by hash code,
+     * then by natural ordering when the keys are Comparable of the same
+     * class.  They remain linked through next as well, so enumerations,
+     * clone and serialization see an ordinary chain.  The tree code is
+     * that of HashMap.TreeEntry, indexing by the hashtable's modulus.
+     */
+    private static final class TreeEntry<K,V> extends Entry<K,V> {
+	TreeEntry<K,V> parent;  // red-black tree links
+	TreeEntry<K,V> left;
+	TreeEntry<K,V> right;
+	TreeEntry<K,V> prev;    // needed to unlink next upon deletion
+	boolean red;
+
+	TreeEntry(int hash, K key, V value, Entry<K,V> next) {
+	    super(hash, key, value, next);
+	}
+
+	/**
+	 * Returns root of tree containing this entry.
+	 */
+	final TreeEntry<K,V> root() {
+	    for (TreeEntry<K,V> r = this, p;;) {
+		if ((p = r.parent) == null)
+		    return r;
+		r = p;
+	    }
+	}
+
+	/**
+	 * Ensures that the given root is the first entry of its bin.
+	 */
+	static <K,V> void moveRootToFront(Entry[] tab, TreeEntry<K,V> root) {
+	    int index = (root.hash & 0x7FFFFFFF) % tab.length;
+	    TreeEntry<K,V> first = (TreeEntry<K,V>)tab[index];
+	    if (root != first) {
+		Entry<K,V> rn;
+		tab[index] = root;
+		TreeEntry<K,V> rp = root.prev;
+		if ((rn = root.next) != null)
+		    ((TreeEntry<K,V>)rn).prev = rp;
+		if (rp != null)
+		    rp.next = rn;
+		if (first != null)
+		    first.prev = root;
+		root.next = first;
+		root.prev = null;
+	    }
+	}
+
+	/**
+	 * Finds the entry starting at root p with the given hash and key.
+	 * The kc argument caches comparableClassFor(key) upon first use
+	 * comparing keys.
+	 */
+	final TreeEntry<K,V> find(int h, Object k, Class<?> kc) {
+	    TreeEntry<K,V> p = this;
+	    do {
+		int ph, dir; K pk;
+		TreeEntry<K,V> pl = p.left, pr = p.right, q;
+		if ((ph = p.hash) > h)
+		    p = pl;
+		else if (ph < h)
+		    p = pr;
+		else if ((pk = p.key) == k || (k != null && k.equals(pk)))
+		    return p;
+		else if (pl == null)
+		    p = pr;
+		else if (pr == null)
+		    p = pl;
+		else if ((kc != null ||
+			  (kc = HashMap.comparableClassFor(k)) != null) &&
+			 (dir = HashMap.compareComparables(kc, k, pk)) != 0)
+		    p = (dir < 0) ? pl : pr;
+		else if ((q = pr.find(h, k, kc)) != null)
+		    return q;
+		else
+		    p = pl;
+	    } while (p != null);
+	    return null;
+	}
+
+	/**
+	 * Calls find for the root of the tree of this bin.
+	 */
+	final TreeEntry<K,V> getTreeEntry(int h, Object k) {
+	    return ((parent != null) ? root() : this).find(h, k, null);
+	}
+
+	/**
+	 * Forms a tree of the entries linked from this entry.
+	 */
+	final void treeify(Entry[] tab) {
+	    TreeEntry<K,V> root = null;
+	    for (TreeEntry<K,V> x = this, next; x != null; x = next) {
+		next = (TreeEntry<K,V>)x.next;
+		x.left = x.right = null;
+		if (root == null) {
+		    x.parent = null;
+		    x.red = false;
+		    root = x;
+		}
+		else {
+		    K k = x.key;
+		    int h = x.hash;
+		    Class<?> kc = null;
+		    for (TreeEntry<K,V> p = root;;) {
+			int dir, ph;
+			K pk = p.key;
+			if ((ph = p.hash) > h)
+			    dir = -1;
+			else if (ph < h)
+			    dir = 1;
+			else if ((kc == null &&
+				  (kc = HashMap.comparableClassFor(k))
+				  == null) ||
+				 (dir = HashMap.compareComparables(kc, k, pk))
+				 == 0)
+			    dir = HashMap.tieBreakOrder(k, pk);
+
+			TreeEntry<K,V> xp = p;
+			if ((p = (dir <= 0) ? p.left : p.right) == null) {
+			    x.parent = xp;
+			    if (dir <= 0)
+				xp.left = x;
+			    else
+				xp.right = x;
+			    root = balanceInsertion(root, x);
+			    break;
+			}
+		    }
+		}
+	    }
+	    moveRootToFront(tab, root);
+	}
+
+	/**
+	 * Returns a list of plain entries replacing those linked from
+	 * this entry.
+	 */
+	final Entry<K,V> untreeify() {
+	    Entry<K,V> hd = null, tl = null;
+	    for (Entry<K,V> q = this; q != null; q = q.next) {
+		Entry<K,V> p = new Entry<K,V>(q.hash, q.key, q.value, null);
+		if (tl == null)
+		    hd = p;
+		else
+		    tl.next = p;
+		tl = p;
+	    }
+	    return hd;
+	}
+
+	/**
+	 * Tree version of linkEntry: adds an entry for a key known to
+	 * be absent.
+	 */
+	final void putTreeEntry(Entry[] tab, int h, K k, V v) {
+	    Class<?> kc = null;
+	    TreeEntry<K,V> root = (parent != null) ? root() : this;
+	    for (TreeEntry<K,V> p = root;;) {
+		int dir, ph; K pk = p.key;
+		if ((ph = p.hash) > h)
+		    dir = -1;
+		else if (ph < h)
+		    dir = 1;
+		else if ((kc == null &&
+			  (kc = HashMap.comparableClassFor(k)) == null) ||
+			 (dir = HashMap.compareComparables(kc, k, pk)) == 0)
+		    dir = HashMap.tieBreakOrder(k, pk);
+
+		TreeEntry<K,V> xp = p;
+		if ((p = (dir <= 0) ? p.left : p.right) == null) {
+		    Entry<K,V> xpn = xp.next;
+		    TreeEntry<K,V> x = new TreeEntry<K,V>(h, k, v, xpn);
+		    if (dir <= 0)
+			xp.left = x;
+		    else
+			xp.right = x;
+		    xp.next = x;
+		    x.parent = x.prev = xp;
+		    if (xpn != null)
+			((TreeEntry<K,V>)xpn).prev = x;
+		    moveRootToFront(tab, balanceInsertion(root, x));
+		    return;
+		}
+	    }
+	}
+
+	/**
+	 * Removes this entry, which must be present in its bin.  This is
+	 * messier than typical red-black deletion code because we cannot
+	 * swap the contents of an interior entry with a leaf successor
+	 * that is pinned by "next" pointers that are accessible
+	 * independently during traversal.  So instead we swap the tree
+	 * linkages.  If the current tree appears to have too few entries,
+	 * the bin is converted back to a plain bin.  (The test triggers
+	 * somewhere between 2 and 6 entries, depending on tree structure).
+	 */
+	final void removeTreeEntry(Entry[] tab, boolean movable) {
+	    int index = (hash & 0x7FFFFFFF) % tab.length;
+	    TreeEntry<K,V> first = (TreeEntry<K,V>)tab[index], root = first, rl;
+	    TreeEntry<K,V> succ = (TreeEntry<K,V>)next, pred = prev;
+	    if (pred == null)
+		tab[index] = first = succ;
+	    else
+		pred.next = succ;
+	    if (succ != null)
+		succ.prev = pred;
+	    if (first == null)
+		return;
+	    if (root.parent != null)
+		root = root.root();
+	    if (movable &&
+		(root.right == null ||
+		 (rl = root.left) == null ||
+		 rl.left == null)) {
+		tab[index] = first.untreeify();  // too small
+		return;
+	    }
+	    TreeEntry<K,V> p = this, pl = left, pr = right, replacement;
+	    if (pl != null && pr != null) {
+		TreeEntry<K,V> s = pr, sl;
+		while ((sl = s.left) != null) // find successor
+		    s = sl;
+		boolean c = s.red; s.red = p.red; p.red = c; // swap colors
+		TreeEntry<K,V> sr = s.right;
+		TreeEntry<K,V> pp = p.parent;
+		if (s == pr) { // p was s's direct parent
+		    p.parent = s;
+		    s.right = p;
+		}
+		else {
+		    TreeEntry<K,V> sp = s.parent;
+		    if ((p.parent = sp) != null) {
+			if (s == sp.left)
+			    sp.left = p;
+			else
+			    sp.right = p;
+		    }
+		    if ((s.right = pr) != null)
+			pr.parent = s;
+		}
+		p.left = null;
+		if ((p.right = sr) != null)
+		    sr.parent = p;
+		if ((s.left = pl) != null)
+		    pl.parent = s;
+		if ((s.parent = pp) == null)
+		    root = s;
+		else if (p == pp.left)
+		    pp.left = s;
+		else
+		    pp.right = s;
+		if (sr != null)
+		    replacement = sr;
+		else
+		    replacement = p;
+	    }
+	    else if (pl != null)
+		replacement = pl;
+	    else if (pr != null)
+		replacement = pr;
+	    else
+		replacement = p;
+	    if (replacement != p) {
+		TreeEntry<K,V> pp = replacement.parent = p.parent;
+		if (pp == null)
+		    (root = replacement).red = false;
+		else if (p == pp.left)
+		    pp.left = replacement;
+		else
+		    pp.right = replacement;
+		p.left = p.right = p.parent = null;
+	    }
+
+	    TreeEntry<K,V> r = p.red ? root : balanceDeletion(root, replacement);
+
+	    if (replacement == p) {  // detach
+		TreeEntry<K,V> pp = p.parent;
+		p.parent = null;
+		if (pp != null) {
+		    if (p == pp.left)
+			pp.left = null;
+		    else if (p == pp.right)
+			pp.right = null;
+		}
+	    }
+	    if (movable)
+		moveRootToFront(tab, r);
+	}
+
+	/* ------------------------------------------------------------ */
+	// Red-black tree methods, all adapted from CLR
+
+	static <K,V> TreeEntry<K,V> rotateLeft(TreeEntry<K,V> root,
+					       TreeEntry<K,V> p) {
+	    TreeEntry<K,V> r, pp, rl;
+	    if (p != null && (r = p.right) != null) {
+		if ((rl = p.right = r.left) != null)
+		    rl.parent = p;
+		if ((pp = r.parent = p.parent) == null)
+		    (root = r).red = false;
+		else if (pp.left == p)
+		    pp.left = r;
+		else
+		    pp.right = r;
+		r.left = p;
+		p.parent = r;
+	    }
+	    return root;
+	}
+
+	static <K,V> TreeEntry<K,V> rotateRight(TreeEntry<K,V> root,
+						TreeEntry<K,V> p) {
+	    TreeEntry<K,V> l, pp, lr;
+	    if (p != null && (l = p.left) != null) {
+		if ((lr = p.left = l.right) != null)
+		    lr.parent = p;
+		if ((pp = l.parent = p.parent) == null)
+		    (root = l).red = false;
+		else if (pp.right == p)
+		    pp.right = l;
+		else
+		    pp.left = l;
+		l.right = p;
+		p.parent = l;
+	    }
+	    return root;
+	}
+
+	static <K,V> TreeEntry<K,V> balanceInsertion(TreeEntry<K,V> root,
+						     TreeEntry<K,V> x) {
+	    x.red = true;
+	    for (TreeEntry<K,V> xp, xpp, xppl, xppr;;) {
+		if ((xp = x.parent) == null) {
+		    x.red = false;
+		    return x;
+		}
+		else if (!xp.red || (xpp = xp.parent) == null)
+		    return root;
+		if (xp == (xppl = xpp.left)) {
+		    if ((xppr = xpp.right) != null && xppr.red) {
+			xppr.red = false;
+			xp.red = false;
+			xpp.red = true;
+			x = xpp;
+		    }
+		    else {
+			if (x == xp.right) {
+			    root = rotateLeft(root, x = xp);
+			    xpp = (xp = x.parent) == null ? null : xp.parent;
+			}
+			if (xp != null) {
+			    xp.red = false;
+			    if (xpp != null) {
+				xpp.red = true;
+				root = rotateRight(root, xpp);
+			    }
+			}
+		    }
+		}
+		else {
+		    if (xppl != null && xppl.red) {
+			xppl.red = false;
+			xp.red = false;
+			xpp.red = true;
+			x = xpp;
+		    }
+		    else {
+			if (x == xp.left) {
+			    root = rotateRight(root, x = xp);
+			    xpp = (xp = x.parent) == null ? null : xp.parent;
+			}
+			if (xp != null) {
+			    xp.red = false;
+			    if (xpp != null) {
+				xpp.red = true;
+				root = rotateLeft(root, xpp);
+			    }
+			}
+		    }
+		}
+	    }
+	}
+
+	static <K,V> TreeEntry<K,V> balanceDeletion(TreeEntry<K,V> root,
+						    TreeEntry<K,V> x) {
+	    for (TreeEntry<K,V> xp, xpl, xpr;;) {
+		if (x == null || x == root)
+		    return root;
+		else if ((xp = x.parent) == null) {
+		    x.red = false;
+		    return x;
+		}
+		else if (x.red) {
+		    x.red = false;
+		    return root;
+		}
+		else if ((xpl = xp.left) == x) {
+		    if ((xpr = xp.right) != null && xpr.red) {
+			xpr.red = false;
+			xp.red = true;
+			root = rotateLeft(root, xp);
+			xpr = (xp = x.parent) == null ? null : xp.right;
+		    }
+		    if (xpr == null)
+			x = xp;
+		    else {
+			TreeEntry<K,V> sl = xpr.left, sr = xpr.right;
+			if ((sr == null || !sr.red) &&
+			    (sl == null || !sl.red)) {
+			    xpr.red = true;
+			    x = xp;
+			}
+			else {
+			    if (sr == null || !sr.red) {
+				if (sl != null)
+				    sl.red = false;
+				xpr.red = true;
+				root = rotateRight(root, xpr);
+				xpr = (xp = x.parent) == null ?
+				    null : xp.right;
+			    }
+			    if (xpr != null) {
+				xpr.red = (xp == null) ? false : xp.red;
+				if ((sr = xpr.right) != null)
+				    sr.red = false;
+			    }
+			    if (xp != null) {
+				xp.red = false;
+				root = rotateLeft(root, xp);
+			    }
+			    x = root;
+			}
+		    }
+		}
+		else { // symmetric
+		    if (xpl != null && xpl.red) {
+			xpl.red = false;
+			xp.red = true;
+			root = rotateRight(root, xp);
+			xpl = (xp = x.parent) == null ? null : xp.left;
+		    }
+		    if (xpl == null)
+			x = xp;
+		    else {
+			TreeEntry<K,V> sl = xpl.left, sr = xpl.right;
+			if ((sl == null || !sl.red) &&
+			    (sr == null || !sr.red)) {
+			    xpl.red = true;
+			    x = xp;
+			}
+			else {
+			    if (sl == null || !sl.red) {
+				if (sr != null)
+				    sr.red = false;
+				xpl.red = true;
+				root = rotateLeft(root, xpl);
+				xpl = (xp = x.parent) == null ?
+				    null : xp.left;
+			    }
+			    if (xpl != null) {
+				xpl.red = (xp == null) ? false : xp.red;
+				if ((sl = xpl.left) != null)
+				    sl.red = false;
+			    }
+			    if (xp != null) {
+				xp.red = false;
+				root = rotateRight(root, xp);
+			    }
+			    x = root;
+			}
+		    }
+		}
+	    }
+	}
+    }
+
     // Types of Enumerations/Iterations
     private static final int KEYS = 0;
     private static final int VALUES = 1;
@@ -1049,7 +1656,11 @@ public class Hashtable<K,V>
 		    if (e == lastReturned) {
 			modCount++;
 			expectedModCount++;
-			if (prev == null)
+			// Leave the bucket in place: the enumeration may
+			// still be walking its chain
+			if (e instanceof TreeEntry)
+			    ((TreeEntry<K,V>)e).removeTreeEntry(tab, false);
+			else if (prev == null)
 			    tab[index] = e.next;
 			else
 			    prev.next = e.next;
@@ -224,20 +224,6 @@ public class LinkedHashMap<K,V>
         header.before = header.after = header;
     }
 
-    /**
-     * Transfers all entries to new table array.  This method is called
-     * by superclass resize.  It is overridden for performance, as it is
-     * faster to iterate using our linked list.
-     */
-    void transfer(HashMap.Entry[] newTable) {
-        int newCapacity = newTable.length;
-        for (Entry<K,V> e = header.after; e != header; e = e.after) {
-            int index = indexFor(e.hash, newCapacity);
-            e.next = newTable[index];
-            newTable[index] = e;
-        }
-    }
-
 
     /**
      * Returns <tt>true</tt> if this map maps one or more keys to the
@@ -296,7 +282,7 @@ public class LinkedHashMap<K,V>
     /**
      * LinkedHashMap entry.
      */
-    private static class Entry<K,V> extends HashMap.Entry<K,V> {
+    static class Entry<K,V> extends HashMap.Entry<K,V> {
         // These fields comprise the doubly linked list used for iteration.
         Entry<K,V> before, after;
 
@@ -322,6 +308,16 @@ public class LinkedHashMap<K,V>
             after.before = this;
         }
 
+        /**
+         * Takes the place of the specified entry in the list.
+         */
+        private void replace(Entry<K,V> e) {
+            before = e.before;
+            after = e.after;
+            before.after = this;
+            after.before = this;
+        }
+
         /**
          * This method is invoked by the superclass whenever the value
          * of a pre-existing entry is read by Map.get or modified by Map.set.
@@ -363,7 +359,7 @@ public class LinkedHashMap<K,V>
 	    if (modCount != expectedModCount)
 		throw new ConcurrentModificationException();
 
-            LinkedHashMap.this.remove(lastReturned.key);
+            LinkedHashMap.this.removeEntryForKey(lastReturned.key, false);
             lastReturned = null;
             expectedModCount = modCount;
 	}
@@ -415,16 +411,39 @@ public class LinkedHashMap<K,V>
         }
     }
 
-    /**
-     * This override differs from addEntry in that it doesn't resize the
-     * table or remove the eldest entry.
+    /*
+     * These overrides of the superclass entry factories insert each new
+     * entry at the end of the linked list, and give the entries that
+     * replace others when a bin changes between list and tree form the
+     * same place in the list.
      */
-    void createEntry(int hash, K key, V value, int bucketIndex) {
-        HashMap.Entry<K,V> old = table[bucketIndex];
-	Entry<K,V> e = new Entry<K,V>(hash, key, value, old);
-        table[bucketIndex] = e;
+
+    HashMap.Entry<K,V> newEntry(int hash, K key, V value,
+                                HashMap.Entry<K,V> next) {
+        Entry<K,V> e = new Entry<K,V>(hash, key, value, next);
         e.addBefore(header);
-        size++;
+        return e;
+    }
+
+    TreeEntry<K,V> newTreeEntry(int hash, K key, V value,
+                                HashMap.Entry<K,V> next) {
+        TreeEntry<K,V> e = new TreeEntry<K,V>(hash, key, value, next);
+        ((Entry<K,V>)e).addBefore(header);
+        return e;
+    }
+
+    HashMap.Entry<K,V> replacementEntry(HashMap.Entry<K,V> p,
+                                        HashMap.Entry<K,V> next) {
+        Entry<K,V> e = new Entry<K,V>(p.hash, p.key, p.value, next);
+        e.replace((Entry<K,V>)p);
+        return e;
+    }
+
+    TreeEntry<K,V> replacementTreeEntry(HashMap.Entry<K,V> p,
+                                        HashMap.Entry<K,V> next) {
+        TreeEntry<K,V> e = new TreeEntry<K,V>(p.hash, p.key, p.value, next);
+        ((Entry<K,V>)e).replace((Entry<K,V>)p);
+        return e;
     }
 
     /**
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util;
+
+/**
+ * Resizable-array list of <tt>long</tt> values.  This class is the
+ * unboxed counterpart of <tt>ArrayList&lt;Long&gt;</tt>: the values
+ * are kept in a <tt>long[]</tt>, so a list of <i>n</i> values takes
+ * about <i>8n</i> bytes instead of an object reference plus a
+ * <tt>Long</tt> per value.
+ *
+ * <p>The primitive methods ({@link #getLong}, {@link #add(long)},
+ * {@link #set(int, long)}, {@link #removeLong}, {@link #indexOf(long)},
+ * ...) never box.  The class also implements <tt>List&lt;Long&gt;</tt>,
+ * so that a <tt>LongArrayList</tt> can be handed to any code or
+ * {@link Collections} method expecting a <tt>List</tt>; those methods
+ * box and unbox, and do not accept <tt>null</tt> elements.  Note that,
+ * as for any <tt>List&lt;Long&gt;</tt>, <tt>remove(int)</tt> removes
+ * by index.
+ *
+ * <p>The {@link #iterator} returns a {@link PrimitiveIterator.OfLong}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Like {@link ArrayList}, it must be synchronized externally if several
+ * threads access it concurrently and at least one of them modifies it,
+ * and its iterators are <i>fail-fast</i>.
+ *
+ * @see     ArrayList
+ * @see     IntArrayList
+ * @since   1.7
+ */
+public class LongArrayList extends AbstractList<Long>
+        implements RandomAccess, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = 5093172935236102641L;
+
+    /**
+     * The array buffer into which the values are stored.
+     */
+    private transient long[] elementData;
+
+    /**
+     * The number of values in the list.
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     *
+     * @param   initialCapacity   the initial capacity of the list
+     * @exception IllegalArgumentException if the specified initial capacity
+     *            is negative
+     */
+    public LongArrayList(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        this.elementData = new long[initialCapacity];
+    }
+
+    /**
+     * Constructs an empty list with an initial capacity of ten.
+     */
+    public LongArrayList() {
+        this(10);
+    }
+
+    /**
+     * Constructs a list containing a copy of the specified values.
+     *
+     * @param a the values to be placed into this list
+     * @throws NullPointerException if the specified array is null
+     */
+    public LongArrayList(long[] a) {
+        elementData = a.clone();
+        size = a.length;
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null or
+     *         contains a null element
+     */
+    public LongArrayList(Collection<? extends Long> c) {
+        this(c.size());
+        for (Long e : c)
+            add(e.longValue());
+    }
+
+    /**
+     * Trims the capacity of this list to be the list's current size.
+     */
+    public void trimToSize() {
+        modCount++;
+        if (size < elementData.length)
+            elementData = Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, to ensure that
+     * it can hold at least the number of values specified by the
+     * minimum capacity argument.
+     *
+     * @param   minCapacity   the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        modCount++;
+        int oldCapacity = elementData.length;
+        if (minCapacity > oldCapacity) {
+            int newCapacity = (oldCapacity * 3)/2 + 1;
+            if (newCapacity < minCapacity)
+                newCapacity = minCapacity;
+            elementData = Arrays.copyOf(elementData, newCapacity);
+        }
+    }
+
+    /**
+     * Returns the number of values in this list.
+     *
+     * @return the number of values in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this list contains no values.
+     *
+     * @return <tt>true</tt> if this list contains no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this list contains the specified value.
+     *
+     * @param value value whose presence in this list is to be tested
+     * @return <tt>true</tt> if this list contains the specified value
+     */
+    public boolean contains(long value) {
+        return indexOf(value) >= 0;
+    }
+
+    public boolean contains(Object o) {
+        return (o instanceof Long) && indexOf(((Long)o).longValue()) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified value
+     * in this list, or -1 if this list does not contain the value.
+     */
+    public int indexOf(long value) {
+        long[] a = elementData;
+        for (int i = 0; i < size; i++)
+            if (a[i] == value)
+                return i;
+        return -1;
+    }
+
+    public int indexOf(Object o) {
+        return (o instanceof Long) ? indexOf(((Long)o).longValue()) : -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified value
+     * in this list, or -1 if this list does not contain the value.
+     */
+    public int lastIndexOf(long value) {
+        long[] a = elementData;
+        for (int i = size-1; i >= 0; i--)
+            if (a[i] == value)
+                return i;
+        return -1;
+    }
+
+    public int lastIndexOf(Object o) {
+        return (o instanceof Long) ? lastIndexOf(((Long)o).longValue()) : -1;
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>LongArrayList</tt> instance.
+     *
+     * @return a clone of this <tt>LongArrayList</tt> instance
+     */
+    public Object clone() {
+        try {
+            LongArrayList v = (LongArrayList) super.clone();
+            v.elementData = Arrays.copyOf(elementData, size);
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * Returns an array containing all of the values in this list in
+     * proper sequence (from first to last value).
+     *
+     * @return a new array containing the values of this list
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    // Positional Access Operations
+
+    /**
+     * Returns the value at the specified position in this list.
+     *
+     * @param  index index of the value to return
+     * @return the value at the specified position in this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public long getLong(int index) {
+        RangeCheck(index);
+        return elementData[index];
+    }
+
+    public Long get(int index) {
+        return Long.valueOf(getLong(index));
+    }
+
+    /**
+     * Replaces the value at the specified position in this list with
+     * the specified value.
+     *
+     * @param index index of the value to replace
+     * @param value value to be stored at the specified position
+     * @return the value previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public long set(int index, long value) {
+        RangeCheck(index);
+        long oldValue = elementData[index];
+        elementData[index] = value;
+        return oldValue;
+    }
+
+    public Long set(int index, Long element) {
+        return Long.valueOf(set(index, element.longValue()));
+    }
+
+    /**
+     * Appends the specified value to the end of this list.
+     *
+     * @param value value to be appended to this list
+     * @return <tt>true</tt> (as specified by {@link Collection#add})
+     */
+    public boolean add(long value) {
+        ensureCapacity(size + 1);  // Increments modCount
+        elementData[size++] = value;
+        return true;
+    }
+
+    public boolean add(Long e) {
+        return add(e.longValue());
+    }
+
+    /**
+     * Inserts the specified value at the specified position in this
+     * list. Shifts the value currently at that position (if any) and
+     * any subsequent values to the right (adds one to their indices).
+     *
+     * @param index index at which the specified value is to be inserted
+     * @param value value to be inserted
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, long value) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(
+                "Index: "+index+", Size: "+size);
+
+        ensureCapacity(size+1);  // Increments modCount
+        System.arraycopy(elementData, index, elementData, index + 1,
+                         size - index);
+        elementData[index] = value;
+        size++;
+    }
+
+    public void add(int index, Long element) {
+        add(index, element.longValue());
+    }
+
+    /**
+     * Removes the value at the specified position in this list.
+     * Shifts any subsequent values to the left (subtracts one from their
+     * indices).
+     *
+     * @param index the index of the value to be removed
+     * @return the value that was removed from the list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public long removeLong(int index) {
+        RangeCheck(index);
+
+        modCount++;
+        long oldValue = elementData[index];
+        int numMoved = size - index - 1;
+        if (numMoved > 0)
+            System.arraycopy(elementData, index+1, elementData, index,
+                             numMoved);
+        size--;
+        return oldValue;
+    }
+
+    public Long remove(int index) {
+        return Long.valueOf(removeLong(index));
+    }
+
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0)
+            return false;
+        removeLong(index);
+        return true;
+    }
+
+    /**
+     * Removes all of the values from this list.  The list will be
+     * empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * Appends all of the values in the specified array to the end of
+     * this list, in order.
+     *
+     * @param a the values to be added to this list
+     * @return <tt>true</tt> if this list changed as a result of the call
+     * @throws NullPointerException if the specified array is null
+     */
+    public boolean addAll(long[] a) {
+        int numNew = a.length;
+        ensureCapacity(size + numNew);  // Increments modCount
+        System.arraycopy(a, 0, elementData, size, numNew);
+        size += numNew;
+        return numNew != 0;
+    }
+
+    /**
+     * Removes from this list all of the values whose index is between
+     * <tt>fromIndex</tt>, inclusive, and <tt>toIndex</tt>, exclusive.
+     *
+     * @param fromIndex index of first value to be removed
+     * @param toIndex index after last value to be removed
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        int numMoved = size - toIndex;
+        System.arraycopy(elementData, toIndex, elementData, fromIndex,
+                         numMoved);
+        size -= (toIndex-fromIndex);
+    }
+
+    /**
+     * Sorts the values of this list into ascending numerical order.
+     */
+    public void sort() {
+        modCount++;
+        Arrays.sort(elementData, 0, size);
+    }
+
+    /**
+     * Check if the given index is in range.  If not, throw an appropriate
+     * runtime exception.
+     */
+    private void RangeCheck(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException(
+                "Index: "+index+", Size: "+size);
+    }
+
+    /**
+     * Returns an iterator over the values in this list in proper
+     * sequence.  Its {@link PrimitiveIterator.OfLong#nextLong nextLong}
+     * method does not box.
+     *
+     * @return an iterator over the values in this list
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new Itr();
+    }
+
+    private class Itr implements PrimitiveIterator.OfLong {
+        int cursor;                 // index of next value to return
+        int lastRet = -1;           // index of last value returned; -1 if no such
+        int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public long nextLong() {
+            checkForComodification();
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            cursor = i + 1;
+            return elementData[lastRet = i];
+        }
+
+        public Long next() {
+            return Long.valueOf(nextLong());
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+            removeLong(lastRet);
+            cursor = lastRet;
+            lastRet = -1;
+            expectedModCount = modCount;
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Compares the specified object with this list for equality, as
+     * specified by {@link List#equals}.
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongArrayList))
+            return super.equals(o);
+        LongArrayList other = (LongArrayList) o;
+        if (other.size != size)
+            return false;
+        long[] a = elementData, b = other.elementData;
+        for (int i = 0; i < size; i++)
+            if (a[i] != b[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this list, as specified by
+     * {@link List#hashCode}.
+     */
+    public int hashCode() {
+        int hashCode = 1;
+        long[] a = elementData;
+        for (int i = 0; i < size; i++) {
+            long v = a[i];
+            hashCode = 31*hashCode + (int)(v ^ (v >>> 32));
+        }
+        return hashCode;
+    }
+
+    /**
+     * Save the state of the <tt>LongArrayList</tt> instance to a stream
+     * (that is, serialize it).
+     *
+     * @serialData The length of the array backing the list is
+     *             emitted (int), followed by all of its values
+     *             (each a <tt>long</tt>) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+
+        s.writeInt(elementData.length);
+        for (int i = 0; i < size; i++)
+            s.writeLong(elementData[i]);
+
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Reconstitute the <tt>LongArrayList</tt> instance from a stream (that
+     * is, deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        int arrayLength = s.readInt();
+        long[] a = elementData = new long[Math.max(arrayLength, size)];
+        for (int i = 0; i < size; i++)
+            a[i] = s.readLong();
+    }
+}
@@ -0,0 +1,771 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util;
+
+/**
+ * Hash table mapping <tt>long</tt> keys to <tt>long</tt> values.  This
+ * class is the unboxed counterpart of
+ * <tt>HashMap&lt;Long,Long&gt;</tt>: keys and values are kept in
+ * two parallel <tt>long</tt> arrays with open addressing and linear
+ * probing, so a mapping takes from 16 to about 21 bytes (depending on how
+ * recently the table was resized) instead of an <tt>Entry</tt> object
+ * and two <tt>Long</tt> objects.  Lookups touch one or two adjacent
+ * array slots and never allocate.
+ *
+ * <p>The primitive methods ({@link #get(long)}, {@link #put(long, long)},
+ * {@link #remove(long)}, {@link #addTo}, ...) never box.  Since they
+ * cannot return <tt>null</tt>, they return <tt>0</tt> where the
+ * corresponding <tt>Map</tt> method returns <tt>null</tt>; use
+ * {@link #containsKey(long)} or {@link #get(long, long)} when a
+ * mapping to <tt>0</tt> must be told apart from no mapping.  The class
+ * also implements <tt>Map&lt;Long,Long&gt;</tt>, so that it can be
+ * handed to any code expecting a <tt>Map</tt>; those methods box and
+ * unbox, and do not accept <tt>null</tt> keys or values.  The iterators
+ * of the {@link #keySet} and {@link #values} views are
+ * {@link PrimitiveIterator.OfLong}s.
+ *
+ * <p>The table is kept at most 3/4 full and doubles when that load is
+ * reached.  Removal shifts the following entries of the probe sequence
+ * back, so that no deleted markers accumulate.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Like {@link HashMap}, it must be synchronized externally if several
+ * threads access it concurrently and at least one of them modifies it
+ * structurally, and its iterators are <i>fail-fast</i>.
+ *
+ * @see     HashMap
+ * @see     IntHashMap
+ * @see     LongObjectMap
+ * @since   1.7
+ */
+public class LongHashMap extends AbstractMap<Long,Long>
+    implements Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = -2624395176914340567L;
+
+    /**
+     * The default number of mappings the map can hold without resizing.
+     */
+    static final int DEFAULT_EXPECTED_SIZE = 12;
+
+    /**
+     * The smallest table length; must be a power of two.
+     */
+    static final int MINIMUM_CAPACITY = 4;
+
+    /**
+     * The largest table length; must be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The keys, indexed by {@link #mix} of the key; 0 marks a free slot.
+     * The length is always a power of two.
+     */
+    private transient long[] keys;
+
+    /**
+     * The values, parallel to {@link #keys}.
+     */
+    private transient long[] vals;
+
+    /**
+     * Whether the key 0, which cannot be stored in {@link #keys}, is
+     * mapped, and to what.
+     */
+    private transient boolean hasZeroKey;
+    private transient long zeroValue;
+
+    /**
+     * The number of mappings, including the one for key 0.
+     */
+    private transient int size;
+
+    /**
+     * The size at which the table is doubled.
+     */
+    private transient int threshold;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    private transient volatile int modCount;
+
+    /**
+     * Constructs an empty map able to hold the given number of mappings
+     * without resizing.
+     *
+     * @param  expectedSize the expected number of mappings
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public LongHashMap(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal expected size: " +
+                                               expectedSize);
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Constructs an empty map.
+     */
+    public LongHashMap() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * Constructs a map with the same mappings as the specified map.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null or
+     *          contains a null key or value
+     */
+    public LongHashMap(Map<? extends Long, ? extends Long> m) {
+        this(m.size());
+        for (Map.Entry<? extends Long, ? extends Long> e : m.entrySet())
+            put(e.getKey().longValue(), e.getValue().longValue());
+    }
+
+    /**
+     * Spreads the bits of a key so that consecutive keys, and keys that
+     * differ only in their high bits, land in different slots.
+     */
+    static int mix(long x) {
+        long h = x * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int)(h ^ (h >>> 16));
+    }
+
+    /**
+     * Returns the table length needed to hold the given number of
+     * mappings below the load threshold.
+     */
+    static int tableSizeFor(int expectedSize) {
+        long needed = (long)expectedSize + expectedSize / 3 + 1;
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < needed && capacity < MAXIMUM_CAPACITY)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        vals = new long[capacity];
+        // A full-size table must keep a free slot to end probe sequences
+        threshold = (capacity == MAXIMUM_CAPACITY) ?
+            capacity - 1 : capacity - (capacity >>> 2);
+    }
+
+    /**
+     * Doubles the table and reinserts the keys.
+     */
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = vals;
+        int oldCapacity = oldKeys.length;
+        if (oldCapacity == MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Map is full");
+
+        allocate(oldCapacity << 1);
+        long[] k = keys;
+        long[] v = vals;
+        int mask = k.length - 1;
+        for (int j = 0; j < oldCapacity; j++) {
+            long key = oldKeys[j];
+            if (key != 0) {
+                int i = mix(key) & mask;
+                while (k[i] != 0)
+                    i = (i + 1) & mask;
+                k[i] = key;
+                v[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of the given non-zero key, or -1 if it is absent.
+     */
+    private int slotOf(long key) {
+        long[] k = keys;
+        int mask = k.length - 1;
+        int i = mix(key) & mask;
+        for (long cur; (cur = k[i]) != 0; i = (i + 1) & mask) {
+            if (cur == key)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a new mapping for a non-zero key into the free slot
+     * <tt>i</tt> at the end of its probe sequence, first resizing if
+     * the table is at its threshold.
+     */
+    private void insert(int i, long key, long value) {
+        if (size >= threshold) {
+            resize();
+            int mask = keys.length - 1;
+            i = mix(key) & mask;
+            while (keys[i] != 0)
+                i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        vals[i] = value;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Removes the entry at slot <tt>pos</tt>, moving back the entries
+     * that follow it in the probe sequence so that they remain
+     * reachable.  An entry moved from the start of the table to its end
+     * would be missed by an iterator sweeping the table downwards, so
+     * it is handed to that iterator.
+     */
+    private void shiftKeys(int pos, HashIterator it) {
+        long[] k = keys;
+        long[] v = vals;
+        int mask = k.length - 1;
+        for (;;) {
+            int last = pos;
+            long cur;
+            for (;;) {
+                pos = (pos + 1) & mask;
+                if ((cur = k[pos]) == 0) {
+                    k[last] = 0;
+                    return;
+                }
+                int slot = mix(cur) & mask;
+                // Move cur unless its home slot lies cyclically in (last, pos]
+                if (last <= pos ? (last >= slot || slot > pos)
+                                : (last >= slot && slot > pos))
+                    break;
+            }
+            if (pos < last && it != null)
+                it.addWrapped(cur);
+            k[last] = cur;
+            v[last] = v[pos];
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * <tt>0</tt> if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value mapped to the key, or <tt>0</tt>
+     */
+    public long get(long key) {
+        return get(key, 0);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * <tt>defaultValue</tt> if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key is not mapped
+     * @return the value mapped to the key, or <tt>defaultValue</tt>
+     */
+    public long get(long key, long defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+        int i = slotOf(key);
+        return (i >= 0) ? vals[i] : defaultValue;
+    }
+
+    public Long get(Object key) {
+        if (!(key instanceof Long))
+            return null;
+        long k = ((Long)key).longValue();
+        if (k == 0)
+            return hasZeroKey ? Long.valueOf(zeroValue) : null;
+        int i = slotOf(k);
+        return (i >= 0) ? Long.valueOf(vals[i]) : null;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == 0) ? hasZeroKey : slotOf(key) >= 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) && containsKey(((Long)key).longValue());
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.  This takes time linear in the table length.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         value
+     */
+    public boolean containsValue(long value) {
+        if (hasZeroKey && zeroValue == value)
+            return true;
+        long[] k = keys;
+        long[] v = vals;
+        for (int i = k.length; i-- > 0; )
+            if (k[i] != 0 && v[i] == value)
+                return true;
+        return false;
+    }
+
+    public boolean containsValue(Object value) {
+        return (value instanceof Long) &&
+            containsValue(((Long)value).longValue());
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>0</tt> if there was no mapping for <tt>key</tt>
+     * @throws IllegalStateException if the table cannot grow any further
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            long old = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+                modCount++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        long[] k = keys;
+        int mask = k.length - 1;
+        int i = mix(key) & mask;
+        for (long cur; (cur = k[i]) != 0; i = (i + 1) & mask) {
+            if (cur == key) {
+                long old = vals[i];
+                vals[i] = value;
+                return old;
+            }
+        }
+        insert(i, key, value);
+        return 0;
+    }
+
+    public Long put(Long key, Long value) {
+        long k = key.longValue();
+        long v = value.longValue();
+        if (containsKey(k))
+            return Long.valueOf(put(k, v));
+        put(k, v);
+        return null;
+    }
+
+    /**
+     * Adds <tt>delta</tt> to the value mapped to the specified key,
+     * treating an absent key as mapped to <tt>0</tt>.  This is the
+     * unboxed form of the usual counting idiom and probes the table
+     * only once.
+     *
+     * @param key the key whose value is to be incremented
+     * @param delta the amount to add
+     * @return the new value mapped to the key
+     * @throws IllegalStateException if the table cannot grow any further
+     */
+    public long addTo(long key, long delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+                modCount++;
+            }
+            return zeroValue += delta;
+        }
+        long[] k = keys;
+        int mask = k.length - 1;
+        int i = mix(key) & mask;
+        for (long cur; (cur = k[i]) != 0; i = (i + 1) & mask) {
+            if (cur == key)
+                return vals[i] += delta;
+        }
+        insert(i, key, delta);
+        return delta;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>0</tt> if there was no mapping for <tt>key</tt>
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return 0;
+            long old = zeroValue;
+            hasZeroKey = false;
+            zeroValue = 0;
+            size--;
+            modCount++;
+            return old;
+        }
+        int i = slotOf(key);
+        if (i < 0)
+            return 0;
+        long old = vals[i];
+        shiftKeys(i, null);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    public Long remove(Object key) {
+        if (!(key instanceof Long))
+            return null;
+        long k = ((Long)key).longValue();
+        if (!containsKey(k))
+            return null;
+        return Long.valueOf(remove(k));
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The table keeps its
+     * current length.
+     */
+    public void clear() {
+        modCount++;
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        zeroValue = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>LongHashMap</tt> instance.
+     *
+     * @return a copy of this map
+     */
+    public Object clone() {
+        LongHashMap result = null;
+        try {
+            result = (LongHashMap)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // assert false;
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Returns the hash code value for this map, as specified by
+     * {@link Map#hashCode}.
+     */
+    public int hashCode() {
+        int h = hasZeroKey ? (int)(zeroValue ^ (zeroValue >>> 32)) : 0;
+        long[] k = keys;
+        long[] v = vals;
+        for (int i = k.length; i-- > 0; )
+            if (k[i] != 0)
+                h += (int)(k[i] ^ (k[i] >>> 32)) ^ (int)(v[i] ^ (v[i] >>> 32));
+        return h;
+    }
+
+    /**
+     * Sweeps the table from its last slot down to slot 0, after
+     * returning the mapping for key 0 if present, then returns the
+     * entries that {@link #shiftKeys} moved from the start of the table
+     * to its end during the sweep.
+     */
+    private abstract class HashIterator {
+        int pos = keys.length;      // slot of the last key returned by the sweep
+        int remaining = size;       // number of keys left to return
+        boolean mustReturnZeroKey = hasZeroKey;
+        LongArrayList wrapped;       // keys moved behind the sweep
+        int lastSlot = -1;          // slot of last key returned, or -1
+        long lastKey;                // last key returned
+        boolean canRemove;
+        int expectedModCount = modCount;
+
+        public final boolean hasNext() {
+            return remaining != 0;
+        }
+
+        final long nextKey() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining == 0)
+                throw new NoSuchElementException();
+            remaining--;
+            canRemove = true;
+            lastSlot = -1;
+            if (mustReturnZeroKey) {
+                mustReturnZeroKey = false;
+                return lastKey = 0;
+            }
+            long[] k = keys;
+            for (;;) {
+                if (--pos < 0)
+                    return lastKey = wrapped.getLong(-pos - 1);
+                if (k[pos] != 0)
+                    return lastKey = k[lastSlot = pos];
+            }
+        }
+
+        final long lastValue() {
+            return (lastSlot >= 0) ? vals[lastSlot] : get(lastKey);
+        }
+
+        final void addWrapped(long key) {
+            if (wrapped == null)
+                wrapped = new LongArrayList(2);
+            wrapped.add(key);
+        }
+
+        public final void remove() {
+            if (!canRemove)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            canRemove = false;
+            if (lastSlot >= 0) {
+                shiftKeys(lastSlot, this);
+                size--;
+                modCount++;
+            } else {
+                LongHashMap.this.remove(lastKey);
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public long nextLong() {
+            return nextKey();
+        }
+        public Long next() {
+            return Long.valueOf(nextKey());
+        }
+    }
+
+    private final class ValueIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public long nextLong() {
+            nextKey();
+            return lastValue();
+        }
+        public Long next() {
+            return Long.valueOf(nextLong());
+        }
+    }
+
+    private final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<Long,Long>> {
+        public Map.Entry<Long,Long> next() {
+            long key = nextKey();
+            return new Entry(key, lastValue());
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys of this map; equivalent to
+     * <tt>keySet().iterator()</tt>.
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return new KeyIterator();
+    }
+
+    /**
+     * Returns an iterator over the values of this map, in the order of
+     * {@link #keyIterator}; equivalent to <tt>values().iterator()</tt>.
+     */
+    public PrimitiveIterator.OfLong valueIterator() {
+        return new ValueIterator();
+    }
+
+    /**
+     * A map entry whose <tt>setValue</tt> writes through to the map.
+     */
+    private final class Entry extends AbstractMap.SimpleEntry<Long,Long> {
+        private static final long serialVersionUID = 6380429203215187713L;
+
+        Entry(long key, long value) {
+            super(Long.valueOf(key), Long.valueOf(value));
+        }
+
+        public Long setValue(Long value) {
+            LongHashMap.this.put(getKey().longValue(), value.longValue());
+            return super.setValue(value);
+        }
+    }
+
+    // Views
+
+    private transient Set<Map.Entry<Long,Long>> entrySet = null;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, and supports element removal but
+     * not addition.  Its iterator is a {@link PrimitiveIterator.OfLong}.
+     */
+    public Set<Long> keySet() {
+        Set<Long> ks = keySet;
+        return (ks != null ? ks : (keySet = new KeySet()));
+    }
+
+    private final class KeySet extends AbstractSet<Long> {
+        public PrimitiveIterator.OfLong iterator() {
+            return new KeyIterator();
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+        public boolean remove(Object o) {
+            return LongHashMap.this.remove(o) != null;
+        }
+        public void clear() {
+            LongHashMap.this.clear();
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map.  The collection is backed by the map, and supports element
+     * removal but not addition.  Its iterator is a
+     * {@link PrimitiveIterator.OfLong}.
+     */
+    public Collection<Long> values() {
+        Collection<Long> vs = values;
+        return (vs != null ? vs : (values = new Values()));
+    }
+
+    private final class Values extends AbstractCollection<Long> {
+        public PrimitiveIterator.OfLong iterator() {
+            return new ValueIterator();
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+        public void clear() {
+            LongHashMap.this.clear();
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, and supports element removal but
+     * not addition.  Each entry returned by its iterator is a fresh
+     * object whose <tt>setValue</tt> writes through to the map.
+     */
+    public Set<Map.Entry<Long,Long>> entrySet() {
+        Set<Map.Entry<Long,Long>> es = entrySet;
+        return (es != null ? es : (entrySet = new EntrySet()));
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<Long,Long>> {
+        public Iterator<Map.Entry<Long,Long>> iterator() {
+            return new EntryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry e = (Map.Entry)o;
+            Object k = e.getKey();
+            Object v = e.getValue();
+            return (v instanceof Long) && containsKey(k) &&
+                get(k).equals(v);
+        }
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            LongHashMap.this.remove(((Map.Entry)o).getKey());
+            return true;
+        }
+        public int size() {
+            return size;
+        }
+        public void clear() {
+            LongHashMap.this.clear();
+        }
+    }
+
+    /**
+     * Save the state of the <tt>LongHashMap</tt> instance to a stream
+     * (i.e., serialize it).
+     *
+     * @serialData The number of key-value mappings (an <tt>int</tt>),
+     *             followed by the key (a <tt>long</tt>) and value (a
+     *             <tt>long</tt>) of each mapping, in no particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException
+    {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (hasZeroKey) {
+            s.writeLong(0);
+            s.writeLong(zeroValue);
+        }
+        long[] k = keys;
+        long[] v = vals;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != 0) {
+                s.writeLong(k[i]);
+                s.writeLong(v[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the <tt>LongHashMap</tt> instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException
+    {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + n);
+        allocate(tableSizeFor(n));
+        for (int i = 0; i < n; i++) {
+            long key = s.readLong();
+            put(key, s.readLong());
+        }
+    }
+}
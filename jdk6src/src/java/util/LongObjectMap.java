@@ -0,0 +1,711 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util;
+
+/**
+ * Hash table mapping <tt>long</tt> keys to object values.  This class is
+ * the counterpart of <tt>HashMap&lt;Long,V&gt;</tt> with unboxed keys:
+ * keys and values are kept in two parallel arrays with open addressing
+ * and linear probing, so a mapping takes from 12 to about 16 bytes (with
+ * compressed references; depending on how recently the table was
+ * resized) besides the value itself, instead of an <tt>Entry</tt> object
+ * and a <tt>Long</tt> object.  Lookups never allocate.
+ *
+ * <p>The primitive-key methods ({@link #get(long)},
+ * {@link #put(long, Object)}, {@link #remove(long)}, ...) never box.  The
+ * class also implements <tt>Map&lt;Long,V&gt;</tt>, so that it can be
+ * handed to any code expecting a <tt>Map</tt>; those methods box the
+ * keys, and do not accept <tt>null</tt> keys.  <tt>null</tt> values are
+ * permitted.  The iterator of the {@link #keySet} view is a
+ * {@link PrimitiveIterator.OfLong}.
+ *
+ * <p>The table is kept at most 3/4 full and doubles when that load is
+ * reached.  Removal shifts the following entries of the probe sequence
+ * back, so that no deleted markers accumulate.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Like {@link HashMap}, it must be synchronized externally if several
+ * threads access it concurrently and at least one of them modifies it
+ * structurally, and its iterators are <i>fail-fast</i>.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     IntHashMap
+ * @see     LongHashMap
+ * @since   1.7
+ */
+public class LongObjectMap<V> extends AbstractMap<Long,V>
+    implements Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = -5166826212419838209L;
+
+    /**
+     * The default number of mappings the map can hold without resizing.
+     */
+    static final int DEFAULT_EXPECTED_SIZE = 12;
+
+    /**
+     * The smallest table length; must be a power of two.
+     */
+    static final int MINIMUM_CAPACITY = 4;
+
+    /**
+     * The largest table length; must be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The keys, indexed by {@link #mix} of the key; 0 marks a free slot.
+     * The length is always a power of two.
+     */
+    private transient long[] keys;
+
+    /**
+     * The values, parallel to {@link #keys}.
+     */
+    private transient Object[] vals;
+
+    /**
+     * Whether the key 0, which cannot be stored in {@link #keys}, is
+     * mapped, and to what.
+     */
+    private transient boolean hasZeroKey;
+    private transient V zeroValue;
+
+    /**
+     * The number of mappings, including the one for key 0.
+     */
+    private transient int size;
+
+    /**
+     * The size at which the table is doubled.
+     */
+    private transient int threshold;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    private transient volatile int modCount;
+
+    /**
+     * Constructs an empty map able to hold the given number of mappings
+     * without resizing.
+     *
+     * @param  expectedSize the expected number of mappings
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public LongObjectMap(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal expected size: " +
+                                               expectedSize);
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Constructs an empty map.
+     */
+    public LongObjectMap() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * Constructs a map with the same mappings as the specified map.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null or
+     *          contains a null key
+     */
+    public LongObjectMap(Map<? extends Long, ? extends V> m) {
+        this(m.size());
+        for (Map.Entry<? extends Long, ? extends V> e : m.entrySet())
+            put(e.getKey().longValue(), e.getValue());
+    }
+
+    /**
+     * Spreads the bits of a key so that consecutive keys, and keys that
+     * differ only in their high bits, land in different slots.
+     */
+    static int mix(long x) {
+        long h = x * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int)(h ^ (h >>> 16));
+    }
+
+    /**
+     * Returns the table length needed to hold the given number of
+     * mappings below the load threshold.
+     */
+    static int tableSizeFor(int expectedSize) {
+        long needed = (long)expectedSize + expectedSize / 3 + 1;
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < needed && capacity < MAXIMUM_CAPACITY)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        vals = new Object[capacity];
+        // A full-size table must keep a free slot to end probe sequences
+        threshold = (capacity == MAXIMUM_CAPACITY) ?
+            capacity - 1 : capacity - (capacity >>> 2);
+    }
+
+    /**
+     * Doubles the table and reinserts the keys.
+     */
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = vals;
+        int oldCapacity = oldKeys.length;
+        if (oldCapacity == MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Map is full");
+
+        allocate(oldCapacity << 1);
+        long[] k = keys;
+        Object[] v = vals;
+        int mask = k.length - 1;
+        for (int j = 0; j < oldCapacity; j++) {
+            long key = oldKeys[j];
+            if (key != 0) {
+                int i = mix(key) & mask;
+                while (k[i] != 0)
+                    i = (i + 1) & mask;
+                k[i] = key;
+                v[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of the given non-zero key, or -1 if it is absent.
+     */
+    private int slotOf(long key) {
+        long[] k = keys;
+        int mask = k.length - 1;
+        int i = mix(key) & mask;
+        for (long cur; (cur = k[i]) != 0; i = (i + 1) & mask) {
+            if (cur == key)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a new mapping for a non-zero key into the free slot
+     * <tt>i</tt> at the end of its probe sequence, first resizing if
+     * the table is at its threshold.
+     */
+    private void insert(int i, long key, V value) {
+        if (size >= threshold) {
+            resize();
+            int mask = keys.length - 1;
+            i = mix(key) & mask;
+            while (keys[i] != 0)
+                i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        vals[i] = value;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Removes the entry at slot <tt>pos</tt>, moving back the entries
+     * that follow it in the probe sequence so that they remain
+     * reachable.  An entry moved from the start of the table to its end
+     * would be missed by an iterator sweeping the table downwards, so
+     * it is handed to that iterator.
+     */
+    private void shiftKeys(int pos, HashIterator it) {
+        long[] k = keys;
+        Object[] v = vals;
+        int mask = k.length - 1;
+        for (;;) {
+            int last = pos;
+            long cur;
+            for (;;) {
+                pos = (pos + 1) & mask;
+                if ((cur = k[pos]) == 0) {
+                    k[last] = 0;
+                    v[last] = null;
+                    return;
+                }
+                int slot = mix(cur) & mask;
+                // Move cur unless its home slot lies cyclically in (last, pos]
+                if (last <= pos ? (last >= slot || slot > pos)
+                                : (last >= slot && slot > pos))
+                    break;
+            }
+            if (pos < last && it != null)
+                it.addWrapped(cur);
+            k[last] = cur;
+            v[last] = v[pos];
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * <tt>null</tt> if this map contains no mapping for the key.  A
+     * return value of <tt>null</tt> may also mean that the key is
+     * mapped to <tt>null</tt>; use {@link #containsKey(long)} to tell
+     * the two cases apart.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value mapped to the key, or <tt>null</tt>
+     */
+    public V get(long key) {
+        if (key == 0)
+            return zeroValue;
+        int i = slotOf(key);
+        return (i >= 0) ? valueAt(i) : null;
+    }
+
+    public V get(Object key) {
+        return (key instanceof Long) ? get(((Long)key).longValue()) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int i) {
+        return (V)vals[i];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == 0) ? hasZeroKey : slotOf(key) >= 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) && containsKey(((Long)key).longValue());
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.  This takes time linear in the table length.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         value
+     */
+    public boolean containsValue(Object value) {
+        if (hasZeroKey && eq(zeroValue, value))
+            return true;
+        long[] k = keys;
+        Object[] v = vals;
+        for (int i = k.length; i-- > 0; )
+            if (k[i] != 0 && eq(v[i], value))
+                return true;
+        return false;
+    }
+
+    private static boolean eq(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>
+     * @throws IllegalStateException if the table cannot grow any further
+     */
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+                modCount++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        long[] k = keys;
+        int mask = k.length - 1;
+        int i = mix(key) & mask;
+        for (long cur; (cur = k[i]) != 0; i = (i + 1) & mask) {
+            if (cur == key) {
+                V old = valueAt(i);
+                vals[i] = value;
+                return old;
+            }
+        }
+        insert(i, key, value);
+        return null;
+    }
+
+    public V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>
+     */
+    public V remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return null;
+            V old = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            modCount++;
+            return old;
+        }
+        int i = slotOf(key);
+        if (i < 0)
+            return null;
+        V old = valueAt(i);
+        shiftKeys(i, null);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    public V remove(Object key) {
+        return (key instanceof Long) ? remove(((Long)key).longValue()) : null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The table keeps its
+     * current length.
+     */
+    public void clear() {
+        modCount++;
+        Arrays.fill(keys, 0);
+        Arrays.fill(vals, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>LongObjectMap</tt> instance: the
+     * values themselves are not cloned.
+     *
+     * @return a copy of this map
+     */
+    public Object clone() {
+        LongObjectMap<V> result = null;
+        try {
+            result = (LongObjectMap<V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // assert false;
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Returns the hash code value for this map, as specified by
+     * {@link Map#hashCode}.
+     */
+    public int hashCode() {
+        int h = (hasZeroKey && zeroValue != null) ? zeroValue.hashCode() : 0;
+        long[] k = keys;
+        Object[] v = vals;
+        for (int i = k.length; i-- > 0; ) {
+            long key = k[i];
+            if (key != 0)
+                h += (int)(key ^ (key >>> 32)) ^
+                    (v[i] == null ? 0 : v[i].hashCode());
+        }
+        return h;
+    }
+
+    /**
+     * Sweeps the table from its last slot down to slot 0, after
+     * returning the mapping for key 0 if present, then returns the
+     * entries that {@link #shiftKeys} moved from the start of the table
+     * to its end during the sweep.
+     */
+    private abstract class HashIterator {
+        int pos = keys.length;      // slot of the last key returned by the sweep
+        int remaining = size;       // number of keys left to return
+        boolean mustReturnZeroKey = hasZeroKey;
+        LongArrayList wrapped;      // keys moved behind the sweep
+        int lastSlot = -1;          // slot of last key returned, or -1
+        long lastKey;               // last key returned
+        boolean canRemove;
+        int expectedModCount = modCount;
+
+        public final boolean hasNext() {
+            return remaining != 0;
+        }
+
+        final long nextKey() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining == 0)
+                throw new NoSuchElementException();
+            remaining--;
+            canRemove = true;
+            lastSlot = -1;
+            if (mustReturnZeroKey) {
+                mustReturnZeroKey = false;
+                return lastKey = 0;
+            }
+            long[] k = keys;
+            for (;;) {
+                if (--pos < 0)
+                    return lastKey = wrapped.getLong(-pos - 1);
+                if (k[pos] != 0)
+                    return lastKey = k[lastSlot = pos];
+            }
+        }
+
+        final V lastValue() {
+            return (lastSlot >= 0) ? valueAt(lastSlot) : get(lastKey);
+        }
+
+        final void addWrapped(long key) {
+            if (wrapped == null)
+                wrapped = new LongArrayList(2);
+            wrapped.add(key);
+        }
+
+        public final void remove() {
+            if (!canRemove)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            canRemove = false;
+            if (lastSlot >= 0) {
+                shiftKeys(lastSlot, this);
+                size--;
+                modCount++;
+            } else {
+                LongObjectMap.this.remove(lastKey);
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public long nextLong() {
+            return nextKey();
+        }
+        public Long next() {
+            return Long.valueOf(nextKey());
+        }
+    }
+
+    private final class ValueIterator extends HashIterator
+        implements Iterator<V> {
+        public V next() {
+            nextKey();
+            return lastValue();
+        }
+    }
+
+    private final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<Long,V>> {
+        public Map.Entry<Long,V> next() {
+            long key = nextKey();
+            return new Entry(key, lastValue());
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys of this map; equivalent to
+     * <tt>keySet().iterator()</tt>.
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return new KeyIterator();
+    }
+
+    /**
+     * A map entry whose <tt>setValue</tt> writes through to the map.
+     */
+    private final class Entry extends AbstractMap.SimpleEntry<Long,V> {
+        private static final long serialVersionUID = 2927342715218650133L;
+
+        Entry(long key, V value) {
+            super(Long.valueOf(key), value);
+        }
+
+        public V setValue(V value) {
+            LongObjectMap.this.put(getKey().longValue(), value);
+            return super.setValue(value);
+        }
+    }
+
+    // Views
+
+    private transient Set<Map.Entry<Long,V>> entrySet = null;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, and supports element removal but
+     * not addition.  Its iterator is a {@link PrimitiveIterator.OfLong}.
+     */
+    public Set<Long> keySet() {
+        Set<Long> ks = keySet;
+        return (ks != null ? ks : (keySet = new KeySet()));
+    }
+
+    private final class KeySet extends AbstractSet<Long> {
+        public PrimitiveIterator.OfLong iterator() {
+            return new KeyIterator();
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+        public boolean remove(Object o) {
+            if (!containsKey(o))
+                return false;
+            LongObjectMap.this.remove(o);
+            return true;
+        }
+        public void clear() {
+            LongObjectMap.this.clear();
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map.  The collection is backed by the map, and supports element
+     * removal but not addition.
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        return (vs != null ? vs : (values = new Values()));
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+        public void clear() {
+            LongObjectMap.this.clear();
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, and supports element removal but
+     * not addition.  Each entry returned by its iterator is a fresh
+     * object whose <tt>setValue</tt> writes through to the map.
+     */
+    public Set<Map.Entry<Long,V>> entrySet() {
+        Set<Map.Entry<Long,V>> es = entrySet;
+        return (es != null ? es : (entrySet = new EntrySet()));
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<Long,V>> {
+        public Iterator<Map.Entry<Long,V>> iterator() {
+            return new EntryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry e = (Map.Entry)o;
+            Object k = e.getKey();
+            return containsKey(k) && eq(get(k), e.getValue());
+        }
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            LongObjectMap.this.remove(((Map.Entry)o).getKey());
+            return true;
+        }
+        public int size() {
+            return size;
+        }
+        public void clear() {
+            LongObjectMap.this.clear();
+        }
+    }
+
+    /**
+     * Save the state of the <tt>LongObjectMap</tt> instance to a stream
+     * (i.e., serialize it).
+     *
+     * @serialData The number of key-value mappings (an <tt>int</tt>),
+     *             followed by the key (a <tt>long</tt>) and value (an
+     *             Object) of each mapping, in no particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException
+    {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (hasZeroKey) {
+            s.writeLong(0);
+            s.writeObject(zeroValue);
+        }
+        long[] k = keys;
+        Object[] v = vals;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != 0) {
+                s.writeLong(k[i]);
+                s.writeObject(v[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the <tt>LongObjectMap</tt> instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException
+    {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + n);
+        allocate(tableSizeFor(n));
+        for (int i = 0; i < n; i++) {
+            long key = s.readLong();
+            put(key, (V)s.readObject());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Converts keys or values of a {@link MappedSortedMap} or
+ * {@link MappedHashMap} to and from their byte representation in the
+ * mapped file.  A codec whose {@link #fixedSize} is not negative writes
+ * every value in exactly that many bytes, and the records of a map built
+ * with fixed-size codecs carry no length prefixes; otherwise each value
+ * is preceded by its length.
+ *
+ * <p>Codecs are stateless and are used concurrently by all the readers
+ * of a map; the buffers passed to them are private to the call.
+ *
+ * @param <T> the type of the values converted by this codec
+ * @see MappedSortedMap
+ * @see MappedHashMap
+ * @since 1.7
+ */
+public abstract class MappedCodec<T> {
+
+    /**
+     * Sole constructor.  (For invocation by subclass constructors.)
+     */
+    protected MappedCodec() {
+    }
+
+    /**
+     * Returns the number of bytes taken by every value of this codec, or
+     * <tt>-1</tt> if values have varying lengths.  The default
+     * implementation returns <tt>-1</tt>.
+     *
+     * @return the width of a value in bytes, or <tt>-1</tt>
+     */
+    public int fixedSize() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of bytes that {@link #write} will put for the
+     * given value.
+     *
+     * @param value the value, never <tt>null</tt>
+     * @return its length in bytes
+     */
+    public abstract int sizeOf(T value);
+
+    /**
+     * Puts the given value at the position of the buffer, advancing the
+     * position by exactly {@link #sizeOf sizeOf(value)} bytes.
+     *
+     * @param value the value, never <tt>null</tt>
+     * @param buf the buffer, with at least that many bytes remaining
+     */
+    public abstract void write(T value, ByteBuffer buf);
+
+    /**
+     * Reads a value of the given length from the position of the buffer.
+     *
+     * @param buf the buffer
+     * @param size the length of the value in bytes
+     * @return the value
+     */
+    public abstract T read(ByteBuffer buf, int size);
+
+    /**
+     * Returns the hash code of a key of a {@link MappedHashMap}.  The
+     * hash code is stored in the file, so it must be the same in every
+     * run of the virtual machine, and must be consistent with
+     * {@link #equals(Object,Object) equals}.  The default implementation
+     * returns <tt>value.hashCode()</tt>, which suits <tt>String</tt>,
+     * <tt>Long</tt> and <tt>Integer</tt>; a codec for keys that inherit
+     * the identity hash code of <tt>Object</tt> must override this
+     * method and {@link #equals(Object,Object) equals}.
+     *
+     * @param value the value, never <tt>null</tt>
+     * @return its hash code
+     * @throws IllegalArgumentException if the value is an array, whose
+     *         hash code is its identity
+     */
+    public int hashCode(T value) {
+        if (value.getClass().isArray())
+            throw new IllegalArgumentException(
+                "Arrays need a codec that overrides hashCode and equals");
+        return value.hashCode();
+    }
+
+    /**
+     * Returns <tt>true</tt> if two keys of a {@link MappedHashMap} are
+     * equal.  The default implementation returns <tt>a.equals(b)</tt>.
+     *
+     * @param a a value, never <tt>null</tt>
+     * @param b a value, never <tt>null</tt>
+     * @return whether they are equal
+     */
+    public boolean equals(T a, T b) {
+        return a.equals(b);
+    }
+
+    /**
+     * A codec for <tt>Long</tt> values, eight bytes wide.
+     */
+    public static final MappedCodec<Long> LONG = new MappedCodec<Long>() {
+        public int fixedSize() {
+            return 8;
+        }
+        public int sizeOf(Long value) {
+            return 8;
+        }
+        public void write(Long value, ByteBuffer buf) {
+            buf.putLong(value.longValue());
+        }
+        public Long read(ByteBuffer buf, int size) {
+            return Long.valueOf(buf.getLong());
+        }
+    };
+
+    /**
+     * A codec for <tt>Integer</tt> values, four bytes wide.
+     */
+    public static final MappedCodec<Integer> INTEGER =
+        new MappedCodec<Integer>() {
+        public int fixedSize() {
+            return 4;
+        }
+        public int sizeOf(Integer value) {
+            return 4;
+        }
+        public void write(Integer value, ByteBuffer buf) {
+            buf.putInt(value.intValue());
+        }
+        public Integer read(ByteBuffer buf, int size) {
+            return Integer.valueOf(buf.getInt());
+        }
+    };
+
+    /**
+     * A codec for <tt>String</tt> values, encoded in UTF-8.
+     */
+    public static final MappedCodec<String> STRING =
+        new MappedCodec<String>() {
+        private final Charset utf8 = Charset.forName("UTF-8");
+        public int sizeOf(String value) {
+            return value.getBytes(utf8).length;
+        }
+        public void write(String value, ByteBuffer buf) {
+            buf.put(value.getBytes(utf8));
+        }
+        public String read(ByteBuffer buf, int size) {
+            if (buf.hasArray()) {
+                int pos = buf.position();
+                buf.position(pos + size);
+                return new String(buf.array(), buf.arrayOffset() + pos,
+                                  size, utf8);
+            }
+            byte[] b = new byte[size];
+            buf.get(b);
+            return new String(b, 0, size, utf8);
+        }
+    };
+
+    /**
+     * A codec for byte arrays, stored as they are.  Byte arrays have no
+     * natural ordering, so this codec is meant for values, for the keys
+     * of a sorted map given a comparator, or for the keys of a hash map,
+     * which it hashes and compares by content.
+     */
+    public static final MappedCodec<byte[]> BYTES =
+        new MappedCodec<byte[]>() {
+        public int sizeOf(byte[] value) {
+            return value.length;
+        }
+        public int hashCode(byte[] value) {
+            return Arrays.hashCode(value);
+        }
+        public boolean equals(byte[] a, byte[] b) {
+            return Arrays.equals(a, b);
+        }
+        public void write(byte[] value, ByteBuffer buf) {
+            buf.put(value);
+        }
+        public byte[] read(ByteBuffer buf, int size) {
+            byte[] b = new byte[size];
+            buf.get(b);
+            return b;
+        }
+    };
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The file of a {@link MappedSortedMap} or {@link MappedHashMap}, mapped
+ * into memory as a sequence of segments of at most 1GB each, since a
+ * single <tt>MappedByteBuffer</tt> cannot address more than 2GB.
+ *
+ * <p>The first page of the file is a header, followed by the records,
+ * followed by a page-aligned index whose layout depends on the map.  A
+ * record is the key followed by the value, each preceded by its length
+ * as an <tt>int</tt> unless its codec is of fixed size.  No record and
+ * no index slot crosses a segment boundary, so every access is a single
+ * absolute get on one segment.  All values are big-endian.
+ *
+ * <p>Once opened, a mapped file is only read, so it may be shared by any
+ * number of threads without synchronization.
+ */
+final class MappedFile implements Closeable {
+
+    /**
+     * The size of the header, and the alignment of the index.
+     */
+    static final int PAGE_SIZE = 4096;
+
+    /**
+     * Segments are 1 << SEGMENT_SHIFT bytes long, except for the last.
+     */
+    static final int SEGMENT_SHIFT = 30;
+    static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = (int)SEGMENT_SIZE - 1;
+
+    /**
+     * The version of the file layout.
+     */
+    static final int VERSION = 1;
+
+    // Header fields, at these positions of the first page
+    private static final int MAGIC = 0;          // int: kind of map
+    private static final int FORMAT = 4;         // int: VERSION
+    private static final int COUNT = 8;          // long: number of entries
+    private static final int INDEX = 16;         // long: position of index
+    private static final int INDEX_LENGTH = 24;  // long: number of slots
+    private static final int KEY_SIZE = 32;      // int: fixed key size or -1
+    private static final int VALUE_SIZE = 36;    // int: same for values
+
+    private final RandomAccessFile file;
+    private final long length;
+    private MappedByteBuffer[] segments;
+
+    private MappedFile(RandomAccessFile file, FileChannel.MapMode mode)
+        throws IOException
+    {
+        FileChannel ch = file.getChannel();
+        long len = ch.size();
+        int n = (int)((len + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] segs = new MappedByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            long base = (long)i << SEGMENT_SHIFT;
+            segs[i] = ch.map(mode, base, Math.min(SEGMENT_SIZE, len - base));
+        }
+        this.file = file;
+        this.length = len;
+        this.segments = segs;
+    }
+
+    /**
+     * Maps an existing file for reading, checking that it was written
+     * for the given kind of map, with codecs of the same widths.
+     *
+     * @param f the file
+     * @param magic the kind of map
+     * @param slotSize the size of an index slot in bytes
+     * @param kc the key codec
+     * @param vc the value codec
+     * @throws IOException if the file cannot be read or is not a map of
+     *         that kind
+     */
+    static MappedFile open(File f, int magic, int slotSize,
+                           MappedCodec<?> kc, MappedCodec<?> vc)
+        throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        boolean ok = false;
+        try {
+            if (raf.length() < PAGE_SIZE)
+                throw new IOException(f + ": not a mapped map file");
+            MappedFile m = new MappedFile(raf, FileChannel.MapMode.READ_ONLY);
+            if (m.getInt(MAGIC) != magic)
+                throw new IOException(f + ": not a mapped map file");
+            if (m.getInt(FORMAT) != VERSION)
+                throw new IOException(f + ": unsupported version " +
+                                      m.getInt(FORMAT));
+            if (m.getInt(KEY_SIZE) != kc.fixedSize() ||
+                m.getInt(VALUE_SIZE) != vc.fixedSize())
+                throw new IOException(f + ": written with other codecs");
+            long count = m.count(), index = m.index();
+            long slots = m.indexLength();
+            if (count < 0 || count > Integer.MAX_VALUE ||
+                index < PAGE_SIZE || (index & (PAGE_SIZE - 1)) != 0 ||
+                slots < 0 || index + slots * slotSize > m.length)
+                throw new IOException(f + ": corrupt header");
+            ok = true;
+            return m;
+        } finally {
+            if (!ok)
+                raf.close();
+        }
+    }
+
+    long count()       { return getLong(COUNT); }
+    long index()       { return getLong(INDEX); }
+    long indexLength() { return getLong(INDEX_LENGTH); }
+
+    private MappedByteBuffer segment(long pos) {
+        MappedByteBuffer[] segs = segments;
+        if (segs == null)
+            throw new IllegalStateException("Mapped file closed");
+        return segs[(int)(pos >>> SEGMENT_SHIFT)];
+    }
+
+    int getInt(long pos) {
+        return segment(pos).getInt((int)pos & SEGMENT_MASK);
+    }
+
+    long getLong(long pos) {
+        return segment(pos).getLong((int)pos & SEGMENT_MASK);
+    }
+
+    void putInt(long pos, int value) {
+        segment(pos).putInt((int)pos & SEGMENT_MASK, value);
+    }
+
+    void putLong(long pos, long value) {
+        segment(pos).putLong((int)pos & SEGMENT_MASK, value);
+    }
+
+    /**
+     * Returns a buffer over the segment holding the given position,
+     * positioned there.  The buffer is private to the caller.
+     */
+    ByteBuffer buffer(long pos) {
+        ByteBuffer b = segment(pos).duplicate();
+        b.position((int)pos & SEGMENT_MASK);
+        return b;
+    }
+
+    /**
+     * Reads a key or value at the position of the buffer, leaving the
+     * buffer positioned after it.
+     */
+    static <T> T read(ByteBuffer b, MappedCodec<T> codec) {
+        int size = codec.fixedSize();
+        if (size < 0)
+            size = b.getInt();
+        int end = b.position() + size;
+        b.limit(end);
+        T value = codec.read(b, size);
+        b.limit(b.capacity());
+        b.position(end);
+        return value;
+    }
+
+    /**
+     * Skips the key or value at the position of the buffer.
+     */
+    static void skip(ByteBuffer b, MappedCodec<?> codec) {
+        int size = codec.fixedSize();
+        if (size < 0)
+            size = b.getInt();
+        b.position(b.position() + size);
+    }
+
+    /**
+     * Reads the key of the record at the given position.
+     */
+    <K> K readKey(long pos, MappedCodec<K> kc) {
+        return read(buffer(pos), kc);
+    }
+
+    /**
+     * Reads the value of the record at the given position.
+     */
+    <V> V readValue(long pos, MappedCodec<?> kc, MappedCodec<V> vc) {
+        ByteBuffer b = buffer(pos);
+        skip(b, kc);
+        return read(b, vc);
+    }
+
+    /**
+     * Reads the record at the given position as an immutable entry.
+     */
+    <K,V> Map.Entry<K,V> readEntry(long pos, MappedCodec<K> kc,
+                                   MappedCodec<V> vc) {
+        ByteBuffer b = buffer(pos);
+        K key = read(b, kc);
+        return new AbstractMap.SimpleImmutableEntry<K,V>(key, read(b, vc));
+    }
+
+    /**
+     * Asks the operating system to bring the whole file into memory.
+     */
+    void load() {
+        MappedByteBuffer[] segs = segments;
+        if (segs == null)
+            throw new IllegalStateException("Mapped file closed");
+        for (int i = 0; i < segs.length; i++)
+            segs[i].load();
+    }
+
+    /**
+     * Forces the index and header of a file being written to storage,
+     * then marks it as a valid map of the given kind.  The magic number
+     * is written last, so that a file whose writing was interrupted is
+     * never opened.
+     */
+    void seal(int magic) {
+        for (int i = 0; i < segments.length; i++)
+            segments[i].force();
+        putInt(MAGIC, magic);
+        segments[0].force();
+    }
+
+    /**
+     * Closes the file.  The mappings are released when their buffers
+     * are garbage collected.
+     */
+    public void close() throws IOException {
+        segments = null;
+        file.close();
+    }
+
+    /**
+     * Appends the records of a new map to a file, then maps the file for
+     * writing so that the caller can fill in the index.
+     *
+     * <p>The map is written to a temporary file in the directory of the
+     * target, which {@link #commit} renames over the target.  A map still
+     * open on the old file keeps reading the old contents, and a failed
+     * write leaves the target as it was.
+     */
+    static final class Writer<K,V> implements Closeable {
+        private final File target;
+        private final File temp;
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final MappedCodec<K> keyCodec;
+        private final MappedCodec<V> valueCodec;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+        private long flushed = PAGE_SIZE; // file position of buf's start
+        private boolean committed;
+
+        Writer(File f, MappedCodec<K> kc, MappedCodec<V> vc)
+            throws IOException
+        {
+            File dir = f.getAbsoluteFile().getParentFile();
+            target = f;
+            temp = File.createTempFile(f.getName() + ".new", null, dir);
+            try {
+                file = new RandomAccessFile(temp, "rw");
+            } catch (IOException e) {
+                temp.delete();
+                throw e;
+            }
+            channel = file.getChannel();
+            keyCodec = kc;
+            valueCodec = vc;
+        }
+
+        private static <T> int sizeOf(MappedCodec<T> codec, T value) {
+            int size = codec.sizeOf(value);
+            int fixed = codec.fixedSize();
+            if (fixed < 0)
+                return size + 4;
+            if (size != fixed)
+                throw new IllegalArgumentException(
+                    "Size " + size + " of " + value + " is not " + fixed);
+            return size;
+        }
+
+        private static <T> void put(ByteBuffer b, MappedCodec<T> codec,
+                                    T value, int size) {
+            if (codec.fixedSize() < 0) {
+                size -= 4;
+                b.putInt(size);
+            }
+            int end = b.position() + size;
+            codec.write(value, b);
+            if (b.position() != end)
+                throw new IllegalArgumentException(
+                    "Codec did not write " + size + " bytes for " + value);
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining())
+                flushed += channel.write(buf, flushed);
+            buf.clear();
+        }
+
+        /**
+         * Appends a record, returning its position.
+         */
+        long append(K key, V value) throws IOException {
+            int ks = sizeOf(keyCodec, key), vs = sizeOf(valueCodec, value);
+            long len = (long)ks + vs;
+            if (len > SEGMENT_SIZE)
+                throw new IllegalArgumentException("Record too large");
+            long pos = flushed + buf.position();
+            if ((pos & SEGMENT_MASK) + len > SEGMENT_SIZE) {
+                // Start the record on the next segment; the gap stays a hole
+                flush();
+                flushed = pos = (pos + SEGMENT_SIZE) & ~(SEGMENT_SIZE - 1);
+            }
+            ByteBuffer b = buf;
+            if (len > b.remaining()) {
+                flush();
+                if (len > b.capacity())
+                    b = ByteBuffer.allocate((int)len);
+            }
+            put(b, keyCodec, key, ks);
+            put(b, valueCodec, value, vs);
+            if (b != buf) {
+                b.flip();
+                while (b.hasRemaining())
+                    flushed += channel.write(b, flushed);
+            }
+            return pos;
+        }
+
+        /**
+         * Ends the records and maps the file, with room for an index of
+         * the given number of slots, for writing.  The header is filled
+         * in except for its magic number; the caller writes the index,
+         * then calls {@link MappedFile#seal}.
+         */
+        MappedFile finish(long count, long indexLength, int slotSize)
+            throws IOException
+        {
+            flush();
+            long index = (flushed + PAGE_SIZE - 1) & ~(long)(PAGE_SIZE - 1);
+            file.setLength(index + indexLength * slotSize);
+            MappedFile m = new MappedFile(file, FileChannel.MapMode.READ_WRITE);
+            m.putInt(FORMAT, VERSION);
+            m.putLong(COUNT, count);
+            m.putLong(INDEX, index);
+            m.putLong(INDEX_LENGTH, indexLength);
+            m.putInt(KEY_SIZE, keyCodec.fixedSize());
+            m.putInt(VALUE_SIZE, valueCodec.fixedSize());
+            return m;
+        }
+
+        /**
+         * Closes the sealed file and renames it over the target.
+         *
+         * @throws IOException if the target cannot be replaced
+         */
+        void commit() throws IOException {
+            file.close();
+            if (!temp.renameTo(target)) {
+                // Some platforms do not rename over an existing file
+                if (!target.delete() || !temp.renameTo(target))
+                    throw new IOException("Cannot replace " + target);
+            }
+            committed = true;
+        }
+
+        /**
+         * Closes the file, deleting it unless it was committed.
+         */
+        public void close() throws IOException {
+            if (!committed) {
+                file.close();
+                temp.delete();
+            }
+        }
+    }
+}
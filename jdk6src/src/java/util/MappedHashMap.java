@@ -0,0 +1,346 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A read-only hash index kept off the Java heap in a memory-mapped file.
+ * The map is written once by {@link #create create}, and can then be
+ * reopened by {@link #open open} at any later time, which maps the file
+ * but reads nothing else from it, so opening takes the same time whatever
+ * the size of the map.  Keys and values are decoded by
+ * {@link MappedCodec codecs} only when they are accessed.
+ *
+ * <p>The file holds the records one after the other, followed by a
+ * page-aligned open-addressed table of slots, each holding the hash code
+ * of a key and the position of its record, probed linearly from the
+ * hash.  The table is at most three quarters full, so a lookup usually
+ * reads one or two slots and decodes only the key it finds.  The map may
+ * hold up to <tt>Integer.MAX_VALUE</tt> entries.
+ *
+ * <p>Keys are hashed and compared by the
+ * {@link MappedCodec#hashCode(Object) hashCode} and
+ * {@link MappedCodec#equals(Object,Object) equals} methods of the key
+ * codec.  Since the hash codes are stored in the file, they must not
+ * change from one run of the virtual machine to the next.  The default
+ * methods use the keys' own <tt>hashCode</tt> and <tt>equals</tt>, which
+ * suits <tt>String</tt>, <tt>Long</tt> and <tt>Integer</tt>, and reject
+ * arrays; {@link MappedCodec#BYTES} hashes byte arrays by content.  Keys
+ * that inherit the identity hash code of <tt>Object</tt> need a codec
+ * that overrides both methods.  Neither keys nor values may be
+ * <tt>null</tt>.
+ *
+ * <p>The methods that would modify the map throw
+ * <tt>UnsupportedOperationException</tt>, and the entries returned are
+ * snapshots that do not support <tt>setValue</tt>.  Since it is never
+ * modified, a mapped map may be read by any number of threads without
+ * synchronization, and its iterators, which return the entries in no
+ * particular order, never throw <tt>ConcurrentModificationException</tt>.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see MappedSortedMap
+ * @see HashMap
+ * @since 1.7
+ */
+public class MappedHashMap<K,V> extends AbstractMap<K,V> implements Closeable {
+
+    /**
+     * Identifies the files of hash maps.
+     */
+    private static final int MAGIC = 0x4d484d31; // "MHM1"
+
+    /**
+     * The size of a slot: the hash code as an int, four unused bytes,
+     * and the position of the record as a long, zero for an empty slot.
+     */
+    private static final int SLOT_SIZE = 16;
+
+    private final MappedFile file;
+    private final MappedCodec<K> keyCodec;
+    private final MappedCodec<V> valueCodec;
+    private final long index;
+    private final long mask;
+    private final int size;
+
+    private MappedHashMap(MappedFile file, MappedCodec<K> keyCodec,
+                          MappedCodec<V> valueCodec) {
+        this.file = file;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.index = file.index();
+        this.mask = file.indexLength() - 1;
+        this.size = (int)file.count();
+    }
+
+    /**
+     * Opens a map.
+     *
+     * @param file the file of the map
+     * @param keyCodec the codec the map was created with for its keys
+     * @param valueCodec the codec the map was created with for its values
+     * @return the map
+     * @throws IOException if the file cannot be mapped, or was not
+     *         written by {@link #create create} with codecs of the same
+     *         widths
+     */
+    public static <K,V> MappedHashMap<K,V> open(File file,
+                                                MappedCodec<K> keyCodec,
+                                                MappedCodec<V> valueCodec)
+        throws IOException
+    {
+        MappedFile f = MappedFile.open(file, MAGIC, SLOT_SIZE,
+                                       keyCodec, valueCodec);
+        long slots = f.indexLength();
+        if (slots < 2 || (slots & (slots - 1)) != 0 || slots <= f.count()) {
+            f.close();
+            throw new IOException(file + ": corrupt header");
+        }
+        return new MappedHashMap<K,V>(f, keyCodec, valueCodec);
+    }
+
+    /**
+     * Writes the mappings of the given map to a file, replacing its
+     * contents, and opens the result.
+     *
+     * @param file the file to write
+     * @param map the mappings
+     * @param keyCodec the codec for the keys
+     * @param valueCodec the codec for the values
+     * @return the new map
+     * @throws IOException if the file cannot be written
+     * @throws NullPointerException if a key or value is <tt>null</tt>
+     */
+    public static <K,V> MappedHashMap<K,V> create(File file,
+                                                  Map<? extends K,? extends V> map,
+                                                  MappedCodec<K> keyCodec,
+                                                  MappedCodec<V> valueCodec)
+        throws IOException
+    {
+        return create(file, map.entrySet().iterator(), keyCodec, valueCodec);
+    }
+
+    /**
+     * Writes the given mappings to a file, replacing its contents, and
+     * opens the result.  The entries are read once, and only the hash
+     * code and position of each record are kept on the heap while
+     * writing, so the mappings may be streamed from a source much larger
+     * than the heap.
+     *
+     * @param file the file to write
+     * @param entries the mappings
+     * @param keyCodec the codec for the keys
+     * @param valueCodec the codec for the values
+     * @return the new map
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if two entries have equal keys, or
+     *         a codec does not write the size it announced
+     * @throws NullPointerException if a key or value is <tt>null</tt>
+     */
+    public static <K,V> MappedHashMap<K,V> create(
+            File file,
+            Iterator<? extends Map.Entry<? extends K,? extends V>> entries,
+            MappedCodec<K> keyCodec, MappedCodec<V> valueCodec)
+        throws IOException
+    {
+        MappedFile.Writer<K,V> w =
+            new MappedFile.Writer<K,V>(file, keyCodec, valueCodec);
+        try {
+            IntArrayList hashes = new IntArrayList();
+            LongArrayList offsets = new LongArrayList();
+            while (entries.hasNext()) {
+                Map.Entry<? extends K,? extends V> e = entries.next();
+                K key = e.getKey();
+                V value = e.getValue();
+                if (key == null || value == null)
+                    throw new NullPointerException();
+                hashes.add(hash(keyCodec.hashCode(key)));
+                offsets.add(w.append(key, value));
+            }
+            int n = offsets.size();
+            long capacity = 2;
+            while (capacity * 3 < (long)n * 4 + 3)
+                capacity <<= 1;
+            MappedFile f = w.finish(n, capacity, SLOT_SIZE);
+            long index = f.index();
+            for (int i = 0; i < n; i++) {
+                int h = hashes.getInt(i);
+                long off = offsets.getLong(i);
+                K key = null;
+                for (long j = h & (capacity - 1); ;
+                     j = (j + 1) & (capacity - 1)) {
+                    long slot = index + (j << 4);
+                    long o = f.getLong(slot + 8);
+                    if (o == 0) {
+                        f.putInt(slot, h);
+                        f.putLong(slot + 8, off);
+                        break;
+                    }
+                    if (f.getInt(slot) == h) {
+                        if (key == null)
+                            key = f.readKey(off, keyCodec);
+                        if (keyCodec.equals(key, f.readKey(o, keyCodec)))
+                            throw new IllegalArgumentException(
+                                "Duplicate key " + key);
+                    }
+                }
+            }
+            f.seal(MAGIC);
+            w.commit();
+        } finally {
+            w.close();
+        }
+        return open(file, keyCodec, valueCodec);
+    }
+
+    /**
+     * Spreads the bits of a hash code as HashMap does.  The result is
+     * stored in the file, so this function must never change.
+     */
+    static int hash(int h) {
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    /**
+     * Returns the position of the record for the given key, or zero.
+     */
+    @SuppressWarnings("unchecked")
+    private long find(Object o) {
+        if (o == null)
+            throw new NullPointerException();
+        K key = (K)o;
+        int h = hash(keyCodec.hashCode(key));
+        for (long j = h & mask; ; j = (j + 1) & mask) {
+            long slot = index + (j << 4);
+            long off = file.getLong(slot + 8);
+            if (off == 0)
+                return 0;
+            if (file.getInt(slot) == h &&
+                keyCodec.equals(key, file.readKey(off, keyCodec)))
+                return off;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @throws ClassCastException if the specified key is not of a type
+     *         the key codec accepts
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return find(key) != 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * <tt>null</tt> if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key is not of a type
+     *         the key codec accepts
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        long off = find(key);
+        return (off == 0) ? null : file.readValue(off, keyCodec, valueCodec);
+    }
+
+    /**
+     * Asks the operating system to bring the whole file of the map into
+     * physical memory, so that the first accesses to each page do not
+     * wait for it to be read.  This takes time proportional to the size
+     * of the file, and is never required.
+     *
+     * @throws IllegalStateException if the map has been closed
+     */
+    public void load() {
+        file.load();
+    }
+
+    /**
+     * Closes the file of this map, which can no longer be used.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException {
+        file.close();
+    }
+
+    // Views
+
+    private transient Set<Map.Entry<K,V>> entrySet = null;
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet());
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        private long slot = -1;   // index of the next full slot, or mask + 1
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            while (++slot <= mask &&
+                   file.getLong(index + (slot << 4) + 8) == 0)
+                ;
+        }
+
+        public boolean hasNext() {
+            return slot <= mask;
+        }
+
+        public Map.Entry<K,V> next() {
+            if (slot > mask)
+                throw new NoSuchElementException();
+            long off = file.getLong(index + (slot << 4) + 8);
+            advance();
+            return file.readEntry(off, keyCodec, valueCodec);
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry e = (Map.Entry)o;
+            Object key = e.getKey(), value = e.getValue();
+            if (key == null || value == null)
+                return false;
+            long off = find(key);
+            return off != 0 &&
+                value.equals(file.readValue(off, keyCodec, valueCodec));
+        }
+        public int size() {
+            return size;
+        }
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,769 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A read-only {@link NavigableMap} kept off the Java heap in a
+ * memory-mapped file.  The map is written once, from entries in
+ * ascending key order, by {@link #create create}; it can then be reopened
+ * by {@link #open open} at any later time, which maps the file but reads
+ * nothing else from it, so opening takes the same time whatever the size
+ * of the map.  Keys and values are decoded by {@link MappedCodec codecs}
+ * only when they are accessed, and occupy neither the heap nor the
+ * garbage collector between accesses.
+ *
+ * <p>The file holds the records one after the other, followed by a
+ * page-aligned index of the position of each record in key order.  Key
+ * lookups are binary searches of the index, taking <i>log(n)</i>
+ * comparisons, each of which decodes one key.  The map may hold up to
+ * <tt>Integer.MAX_VALUE</tt> entries, and has no limit on the size of
+ * the file other than that of the address space.
+ *
+ * <p>The ordering of the keys is not recorded in the file: a map must be
+ * opened with the comparator it was created with, or with none if it was
+ * created using natural ordering.  Neither keys nor values may be
+ * <tt>null</tt>.
+ *
+ * <p>All the views of the map, including the submaps and the descending
+ * map, are backed by the same mapping and are themselves instances of
+ * this class.  As for <tt>TreeMap</tt>, a submap behaves as if it did
+ * not contain the keys outside its range, and its own submaps must lie
+ * within that range.  The methods that would
+ * modify the map, including <tt>pollFirstEntry</tt> and
+ * <tt>pollLastEntry</tt>, throw <tt>UnsupportedOperationException</tt>.
+ * The entries returned are snapshots that do not support
+ * <tt>setValue</tt>.
+ *
+ * <p>Since it is never modified, a mapped map may be read by any number of
+ * threads without synchronization.  Its iterators never throw
+ * <tt>ConcurrentModificationException</tt>.  Once {@link #close closed},
+ * the map and all its views throw <tt>IllegalStateException</tt>.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see MappedHashMap
+ * @see TreeMap
+ * @since 1.7
+ */
+public class MappedSortedMap<K,V> extends AbstractMap<K,V>
+    implements NavigableMap<K,V>, Closeable
+{
+    /**
+     * Identifies the files of sorted maps.
+     */
+    private static final int MAGIC = 0x4d534d31; // "MSM1"
+
+    /**
+     * The size of an index slot: the position of a record.
+     */
+    private static final int SLOT_SIZE = 8;
+
+    private final MappedFile file;
+    private final MappedCodec<K> keyCodec;
+    private final MappedCodec<V> valueCodec;
+    private final Comparator<? super K> comparator;
+    private final long index;
+
+    /**
+     * The range of the index covered by this view, and its direction.
+     */
+    private final int lo, hi;
+    private final boolean descending;
+
+    /**
+     * The key bounds of this view, in ascending order, as for
+     * TreeMap.NavigableSubMap.  The index range holds the entries
+     * within them; the keys themselves check the arguments of subMap,
+     * headMap and tailMap.
+     */
+    private final boolean fromStart, toEnd;
+    private final K loKey, hiKey;
+    private final boolean loInclusive, hiInclusive;
+
+    private MappedSortedMap(MappedFile file, MappedCodec<K> keyCodec,
+                            MappedCodec<V> valueCodec,
+                            Comparator<? super K> comparator,
+                            int lo, int hi, boolean descending,
+                            boolean fromStart, K loKey, boolean loInclusive,
+                            boolean toEnd, K hiKey, boolean hiInclusive) {
+        this.file = file;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.comparator = comparator;
+        this.index = file.index();
+        this.lo = lo;
+        this.hi = hi;
+        this.descending = descending;
+        this.fromStart = fromStart;
+        this.loKey = loKey;
+        this.loInclusive = loInclusive;
+        this.toEnd = toEnd;
+        this.hiKey = hiKey;
+        this.hiInclusive = hiInclusive;
+    }
+
+    /**
+     * Opens a map created with natural ordering of its keys.
+     *
+     * @param file the file of the map
+     * @param keyCodec the codec the map was created with for its keys
+     * @param valueCodec the codec the map was created with for its values
+     * @return the map
+     * @throws IOException if the file cannot be mapped, or was not
+     *         written by {@link #create create} with codecs of the same
+     *         widths
+     */
+    public static <K,V> MappedSortedMap<K,V> open(File file,
+                                                  MappedCodec<K> keyCodec,
+                                                  MappedCodec<V> valueCodec)
+        throws IOException
+    {
+        return open(file, keyCodec, valueCodec, null);
+    }
+
+    /**
+     * Opens a map created with the given comparator.
+     *
+     * @param file the file of the map
+     * @param keyCodec the codec the map was created with for its keys
+     * @param valueCodec the codec the map was created with for its values
+     * @param comparator the comparator the map was created with, or
+     *        <tt>null</tt> for the natural ordering of the keys
+     * @return the map
+     * @throws IOException if the file cannot be mapped, or was not
+     *         written by {@link #create create} with codecs of the same
+     *         widths
+     */
+    public static <K,V> MappedSortedMap<K,V> open(File file,
+                                                  MappedCodec<K> keyCodec,
+                                                  MappedCodec<V> valueCodec,
+                                                  Comparator<? super K> comparator)
+        throws IOException
+    {
+        MappedFile f = MappedFile.open(file, MAGIC, SLOT_SIZE,
+                                       keyCodec, valueCodec);
+        int size = (int)f.count();
+        if (f.indexLength() != size) {
+            f.close();
+            throw new IOException(file + ": corrupt header");
+        }
+        return new MappedSortedMap<K,V>(f, keyCodec, valueCodec, comparator,
+                                        0, size, false,
+                                        true, null, false, true, null, false);
+    }
+
+    /**
+     * Writes the mappings of the given sorted map to a file, replacing
+     * its contents, and opens the result with the comparator of the map.
+     *
+     * @param file the file to write
+     * @param map the mappings
+     * @param keyCodec the codec for the keys
+     * @param valueCodec the codec for the values
+     * @return the new map
+     * @throws IOException if the file cannot be written
+     * @throws NullPointerException if a key or value is <tt>null</tt>
+     */
+    public static <K,V> MappedSortedMap<K,V> create(File file,
+                                                    SortedMap<K,? extends V> map,
+                                                    MappedCodec<K> keyCodec,
+                                                    MappedCodec<V> valueCodec)
+        throws IOException
+    {
+        return create(file, map.entrySet().iterator(), keyCodec, valueCodec,
+                      map.comparator());
+    }
+
+    /**
+     * Writes the given mappings to a file, replacing its contents, and
+     * opens the result.  The entries are read once, in order, and only
+     * the position of each record is kept on the heap while writing, so
+     * the mappings may be streamed from a source much larger than the
+     * heap.
+     *
+     * @param file the file to write
+     * @param entries the mappings, in strictly ascending key order
+     * @param keyCodec the codec for the keys
+     * @param valueCodec the codec for the values
+     * @param comparator the ordering of the keys, or <tt>null</tt> for
+     *        their natural ordering
+     * @return the new map
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the keys are not in strictly
+     *         ascending order, or a codec does not write the size it
+     *         announced
+     * @throws NullPointerException if a key or value is <tt>null</tt>
+     */
+    public static <K,V> MappedSortedMap<K,V> create(
+            File file,
+            Iterator<? extends Map.Entry<? extends K,? extends V>> entries,
+            MappedCodec<K> keyCodec, MappedCodec<V> valueCodec,
+            Comparator<? super K> comparator)
+        throws IOException
+    {
+        MappedFile.Writer<K,V> w =
+            new MappedFile.Writer<K,V>(file, keyCodec, valueCodec);
+        try {
+            LongArrayList offsets = new LongArrayList();
+            K last = null;
+            while (entries.hasNext()) {
+                Map.Entry<? extends K,? extends V> e = entries.next();
+                K key = e.getKey();
+                V value = e.getValue();
+                if (key == null || value == null)
+                    throw new NullPointerException();
+                if (!offsets.isEmpty() && compare(comparator, last, key) >= 0)
+                    throw new IllegalArgumentException(
+                        "Key " + key + " not greater than " + last);
+                offsets.add(w.append(key, value));
+                last = key;
+            }
+            int n = offsets.size();
+            MappedFile f = w.finish(n, n, SLOT_SIZE);
+            long index = f.index();
+            for (int i = 0; i < n; i++)
+                f.putLong(index + ((long)i << 3), offsets.getLong(i));
+            f.seal(MAGIC);
+            w.commit();
+        } finally {
+            w.close();
+        }
+        return open(file, keyCodec, valueCodec, comparator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> int compare(Comparator<? super K> c, Object k1, K k2) {
+        return (c == null) ? ((Comparable<? super K>)k1).compareTo(k2)
+            : c.compare((K)k1, k2);
+    }
+
+    /**
+     * Returns a view of the given index range with the given key bounds.
+     * The range is empty when both bounds exclude the same key.
+     */
+    private MappedSortedMap<K,V> view(int from, int to, boolean desc,
+                                      boolean fromStart, K loKey,
+                                      boolean loInclusive, boolean toEnd,
+                                      K hiKey, boolean hiInclusive) {
+        if (to < from)
+            to = from;
+        return new MappedSortedMap<K,V>(file, keyCodec, valueCodec,
+                                        comparator, from, to, desc,
+                                        fromStart, loKey, loInclusive,
+                                        toEnd, hiKey, hiInclusive);
+    }
+
+    private boolean tooLow(Object key) {
+        if (!fromStart) {
+            int c = compare(comparator, key, loKey);
+            if (c < 0 || (c == 0 && !loInclusive))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean tooHigh(Object key) {
+        if (!toEnd) {
+            int c = compare(comparator, key, hiKey);
+            if (c > 0 || (c == 0 && !hiInclusive))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean inRange(Object key, boolean inclusive) {
+        if (inclusive)
+            return !tooLow(key) && !tooHigh(key);
+        return (fromStart || compare(comparator, key, loKey) >= 0)
+            && (toEnd || compare(comparator, key, hiKey) <= 0);
+    }
+
+    private long offset(int i) {
+        return file.getLong(index + ((long)i << 3));
+    }
+
+    private K keyAt(int i) {
+        return file.readKey(offset(i), keyCodec);
+    }
+
+    private Map.Entry<K,V> entryAt(int i) {
+        return (i < 0) ? null : file.readEntry(offset(i), keyCodec, valueCodec);
+    }
+
+    private K keyOrNull(int i) {
+        return (i < 0) ? null : keyAt(i);
+    }
+
+    private K key(int i) {
+        if (i < 0)
+            throw new NoSuchElementException();
+        return keyAt(i);
+    }
+
+    /**
+     * Returns the index of the first entry of the range whose key is
+     * greater than, or equal to if inclusive, the given key, or hi if
+     * there is none.
+     */
+    private int aboveIndex(Object key, boolean inclusive) {
+        int l = lo, h = hi;
+        while (l < h) {
+            int mid = (l + h) >>> 1;
+            int c = compare(comparator, key, keyAt(mid));
+            if (c > 0 || (c == 0 && !inclusive))
+                l = mid + 1;
+            else
+                h = mid;
+        }
+        return l;
+    }
+
+    /**
+     * Returns the index of the last entry of the range whose key is
+     * less than, or equal to if inclusive, the given key, or lo - 1 if
+     * there is none.
+     */
+    private int belowIndex(Object key, boolean inclusive) {
+        return aboveIndex(key, !inclusive) - 1;
+    }
+
+    /**
+     * Returns the index of the entry for the given key, or -1.
+     */
+    private int indexOf(Object key) {
+        int i = aboveIndex(key, true);
+        if (i < hi && compare(comparator, key, keyAt(i)) == 0)
+            return i;
+        return -1;
+    }
+
+    /**
+     * Returns the index of the least entry, in the order of this view,
+     * whose key is greater than, or equal to if inclusive, the given
+     * key, or -1.
+     */
+    private int ceilingIndex(Object key, boolean inclusive) {
+        if (descending) {
+            int i = belowIndex(key, inclusive);
+            return (i < lo) ? -1 : i;
+        } else {
+            int i = aboveIndex(key, inclusive);
+            return (i >= hi) ? -1 : i;
+        }
+    }
+
+    /**
+     * Returns the index of the greatest entry, in the order of this
+     * view, whose key is less than, or equal to if inclusive, the given
+     * key, or -1.
+     */
+    private int floorIndex(Object key, boolean inclusive) {
+        if (descending) {
+            int i = aboveIndex(key, inclusive);
+            return (i >= hi) ? -1 : i;
+        } else {
+            int i = belowIndex(key, inclusive);
+            return (i < lo) ? -1 : i;
+        }
+    }
+
+    private int firstIndex() {
+        return (lo == hi) ? -1 : descending ? hi - 1 : lo;
+    }
+
+    private int lastIndex() {
+        return (lo == hi) ? -1 : descending ? lo : hi - 1;
+    }
+
+    // Query Operations
+
+    public int size() {
+        return hi - lo;
+    }
+
+    public boolean isEmpty() {
+        return hi == lo;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null and this
+     *         map uses natural ordering, or its comparator does not
+     *         permit null keys
+     */
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * <tt>null</tt> if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null and this
+     *         map uses natural ordering, or its comparator does not
+     *         permit null keys
+     */
+    public V get(Object key) {
+        int i = indexOf(key);
+        return (i < 0) ? null
+            : file.readValue(offset(i), keyCodec, valueCodec);
+    }
+
+    public Comparator<? super K> comparator() {
+        return descending ? Collections.reverseOrder(comparator) : comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(firstIndex());
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(lastIndex());
+    }
+
+    public Map.Entry<K,V> firstEntry() {
+        return entryAt(firstIndex());
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return entryAt(lastIndex());
+    }
+
+    /**
+     * Throws <tt>UnsupportedOperationException</tt>.
+     */
+    public Map.Entry<K,V> pollFirstEntry() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Throws <tt>UnsupportedOperationException</tt>.
+     */
+    public Map.Entry<K,V> pollLastEntry() {
+        throw new UnsupportedOperationException();
+    }
+
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return entryAt(floorIndex(key, false));
+    }
+
+    public K lowerKey(K key) {
+        return keyOrNull(floorIndex(key, false));
+    }
+
+    public Map.Entry<K,V> floorEntry(K key) {
+        return entryAt(floorIndex(key, true));
+    }
+
+    public K floorKey(K key) {
+        return keyOrNull(floorIndex(key, true));
+    }
+
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return entryAt(ceilingIndex(key, true));
+    }
+
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingIndex(key, true));
+    }
+
+    public Map.Entry<K,V> higherEntry(K key) {
+        return entryAt(ceilingIndex(key, false));
+    }
+
+    public K higherKey(K key) {
+        return keyOrNull(ceilingIndex(key, false));
+    }
+
+    // Views
+
+    private transient EntrySet entrySet = null;
+    private transient KeySet<K> navigableKeySet = null;
+    private transient MappedSortedMap<K,V> descendingMap = null;
+
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> nks = navigableKeySet;
+        return (nks != null) ? nks : (navigableKeySet = new KeySet<K>(this));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet());
+    }
+
+    public MappedSortedMap<K,V> descendingMap() {
+        MappedSortedMap<K,V> km = descendingMap;
+        return (km != null) ? km :
+            (descendingMap = view(lo, hi, !descending,
+                                  fromStart, loKey, loInclusive,
+                                  toEnd, hiKey, hiInclusive));
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if <tt>fromKey</tt> or <tt>toKey</tt> is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public MappedSortedMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                       K toKey, boolean toInclusive) {
+        int c = compare(comparator, fromKey, toKey);
+        if (descending ? c < 0 : c > 0)
+            throw new IllegalArgumentException("fromKey > toKey");
+        if (!inRange(fromKey, fromInclusive))
+            throw new IllegalArgumentException("fromKey out of range");
+        if (!inRange(toKey, toInclusive))
+            throw new IllegalArgumentException("toKey out of range");
+        if (descending)
+            return view(aboveIndex(toKey, toInclusive),
+                        belowIndex(fromKey, fromInclusive) + 1, true,
+                        false, toKey, toInclusive,
+                        false, fromKey, fromInclusive);
+        else
+            return view(aboveIndex(fromKey, fromInclusive),
+                        belowIndex(toKey, toInclusive) + 1, false,
+                        false, fromKey, fromInclusive,
+                        false, toKey, toInclusive);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if <tt>toKey</tt> is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public MappedSortedMap<K,V> headMap(K toKey, boolean inclusive) {
+        if (!inRange(toKey, inclusive))
+            throw new IllegalArgumentException("toKey out of range");
+        if (descending)
+            return view(aboveIndex(toKey, inclusive), hi, true,
+                        false, toKey, inclusive,
+                        toEnd, hiKey, hiInclusive);
+        else
+            return view(lo, belowIndex(toKey, inclusive) + 1, false,
+                        fromStart, loKey, loInclusive,
+                        false, toKey, inclusive);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if <tt>fromKey</tt> is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public MappedSortedMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        if (!inRange(fromKey, inclusive))
+            throw new IllegalArgumentException("fromKey out of range");
+        if (descending)
+            return view(lo, belowIndex(fromKey, inclusive) + 1, true,
+                        fromStart, loKey, loInclusive,
+                        false, fromKey, inclusive);
+        else
+            return view(aboveIndex(fromKey, inclusive), hi, false,
+                        false, fromKey, inclusive,
+                        toEnd, hiKey, hiInclusive);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if <tt>fromKey</tt> or <tt>toKey</tt> is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if <tt>toKey</tt> is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if <tt>fromKey</tt> is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /**
+     * Asks the operating system to bring the whole file of the map into
+     * physical memory, so that the first accesses to each page do not
+     * wait for it to be read.  This takes time proportional to the size
+     * of the file, and is never required.
+     *
+     * @throws IllegalStateException if the map has been closed
+     */
+    public void load() {
+        file.load();
+    }
+
+    /**
+     * Closes the file of this map.  The map, and every view sharing its
+     * file, can no longer be used.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException {
+        file.close();
+    }
+
+    // Iterators
+
+    private abstract class RangeIterator<T> implements Iterator<T> {
+        private int next, end;
+
+        RangeIterator() {
+            if (descending) {
+                next = hi - 1;
+                end = lo - 1;
+            } else {
+                next = lo;
+                end = hi;
+            }
+        }
+
+        public final boolean hasNext() {
+            return next != end;
+        }
+
+        final int nextIndex() {
+            int i = next;
+            if (i == end)
+                throw new NoSuchElementException();
+            next = descending ? i - 1 : i + 1;
+            return i;
+        }
+
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final class EntryIterator extends RangeIterator<Map.Entry<K,V>> {
+        public Map.Entry<K,V> next() {
+            return entryAt(nextIndex());
+        }
+    }
+
+    private final class KeyIterator extends RangeIterator<K> {
+        public K next() {
+            return keyAt(nextIndex());
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry e = (Map.Entry)o;
+            Object value = e.getValue();
+            int i = indexOf(e.getKey());
+            return i >= 0 && value != null &&
+                value.equals(file.readValue(offset(i), keyCodec, valueCodec));
+        }
+        public int size() {
+            return MappedSortedMap.this.size();
+        }
+        public boolean isEmpty() {
+            return MappedSortedMap.this.isEmpty();
+        }
+    }
+
+    static final class KeySet<E> extends AbstractSet<E>
+        implements NavigableSet<E>
+    {
+        private final MappedSortedMap<E,?> m;
+        KeySet(MappedSortedMap<E,?> map) { m = map; }
+
+        public Iterator<E> iterator() {
+            return m.new KeyIterator();
+        }
+        public Iterator<E> descendingIterator() {
+            return m.descendingMap().navigableKeySet().iterator();
+        }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E pollFirst() { throw new UnsupportedOperationException(); }
+        public E pollLast() { throw new UnsupportedOperationException(); }
+        public boolean remove(Object o) {
+            throw new UnsupportedOperationException();
+        }
+        public void clear() { throw new UnsupportedOperationException(); }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return new KeySet<E>(m.subMap(fromElement, fromInclusive,
+                                          toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<E>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<E>(m.tailMap(fromElement, inclusive));
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<E>(m.descendingMap());
+        }
+    }
+}
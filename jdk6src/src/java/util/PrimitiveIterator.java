@@ -0,0 +1,49 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util;
+
+/**
+ * An {@link Iterator} over primitive values.  Callers that know the
+ * primitive type use the <tt>nextInt</tt> or <tt>nextLong</tt> method
+ * of the {@link OfInt} or {@link OfLong} subtype and so avoid boxing;
+ * {@link #next} returns the same values boxed, so that a primitive
+ * iterator can be used wherever an <tt>Iterator</tt> is expected.
+ *
+ * @param <T> the boxed type of the values
+ * @see IntArrayList
+ * @see IntHashMap
+ * @since 1.7
+ */
+public interface PrimitiveIterator<T> extends Iterator<T> {
+
+    /**
+     * An iterator over <tt>int</tt> values.
+     */
+    public static interface OfInt extends PrimitiveIterator<Integer> {
+        /**
+         * Returns the next <tt>int</tt> in the iteration.
+         *
+         * @return the next <tt>int</tt> in the iteration
+         * @throws NoSuchElementException if the iteration has no more
+         *         elements
+         */
+        int nextInt();
+    }
+
+    /**
+     * An iterator over <tt>long</tt> values.
+     */
+    public static interface OfLong extends PrimitiveIterator<Long> {
+        /**
+         * Returns the next <tt>long</tt> in the iteration.
+         *
+         * @return the next <tt>long</tt> in the iteration
+         * @throws NoSuchElementException if the iteration has no more
+         *         elements
+         */
+        long nextLong();
+    }
+}
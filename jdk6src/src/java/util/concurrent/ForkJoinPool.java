@@ -0,0 +1,868 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util.concurrent;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.*;
+
+/**
+ * An {@link ExecutorService} for running {@link ForkJoinTask}s.
+ *
+ * <p>A <tt>ForkJoinPool</tt> differs from other kinds of
+ * <tt>ExecutorService</tt> mainly by virtue of employing
+ * <em>work-stealing</em>: instead of sharing one queue, each worker
+ * thread has its own deque of the tasks it forked, and workers that
+ * run out of work steal tasks from the others.  This makes for
+ * efficient processing when most tasks spawn other subtasks, as
+ * recursive divide-and-conquer computations do, and when many small
+ * tasks are submitted to the pool from external clients.  Tasks
+ * submitted by threads that are not workers of the pool go to a
+ * shared submission queue.
+ *
+ * <p>A <tt>ForkJoinPool</tt> is constructed with a given target
+ * parallelism level; by default, equal to the number of available
+ * processors.  The pool attempts to maintain enough active threads to
+ * achieve it by creating workers as work appears.  A worker that
+ * joins a task that is not done runs other tasks meanwhile rather than
+ * blocking, and a worker that needs to block for some other reason
+ * can use {@link #managedBlock}, in which case the pool may start a
+ * spare thread to keep the parallelism level; spare threads exit
+ * after they have been idle for a while.
+ *
+ * <p>A static {@link #commonPool()} is available and appropriate for
+ * most applications.  It is used by any ForkJoinTask that is forked
+ * outside of a pool, and by {@link java.util.Arrays#parallelSort}.
+ * Its parallelism is one less than the number of available processors
+ * unless set with the system property
+ * <tt>java.util.concurrent.ForkJoinPool.common.parallelism</tt>.
+ * Calls to {@link #shutdown} or {@link #shutdownNow} on the common
+ * pool have no effect.
+ *
+ * <p>All worker threads are initialized with {@link Thread#isDaemon}
+ * set <tt>true</tt>.
+ *
+ * @since 1.7
+ */
+public class ForkJoinPool extends AbstractExecutorService {
+
+    /**
+     * Factory for creating new {@link ForkJoinWorkerThread}s.
+     */
+    public static interface ForkJoinWorkerThreadFactory {
+        /**
+         * Returns a new worker thread operating in the given pool.
+         *
+         * @param pool the pool this thread works in
+         * @throws NullPointerException if the pool is null
+         */
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool);
+    }
+
+    /**
+     * Default ForkJoinWorkerThreadFactory implementation; creates a
+     * new ForkJoinWorkerThread.
+     */
+    static class DefaultForkJoinWorkerThreadFactory
+        implements ForkJoinWorkerThreadFactory {
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            return new ForkJoinWorkerThread(pool);
+        }
+    }
+
+    /**
+     * Creates a new ForkJoinWorkerThread.  This factory is used unless
+     * overridden in ForkJoinPool constructors.
+     */
+    public static final ForkJoinWorkerThreadFactory
+        defaultForkJoinWorkerThreadFactory =
+        new DefaultForkJoinWorkerThreadFactory();
+
+    /**
+     * Interface for extending managed parallelism for tasks running
+     * in {@link ForkJoinPool}s.
+     *
+     * <p>A <tt>ManagedBlocker</tt> provides two methods.  Method
+     * <tt>isReleasable</tt> must return <tt>true</tt> if blocking is
+     * not necessary.  Method <tt>block</tt> blocks the current thread
+     * if necessary (perhaps internally invoking <tt>isReleasable</tt>
+     * before actually blocking).
+     *
+     * <p>For example, here is a ManagedBlocker based on a
+     * ReentrantLock:
+     * <pre>
+     * class ManagedLocker implements ManagedBlocker {
+     *   final ReentrantLock lock;
+     *   boolean hasLock = false;
+     *   ManagedLocker(ReentrantLock lock) { this.lock = lock; }
+     *   public boolean block() {
+     *     if (!hasLock)
+     *       lock.lock();
+     *     return true;
+     *   }
+     *   public boolean isReleasable() {
+     *     return hasLock || (hasLock = lock.tryLock());
+     *   }
+     * }</pre>
+     */
+    public static interface ManagedBlocker {
+        /**
+         * Possibly blocks the current thread, for example waiting for
+         * a lock or condition.
+         *
+         * @return <tt>true</tt> if no additional blocking is necessary
+         *         (i.e., if isReleasable would return true)
+         * @throws InterruptedException if interrupted while waiting
+         */
+        boolean block() throws InterruptedException;
+
+        /**
+         * Returns <tt>true</tt> if blocking is unnecessary.
+         */
+        boolean isReleasable();
+    }
+
+    /*
+     * Run states.  A pool is RUNNING until shutdown, then SHUTDOWN
+     * until its last worker exits.  STOP is set by shutdownNow.
+     */
+    private static final int RUNNING    = 0;
+    private static final int SHUTDOWN   = 1;
+    private static final int STOP       = 2;
+    private static final int TERMINATED = 3;
+
+    /**
+     * How many spare threads the pool may create beyond its
+     * parallelism level to compensate for blocked workers.
+     */
+    private static final int MAX_SPARE_WORKERS = 256;
+
+    /**
+     * How long a spare worker waits for work before exiting.
+     */
+    private static final long SPARE_KEEP_ALIVE_NANOS =
+        TimeUnit.SECONDS.toNanos(2);
+
+    /** Sequence number for pool names. */
+    private static final AtomicInteger poolNumber = new AtomicInteger();
+
+    private final int parallelism;
+    private final ForkJoinWorkerThreadFactory factory;
+    private final String workerNamePrefix;
+    private final boolean isCommon;
+
+    /** Tasks submitted by threads that are not workers of this pool. */
+    private final ConcurrentLinkedQueue<ForkJoinTask<?>> submissionQueue =
+        new ConcurrentLinkedQueue<ForkJoinTask<?>>();
+
+    /**
+     * The live workers.  Copied on change, which happens only when a
+     * worker is created or exits, so that scans need no locking.
+     */
+    private volatile ForkJoinWorkerThread[] workers =
+        new ForkJoinWorkerThread[0];
+
+    /** Number of workers parked waiting for work. */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /** Number of workers blocked in managedBlock. */
+    private final AtomicInteger blockedCount = new AtomicInteger();
+
+    private final AtomicInteger workerNumber = new AtomicInteger();
+
+    /** Steals by workers that have exited. */
+    private long retiredStealCount;
+
+    private volatile int runState;
+
+    /** Guards worker creation and exit, and the run state. */
+    private final ReentrantLock mainLock = new ReentrantLock();
+
+    /** Wait condition to support awaitTermination. */
+    private final Condition termination = mainLock.newCondition();
+
+    /**
+     * Creates a <tt>ForkJoinPool</tt> with parallelism equal to the
+     * number of available processors, using the default thread
+     * factory.
+     */
+    public ForkJoinPool() {
+        this(Runtime.getRuntime().availableProcessors(),
+             defaultForkJoinWorkerThreadFactory);
+    }
+
+    /**
+     * Creates a <tt>ForkJoinPool</tt> with the indicated parallelism
+     * level, using the default thread factory.
+     *
+     * @param parallelism the parallelism level
+     * @throws IllegalArgumentException if parallelism less than or
+     *         equal to zero
+     */
+    public ForkJoinPool(int parallelism) {
+        this(parallelism, defaultForkJoinWorkerThreadFactory);
+    }
+
+    /**
+     * Creates a <tt>ForkJoinPool</tt> with the given parallelism and
+     * thread factory.
+     *
+     * @param parallelism the parallelism level
+     * @param factory the factory for creating new threads
+     * @throws IllegalArgumentException if parallelism less than or
+     *         equal to zero
+     * @throws NullPointerException if the factory is null
+     */
+    public ForkJoinPool(int parallelism,
+                        ForkJoinWorkerThreadFactory factory) {
+        this(parallelism, factory, false);
+    }
+
+    private ForkJoinPool(int parallelism,
+                         ForkJoinWorkerThreadFactory factory,
+                         boolean isCommon) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException();
+        if (factory == null)
+            throw new NullPointerException();
+        this.parallelism = parallelism;
+        this.factory = factory;
+        this.isCommon = isCommon;
+        this.workerNamePrefix = isCommon ?
+            "ForkJoinPool.commonPool-worker-" :
+            "ForkJoinPool-" + poolNumber.incrementAndGet() + "-worker-";
+    }
+
+    /**
+     * Holder of the common pool, created on first use.
+     */
+    private static class CommonPoolHolder {
+        static final ForkJoinPool commonPool =
+            new ForkJoinPool(getCommonPoolParallelism(),
+                             defaultForkJoinWorkerThreadFactory, true);
+    }
+
+    /**
+     * Returns the common pool instance.  This pool is statically
+     * constructed on first use; its run state is unaffected by
+     * attempts to {@link #shutdown} or {@link #shutdownNow}.
+     *
+     * @return the common pool instance
+     */
+    public static ForkJoinPool commonPool() {
+        return CommonPoolHolder.commonPool;
+    }
+
+    /**
+     * Returns the targeted parallelism level of the common pool.
+     *
+     * @return the targeted parallelism level of the common pool
+     */
+    public static int getCommonPoolParallelism() {
+        int par = Runtime.getRuntime().availableProcessors() - 1;
+        String pp = (String)java.security.AccessController.doPrivileged(
+            new sun.security.action.GetPropertyAction(
+                "java.util.concurrent.ForkJoinPool.common.parallelism"));
+        if (pp != null) {
+            try {
+                par = Integer.parseInt(pp);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return (par > 0) ? par : 1;
+    }
+
+    // Worker management
+
+    final int nextWorkerIndex() {
+        return workerNumber.incrementAndGet();
+    }
+
+    final String getWorkerNamePrefix() {
+        return workerNamePrefix;
+    }
+
+    /**
+     * Returns true if another worker should be started: there are
+     * fewer unblocked workers than the parallelism level.
+     */
+    private boolean needsWorker() {
+        int n = workers.length;
+        return runState < STOP &&
+            n - blockedCount.get() < parallelism &&
+            n < parallelism + MAX_SPARE_WORKERS;
+    }
+
+    /**
+     * Wakes up an idle worker, or starts a new one if there are too
+     * few.  Called when tasks become available.
+     */
+    final void signalWork() {
+        if (idleCount.get() > 0) {
+            ForkJoinWorkerThread[] ws = workers;
+            for (int i = 0; i < ws.length; i++) {
+                ForkJoinWorkerThread w = ws[i];
+                if (w.parked) {
+                    w.parked = false;
+                    LockSupport.unpark(w);
+                    return;
+                }
+            }
+        }
+        if (needsWorker())
+            addWorker();
+    }
+
+    private void addWorker() {
+        ForkJoinWorkerThread w = null;
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (!needsWorker())
+                return;
+            w = factory.newThread(this);
+            if (w == null)
+                return;
+            ForkJoinWorkerThread[] ws = workers;
+            ForkJoinWorkerThread[] nws = new ForkJoinWorkerThread[ws.length + 1];
+            System.arraycopy(ws, 0, nws, 0, ws.length);
+            nws[ws.length] = w;
+            workers = nws;
+        } finally {
+            mainLock.unlock();
+        }
+        w.start();
+    }
+
+    /**
+     * Removes an exiting worker, and terminates the pool if it was
+     * the last one after shutdown.
+     */
+    final void deregisterWorker(ForkJoinWorkerThread w, Throwable ex) {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            removeWorker(w);
+            tryTerminate();
+        } finally {
+            mainLock.unlock();
+        }
+        // Replace a worker that died with tasks still around
+        if (runState < STOP && hasQueuedTasks())
+            signalWork();
+    }
+
+    /**
+     * Removes w from the workers, if present.  Called holding mainLock.
+     */
+    private void removeWorker(ForkJoinWorkerThread w) {
+        ForkJoinWorkerThread[] ws = workers;
+        for (int i = 0; i < ws.length; i++) {
+            if (ws[i] == w) {
+                ForkJoinWorkerThread[] nws =
+                    new ForkJoinWorkerThread[ws.length - 1];
+                System.arraycopy(ws, 0, nws, 0, i);
+                System.arraycopy(ws, i + 1, nws, i, ws.length - i - 1);
+                workers = nws;
+                retiredStealCount += w.stealCount;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes an idle worker that is in excess of the parallelism
+     * level.
+     *
+     * @return true if the worker was removed and should exit
+     */
+    private boolean tryRetire(ForkJoinWorkerThread w) {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (workers.length - blockedCount.get() <= parallelism)
+                return false;
+            removeWorker(w);
+            return true;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * Transitions to TERMINATED once shut down and without workers.
+     * Called holding mainLock.
+     */
+    private void tryTerminate() {
+        int rs = runState;
+        if (rs != RUNNING && rs != TERMINATED && workers.length == 0 &&
+            (rs == STOP || submissionQueue.isEmpty())) {
+            runState = TERMINATED;
+            termination.signalAll();
+        }
+    }
+
+    /**
+     * Returns true if any queue appears to hold tasks.
+     */
+    private boolean hasQueuedTasks() {
+        if (!submissionQueue.isEmpty())
+            return true;
+        ForkJoinWorkerThread[] ws = workers;
+        for (int i = 0; i < ws.length; i++) {
+            if (ws[i].hasQueuedTasks())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds a task for w other than one of its own: a stolen task,
+     * or else an external submission.
+     */
+    private ForkJoinTask<?> scan(ForkJoinWorkerThread w) {
+        ForkJoinTask<?> t = w.scan(workers);
+        if (t == null)
+            t = submissionQueue.poll();
+        return t;
+    }
+
+    /**
+     * Top-level loop of workers.
+     */
+    final void work(ForkJoinWorkerThread w) {
+        while (runState < STOP) {
+            ForkJoinTask<?> t = w.popTask();
+            if (t == null)
+                t = scan(w);
+            if (t != null) {
+                Thread.interrupted();
+                t.doExec();
+            } else if (!awaitWork(w)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Parks an idle worker until it is signalled or, for a spare
+     * worker, until it has been idle long enough to exit.
+     *
+     * @return false if the worker should exit
+     */
+    private boolean awaitWork(ForkJoinWorkerThread w) {
+        if (runState != RUNNING) {
+            // Once shut down, workers exit as soon as they run dry.
+            return hasQueuedTasks();
+        }
+        w.parked = true;
+        idleCount.incrementAndGet();
+        try {
+            // Recheck after advertising idleness, so that a task
+            // pushed concurrently either is seen here or signals us.
+            if (hasQueuedTasks())
+                return true;
+            long start = System.nanoTime();
+            LockSupport.parkNanos(SPARE_KEEP_ALIVE_NANOS);
+            if (w.parked && runState == RUNNING &&
+                System.nanoTime() - start >= SPARE_KEEP_ALIVE_NANOS &&
+                tryRetire(w))
+                return false;
+            return true;
+        } finally {
+            w.parked = false;
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Helps until the given task is done: runs local tasks, steals,
+     * and otherwise waits briefly for the task before looking again.
+     */
+    final void awaitJoin(ForkJoinWorkerThread w, ForkJoinTask<?> task) {
+        while (task.status >= 0) {
+            ForkJoinTask<?> t = w.popTask();
+            if (t == null)
+                t = scan(w);
+            if (t != null)
+                t.doExec();
+            else
+                task.awaitDoneBriefly();
+        }
+    }
+
+    /**
+     * Queues a task submitted from outside the pool.
+     */
+    final void externalPush(ForkJoinTask<?> task) {
+        if (task == null)
+            throw new NullPointerException();
+        if (runState != RUNNING)
+            throw new RejectedExecutionException();
+        submissionQueue.offer(task);
+        // A shutdown racing with the offer may already have terminated
+        // the pool, leaving no worker to run the task; take it back
+        // unless a worker got to it first.
+        if (runState != RUNNING && submissionQueue.remove(task))
+            throw new RejectedExecutionException();
+        signalWork();
+    }
+
+    /**
+     * Blocks in accord with the given blocker.  If the current thread
+     * is a {@link ForkJoinWorkerThread}, this method possibly arranges
+     * for a spare thread to be activated if necessary to ensure
+     * sufficient parallelism while the current thread is blocked.
+     *
+     * <p>If the caller is not a {@link ForkJoinTask}, this method is
+     * behaviorally equivalent to
+     * <pre>
+     * while (!blocker.isReleasable())
+     *   if (blocker.block())
+     *     return;
+     * </pre>
+     *
+     * @param blocker the blocker
+     * @throws InterruptedException if blocker.block did so
+     */
+    public static void managedBlock(ManagedBlocker blocker)
+        throws InterruptedException {
+        Thread t = Thread.currentThread();
+        if (t instanceof ForkJoinWorkerThread) {
+            ForkJoinPool p = ((ForkJoinWorkerThread)t).pool;
+            if (blocker.isReleasable())
+                return;
+            p.blockedCount.incrementAndGet();
+            try {
+                if (p.hasQueuedTasks())
+                    p.signalWork();
+                do {} while (!blocker.isReleasable() && !blocker.block());
+            } finally {
+                p.blockedCount.decrementAndGet();
+            }
+        } else {
+            do {} while (!blocker.isReleasable() && !blocker.block());
+        }
+    }
+
+    // Execution methods
+
+    /**
+     * Performs the given task, returning its result upon completion.
+     * If the computation encounters an unchecked Exception or Error,
+     * it is rethrown as the outcome of this invocation.
+     *
+     * @param task the task
+     * @return the task's result
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     */
+    public <T> T invoke(ForkJoinTask<T> task) {
+        Thread t = Thread.currentThread();
+        if (t instanceof ForkJoinWorkerThread &&
+            ((ForkJoinWorkerThread)t).pool == this)
+            return task.invoke();
+        externalPush(task);
+        return task.join();
+    }
+
+    /**
+     * Arranges for (asynchronous) execution of the given task.
+     *
+     * @param task the task
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     */
+    public void execute(ForkJoinTask<?> task) {
+        externalPush(task);
+    }
+
+    /**
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     */
+    public void execute(Runnable task) {
+        ForkJoinTask<?> job;
+        if (task instanceof ForkJoinTask<?>)
+            job = (ForkJoinTask<?>)task;
+        else
+            job = new ForkJoinTask.AdaptedRunnable<Void>(task, null);
+        externalPush(job);
+    }
+
+    /**
+     * Submits a ForkJoinTask for execution.
+     *
+     * @param task the task to submit
+     * @return the task
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     */
+    public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task) {
+        externalPush(task);
+        return task;
+    }
+
+    /**
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     */
+    public <T> ForkJoinTask<T> submit(Callable<T> task) {
+        ForkJoinTask<T> job = new ForkJoinTask.AdaptedCallable<T>(task);
+        externalPush(job);
+        return job;
+    }
+
+    /**
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     */
+    public <T> ForkJoinTask<T> submit(Runnable task, T result) {
+        ForkJoinTask<T> job = new ForkJoinTask.AdaptedRunnable<T>(task, result);
+        externalPush(job);
+        return job;
+    }
+
+    /**
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     */
+    public ForkJoinTask<?> submit(Runnable task) {
+        ForkJoinTask<?> job;
+        if (task instanceof ForkJoinTask<?>)
+            job = (ForkJoinTask<?>)task;
+        else
+            job = new ForkJoinTask.AdaptedRunnable<Void>(task, null);
+        externalPush(job);
+        return job;
+    }
+
+    // Monitoring
+
+    /**
+     * Returns the targeted parallelism level of this pool.
+     *
+     * @return the targeted parallelism level of this pool
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the number of worker threads that have started but not
+     * yet terminated, which may exceed the parallelism level while
+     * workers are blocked in {@link #managedBlock}.
+     *
+     * @return the number of worker threads
+     */
+    public int getPoolSize() {
+        return workers.length;
+    }
+
+    /**
+     * Returns an estimate of the number of worker threads that are
+     * not idle waiting for tasks.
+     *
+     * @return the number of active threads
+     */
+    public int getActiveThreadCount() {
+        int n = workers.length - idleCount.get();
+        return (n < 0) ? 0 : n;
+    }
+
+    /**
+     * Returns an estimate of the total number of tasks stolen from
+     * one thread's work queue by another.
+     *
+     * @return the number of steals
+     */
+    public long getStealCount() {
+        long count;
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            count = retiredStealCount;
+        } finally {
+            mainLock.unlock();
+        }
+        ForkJoinWorkerThread[] ws = workers;
+        for (int i = 0; i < ws.length; i++)
+            count += ws[i].stealCount;
+        return count;
+    }
+
+    /**
+     * Returns an estimate of the total number of tasks currently held
+     * in queues by worker threads.
+     *
+     * @return the number of queued tasks
+     */
+    public long getQueuedTaskCount() {
+        long count = 0;
+        ForkJoinWorkerThread[] ws = workers;
+        for (int i = 0; i < ws.length; i++)
+            count += ws[i].getQueueSize();
+        return count;
+    }
+
+    /**
+     * Returns an estimate of the number of tasks submitted to this
+     * pool that have not yet begun executing.
+     *
+     * @return the number of queued submissions
+     */
+    public int getQueuedSubmissionCount() {
+        return submissionQueue.size();
+    }
+
+    /**
+     * Returns <tt>true</tt> if all worker threads are currently idle.
+     *
+     * @return <tt>true</tt> if all threads are currently idle
+     */
+    public boolean isQuiescent() {
+        return getActiveThreadCount() == 0;
+    }
+
+    /**
+     * Returns a string identifying this pool, as well as its state,
+     * including indications of run state, parallelism level, and
+     * worker and task counts.
+     *
+     * @return a string identifying this pool, as well as its state
+     */
+    public String toString() {
+        int rs = runState;
+        String level = (rs == RUNNING) ? "Running" :
+            (rs == TERMINATED) ? "Terminated" :
+            (workers.length == 0) ? "Terminated" : "Shutting down";
+        return super.toString() +
+            "[" + level +
+            ", parallelism = " + parallelism +
+            ", size = " + getPoolSize() +
+            ", active = " + getActiveThreadCount() +
+            ", steals = " + getStealCount() +
+            ", tasks = " + getQueuedTaskCount() +
+            ", submissions = " + getQueuedSubmissionCount() +
+            "]";
+    }
+
+    // Lifecycle
+
+    /**
+     * Initiates an orderly shutdown in which previously submitted
+     * tasks are executed, but no new tasks will be accepted.
+     * Invocation has no effect on execution state if this is the
+     * {@link #commonPool()}, and no additional effect if already shut
+     * down.
+     */
+    public void shutdown() {
+        if (isCommon)
+            return;
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState == RUNNING)
+                runState = SHUTDOWN;
+            tryTerminate();
+        } finally {
+            mainLock.unlock();
+        }
+        wakeUpWorkers(false);
+    }
+
+    /**
+     * Attempts to cancel all tasks, and rejects all subsequently
+     * submitted tasks.  Invocation has no effect on execution state if
+     * this is the {@link #commonPool()}.  Running tasks are
+     * interrupted but, as with {@link ForkJoinTask#cancel}, they are
+     * not otherwise stopped.
+     *
+     * @return an empty list
+     */
+    public List<Runnable> shutdownNow() {
+        if (isCommon)
+            return Collections.emptyList();
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState < STOP)
+                runState = STOP;
+            tryTerminate();
+        } finally {
+            mainLock.unlock();
+        }
+        ForkJoinTask<?> t;
+        while ((t = submissionQueue.poll()) != null)
+            t.cancel(false);
+        ForkJoinWorkerThread[] ws = workers;
+        for (int i = 0; i < ws.length; i++) {
+            while ((t = ws[i].pollTask()) != null)
+                t.cancel(false);
+        }
+        wakeUpWorkers(true);
+        return Collections.emptyList();
+    }
+
+    private void wakeUpWorkers(boolean interrupt) {
+        ForkJoinWorkerThread[] ws = workers;
+        for (int i = 0; i < ws.length; i++) {
+            ForkJoinWorkerThread w = ws[i];
+            if (interrupt) {
+                try {
+                    w.interrupt();
+                } catch (SecurityException ignore) {
+                }
+            }
+            LockSupport.unpark(w);
+        }
+    }
+
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return runState == TERMINATED;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the process of termination has
+     * commenced but not yet completed.
+     *
+     * @return <tt>true</tt> if terminating but not yet terminated
+     */
+    public boolean isTerminating() {
+        int rs = runState;
+        return rs == SHUTDOWN || rs == STOP;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            for (;;) {
+                if (runState == TERMINATED)
+                    return true;
+                if (nanos <= 0)
+                    return false;
+                nanos = termination.awaitNanos(nanos);
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,627 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util.concurrent;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Abstract base class for tasks that run within a {@link ForkJoinPool}.
+ * A <tt>ForkJoinTask</tt> is a thread-like entity that is much lighter
+ * weight than a normal thread.  Huge numbers of tasks and subtasks may
+ * be hosted by a small number of actual threads in a ForkJoinPool.
+ *
+ * <p>A task is started by submitting it to a pool, or, when already
+ * running inside a pool, by calling {@link #fork}, which arranges its
+ * asynchronous execution by the current worker thread.  Forked tasks
+ * are pushed on the current worker's own deque; idle workers steal
+ * tasks from the other end of other workers' deques.  The primary
+ * method for awaiting completion and extracting results of a task is
+ * {@link #join}.  Unlike {@link Future#get}, a worker thread that joins
+ * a task that is not yet done does not just block: it runs its own
+ * pending tasks, or tasks stolen from other workers, until the joined
+ * task completes.  This keeps recursive divide-and-conquer computations
+ * from starving the pool of threads.
+ *
+ * <p>ForkJoinTasks should perform relatively small amounts of
+ * computation and should avoid synchronization and blocking I/O; a
+ * task that must block should do so through
+ * {@link ForkJoinPool#managedBlock}.  Most applications extend one of
+ * the subclasses {@link RecursiveAction}, for computations without
+ * results, or {@link RecursiveTask}, for computations that return one.
+ *
+ * <p>If a task completes abnormally, {@link #join} and {@link #invoke}
+ * rethrow its <tt>RuntimeException</tt> or <tt>Error</tt>; other
+ * exceptions are wrapped in a <tt>RuntimeException</tt>.  {@link #get}
+ * reports them as an {@link ExecutionException}.  A cancelled task
+ * throws {@link CancellationException}.
+ *
+ * @since 1.7
+ * @param <V> the type of the result of the task
+ */
+public abstract class ForkJoinTask<V> implements Future<V>, Serializable {
+
+    private static final long serialVersionUID = -7721805057305804111L;
+
+    /*
+     * The run status of the task.  Non-negative while the task is not
+     * done; SIGNAL is set when some thread is blocked waiting for it,
+     * and is then notified through the task's monitor on completion.
+     */
+    static final int SIGNAL      =  1;
+    static final int NORMAL      = -1;
+    static final int CANCELLED   = -2;
+    static final int EXCEPTIONAL = -3;
+
+    volatile int status;
+
+    /** The exception thrown by the computation, when EXCEPTIONAL */
+    private volatile Throwable exception;
+
+    private static final AtomicIntegerFieldUpdater<ForkJoinTask> statusUpdater =
+        AtomicIntegerFieldUpdater.newUpdater(ForkJoinTask.class, "status");
+
+    /**
+     * How long a worker waiting in join() blocks before it looks again
+     * for tasks it could help with.
+     */
+    private static final long JOIN_RESCAN_MILLIS = 10;
+
+    /**
+     * Marks the task done with the given status, unless it already is,
+     * and wakes up threads waiting for it.
+     *
+     * @return the status of the task on exit
+     */
+    private int setCompletion(int completion) {
+        for (;;) {
+            int s = status;
+            if (s < 0)
+                return s;
+            if (statusUpdater.compareAndSet(this, s, completion)) {
+                if (s != 0)
+                    synchronized (this) { notifyAll(); }
+                return completion;
+            }
+        }
+    }
+
+    private int setExceptionalCompletion(Throwable ex) {
+        if (status >= 0 && exception == null)
+            exception = ex;
+        return setCompletion(EXCEPTIONAL);
+    }
+
+    /**
+     * Runs the task if it is not already done, recording how it
+     * completed.
+     */
+    final void doExec() {
+        if (status >= 0) {
+            boolean completed;
+            try {
+                completed = exec();
+            } catch (Throwable ex) {
+                setExceptionalCompletion(ex);
+                return;
+            }
+            if (completed)
+                setCompletion(NORMAL);
+        }
+    }
+
+    /**
+     * Blocks a non-worker thread until the task is done, or, if
+     * <tt>millis</tt> is positive, until that many milliseconds have
+     * elapsed.
+     *
+     * @param interruptible whether to give up with an
+     *        <tt>InterruptedException</tt> when interrupted.  If not,
+     *        interrupts are deferred until the task is done.
+     */
+    private void awaitDone(boolean interruptible, long millis)
+        throws InterruptedException {
+        boolean interrupted = false;
+        long deadline = (millis > 0) ? System.currentTimeMillis() + millis : 0;
+        try {
+            int s;
+            while ((s = status) >= 0) {
+                long wait = 0;
+                if (deadline != 0 &&
+                    (wait = deadline - System.currentTimeMillis()) <= 0)
+                    break;
+                if (s == SIGNAL || statusUpdater.compareAndSet(this, s, SIGNAL)) {
+                    synchronized (this) {
+                        if (status >= 0) {
+                            try {
+                                wait(wait);
+                            } catch (InterruptedException ie) {
+                                if (interruptible)
+                                    throw ie;
+                                interrupted = true;
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks the calling worker thread for a short while, or until the
+     * task is done.  Used by a joining worker that found nothing to
+     * help with.
+     */
+    final void awaitDoneBriefly() {
+        int s = status;
+        if (s >= 0 &&
+            (s == SIGNAL || statusUpdater.compareAndSet(this, s, SIGNAL))) {
+            synchronized (this) {
+                if (status >= 0) {
+                    try {
+                        wait(JOIN_RESCAN_MILLIS);
+                    } catch (InterruptedException ignore) {
+                        // workers clear interrupts between tasks anyway
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the task to be done, helping the pool in the meantime
+     * when called from a worker thread.
+     */
+    private void doJoin() {
+        Thread t = Thread.currentThread();
+        if (t instanceof ForkJoinWorkerThread) {
+            ForkJoinWorkerThread w = (ForkJoinWorkerThread)t;
+            if (w.unpushTask(this))
+                doExec();
+            if (status >= 0)
+                w.pool.awaitJoin(w, this);
+        } else {
+            try {
+                awaitDone(false, 0);
+            } catch (InterruptedException cannotHappen) {
+            }
+        }
+    }
+
+    /**
+     * Returns the result of a completed task, or throws the exception
+     * it completed with.
+     */
+    private V reportResult() {
+        int s = status;
+        if (s == CANCELLED)
+            throw new CancellationException();
+        if (s == EXCEPTIONAL) {
+            Throwable ex = exception;
+            if (ex instanceof RuntimeException)
+                throw (RuntimeException)ex;
+            if (ex instanceof Error)
+                throw (Error)ex;
+            throw new RuntimeException(ex);
+        }
+        return getRawResult();
+    }
+
+    /**
+     * Returns the result of a completed task for {@link #get}.
+     */
+    private V reportFutureResult() throws ExecutionException {
+        int s = status;
+        if (s == CANCELLED)
+            throw new CancellationException();
+        if (s == EXCEPTIONAL)
+            throw new ExecutionException(exception);
+        return getRawResult();
+    }
+
+    // public methods
+
+    /**
+     * Arranges to asynchronously execute this task.  When called from
+     * a worker thread, the task is pushed on that worker's deque;
+     * otherwise it is submitted to the {@link ForkJoinPool#commonPool}.
+     * It is a usage error to fork a task more than once unless it has
+     * completed and been reinitialized.
+     *
+     * @return <tt>this</tt>, to simplify usage
+     */
+    public final ForkJoinTask<V> fork() {
+        Thread t = Thread.currentThread();
+        if (t instanceof ForkJoinWorkerThread)
+            ((ForkJoinWorkerThread)t).pushTask(this);
+        else
+            ForkJoinPool.commonPool().externalPush(this);
+        return this;
+    }
+
+    /**
+     * Returns the result of the computation when it is done.  Abnormal
+     * completion is reported by throwing a
+     * <tt>RuntimeException</tt> or <tt>Error</tt>, not an
+     * <tt>ExecutionException</tt>, and interrupts of the calling
+     * thread do not make this method return abruptly.
+     *
+     * @return the computed result
+     */
+    public final V join() {
+        if (status >= 0)
+            doJoin();
+        return reportResult();
+    }
+
+    /**
+     * Commences performing this task in the calling thread, awaits its
+     * completion if necessary, and returns its result.
+     *
+     * @return the computed result
+     */
+    public final V invoke() {
+        doExec();
+        if (status >= 0)
+            doJoin();
+        return reportResult();
+    }
+
+    /**
+     * Forks <tt>t2</tt>, invokes <tt>t1</tt> and joins <tt>t2</tt>.
+     * If either task completes abnormally, the exception of the
+     * first one to be found is rethrown as by {@link #join}.
+     *
+     * @param t1 the first task
+     * @param t2 the second task
+     * @throws NullPointerException if any task is null
+     */
+    public static void invokeAll(ForkJoinTask<?> t1, ForkJoinTask<?> t2) {
+        t2.fork();
+        t1.invoke();
+        t2.join();
+    }
+
+    /**
+     * Forks all the given tasks but the first, invokes the first, and
+     * joins the others in order.  If any task completes abnormally,
+     * the exception of the first one to be found is rethrown as by
+     * {@link #join}, after all the tasks are done.
+     *
+     * @param tasks the tasks
+     * @throws NullPointerException if any task is null
+     */
+    public static void invokeAll(ForkJoinTask<?>... tasks) {
+        int last = tasks.length - 1;
+        for (int i = last; i > 0; i--)
+            tasks[i].fork();
+        RuntimeException rex = null;
+        Error err = null;
+        for (int i = 0; i <= last; i++) {
+            try {
+                if (i == 0)
+                    tasks[i].invoke();
+                else
+                    tasks[i].join();
+            } catch (RuntimeException ex) {
+                if (rex == null && err == null)
+                    rex = ex;
+            } catch (Error ex) {
+                if (rex == null && err == null)
+                    err = ex;
+            }
+        }
+        if (rex != null)
+            throw rex;
+        if (err != null)
+            throw err;
+    }
+
+    /**
+     * Attempts to cancel execution of this task.  This fails if the
+     * task has already completed.  Once successful, the task will not
+     * be run, and {@link #join} and related methods throw
+     * {@link CancellationException}.
+     *
+     * @param mayInterruptIfRunning ignored: running tasks are never
+     *        interrupted
+     * @return <tt>true</tt> if this task is now cancelled
+     */
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return setCompletion(CANCELLED) == CANCELLED;
+    }
+
+    public final boolean isDone() {
+        return status < 0;
+    }
+
+    public final boolean isCancelled() {
+        return status == CANCELLED;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this task threw an exception or was
+     * cancelled.
+     */
+    public final boolean isCompletedAbnormally() {
+        return status < NORMAL;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this task completed without throwing an
+     * exception and was not cancelled.
+     */
+    public final boolean isCompletedNormally() {
+        return status == NORMAL;
+    }
+
+    /**
+     * Returns the exception thrown by the computation, a
+     * <tt>CancellationException</tt> if cancelled, or <tt>null</tt> if
+     * none or if the task is not done.
+     */
+    public final Throwable getException() {
+        int s = status;
+        if (s == CANCELLED)
+            return new CancellationException();
+        if (s == EXCEPTIONAL)
+            return exception;
+        return null;
+    }
+
+    /**
+     * Completes this task abnormally, so that {@link #join} and related
+     * methods throw the given exception.  Has no effect on a task that
+     * is already done.
+     *
+     * @param ex the exception to report
+     */
+    public void completeExceptionally(Throwable ex) {
+        setExceptionalCompletion(ex);
+    }
+
+    /**
+     * Completes this task with the given result, without running it,
+     * unless it is already done.
+     *
+     * @param value the result value for this task
+     */
+    public void complete(V value) {
+        setRawResult(value);
+        setCompletion(NORMAL);
+    }
+
+    /**
+     * Waits if necessary for the computation to complete, and then
+     * retrieves its result.
+     *
+     * @return the computed result
+     * @throws CancellationException if the computation was cancelled
+     * @throws ExecutionException if the computation threw an exception
+     * @throws InterruptedException if the current thread is not a
+     *         worker thread and was interrupted while waiting
+     */
+    public final V get() throws InterruptedException, ExecutionException {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+            if (status >= 0)
+                doJoin();
+        } else {
+            awaitDone(true, 0);
+        }
+        return reportFutureResult();
+    }
+
+    /**
+     * Waits if necessary for at most the given time for the
+     * computation to complete, and then retrieves its result.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @return the computed result
+     * @throws CancellationException if the computation was cancelled
+     * @throws ExecutionException if the computation threw an exception
+     * @throws InterruptedException if the current thread was
+     *         interrupted while waiting
+     * @throws TimeoutException if the wait timed out
+     */
+    public final V get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        Thread t = Thread.currentThread();
+        if (status >= 0 && t instanceof ForkJoinWorkerThread &&
+            ((ForkJoinWorkerThread)t).unpushTask(this))
+            doExec();
+        if (status >= 0)
+            awaitDone(true, Math.max(1, unit.toMillis(timeout)));
+        if (status >= 0)
+            throw new TimeoutException();
+        return reportFutureResult();
+    }
+
+    /**
+     * Joins this task, without returning its result or throwing its
+     * exception.
+     */
+    public final void quietlyJoin() {
+        if (status >= 0)
+            doJoin();
+    }
+
+    /**
+     * Commences performing this task and awaits its completion if
+     * necessary, without returning its result or throwing its
+     * exception.
+     */
+    public final void quietlyInvoke() {
+        doExec();
+        if (status >= 0)
+            doJoin();
+    }
+
+    /**
+     * Resets the internal bookkeeping state of this task, allowing a
+     * subsequent <tt>fork</tt>.  This method must only be called on a
+     * task that is done or was never forked.
+     */
+    public void reinitialize() {
+        exception = null;
+        status = 0;
+    }
+
+    /**
+     * Tries to unschedule this task for execution.  This succeeds if
+     * the task is the most recently forked task of the current worker
+     * thread and has not been started or stolen.
+     *
+     * @return <tt>true</tt> if unforked
+     */
+    public boolean tryUnfork() {
+        Thread t = Thread.currentThread();
+        return (t instanceof ForkJoinWorkerThread) &&
+            ((ForkJoinWorkerThread)t).unpushTask(this);
+    }
+
+    /**
+     * Returns the pool hosting the current task execution, or null if
+     * this task is executing outside of any ForkJoinPool.
+     */
+    public static ForkJoinPool getPool() {
+        Thread t = Thread.currentThread();
+        return (t instanceof ForkJoinWorkerThread) ?
+            ((ForkJoinWorkerThread)t).pool : null;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the current thread is a
+     * {@link ForkJoinWorkerThread} executing as a ForkJoinPool
+     * computation.
+     */
+    public static boolean inForkJoinPool() {
+        return Thread.currentThread() instanceof ForkJoinWorkerThread;
+    }
+
+    // Extension methods
+
+    /**
+     * Returns the result that would be returned by {@link #join}, even
+     * if this task completed abnormally, or <tt>null</tt> if this task
+     * is not known to have been completed.
+     *
+     * @return the result, or <tt>null</tt> if not completed
+     */
+    public abstract V getRawResult();
+
+    /**
+     * Forces the given value to be returned as a result.
+     *
+     * @param value the value
+     */
+    protected abstract void setRawResult(V value);
+
+    /**
+     * Immediately performs the base action of this task.  Exceptions
+     * thrown by this method complete the task abnormally.
+     *
+     * @return <tt>true</tt> if this task is known to have completed
+     *         normally; <tt>false</tt> if it will be completed later,
+     *         through {@link #complete} for instance
+     */
+    protected abstract boolean exec();
+
+    // Adaptors
+
+    /**
+     * Adaptor for Runnables.
+     */
+    static final class AdaptedRunnable<T> extends ForkJoinTask<T>
+        implements RunnableFuture<T> {
+        final Runnable runnable;
+        final T resultOnCompletion;
+        T result;
+        AdaptedRunnable(Runnable runnable, T result) {
+            if (runnable == null) throw new NullPointerException();
+            this.runnable = runnable;
+            this.resultOnCompletion = result;
+        }
+        public T getRawResult() { return result; }
+        public void setRawResult(T v) { result = v; }
+        public boolean exec() {
+            runnable.run();
+            result = resultOnCompletion;
+            return true;
+        }
+        public void run() { invoke(); }
+        private static final long serialVersionUID = 5232453952276885070L;
+    }
+
+    /**
+     * Adaptor for Callables.
+     */
+    static final class AdaptedCallable<T> extends ForkJoinTask<T>
+        implements RunnableFuture<T> {
+        final Callable<? extends T> callable;
+        T result;
+        AdaptedCallable(Callable<? extends T> callable) {
+            if (callable == null) throw new NullPointerException();
+            this.callable = callable;
+        }
+        public T getRawResult() { return result; }
+        public void setRawResult(T v) { result = v; }
+        public boolean exec() {
+            try {
+                result = callable.call();
+                return true;
+            } catch (RuntimeException rex) {
+                throw rex;
+            } catch (Exception ex) {
+                completeExceptionally(ex);
+                return false;
+            }
+        }
+        public void run() { invoke(); }
+        private static final long serialVersionUID = 2838392045355241008L;
+    }
+
+    /**
+     * Returns a new <tt>ForkJoinTask</tt> that performs the <tt>run</tt>
+     * method of the given <tt>Runnable</tt> as its action, and returns
+     * a null result upon {@link #join}.
+     *
+     * @param runnable the runnable action
+     * @return the task
+     */
+    public static ForkJoinTask<?> adapt(Runnable runnable) {
+        return new AdaptedRunnable<Void>(runnable, null);
+    }
+
+    /**
+     * Returns a new <tt>ForkJoinTask</tt> that performs the <tt>run</tt>
+     * method of the given <tt>Runnable</tt> as its action, and returns
+     * the given result upon {@link #join}.
+     *
+     * @param runnable the runnable action
+     * @param result the result upon completion
+     * @return the task
+     */
+    public static <T> ForkJoinTask<T> adapt(Runnable runnable, T result) {
+        return new AdaptedRunnable<T>(runnable, result);
+    }
+
+    /**
+     * Returns a new <tt>ForkJoinTask</tt> that performs the <tt>call</tt>
+     * method of the given <tt>Callable</tt> as its action, and returns
+     * its result upon {@link #join}.  A checked exception thrown by
+     * <tt>call</tt> is wrapped in a <tt>RuntimeException</tt> by
+     * {@link #join}, and reported as is by {@link #get}.
+     *
+     * @param callable the callable action
+     * @return the task
+     */
+    public static <T> ForkJoinTask<T> adapt(Callable<? extends T> callable) {
+        return new AdaptedCallable<T>(callable);
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util.concurrent;
+import sun.misc.Unsafe;
+
+/**
+ * A thread managed by a {@link ForkJoinPool}, which executes
+ * {@link ForkJoinTask}s.  Each worker owns a double-ended queue of
+ * tasks: tasks it forks are pushed on and popped from the top, in LIFO
+ * order, while other workers with nothing to do steal the oldest tasks
+ * from the base.  This class is subclassable solely for the sake of
+ * adding functionality; its scheduling and execution methods cannot be
+ * overridden.
+ *
+ * @since 1.7
+ */
+public class ForkJoinWorkerThread extends Thread {
+    /*
+     * The deque is a circular array whose size is a power of two.
+     * Only the owner pushes and pops, at queueTop; thieves take from
+     * queueBase.  A task is claimed, by the owner or by a thief, by
+     * CASing its slot from the task to null, so that each task is run
+     * only once even when the owner and a thief race for the last
+     * element.  When the array fills up the owner allocates a bigger
+     * one, publishes it, and moves the tasks over by claiming them
+     * from the old array, so that thieves still working on the old
+     * array cannot take a task twice.
+     */
+
+    /** Initial capacity of the deque.  Must be a power of two. */
+    private static final int INITIAL_QUEUE_CAPACITY = 1 << 13;
+
+    /** Maximum capacity of the deque.  Must be a power of two. */
+    private static final int MAXIMUM_QUEUE_CAPACITY = 1 << 24;
+
+    /** The pool this thread works in. */
+    final ForkJoinPool pool;
+
+    /** Index of this worker in the order workers were created. */
+    private final int poolIndex;
+
+    private volatile ForkJoinTask<?>[] queue;
+
+    /** Index of the next slot to steal from. */
+    private volatile int queueBase;
+
+    /** Index of the next slot to push to; written by the owner only. */
+    private volatile int queueTop;
+
+    /** Number of tasks stolen by this worker; read by the pool. */
+    volatile int stealCount;
+
+    /** Set while the worker is parked waiting for work. */
+    volatile boolean parked;
+
+    /** Seed for choosing the victim of a steal. */
+    private int seed;
+
+    /**
+     * Creates a ForkJoinWorkerThread operating in the given pool.
+     *
+     * @param pool the pool this thread works in
+     * @throws NullPointerException if pool is null
+     */
+    protected ForkJoinWorkerThread(ForkJoinPool pool) {
+        this.pool = pool;
+        this.poolIndex = pool.nextWorkerIndex();
+        this.seed = System.identityHashCode(this) | 1;
+        setName(pool.getWorkerNamePrefix() + poolIndex);
+        setDaemon(true);
+    }
+
+    /**
+     * Returns the pool hosting this thread.
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns the number of this thread in the order in which the
+     * pool created its workers, starting at 1.
+     */
+    public int getPoolIndex() {
+        return poolIndex;
+    }
+
+    /**
+     * Initializes internal state after construction but before
+     * processing any tasks.  If you override this method, you must
+     * invoke <tt>super.onStart()</tt> at the beginning of the method.
+     */
+    protected void onStart() {
+        queue = new ForkJoinTask<?>[INITIAL_QUEUE_CAPACITY];
+    }
+
+    /**
+     * Performs cleanup associated with termination of this worker
+     * thread.  If you override this method, you must invoke
+     * <tt>super.onTermination</tt> at the end of the overridden method.
+     *
+     * @param exception the exception causing this thread to abort due
+     *        to an unrecoverable error, or <tt>null</tt> if completed
+     *        normally
+     */
+    protected void onTermination(Throwable exception) {
+        // Tasks that can no longer be run must not leave joiners waiting
+        ForkJoinTask<?> t;
+        while ((t = pollTask()) != null)
+            t.cancel(false);
+    }
+
+    /**
+     * This method is required to be public, but should never be
+     * called explicitly.  It performs the main run loop to execute
+     * {@link ForkJoinTask}s.
+     */
+    public void run() {
+        Throwable exception = null;
+        try {
+            onStart();
+            pool.work(this);
+        } catch (RuntimeException ex) {
+            exception = ex;
+            throw ex;
+        } catch (Error ex) {
+            exception = ex;
+            throw ex;
+        } finally {
+            try {
+                onTermination(exception);
+            } finally {
+                pool.deregisterWorker(this, exception);
+            }
+        }
+    }
+
+    // Deque operations
+
+    private static long slotOffset(ForkJoinTask<?>[] q, int i) {
+        return ((long)(i & (q.length - 1)) << ASHIFT) + ABASE;
+    }
+
+    /**
+     * Pushes a task.  Called only by the owner.  The pool is signalled
+     * when the push finds the deque empty or nearly empty, since no
+     * thief may then be looking at it; a deeper deque already has
+     * thieves, each of which signals another worker when it leaves
+     * tasks behind (see scan).
+     */
+    final void pushTask(ForkJoinTask<?> t) {
+        ForkJoinTask<?>[] q = queue;
+        int s = queueTop;
+        unsafe.putOrderedObject(q, slotOffset(q, s), t);
+        queueTop = s + 1;
+        int n = s - queueBase;          // tasks found by this push
+        if (n <= 1)
+            pool.signalWork();
+        else if (n + 1 >= q.length)
+            growQueue();
+    }
+
+    /**
+     * Doubles the capacity of the deque.  Called only by the owner.
+     */
+    private void growQueue() {
+        ForkJoinTask<?>[] oldQ = queue;
+        int size = oldQ.length << 1;
+        if (size > MAXIMUM_QUEUE_CAPACITY)
+            throw new RejectedExecutionException("Queue capacity exceeded");
+        ForkJoinTask<?>[] q = queue = new ForkJoinTask<?>[size];
+        int top = queueTop;
+        for (int b = queueBase; b != top; b++) {
+            long u = slotOffset(oldQ, b);
+            ForkJoinTask<?> t = (ForkJoinTask<?>)unsafe.getObjectVolatile(oldQ, u);
+            if (t != null && unsafe.compareAndSwapObject(oldQ, u, t, null))
+                unsafe.putObjectVolatile(q, slotOffset(q, b), t);
+        }
+    }
+
+    /**
+     * Pops the most recently pushed task, or returns null if the deque
+     * is empty.  Called only by the owner.
+     */
+    final ForkJoinTask<?> popTask() {
+        ForkJoinTask<?>[] q = queue;
+        if (q == null)
+            return null;
+        int s;
+        while ((s = queueTop) != queueBase) {
+            long u = slotOffset(q, s - 1);
+            ForkJoinTask<?> t = (ForkJoinTask<?>)unsafe.getObjectVolatile(q, u);
+            if (t == null)
+                break;
+            if (unsafe.compareAndSwapObject(q, u, t, null)) {
+                queueTop = s - 1;
+                return t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given task if it is the most recently pushed one.
+     * Called only by the owner.
+     */
+    final boolean unpushTask(ForkJoinTask<?> t) {
+        ForkJoinTask<?>[] q = queue;
+        int s;
+        if (q != null && (s = queueTop) != queueBase &&
+            unsafe.compareAndSwapObject(q, slotOffset(q, s - 1), t, null)) {
+            queueTop = s - 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes the oldest task, or returns null if the deque is empty or
+     * the task was taken by another thread meanwhile.  Called by
+     * thieves.
+     */
+    final ForkJoinTask<?> pollTask() {
+        ForkJoinTask<?>[] q;
+        int b;
+        while ((b = queueBase) != queueTop && (q = queue) != null) {
+            long u = slotOffset(q, b);
+            ForkJoinTask<?> t = (ForkJoinTask<?>)unsafe.getObjectVolatile(q, u);
+            if (t == null || queueBase != b)
+                return null;
+            if (unsafe.compareAndSwapObject(q, u, t, null)) {
+                queueBase = b + 1;
+                return t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the deque appears to hold tasks.
+     */
+    final boolean hasQueuedTasks() {
+        return queueBase != queueTop;
+    }
+
+    /**
+     * Returns an estimate of the number of tasks in the deque.
+     */
+    final int getQueueSize() {
+        int n = queueTop - queueBase;
+        return (n < 0) ? 0 : n;
+    }
+
+    /**
+     * Tries to steal a task from some other worker, starting with a
+     * randomly chosen one.
+     */
+    final ForkJoinTask<?> scan(ForkJoinWorkerThread[] ws) {
+        int n = ws.length;
+        if (n > 1) {
+            int r = seed;
+            r ^= r << 13; r ^= r >>> 17; r ^= r << 5;
+            seed = r;
+            int origin = (r & Integer.MAX_VALUE) % n;
+            for (int i = 0; i < n; i++) {
+                ForkJoinWorkerThread v = ws[(origin + i) % n];
+                if (v != this && v.hasQueuedTasks()) {
+                    ForkJoinTask<?> t = v.pollTask();
+                    if (t != null) {
+                        stealCount++;
+                        // Pass the work on: the victim signalled only
+                        // for its first tasks, so wake another worker
+                        // while some are left.
+                        if (v.hasQueuedTasks())
+                            pool.signalWork();
+                        return t;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // Unsafe mechanics
+
+    private static final Unsafe unsafe = Unsafe.getUnsafe();
+    private static final long ABASE;
+    private static final int ASHIFT;
+
+    static {
+        ABASE = unsafe.arrayBaseOffset(ForkJoinTask[].class);
+        int scale = unsafe.arrayIndexScale(ForkJoinTask[].class);
+        if ((scale & (scale - 1)) != 0)
+            throw new Error("data type scale not a power of two");
+        ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+    }
+}
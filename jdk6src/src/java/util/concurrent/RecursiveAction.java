@@ -0,0 +1,64 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util.concurrent;
+
+/**
+ * A recursive resultless {@link ForkJoinTask}.  This class establishes
+ * conventions to parameterize resultless actions as <tt>Void</tt>
+ * <tt>ForkJoinTask</tt>s.  Because <tt>null</tt> is the only valid
+ * value of type <tt>Void</tt>, methods such as <tt>join</tt> always
+ * return <tt>null</tt> upon completion.
+ *
+ * <p>Sample Usage.  Here is a simple but complete ForkJoin sort that
+ * sorts a given <tt>long[]</tt> array:
+ * <pre>
+ * class SortTask extends RecursiveAction {
+ *   final long[] array; final int lo, hi;
+ *   SortTask(long[] array, int lo, int hi) {
+ *     this.array = array; this.lo = lo; this.hi = hi;
+ *   }
+ *   protected void compute() {
+ *     if (hi - lo &lt; THRESHOLD)
+ *       Arrays.sort(array, lo, hi);
+ *     else {
+ *       int mid = (lo + hi) &gt;&gt;&gt; 1;
+ *       invokeAll(new SortTask(array, lo, mid),
+ *                 new SortTask(array, mid, hi));
+ *       merge(lo, mid, hi);
+ *     }
+ *   }
+ * }</pre>
+ *
+ * @since 1.7
+ */
+public abstract class RecursiveAction extends ForkJoinTask<Void> {
+    private static final long serialVersionUID = 5232453952276485070L;
+
+    /**
+     * The main computation performed by this task.
+     */
+    protected abstract void compute();
+
+    /**
+     * Always returns <tt>null</tt>.
+     *
+     * @return <tt>null</tt> always
+     */
+    public final Void getRawResult() { return null; }
+
+    /**
+     * Requires null completion value.
+     */
+    protected final void setRawResult(Void mustBeNull) { }
+
+    /**
+     * Implements execution conventions for RecursiveActions.
+     */
+    protected final boolean exec() {
+        compute();
+        return true;
+    }
+}
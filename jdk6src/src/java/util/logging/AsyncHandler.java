@@ -0,0 +1,572 @@
+/*
+ * @(#)AsyncHandler.java	1.1 06/06/15
+ *
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <tt>Handler</tt> that hands <tt>LogRecords</tt> to a background
+ * writer thread through a bounded in-memory queue.
+ * <p>
+ * Calling threads only enqueue the record; they never format it and
+ * never wait on the target <tt>Handler</tt>'s lock.  A single writer
+ * thread drains the queue, publishes each record to the target
+ * <tt>Handler</tt> (typically a <tt>FileHandler</tt>), and flushes the
+ * target once per drained batch rather than once per record.  Since
+ * the writer is the only thread publishing to the target, the target's
+ * own <tt>synchronized</tt> <tt>publish</tt> method is never contended.
+ * <p>
+ * The queue is a fixed size, lock-free ring.  When it is full the
+ * <tt>overflow</tt> policy decides what happens to the incoming record:
+ * <ul>
+ * <li> <tt>block</tt> - the calling thread waits until the writer
+ *	has made room.  No records are lost.
+ * <li> <tt>dropLowestLevel</tt> - records whose level is below the
+ *	<tt>retainLevel</tt> are discarded; records at or above it wait
+ *	as for <tt>block</tt>.
+ * <li> <tt>dropOldest</tt> - the oldest queued record is discarded to
+ *	make room for the incoming one.
+ * </ul>
+ * Discarded records are counted, and the counts are reported both by
+ * {@link #getDroppedCount} and, summed over all <tt>AsyncHandlers</tt>,
+ * by {@link #getTotalDroppedCount}.  The totals are also available
+ * through the {@link AsyncHandlerMXBean}.
+ * <p>
+ * <b>Configuration:</b>
+ * By default each <tt>AsyncHandler</tt> is initialized using the following
+ * LogManager configuration properties.  If properties are not defined
+ * (or have invalid values) then the specified default values are used.
+ * If no default value is defined then a RuntimeException is thrown.
+ * <ul>
+ * <li>   java.util.logging.AsyncHandler.level
+ *	  specifies the level for the <tt>Handler</tt>
+ *        (defaults to <tt>Level.ALL</tt>).
+ * <li>   java.util.logging.AsyncHandler.filter
+ *	  specifies the name of a <tt>Filter</tt> class to use
+ *	  (defaults to no <tt>Filter</tt>).
+ * <li>   java.util.logging.AsyncHandler.size
+ *	  defines the queue size, rounded up to a power of two
+ *	  (defaults to 1024).
+ * <li>   java.util.logging.AsyncHandler.overflow
+ *	  defines the overflow policy, one of <tt>block</tt>,
+ *	  <tt>dropLowestLevel</tt> or <tt>dropOldest</tt>
+ *	  (defaults to <tt>block</tt>).
+ * <li>   java.util.logging.AsyncHandler.retainLevel
+ *	  defines the lowest level that is never dropped by the
+ *	  <tt>dropLowestLevel</tt> policy (defaults to <tt>Level.WARNING</tt>).
+ * <li>   java.util.logging.AsyncHandler.target
+ *	  specifies the name of the target <tt>Handler </tt> class.
+ *	  (no default).
+ * </ul>
+ *
+ * @version 1.1, 06/15/06
+ * @since 1.6
+ */
+
+public class AsyncHandler extends Handler {
+    private final static int DEFAULT_SIZE = 1024;
+    private final static int MAX_BATCH = 256;
+
+    private final static int BLOCK = 0;
+    private final static int DROP_LOWEST_LEVEL = 1;
+    private final static int DROP_OLDEST = 2;
+
+    /**
+     * String representation of the
+     * {@link javax.management.ObjectName} for {@link AsyncHandlerMXBean}.
+     */
+    public final static String ASYNC_HANDLER_MXBEAN_NAME
+        = "java.util.logging:type=AsyncHandler";
+
+    // Totals over all AsyncHandlers.
+    private final static AtomicLong totalQueued = new AtomicLong();
+    private final static AtomicLong totalDropped = new AtomicLong();
+    private final static AtomicLong totalDroppedOldest = new AtomicLong();
+    private static AsyncHandlerMXBean asyncHandlerMXBean = null;
+
+    private Handler target;
+    private int overflow;
+    private Level retainLevel;
+
+    // Bounded multi-producer ring.  Each slot carries a sequence number
+    // telling producers and the consumer whose turn it is: a slot with
+    // sequence == pos is free for the producer claiming pos, and a slot
+    // with sequence == pos + 1 holds the record enqueued at pos.
+    private AtomicReferenceArray<LogRecord> buffer;
+    private AtomicLongArray sequence;
+    private int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong droppedOldest = new AtomicLong();
+
+    // Every record enqueued before position published has been either
+    // published to the target or dropped.  It is advanced by the thread
+    // draining the queue, which until close is the writer alone, only
+    // after target.publish has returned.
+    private volatile long published;
+
+    private Thread writer;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+
+    // Threads waiting for the writer to make progress (producers under
+    // the block policy, and flush) wait on drained.  The writer signals
+    // it after each batch, but takes the lock only when waiters > 0.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    private volatile int waiters;
+    // Set by close, under lock, once the target no longer accepts records.
+    private boolean targetClosed;
+
+    // Private method to configure an AsyncHandler from LogManager
+    // properties and/or default values as specified in the class
+    // javadoc.
+    private int configure() {
+        LogManager manager = LogManager.getLogManager();
+	String cname = getClass().getName();
+
+	int size = manager.getIntProperty(cname + ".size", DEFAULT_SIZE);
+	if (size <= 0) {
+	    size = DEFAULT_SIZE;
+	}
+	String policy = manager.getStringProperty(cname + ".overflow", "block");
+	if (policy.equalsIgnoreCase("dropLowestLevel")) {
+	    overflow = DROP_LOWEST_LEVEL;
+	} else if (policy.equalsIgnoreCase("dropOldest")) {
+	    overflow = DROP_OLDEST;
+	} else {
+	    overflow = BLOCK;
+	}
+	retainLevel = manager.getLevelProperty(cname + ".retainLevel", Level.WARNING);
+	setLevel(manager.getLevelProperty(cname +".level", Level.ALL));
+	setFilter(manager.getFilterProperty(cname +".filter", null));
+	return size;
+    }
+
+    /**
+     * Create an <tt>AsyncHandler</tt> and configure it based on
+     * <tt>LogManager</tt> configuration properties.
+     */
+    public AsyncHandler() {
+	sealed = false;
+	int size = configure();
+	sealed = true;
+
+	String name = "???";
+	try {
+            LogManager manager = LogManager.getLogManager();
+	    name = manager.getProperty("java.util.logging.AsyncHandler.target");
+	    Class clz = ClassLoader.getSystemClassLoader().loadClass(name);
+	    target = (Handler) clz.newInstance();
+	} catch (Exception ex) {
+	    throw new RuntimeException("AsyncHandler can't load handler \"" + name + "\"" , ex);
+	}
+	init(size);
+    }
+
+    /**
+     * Create an <tt>AsyncHandler</tt>.
+     * <p>
+     * The <tt>AsyncHandler</tt> is configured based on <tt>LogManager</tt>
+     * properties (or their default values) except that the given queue
+     * size is used.
+     *
+     * @param target  the Handler to which to publish output.
+     * @param size    the number of log records to queue (must be greater
+     *		      than zero; rounded up to a power of two)
+     *
+     * @throws IllegalArgumentException is size is <= 0
+     */
+    public AsyncHandler(Handler target, int size) {
+	if (target == null) {
+	    throw new NullPointerException();
+	}
+	if (size <= 0) {
+	    throw new IllegalArgumentException();
+	}
+	sealed = false;
+	configure();
+	sealed = true;
+	this.target = target;
+	init(size);
+    }
+
+    // Initialize the ring and start the writer thread.
+    private void init(int size) {
+	int capacity = 1;
+	while (capacity < size && capacity < (1 << 30)) {
+	    capacity <<= 1;
+	}
+	mask = capacity - 1;
+	buffer = new AtomicReferenceArray<LogRecord>(capacity);
+	sequence = new AtomicLongArray(capacity);
+	for (int i = 0; i < capacity; i++) {
+	    sequence.set(i, i);
+	}
+	writer = new Thread(new Writer(), "AsyncHandler writer");
+	writer.setDaemon(true);
+	writer.setContextClassLoader(null);
+	writer.start();
+    }
+
+    /**
+     * Queue a <tt>LogRecord</tt> for publication by the writer thread.
+     * <p>
+     * If there is a <tt>Filter</tt>, its <tt>isLoggable</tt>
+     * method is called to check if the given log record is loggable.
+     * If not we return.  Otherwise the caller information of the record
+     * is computed, since that can only be done on the calling thread,
+     * and the record is added to the queue, subject to the overflow
+     * policy when the queue is full.
+     * <p>
+     * The record must not be modified after it has been published.
+     *
+     * @param  record  description of the log event. A null record is
+     *                 silently ignored and is not published
+     */
+    public void publish(LogRecord record) {
+	if (closed || !isLoggable(record)) {
+	    return;
+	}
+	// Force the lazy stack walk while we are still on the caller.
+	record.getSourceClassName();
+
+	while (!offer(record)) {
+	    if (overflow == DROP_OLDEST) {
+		if (poll() != null) {
+		    drop();
+		    droppedOldest.incrementAndGet();
+		    totalDroppedOldest.incrementAndGet();
+		}
+	    } else if (overflow == DROP_LOWEST_LEVEL
+		       && record.getLevel().intValue() < retainLevel.intValue()) {
+		drop();
+		return;
+	    } else if (!awaitRoom()) {
+		drop();
+		return;
+	    }
+	}
+	wakeWriter();
+	if (closed) {
+	    // close may already have drained the queue for the last time;
+	    // publish what is left, or count it as dropped.
+	    lock.lock();
+	    try {
+		if (!targetClosed) {
+		    while (drain() > 0)
+			;
+		} else {
+		    while (poll() != null) {
+			drop();
+		    }
+		}
+	    } finally {
+		lock.unlock();
+	    }
+	}
+    }
+
+    // Wait until the ring is not full.  Returns false if the handler
+    // was closed meanwhile.
+    private boolean awaitRoom() {
+	lock.lock();
+	try {
+	    waiters++;
+	    try {
+		while (!closed && tail.get() - head.get() > mask) {
+		    wakeWriter();
+		    drained.awaitUninterruptibly();
+		}
+	    } finally {
+		waiters--;
+	    }
+	    return !closed;
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    // Wake up the threads waiting for the writer to make progress.
+    private void signalDrained() {
+	if (waiters > 0) {
+	    lock.lock();
+	    try {
+		drained.signalAll();
+	    } finally {
+		lock.unlock();
+	    }
+	}
+    }
+
+    private void drop() {
+	dropped.incrementAndGet();
+	totalDropped.incrementAndGet();
+    }
+
+    private void wakeWriter() {
+	if (writerParked) {
+	    LockSupport.unpark(writer);
+	}
+    }
+
+    // Try to add a record at the tail of the ring.
+    // Returns false if the ring is full.
+    private boolean offer(LogRecord record) {
+	for (;;) {
+	    long pos = tail.get();
+	    int ix = (int) pos & mask;
+	    long diff = sequence.get(ix) - pos;
+	    if (diff == 0) {
+		if (tail.compareAndSet(pos, pos + 1)) {
+		    buffer.lazySet(ix, record);
+		    sequence.set(ix, pos + 1);
+		    totalQueued.incrementAndGet();
+		    return true;
+		}
+	    } else if (diff < 0) {
+		return false;
+	    }
+	}
+    }
+
+    // Remove the record at the head of the ring.  This is called by
+    // the writer and, under the dropOldest policy, by producers.
+    // Returns null if the ring is empty.
+    private LogRecord poll() {
+	long pos = claim();
+	return pos < 0 ? null : take(pos);
+    }
+
+    // Claim the head position of the ring.  Returns -1 if the ring
+    // is empty.
+    private long claim() {
+	for (;;) {
+	    long pos = head.get();
+	    int ix = (int) pos & mask;
+	    long diff = sequence.get(ix) - (pos + 1);
+	    if (diff == 0) {
+		if (head.compareAndSet(pos, pos + 1)) {
+		    return pos;
+		}
+	    } else if (diff < 0) {
+		return -1;
+	    }
+	}
+    }
+
+    // Take the record at a claimed position and free its slot.
+    private LogRecord take(long pos) {
+	int ix = (int) pos & mask;
+	LogRecord record = buffer.get(ix);
+	buffer.lazySet(ix, null);
+	sequence.set(ix, pos + mask + 1);
+	totalQueued.decrementAndGet();
+	return record;
+    }
+
+    // Publish up to MAX_BATCH queued records to the target and flush
+    // it once.  Returns the number of records published.
+    private int drain() {
+	int n = 0;
+	while (n < MAX_BATCH) {
+	    long pos = claim();
+	    if (pos < 0) {
+		// Every record before head has been published by us or
+		// dropped by a producer.
+		published = head.get();
+		break;
+	    }
+	    try {
+		target.publish(take(pos));
+	    } catch (Exception ex) {
+		reportError(null, ex, ErrorManager.WRITE_FAILURE);
+	    }
+	    published = pos + 1;
+	    n++;
+	}
+	if (n > 0) {
+	    try {
+		target.flush();
+	    } catch (Exception ex) {
+		reportError(null, ex, ErrorManager.FLUSH_FAILURE);
+	    }
+	}
+	return n;
+    }
+
+    private class Writer implements Runnable {
+	public void run() {
+	    try {
+		while (!closed) {
+		    int n = drain();
+		    // Signal even after an empty drain: it may have moved
+		    // published past records dropped by producers.
+		    signalDrained();
+		    if (n == 0) {
+			writerParked = true;
+			// Re-check after advertising that we are about to
+			// park, so that a concurrent offer either sees the
+			// flag or its record is seen here.
+			if (head.get() == tail.get() && !closed) {
+			    LockSupport.park(this);
+			}
+			writerParked = false;
+		    }
+		}
+	    } finally {
+		signalDrained();
+	    }
+	}
+    }
+
+    /**
+     * Wait until every record queued so far has been published (or
+     * dropped), then flush the target <tt>Handler</tt>.
+     */
+    public void flush() {
+	long pos = tail.get();
+	lock.lock();
+	try {
+	    waiters++;
+	    try {
+		while (published < pos && !closed && writer.isAlive()) {
+		    wakeWriter();
+		    drained.await();
+		}
+	    } finally {
+		waiters--;
+	    }
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	} finally {
+	    lock.unlock();
+	}
+	target.flush();
+    }
+
+    /**
+     * Stop the writer thread, publish any records still queued, and
+     * close the target <tt>Handler</tt>.
+     *
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    public void close() throws SecurityException {
+	checkAccess();
+	closed = true;
+	signalDrained();
+	LockSupport.unpark(writer);
+	if (Thread.currentThread() != writer) {
+	    try {
+		writer.join();
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+	lock.lock();
+	try {
+	    while (drain() > 0)
+		;
+	    targetClosed = true;
+	} finally {
+	    lock.unlock();
+	}
+	target.close();
+	setLevel(Level.OFF);
+    }
+
+    /**
+     * Get the number of records currently waiting to be published.
+     *
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+	long depth = tail.get() - head.get();
+	return depth < 0 ? 0 : (int) depth;
+    }
+
+    /**
+     * Get the number of records discarded by the overflow policy,
+     * or because the handler was closed while they were waiting for
+     * room in the queue.
+     *
+     * @return the number of dropped records
+     */
+    public long getDroppedCount() {
+	return dropped.get();
+    }
+
+    /**
+     * Get the number of records discarded to make room for newer ones
+     * under the <tt>dropOldest</tt> policy.  These are included in
+     * {@link #getDroppedCount}.
+     *
+     * @return the number of records dropped by the dropOldest policy
+     */
+    public long getDroppedOldestCount() {
+	return droppedOldest.get();
+    }
+
+    /**
+     * Get the number of records currently waiting to be published,
+     * summed over all <tt>AsyncHandlers</tt>.
+     *
+     * @return the total queue depth of all <tt>AsyncHandlers</tt>
+     */
+    public static long getTotalQueueDepth() {
+	long depth = totalQueued.get();
+	return depth < 0 ? 0 : depth;
+    }
+
+    /**
+     * Get the number of records discarded by all <tt>AsyncHandlers</tt>
+     * since the Java virtual machine started.
+     *
+     * @return the total number of dropped records
+     */
+    public static long getTotalDroppedCount() {
+	return totalDropped.get();
+    }
+
+    /**
+     * Get the number of records discarded by all <tt>AsyncHandlers</tt>
+     * under the <tt>dropOldest</tt> policy since the Java virtual
+     * machine started.  These are included in
+     * {@link #getTotalDroppedCount}.
+     *
+     * @return the total number of records dropped by the dropOldest policy
+     */
+    public static long getTotalDroppedOldestCount() {
+	return totalDroppedOldest.get();
+    }
+
+    /**
+     * Returns the <tt>AsyncHandlerMXBean</tt> reporting the totals over
+     * all <tt>AsyncHandlers</tt>.  It is not registered automatically;
+     * register it in an <tt>MBeanServer</tt> under
+     * {@link #ASYNC_HANDLER_MXBEAN_NAME} to make it visible to
+     * management clients.
+     *
+     * @return an {@link AsyncHandlerMXBean} object.
+     *
+     * @see java.lang.management.ManagementFactory
+     */
+    public static synchronized AsyncHandlerMXBean getAsyncHandlerMXBean() {
+	if (asyncHandlerMXBean == null) {
+	    asyncHandlerMXBean = new AsyncLogging();
+	}
+	return asyncHandlerMXBean;
+    }
+}
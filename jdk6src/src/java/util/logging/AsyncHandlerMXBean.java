@@ -0,0 +1,63 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util.logging;
+
+/**
+ * The management interface for the queues of all
+ * {@link AsyncHandler AsyncHandlers}.
+ *
+ * <p>There is a single global instance of the <tt>AsyncHandlerMXBean</tt>.
+ * This instance is an
+ * <a href="../../lang/management/ManagementFactory.html#MXBean">MXBean</a>
+ * and can be obtained by calling the
+ * {@link AsyncHandler#getAsyncHandlerMXBean} method.
+ *
+ * <p>The {@link javax.management.ObjectName ObjectName} for uniquely
+ * identifying the <tt>AsyncHandlerMXBean</tt> within an MBeanServer is:
+ * <blockquote>
+ *    {@link AsyncHandler#ASYNC_HANDLER_MXBEAN_NAME
+ *           <tt>java.util.logging:type=AsyncHandler</tt>}
+ * </blockquote>
+ *
+ * @see java.lang.management.ManagementFactory
+ * @see LoggingMXBean
+ * @since 1.6
+ */
+public interface AsyncHandlerMXBean {
+
+    /**
+     * Returns the number of records currently waiting to be published,
+     * summed over all <tt>AsyncHandlers</tt>.
+     *
+     * @return the total queue depth.
+     *
+     * @see AsyncHandler#getTotalQueueDepth
+     */
+    public long getQueueDepth();
+
+    /**
+     * Returns the number of records discarded by all
+     * <tt>AsyncHandlers</tt> since the Java virtual machine started,
+     * whatever the reason.
+     *
+     * @return the total number of dropped records.
+     *
+     * @see AsyncHandler#getTotalDroppedCount
+     */
+    public long getDroppedCount();
+
+    /**
+     * Returns the number of records discarded by all
+     * <tt>AsyncHandlers</tt> to make room for newer ones under the
+     * <tt>dropOldest</tt> policy.  These are included in
+     * {@link #getDroppedCount}.
+     *
+     * @return the total number of records dropped by the dropOldest policy.
+     *
+     * @see AsyncHandler#getTotalDroppedOldestCount
+     */
+    public long getDroppedOldestCount();
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+package java.util.logging;
+
+/**
+ * AsyncLogging is the implementation class of AsyncHandlerMXBean.
+ * It reports the totals kept by {@link AsyncHandler}.
+ *
+ * @since 1.6
+ *
+ * @see AsyncHandler
+ * @see Logging
+ */
+class AsyncLogging implements AsyncHandlerMXBean {
+
+    /** Constructor of AsyncLogging which is the implementation class
+     *  of AsyncHandlerMXBean.
+     */
+    AsyncLogging() {
+    }
+
+    public long getQueueDepth() {
+	return AsyncHandler.getTotalQueueDepth();
+    }
+
+    public long getDroppedCount() {
+	return AsyncHandler.getTotalDroppedCount();
+    }
+
+    public long getDroppedOldestCount() {
+	return AsyncHandler.getTotalDroppedOldestCount();
+    }
+}
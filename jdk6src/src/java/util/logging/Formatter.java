@@ -25,6 +25,12 @@ package java.util.logging;
 
 public abstract class Formatter {
 
+    // Bounded LRU cache of compiled message patterns, keyed by format
+    // string.  Like formatMessage, it is guarded by the formatter lock.
+    private final static int PATTERN_CACHE_SIZE = 64;
+    private java.util.LinkedHashMap<String,java.text.MessageFormat> patternCache;
+    private java.util.Locale patternLocale;
+
     /**
      * Construct a new formatter.
      */
@@ -127,7 +133,7 @@ public abstract class Formatter {
             // 1 of the first 4 parameters
             if (format.indexOf("{0") >= 0 || format.indexOf("{1") >=0 ||
                         format.indexOf("{2") >=0|| format.indexOf("{3") >=0) {
-	        return java.text.MessageFormat.format(format, parameters);
+	        return getMessageFormat(format).format(parameters);
 	    }
 	    return format;
 
@@ -136,7 +142,28 @@ public abstract class Formatter {
 	    return format;
 	}
     }
-}
-
-
 
+    // Return a MessageFormat for the given pattern, compiling it only
+    // if it is not already in the cache.  The cache is dropped if the
+    // default locale has changed since the patterns were compiled.
+    // Must be called while holding the formatter lock.
+    private java.text.MessageFormat getMessageFormat(String format) {
+	java.util.Locale locale = java.util.Locale.getDefault();
+	if (patternCache == null || !locale.equals(patternLocale)) {
+	    patternCache = new java.util.LinkedHashMap<String,java.text.MessageFormat>(
+			PATTERN_CACHE_SIZE, 0.75f, true) {
+		protected boolean removeEldestEntry(
+			java.util.Map.Entry<String,java.text.MessageFormat> eldest) {
+		    return size() > PATTERN_CACHE_SIZE;
+		}
+	    };
+	    patternLocale = locale;
+	}
+	java.text.MessageFormat mf = patternCache.get(format);
+	if (mf == null) {
+	    mf = new java.text.MessageFormat(format);
+	    patternCache.put(format, mf);
+	}
+	return mf;
+    }
+}
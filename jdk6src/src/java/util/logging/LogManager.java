@@ -138,6 +138,12 @@ public class LogManager {
 
     // Table of known loggers.  Maps names to Loggers.
     private Hashtable<String,Logger> loggers = new Hashtable<String,Logger>();
+    // Loggers whose registration has completed, that is whose level,
+    // handlers and place in the tree have been set up.  This is read
+    // without locking by getLogger; misses fall back to the LogManager
+    // lock and the loggers table.
+    private final java.util.concurrent.ConcurrentHashMap<String,Logger> registered
+			= new java.util.concurrent.ConcurrentHashMap<String,Logger>();
     // Tree of known loggers
     private LogNode root = new LogNode(null);
     private Logger rootLogger;
@@ -460,6 +466,8 @@ public class LogManager {
 	// Walk over the children and tell them we are their new parent.
 	node.walkAndSetParent(logger);
 
+	// Only now make the logger visible to unsynchronized lookups.
+	registered.put(name, logger);
 	return true;
     }
 
@@ -542,8 +550,15 @@ public class LogManager {
      * @param name name of the logger 
      * @return  matching logger or null if none is found
      */
-    public synchronized Logger getLogger(String name) {
-	return loggers.get(name);
+    public Logger getLogger(String name) {
+	// Fast path: lock free lookup of a fully registered logger.
+	Logger result = registered.get(name);
+	if (result != null) {
+	    return result;
+	}
+	synchronized (this) {
+	    return loggers.get(name);
+	}
     }
 
     /**
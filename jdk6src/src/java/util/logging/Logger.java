@@ -270,13 +270,20 @@ public class Logger {
      * @return a suitable Logger
      * @throws NullPointerException if the name is null.
      */
-    public static synchronized Logger getLogger(String name) {
+    public static Logger getLogger(String name) {
 	LogManager manager = LogManager.getLogManager();
 	Logger result = manager.getLogger(name);
-	if (result == null) {
-	    result = new Logger(name, null);
-	    manager.addLogger(result);
+	if (result != null) {
+	    // Fast path: the logger already exists, no lock is needed.
+	    return result;
+	}
+	synchronized (Logger.class) {
 	    result = manager.getLogger(name);
+	    if (result == null) {
+		result = new Logger(name, null);
+		manager.addLogger(result);
+		result = manager.getLogger(name);
+	    }
 	}
 	return result;
     }
@@ -311,9 +318,24 @@ public class Logger {
      *		   a different resource bundle name.
      * @throws NullPointerException if the name is null.
      */
-    public static synchronized Logger getLogger(String name, String resourceBundleName) {
+    public static Logger getLogger(String name, String resourceBundleName) {
 	LogManager manager = LogManager.getLogManager();
 	Logger result = manager.getLogger(name);
+	if (result != null && resourceBundleName != null
+		&& resourceBundleName.equals(result.resourceBundleName)) {
+	    // Fast path: the logger already exists with this bundle.
+	    return result;
+	}
+	synchronized (Logger.class) {
+	    return getLogger(manager, name, resourceBundleName);
+	}
+    }
+
+    // Slow path of getLogger(String, String).  Must be called while
+    // holding the Logger class lock.
+    private static Logger getLogger(LogManager manager, String name,
+				    String resourceBundleName) {
+	Logger result = manager.getLogger(name);
 	if (result == null) {
 	    // Create a new logger.
 	    // Note: we may get a MissingResourceException here.
@@ -28,6 +28,17 @@ public class SimpleFormatter extends Formatter {
 
     private Object args[] = new Object[1];
 
+    // The date/time text only has a resolution of one second, so the
+    // text for the most recent second is kept and reused.
+    private StringBuffer text = new StringBuffer();
+    private long textSecond = Long.MIN_VALUE;
+
+    // Reused output buffer.  It is dropped again after a record with
+    // an unusually large text (typically a deep stack trace) so that
+    // it does not stay pinned for the life of the formatter.
+    private final static int MAX_RETAINED_CAPACITY = 8192;
+    private StringBuilder sb = new StringBuilder(256);
+
     // Line separator string.  This is the value of the line.separator
     // property at the moment that the SimpleFormatter was created.
     private String lineSeparator = (String) java.security.AccessController.doPrivileged(
@@ -39,15 +50,23 @@ public class SimpleFormatter extends Formatter {
      * @return a formatted log record
      */
     public synchronized String format(LogRecord record) {
-	StringBuffer sb = new StringBuffer();
+	if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+	    sb = new StringBuilder(256);
+	} else {
+	    sb.setLength(0);
+	}
 	// Minimize memory allocations here.
-	dat.setTime(record.getMillis());
-	args[0] = dat;
-	StringBuffer text = new StringBuffer();
-	if (formatter == null) {
-	    formatter = new MessageFormat(format);
+	long second = record.getMillis() / 1000;
+	if (second != textSecond) {
+	    dat.setTime(record.getMillis());
+	    args[0] = dat;
+	    text.setLength(0);
+	    if (formatter == null) {
+		formatter = new MessageFormat(format);
+	    }
+	    formatter.format(args, text, null);
+	    textSecond = second;
 	}
-	formatter.format(args, text, null);
 	sb.append(text);
 	sb.append(" ");
 	if (record.getSourceClassName() != null) {	
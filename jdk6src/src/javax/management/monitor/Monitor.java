@@ -8,6 +8,7 @@
 package javax.management.monitor;
 
 import com.sun.jmx.mbeanserver.GetPropertyAction;
+import com.sun.jmx.mbeanserver.MonitorStatistics;
 import com.sun.jmx.remote.util.EnvHelp;
 import com.sun.jmx.trace.Trace;
 import java.beans.BeanInfo;
@@ -20,13 +21,15 @@ import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -156,12 +159,35 @@ public abstract class Monitor
     private AccessControlContext acc;
 
     /**
-     * Scheduler Service.
+     * Scheduler Service.  The scheduler threads only hand the monitor
+     * tasks over to the executor, so one thread is usually enough; the
+     * "jmx.x.monitor.scheduler.pool.size" system property sets a
+     * larger pool for JVMs with many thousands of monitors.
      */
     private static final ScheduledExecutorService scheduler =
-        Executors.newSingleThreadScheduledExecutor(
+        new ScheduledThreadPoolExecutor(
+            getIntProperty("jmx.x.monitor.scheduler.pool.size", 1, 1),
             new DaemonThreadFactory("Scheduler"));
 
+    /**
+     * Percentage of the granularity period by which the first
+     * observation of a monitor is randomly delayed, so that monitors
+     * started together do not all poll at the same instant.  Set by the
+     * "jmx.x.monitor.jitter" system property.  The default is 0, that
+     * is the first observation is exactly one period after start.
+     */
+    private static final int jitterPercent =
+        getIntProperty("jmx.x.monitor.jitter", 0, 0);
+
+    private static final Random jitterRandom = new Random();
+
+    /**
+     * Attribute reads in progress, so that monitors observing the same
+     * attribute of the same MBean at the same time share one read.
+     */
+    private static final ConcurrentHashMap<AttributeRead, AttributeRead>
+        pendingReads = new ConcurrentHashMap<AttributeRead, AttributeRead>();
+
     /**
      * Maximum Pool Size
      */
@@ -172,32 +198,8 @@ public abstract class Monitor
      */
     private static final ExecutorService executor;
     static {
-        final String maximumPoolSizeSysProp = "jmx.x.monitor.maximum.pool.size";
-        final String maximumPoolSizeStr = AccessController.doPrivileged(
-            new GetPropertyAction(maximumPoolSizeSysProp));
-        if (maximumPoolSizeStr == null ||
-            maximumPoolSizeStr.trim().length() == 0) {
-            maximumPoolSize = 10;
-        } else {
-            int maximumPoolSizeTmp = 10;
-            try {
-                maximumPoolSizeTmp = Integer.parseInt(maximumPoolSizeStr);
-            } catch (NumberFormatException e) {
-                if (isTraceOn()) {
-                    trace("Monitor", "<static initializer>",
-                          "Wrong value for " + maximumPoolSizeSysProp +
-                          " system property: " + e);
-                    trace("Monitor", "<static initializer>",
-                          maximumPoolSizeSysProp + " defaults to 10.");
-                    maximumPoolSizeTmp = 10;
-                }
-            }
-            if (maximumPoolSizeTmp < 1) {
-                maximumPoolSize = 1;
-            } else {
-                maximumPoolSize = maximumPoolSizeTmp;
-            }
-        }
+        maximumPoolSize =
+            getIntProperty("jmx.x.monitor.maximum.pool.size", 10, 1);
         executor = new ThreadPoolExecutor(
                 maximumPoolSize,
                 maximumPoolSize,
@@ -228,6 +230,11 @@ public abstract class Monitor
      */
     private ScheduledFuture<?> schedulerFuture;
 
+    /**
+     * When the next observation is due, in System.nanoTime() terms.
+     */
+    private long nextObservationTime;
+
     /*
      * ------------------------------------------
      *  PROTECTED VARIABLES
@@ -684,9 +691,7 @@ public abstract class Monitor
         //
         if (isActive()) {
             cleanupFutures();
-            schedulerFuture = scheduler.schedule(schedulerTask,
-                                                 period,
-                                                 TimeUnit.MILLISECONDS);
+            scheduleFirstObservation();
         }
     }
 
@@ -743,9 +748,7 @@ public abstract class Monitor
             // Start the scheduler.
             //
             cleanupFutures();
-            schedulerFuture = scheduler.schedule(schedulerTask,
-                                                 getGranularityPeriod(),
-                                                 TimeUnit.MILLISECONDS);
+            scheduleFirstObservation();
         }
     }
 
@@ -886,7 +889,47 @@ public abstract class Monitor
             }
             fa = firstAttribute;
         }
-        return mbsc.getAttribute(object, fa);
+        return readAttribute(mbsc, object, fa);
+    }
+
+    /**
+     * Reads an attribute, sharing the result with any other monitor
+     * reading the same attribute of the same MBean in the same access
+     * control context at the same time.
+     */
+    private static Object readAttribute(MBeanServerConnection mbsc,
+                                        ObjectName object,
+                                        String attribute)
+        throws AttributeNotFoundException,
+               InstanceNotFoundException,
+               MBeanException,
+               ReflectionException,
+               IOException {
+        final AttributeRead read =
+            new AttributeRead(mbsc, object, attribute,
+                              AccessController.getContext());
+        final AttributeRead pending = pendingReads.putIfAbsent(read, read);
+        if (pending != null) {
+            try {
+                final Object value = pending.getValue();
+                MonitorStatistics.recordCoalescedRead();
+                return value;
+            } catch (InterruptedException e) {
+                // Do our own read rather than wait.
+                Thread.currentThread().interrupt();
+                return mbsc.getAttribute(object, attribute);
+            }
+        }
+        try {
+            read.run();
+        } finally {
+            pendingReads.remove(read);
+        }
+        try {
+            return read.getValue();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e); // read is done, cannot wait
+        }
     }
 
     Comparable<?> getComparableFromAttribute(ObjectName object,
@@ -1496,6 +1539,70 @@ public abstract class Monitor
                              false);
     }
 
+    /**
+     * Schedule the first observation of the monitor, one granularity
+     * period plus any jitter from now.  Must be called with the monitor
+     * lock held.
+     */
+    private void scheduleFirstObservation() {
+        long delay = getGranularityPeriod();
+        if (jitterPercent > 0) {
+            delay += (long) (jitterRandom.nextDouble() * delay *
+                             jitterPercent / 100);
+        }
+        nextObservationTime = System.nanoTime() +
+            TimeUnit.MILLISECONDS.toNanos(delay);
+        schedulerFuture = scheduler.schedule(schedulerTask,
+                                             delay,
+                                             TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedule the next observation of the monitor.  Observations are
+     * kept one granularity period apart measured from when they were
+     * due, not from when the previous one finished, so that the period
+     * does not drift.  Observations that are already more than a period
+     * late are skipped.  Must be called with the monitor lock held.
+     */
+    private void scheduleNextObservation() {
+        final long period =
+            TimeUnit.MILLISECONDS.toNanos(getGranularityPeriod());
+        final long now = System.nanoTime();
+        long next = nextObservationTime + period;
+        if (next - now < 0)
+            next += ((now - next) / period + 1) * period;
+        nextObservationTime = next;
+        schedulerFuture = scheduler.schedule(schedulerTask,
+                                             next - now,
+                                             TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get an integer system property, or defaultValue if it is not set
+     * or not a number.  Values below minValue are raised to minValue.
+     */
+    private static int getIntProperty(String name,
+                                      int defaultValue,
+                                      int minValue) {
+        final String value =
+            AccessController.doPrivileged(new GetPropertyAction(name));
+        int result = defaultValue;
+        if (value != null && value.trim().length() > 0) {
+            try {
+                result = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                if (isTraceOn()) {
+                    trace("Monitor", "<static initializer>",
+                          "Wrong value for " + name +
+                          " system property: " + e);
+                    trace("Monitor", "<static initializer>",
+                          name + " defaults to " + defaultValue + ".");
+                }
+            }
+        }
+        return Math.max(result, minValue);
+    }
+
     /**
      * Cleanup the scheduler and monitor tasks futures.
      */ 
@@ -1577,9 +1684,13 @@ public abstract class Monitor
 
         public void run() {
             final ScheduledFuture<?> sf;
+            final long due;
             synchronized (Monitor.this) {
                 sf = Monitor.this.schedulerFuture;
+                due = Monitor.this.nextObservationTime;
             }
+            MonitorStatistics.recordObservation(
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - due));
             AccessController.doPrivileged(new PrivilegedAction() {
                 public Object run() {
                     if (Monitor.this.isActive()) {
@@ -1598,15 +1709,105 @@ public abstract class Monitor
                 if (Monitor.this.isActive() &&
                     Monitor.this.schedulerFuture == sf) {
                     Monitor.this.monitorFuture = null;
-                    Monitor.this.schedulerFuture =
-                        scheduler.schedule(Monitor.this.schedulerTask,
-                                           Monitor.this.getGranularityPeriod(),
-                                           TimeUnit.MILLISECONDS);
+                    Monitor.this.scheduleNextObservation();
                 }
             }
         }
     }
 
+    /**
+     * AttributeRead nested class: a read of one attribute of one MBean.
+     *
+     * Two AttributeReads are equal if they read the same attribute of
+     * the same MBean through the same MBeanServerConnection in the same
+     * AccessControlContext, so that a monitor only ever shares a read
+     * that it would have been allowed to make itself.
+     */
+    private static class AttributeRead {
+
+        private final MBeanServerConnection mbsc;
+        private final ObjectName object;
+        private final String attribute;
+        private final AccessControlContext context;
+        private final int hash;
+
+        private boolean done;
+        private Object value;
+        private Throwable exception;
+
+        AttributeRead(MBeanServerConnection mbsc,
+                      ObjectName object,
+                      String attribute,
+                      AccessControlContext context) {
+            this.mbsc = mbsc;
+            this.object = object;
+            this.attribute = attribute;
+            this.context = context;
+            this.hash = System.identityHashCode(mbsc) ^
+                object.hashCode() ^ attribute.hashCode();
+        }
+
+        void run() {
+            Object v = null;
+            Throwable t = null;
+            try {
+                v = mbsc.getAttribute(object, attribute);
+            } catch (Throwable e) {
+                t = e;
+            }
+            synchronized (this) {
+                value = v;
+                exception = t;
+                done = true;
+                notifyAll();
+            }
+        }
+
+        synchronized Object getValue()
+            throws AttributeNotFoundException,
+                   InstanceNotFoundException,
+                   MBeanException,
+                   ReflectionException,
+                   IOException,
+                   InterruptedException {
+            while (!done)
+                wait();
+            if (exception == null)
+                return value;
+            if (exception instanceof AttributeNotFoundException)
+                throw (AttributeNotFoundException) exception;
+            if (exception instanceof InstanceNotFoundException)
+                throw (InstanceNotFoundException) exception;
+            if (exception instanceof MBeanException)
+                throw (MBeanException) exception;
+            if (exception instanceof ReflectionException)
+                throw (ReflectionException) exception;
+            if (exception instanceof IOException)
+                throw (IOException) exception;
+            if (exception instanceof RuntimeException)
+                throw (RuntimeException) exception;
+            if (exception instanceof Error)
+                throw (Error) exception;
+            throw new RuntimeException(exception); // not reached
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof AttributeRead))
+                return false;
+            final AttributeRead r = (AttributeRead) o;
+            return r.mbsc == mbsc &&
+                r.object.equals(object) &&
+                r.attribute.equals(attribute) &&
+                r.context.equals(context);
+        }
+    }
+
     /**
      * Daemon thread factory used by the monitor executors.
      * <P>
@@ -622,6 +622,8 @@ public class ArrayType<T> extends OpenType<T> {
 
     @Override
     boolean isAssignableFrom(OpenType ot) {
+	if (ot == this)
+	    return true;
 	if (!(ot instanceof ArrayType))
 	    return false;
 	ArrayType at = (ArrayType) ot;
@@ -140,10 +140,15 @@ public class CompositeDataSupport
                                         " expecting "+ namesSet.size() +" elements according to compositeType.");
         }
 
-        // Check parameter itemNames[] contains all names defined in the compositeType of this instance
+        // Check parameter itemNames[] contains all names defined in the compositeType of this instance.
+        // Since both have the same size, this is so if every element of itemNames[] is a defined
+        // name and no element is repeated.
         //
-        if ( ! Arrays.asList(itemNames).containsAll(namesSet) ) {
-            throw new OpenDataException("Argument itemNames[] does not contain all names defined in the compositeType of this instance.");
+        for (int i=0; i<itemNames.length; i++) {
+            if ( ! namesSet.contains(itemNames[i]) || this.contents.containsKey(itemNames[i]) ) {
+                throw new OpenDataException("Argument itemNames[] does not contain all names defined in the compositeType of this instance.");
+            }
+            this.contents.put(itemNames[i], itemValues[i]);
         }
         
         // Check each element of itemValues[], if not null, is of the open type defined for the corresponding item
@@ -157,12 +162,9 @@ public class CompositeDataSupport
             }
         }
         
-        // Initialize internal fields: compositeType and contents 
+        // Initialize internal field compositeType (contents was filled above)
         //
         this.compositeType = compositeType;
-        for (int i=0; i<itemNames.length; i++) {
-            this.contents.put(itemNames[i], itemValues[i]);
-        }
     }
 
     /**
@@ -315,6 +315,8 @@ public class CompositeType extends OpenType<CompositeData> {
      */
     @Override
     boolean isAssignableFrom(OpenType ot) {
+        if (ot == this)
+            return true;
         if (!(ot instanceof CompositeType))
             return false;
         CompositeType ct = (CompositeType) ot;
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * Times marshaling and unmarshaling of RMI-IIOP value types through a
+ * CDR stream, which goes through ValueHandlerImpl, IIOPOutputStream and
+ * IIOPInputStream.  The values mix primitive fields, String and object
+ * fields, and primitive and object arrays.  java.io serialization of the
+ * same values is timed as a point of reference.  Not a regression test;
+ * run it by hand with
+ *
+ *     java ValueMarshalBench [values] [rounds]
+ *
+ * on builds with and without the precomputed field marshaling.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.omg.CORBA.ORB;
+import org.omg.CORBA_2_3.portable.InputStream;
+import org.omg.CORBA_2_3.portable.OutputStream;
+
+public class ValueMarshalBench {
+
+    static volatile long sink;
+
+    static class Point implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int x, y;
+        double weight;
+        Point(int x, int y, double weight) {
+            this.x = x;
+            this.y = y;
+            this.weight = weight;
+        }
+    }
+
+    static class Order implements Serializable {
+        private static final long serialVersionUID = 1L;
+        long id;
+        int quantity;
+        short flags;
+        byte kind;
+        char grade;
+        boolean open;
+        float price;
+        double total;
+        String customer;
+        Point location;
+        int[] lines;
+        Point[] route;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int values = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+        ORB orb = ORB.init(new String[0], null);
+        Order[] orders = orders(values);
+        for (int r = 0; r < rounds; r++) {
+            boolean report = (r == rounds - 1);   // earlier rounds warm up
+            iiop(orb, orders, report);
+            javaSerialization(orders, report);
+        }
+        orb.destroy();
+    }
+
+    static Order[] orders(int n) {
+        Order[] orders = new Order[n];
+        for (int i = 0; i < n; i++) {
+            Order o = new Order();
+            o.id = i;
+            o.quantity = i % 1000;
+            o.flags = (short) i;
+            o.kind = (byte) (i & 7);
+            o.grade = (char) ('A' + i % 5);
+            o.open = (i & 1) == 0;
+            o.price = i * 0.25f;
+            o.total = i * 3.5;
+            o.customer = "customer-" + (i % 500);
+            o.location = new Point(i, -i, 1.5);
+            o.lines = new int[] { i, i + 1, i + 2, i + 3 };
+            o.route = new Point[] { new Point(0, 0, 0), new Point(i, i, 2) };
+            orders[i] = o;
+        }
+        return orders;
+    }
+
+    static void iiop(ORB orb, Order[] orders, boolean report) {
+        long t0 = System.nanoTime();
+        OutputStream out = (OutputStream) orb.create_output_stream();
+        for (int i = 0; i < orders.length; i++)
+            out.write_value(orders[i]);
+        long t1 = System.nanoTime();
+        InputStream in = (InputStream) out.create_input_stream();
+        long sum = 0;
+        for (int i = 0; i < orders.length; i++)
+            sum += ((Order) in.read_value()).quantity;
+        long t2 = System.nanoTime();
+        sink = sum;
+        if (report)
+            print("RMI-IIOP", orders.length, t1 - t0, t2 - t1);
+    }
+
+    static void javaSerialization(Order[] orders, boolean report)
+            throws IOException, ClassNotFoundException {
+        long t0 = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        for (int i = 0; i < orders.length; i++)
+            out.writeObject(orders[i]);
+        out.close();
+        long t1 = System.nanoTime();
+        ObjectInputStream in = new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()));
+        long sum = 0;
+        for (int i = 0; i < orders.length; i++)
+            sum += ((Order) in.readObject()).quantity;
+        long t2 = System.nanoTime();
+        sink = sum;
+        if (report)
+            print("java.io", orders.length, t1 - t0, t2 - t1);
+    }
+
+    static void print(String what, int n, long writeNanos, long readNanos) {
+        System.out.println(what + ": write " + (writeNanos / n) +
+                           " ns/value, read " + (readNanos / n) +
+                           " ns/value");
+    }
+}
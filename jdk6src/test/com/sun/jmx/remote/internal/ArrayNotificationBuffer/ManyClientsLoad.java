@@ -0,0 +1,212 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * Load test for the notification buffer shared by the connections of a
+ * JMX connector server.  Each simulated client is a ServerNotifForwarder,
+ * as the RMI connector creates for each connection, with its own share
+ * of the buffer and its own fetching thread.  Every client listens to
+ * some of the emitting MBeans; half of the clients only want one
+ * notification type.  The clients fetch while the MBeans emit, and each must receive
+ * exactly the notifications it listens to.
+ *
+ * Usage: java ManyClientsLoad [clients [emitters [perEmitter [listened]]]]
+ *
+ * The defaults are 500 clients, 200 emitters, 100 notifications per
+ * emitter, half of them of each type, and 2 MBeans listened to by each
+ * client.  The buffer is made large enough
+ * that no notification is dropped.  The result is the wall-clock time
+ * until every client has all its notifications, and the CPU time spent
+ * by the fetching threads.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationFilterSupport;
+import javax.management.ObjectName;
+import javax.management.remote.NotificationResult;
+
+import com.sun.jmx.remote.internal.ArrayNotificationBuffer;
+import com.sun.jmx.remote.internal.NotificationBuffer;
+import com.sun.jmx.remote.internal.ServerNotifForwarder;
+
+public class ManyClientsLoad {
+
+    static final String TICK = "load.tick";
+    static final String ALARM = "load.alarm";
+
+    public interface EmitterMBean {
+        long getSent();
+    }
+
+    public static class Emitter extends NotificationBroadcasterSupport
+            implements EmitterMBean {
+        private final ObjectName name;
+        private long sent;
+
+        Emitter(ObjectName name) {
+            this.name = name;
+        }
+
+        public synchronized long getSent() {
+            return sent;
+        }
+
+        void emit(String type) {
+            long seq;
+            synchronized (this) {
+                seq = ++sent;
+            }
+            sendNotification(new Notification(type, name, seq));
+        }
+    }
+
+    static class Client extends Thread {
+        final ServerNotifForwarder forwarder;
+        final long expected;
+        final CountDownLatch done;
+        long received;
+        long fetches;
+        long cpuNanos;
+        Throwable failure;
+
+        Client(ServerNotifForwarder forwarder, long expected,
+               CountDownLatch done) {
+            this.forwarder = forwarder;
+            this.expected = expected;
+            this.done = done;
+            setDaemon(true);
+        }
+
+        public void run() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long cpu0 = threads.getCurrentThreadCpuTime();
+            try {
+                long seq = start;
+                long deadline = System.currentTimeMillis() + TIMEOUT;
+                while (received < expected &&
+                       System.currentTimeMillis() < deadline) {
+                    NotificationResult nr =
+                        forwarder.fetchNotifs(seq, 1000, 1000);
+                    fetches++;
+                    if (nr.getEarliestSequenceNumber() > seq)
+                        throw new Exception("Notifications lost");
+                    received += nr.getTargetedNotifications().length;
+                    seq = nr.getNextSequenceNumber();
+                }
+            } catch (Throwable t) {
+                failure = t;
+            }
+            cpuNanos = threads.getCurrentThreadCpuTime() - cpu0;
+            done.countDown();
+        }
+    }
+
+    static final long TIMEOUT = 300 * 1000;
+    static volatile long start;
+
+    public static void main(String[] args) throws Exception {
+        int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+        int emitters = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        int perEmitter = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+        int listened = (args.length > 3) ? Integer.parseInt(args[3]) : 2;
+        perEmitter -= perEmitter % 2;
+        listened = Math.min(listened, emitters);
+
+        MBeanServer mbs = MBeanServerFactory.newMBeanServer();
+        Emitter[] emitter = new Emitter[emitters];
+        ObjectName[] names = new ObjectName[emitters];
+        for (int i = 0; i < emitters; i++) {
+            names[i] = new ObjectName("load:type=Emitter,id=" + i);
+            emitter[i] = new Emitter(names[i]);
+            mbs.registerMBean(emitter[i], names[i]);
+        }
+
+        Map<String, Object> env = new HashMap<String, Object>();
+        env.put("jmx.remote.x.notification.buffer.size",
+                Integer.toString(emitters * perEmitter + 1000));
+
+        CountDownLatch done = new CountDownLatch(clients);
+        Client[] client = new Client[clients];
+        NotificationBuffer[] buffers = new NotificationBuffer[clients];
+        for (int i = 0; i < clients; i++) {
+            buffers[i] = ArrayNotificationBuffer.getNotificationBuffer(mbs, env);
+            ServerNotifForwarder f =
+                new ServerNotifForwarder(mbs, env, buffers[i], "client" + i);
+            NotificationFilterSupport alarms = null;
+            if (i % 2 == 1) {
+                alarms = new NotificationFilterSupport();
+                alarms.enableType(ALARM);
+            }
+            /* Consecutive MBeans from a different place for each client */
+            int first = (i * 7) % emitters;
+            for (int j = 0; j < listened; j++)
+                f.addNotificationListener(names[(first + j) % emitters],
+                                          alarms);
+            long expected = (long) listened *
+                ((alarms == null) ? perEmitter : perEmitter / 2);
+            client[i] = new Client(f, expected, done);
+        }
+
+        /* Every client starts at the sequence number of the first
+           notification to be emitted.  */
+        start = client[0].forwarder.fetchNotifs(-1, 0, 0)
+            .getNextSequenceNumber();
+
+        System.out.println(clients + " clients, " + emitters +
+                           " emitters, " + perEmitter +
+                           " notifications each, " + listened +
+                           " emitters per client");
+        long t0 = System.nanoTime();
+        for (int i = 0; i < clients; i++)
+            client[i].start();
+        for (int n = 0; n < perEmitter; n++) {
+            String type = (n % 2 == 0) ? TICK : ALARM;
+            for (int i = 0; i < emitters; i++)
+                emitter[i].emit(type);
+        }
+        long emitNanos = System.nanoTime() - t0;
+        done.await();
+        long wallNanos = System.nanoTime() - t0;
+
+        int failures = 0;
+        long cpu = 0, fetches = 0, received = 0;
+        for (int i = 0; i < clients; i++) {
+            Client c = client[i];
+            cpu += c.cpuNanos;
+            fetches += c.fetches;
+            received += c.received;
+            if (c.failure != null || c.received != c.expected) {
+                if (failures++ < 10) {
+                    System.out.println("client " + i + ": received " +
+                                       c.received + " of " + c.expected +
+                                       ((c.failure == null) ? "" :
+                                        ", " + c.failure));
+                }
+            }
+            c.forwarder.terminate();
+            buffers[i].dispose();
+        }
+
+        System.out.println("emitted in " + emitNanos / 1000000 + " ms, " +
+                           "all received in " + wallNanos / 1000000 +
+                           " ms");
+        System.out.println(received + " notifications in " + fetches +
+                           " fetches, fetching threads used " +
+                           cpu / 1000000 + " ms of CPU");
+        if (failures != 0)
+            throw new Exception(failures + " clients did not receive " +
+                                "exactly their notifications");
+        System.out.println("Test passed");
+    }
+}
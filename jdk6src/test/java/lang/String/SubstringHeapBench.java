@@ -0,0 +1,75 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * Measures the heap kept reachable by short substrings of large strings,
+ * the way keys cut from a parsed document are.  Each document is a large
+ * string; a few short keys are taken from it with substring, and only
+ * the keys are kept.  Not a regression test; compare
+ *
+ *     java -Xmx512m SubstringHeapBench [documents] [documentChars]
+ *     java -Xmx512m -Djava.lang.String.compactSubstrings=true \
+ *         SubstringHeapBench [documents] [documentChars]
+ *
+ * Substring time is reported too, since copying makes it slower.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class SubstringHeapBench {
+
+    static final int KEYS_PER_DOCUMENT = 16;
+    static final int KEY_CHARS = 12;
+
+    public static void main(String[] args) {
+        int documents = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int documentChars = (args.length > 1) ? Integer.parseInt(args[1])
+                                              : 64 * 1024;
+
+        System.out.println("compactSubstrings " +
+            Boolean.getBoolean("java.lang.String.compactSubstrings"));
+
+        Random rnd = new Random(42);
+        long before = usedHeap();
+        List<String> keys = new ArrayList<String>();
+        long nanos = 0;
+        for (int d = 0; d < documents; d++) {
+            String doc = document(rnd, documentChars);
+            long t0 = System.nanoTime();
+            for (int k = 0; k < KEYS_PER_DOCUMENT; k++) {
+                int at = rnd.nextInt(documentChars - KEY_CHARS);
+                keys.add(doc.substring(at, at + KEY_CHARS));
+            }
+            nanos += System.nanoTime() - t0;
+        }
+        long retained = usedHeap() - before;
+
+        System.out.println(keys.size() + " keys of " + KEY_CHARS +
+                           " chars from " + documents + " documents of " +
+                           documentChars + " chars");
+        System.out.println("retained heap: " + (retained / 1024) + " KB, " +
+                           (retained / keys.size()) + " bytes/key");
+        System.out.println("substring: " + (nanos / keys.size()) +
+                           " ns/key");
+        if (keys.get(0).length() != KEY_CHARS)   // keep keys reachable
+            throw new AssertionError();
+    }
+
+    static String document(Random rnd, int chars) {
+        char[] c = new char[chars];
+        for (int i = 0; i < chars; i++)
+            c[i] = (char) ('a' + rnd.nextInt(26));
+        return new String(c);
+    }
+
+    static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * Times Arrays.sort on int[], double[] and Integer[], and Collections.sort
+ * on an ArrayList, over random, partially sorted and reversed input.  Not
+ * a regression test; run it by hand with
+ *
+ *     java -Xms1g -Xmx1g SortingBench [size] [rounds]
+ *
+ * and again with -Djava.util.Arrays.useLegacyMergeSort=true to compare
+ * TimSort with the old mergesort for objects.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class SortingBench {
+
+    static volatile long sink;
+
+    static final String[] SHAPES = { "random", "partial", "reversed" };
+
+    static final Comparator<Integer> REVERSE = new Comparator<Integer>() {
+        public int compare(Integer a, Integer b) {
+            return b.compareTo(a);
+        }
+    };
+
+    public static void main(String[] args) {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+        System.out.println("size " + size + ", legacy mergesort " +
+                           Boolean.getBoolean(
+                               "java.util.Arrays.useLegacyMergeSort"));
+        for (int r = 0; r < rounds; r++) {
+            boolean report = (r == rounds - 1);   // earlier rounds warm up
+            for (String shape : SHAPES) {
+                int[] data = data(shape, size);
+                sortInts(shape, data, report);
+                sortDoubles(shape, data, report);
+                sortIntegers(shape, data, report);
+                sortIntegersComparator(shape, data, report);
+                sortArrayList(shape, data, report);
+            }
+        }
+    }
+
+    /*
+     * random:   uniformly random values.
+     * partial:  ascending, with 1% of the elements swapped at random.
+     * reversed: strictly descending.
+     */
+    static int[] data(String shape, int size) {
+        Random rnd = new Random(42);
+        int[] a = new int[size];
+        if (shape.equals("random")) {
+            for (int i = 0; i < size; i++)
+                a[i] = rnd.nextInt();
+        } else if (shape.equals("partial")) {
+            for (int i = 0; i < size; i++)
+                a[i] = i;
+            for (int k = 0; k < size / 100; k++) {
+                int i = rnd.nextInt(size), j = rnd.nextInt(size);
+                int t = a[i]; a[i] = a[j]; a[j] = t;
+            }
+        } else {
+            for (int i = 0; i < size; i++)
+                a[i] = size - i;
+        }
+        return a;
+    }
+
+    static void sortInts(String shape, int[] data, boolean report) {
+        int[] a = data.clone();
+        long t0 = System.nanoTime();
+        Arrays.sort(a);
+        long t1 = System.nanoTime();
+        sink = a[a.length / 2];
+        if (report)
+            print("int[]", shape, a.length, t1 - t0);
+    }
+
+    static void sortDoubles(String shape, int[] data, boolean report) {
+        double[] a = new double[data.length];
+        for (int i = 0; i < a.length; i++)
+            a[i] = data[i];
+        long t0 = System.nanoTime();
+        Arrays.sort(a);
+        long t1 = System.nanoTime();
+        sink = (long) a[a.length / 2];
+        if (report)
+            print("double[]", shape, a.length, t1 - t0);
+    }
+
+    static void sortIntegers(String shape, int[] data, boolean report) {
+        Integer[] a = boxed(data);
+        long t0 = System.nanoTime();
+        Arrays.sort(a);
+        long t1 = System.nanoTime();
+        sink = a[a.length / 2];
+        if (report)
+            print("Integer[]", shape, a.length, t1 - t0);
+    }
+
+    static void sortIntegersComparator(String shape, int[] data,
+                                       boolean report) {
+        Integer[] a = boxed(data);
+        long t0 = System.nanoTime();
+        Arrays.sort(a, REVERSE);
+        long t1 = System.nanoTime();
+        sink = a[a.length / 2];
+        if (report)
+            print("Integer[], comparator", shape, a.length, t1 - t0);
+    }
+
+    static void sortArrayList(String shape, int[] data, boolean report) {
+        List<Integer> l = new ArrayList<Integer>(Arrays.asList(boxed(data)));
+        long t0 = System.nanoTime();
+        Collections.sort(l);
+        long t1 = System.nanoTime();
+        sink = l.get(l.size() / 2);
+        if (report)
+            print("ArrayList<Integer>", shape, l.size(), t1 - t0);
+    }
+
+    static Integer[] boxed(int[] data) {
+        Integer[] a = new Integer[data.length];
+        for (int i = 0; i < a.length; i++)
+            a[i] = data[i];
+        return a;
+    }
+
+    static void print(String what, String shape, int n, long nanos) {
+        System.out.println(what + ", " + shape + ": " +
+                           (nanos / 1000000) + " ms, " +
+                           (nanos / n) + " ns/element");
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * Compares IntHashMap and IntArrayList with HashMap<Integer,Integer> and
+ * ArrayList<Integer>: time per operation, and heap taken by the filled
+ * collection.  Not a regression test; run it by hand with
+ *
+ *     java -Xms1g -Xmx1g PrimitiveCollectionsBench [size] [rounds]
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IntArrayList;
+import java.util.IntHashMap;
+import java.util.Random;
+
+public class PrimitiveCollectionsBench {
+
+    static volatile long sink;
+
+    public static void main(String[] args) {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+        int[] keys = new int[size];
+        Random rnd = new Random(42);
+        for (int i = 0; i < size; i++)
+            keys[i] = rnd.nextInt();
+
+        for (int r = 0; r < rounds; r++) {
+            boolean report = (r == rounds - 1);   // earlier rounds warm up
+            intHashMap(keys, report);
+            hashMap(keys, report);
+            intArrayList(keys, report);
+            arrayList(keys, report);
+        }
+    }
+
+    static void intHashMap(int[] keys, boolean report) {
+        long before = usedHeap();
+        long t0 = System.nanoTime();
+        IntHashMap m = new IntHashMap();
+        for (int i = 0; i < keys.length; i++)
+            m.put(keys[i], i);
+        long t1 = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < keys.length; i++)
+            sum += m.get(keys[i]);
+        long t2 = System.nanoTime();
+        long heap = usedHeap() - before;
+        sink = sum + m.size();
+        if (report)
+            print("IntHashMap", keys.length, t1 - t0, t2 - t1, heap);
+    }
+
+    static void hashMap(int[] keys, boolean report) {
+        long before = usedHeap();
+        long t0 = System.nanoTime();
+        HashMap<Integer,Integer> m = new HashMap<Integer,Integer>();
+        for (int i = 0; i < keys.length; i++)
+            m.put(keys[i], i);
+        long t1 = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < keys.length; i++)
+            sum += m.get(keys[i]);
+        long t2 = System.nanoTime();
+        long heap = usedHeap() - before;
+        sink = sum + m.size();
+        if (report)
+            print("HashMap<Integer,Integer>", keys.length, t1 - t0, t2 - t1, heap);
+    }
+
+    static void intArrayList(int[] keys, boolean report) {
+        long before = usedHeap();
+        long t0 = System.nanoTime();
+        IntArrayList l = new IntArrayList();
+        for (int i = 0; i < keys.length; i++)
+            l.add(keys[i]);
+        long t1 = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < keys.length; i++)
+            sum += l.getInt(i);
+        long t2 = System.nanoTime();
+        long heap = usedHeap() - before;
+        sink = sum + l.size();
+        if (report)
+            print("IntArrayList", keys.length, t1 - t0, t2 - t1, heap);
+    }
+
+    static void arrayList(int[] keys, boolean report) {
+        long before = usedHeap();
+        long t0 = System.nanoTime();
+        ArrayList<Integer> l = new ArrayList<Integer>();
+        for (int i = 0; i < keys.length; i++)
+            l.add(keys[i]);
+        long t1 = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < keys.length; i++)
+            sum += l.get(i);
+        long t2 = System.nanoTime();
+        long heap = usedHeap() - before;
+        sink = sum + l.size();
+        if (report)
+            print("ArrayList<Integer>", keys.length, t1 - t0, t2 - t1, heap);
+    }
+
+    // Heap in use after a full collection; the collection under test is
+    // still reachable from the caller's frame when this is called.
+    static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    static void print(String name, int n, long addNanos, long getNanos,
+                      long heap) {
+        System.out.println(name + ": add " + (addNanos / n) + " ns/op, get "
+                           + (getNanos / n) + " ns/op, "
+                           + (heap / n) + " bytes/entry");
+    }
+}
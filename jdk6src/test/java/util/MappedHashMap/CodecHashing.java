@@ -0,0 +1,142 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * @test
+ * @summary MappedHashMap must find keys through the hashCode and equals
+ *          of its key codec, and rewriting its file must not disturb a
+ *          map still open on it
+ * @run main/timeout=120 CodecHashing
+ */
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.MappedCodec;
+import java.util.MappedHashMap;
+import java.util.Map;
+
+public class CodecHashing {
+
+    static int failures = 0;
+
+    static void check(boolean ok, String what) {
+        if (!ok) {
+            failures++;
+            System.err.println("FAILED: " + what);
+        }
+    }
+
+    static byte[] bytes(int i) {
+        return new byte[] { (byte)(i >>> 8), (byte)i, 42 };
+    }
+
+    /**
+     * Byte array keys are looked up by content, with arrays that are not
+     * the ones the map was written from.
+     */
+    static void byteKeys(File f) throws Exception {
+        Map<byte[],Integer> src = new HashMap<byte[],Integer>();
+        for (int i = 0; i < 1000; i++)
+            src.put(bytes(i), i);
+        MappedHashMap<byte[],Integer> m =
+            MappedHashMap.create(f, src, MappedCodec.BYTES,
+                                 MappedCodec.INTEGER);
+        try {
+            for (int i = 0; i < 1000; i++)
+                check(Integer.valueOf(i).equals(m.get(bytes(i))),
+                      "get(bytes(" + i + "))");
+            check(m.get(bytes(1000)) == null, "get(bytes(1000))");
+            check(m.containsKey(bytes(7)), "containsKey(bytes(7))");
+        } finally {
+            m.close();
+        }
+
+        Map<byte[],Integer> dup = new HashMap<byte[],Integer>();
+        dup.put(bytes(1), 1);
+        dup.put(bytes(1), 2);
+        try {
+            MappedHashMap.create(f, dup, MappedCodec.BYTES,
+                                 MappedCodec.INTEGER).close();
+            check(false, "equal byte array keys accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * A codec that keeps the identity hash code of arrays is rejected
+     * rather than writing hashes no later lookup can match.
+     */
+    static void identityKeys(File f) throws Exception {
+        MappedCodec<byte[]> raw = new MappedCodec<byte[]>() {
+            public int sizeOf(byte[] value) {
+                return value.length;
+            }
+            public void write(byte[] value, java.nio.ByteBuffer buf) {
+                buf.put(value);
+            }
+            public byte[] read(java.nio.ByteBuffer buf, int size) {
+                byte[] b = new byte[size];
+                buf.get(b);
+                return b;
+            }
+        };
+        Map<byte[],Integer> src = new HashMap<byte[],Integer>();
+        src.put(bytes(1), 1);
+        try {
+            MappedHashMap.create(f, src, raw, MappedCodec.INTEGER).close();
+            check(false, "array keys accepted with identity hash codes");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * A map open on a file keeps its contents when the file is written
+     * again.
+     */
+    static void rewriteWhileOpen(File f) throws Exception {
+        Map<String,Long> first = new HashMap<String,Long>();
+        Map<String,Long> second = new HashMap<String,Long>();
+        for (long i = 0; i < 10000; i++) {
+            first.put("key" + i, i);
+            second.put("other" + i, -i);
+        }
+        MappedHashMap<String,Long> old =
+            MappedHashMap.create(f, first, MappedCodec.STRING,
+                                 MappedCodec.LONG);
+        MappedHashMap<String,Long> cur =
+            MappedHashMap.create(f, second, MappedCodec.STRING,
+                                 MappedCodec.LONG);
+        try {
+            check(Long.valueOf(9999).equals(old.get("key9999")),
+                  "old map lost its contents");
+            check(old.size() == 10000, "old map size " + old.size());
+            check(Long.valueOf(-9999).equals(cur.get("other9999")),
+                  "new map contents");
+            check(cur.get("key1") == null, "new map holds old keys");
+        } finally {
+            old.close();
+            cur.close();
+        }
+        File[] left = f.getAbsoluteFile().getParentFile().listFiles();
+        for (int i = 0; i < left.length; i++)
+            check(!left[i].getName().startsWith(f.getName() + ".new"),
+                  "temporary file left behind: " + left[i]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        File f = File.createTempFile("CodecHashing", ".map");
+        f.deleteOnExit();
+        try {
+            byteKeys(f);
+            identityKeys(f);
+            rewriteWhileOpen(f);
+        } finally {
+            f.delete();
+        }
+        if (failures != 0)
+            throw new Exception(failures + " failures");
+        System.out.println("Test passed");
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * @test
+ * @summary Nested views of a MappedSortedMap must hold the same keys, and
+ *          reject the same bounds, as the views of an equal TreeMap
+ * @run main/timeout=120 ViewsMatchTreeMap
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.MappedCodec;
+import java.util.MappedSortedMap;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class ViewsMatchTreeMap {
+
+    static final int ROUNDS = 50;
+    static final int KEYS = 30;
+    static final int RANGE = 60;
+    static final int DEPTH = 4;
+
+    static final Random rnd = new Random(1);
+    static int checks = 0;
+    static int failures = 0;
+
+    static final Object REJECTED = "IllegalArgumentException";
+
+    static Object view(NavigableMap<Integer,Integer> m, int op,
+                       Integer a, boolean ai, Integer b, boolean bi) {
+        try {
+            switch (op) {
+            case 0: return m.subMap(a, ai, b, bi);
+            case 1: return m.headMap(a, ai);
+            case 2: return m.tailMap(a, ai);
+            case 3: return m.descendingMap();
+            case 4: return m.subMap(a, b);
+            case 5: return m.headMap(a);
+            default: return m.tailMap(a);
+            }
+        } catch (IllegalArgumentException e) {
+            return REJECTED;
+        }
+    }
+
+    static void fail(String path, String what) {
+        failures++;
+        if (failures <= 20)
+            System.err.println("FAILED " + path + ": " + what);
+    }
+
+    @SuppressWarnings("unchecked")
+    static void compare(NavigableMap<Integer,Integer> t,
+                        NavigableMap<Integer,Integer> m,
+                        int depth, String path) {
+        checks++;
+        ArrayList<Integer> tk = new ArrayList<Integer>(t.keySet());
+        ArrayList<Integer> mk = new ArrayList<Integer>(m.keySet());
+        if (!tk.equals(mk)) {
+            fail(path, "keys " + mk + ", expected " + tk);
+            return;
+        }
+        for (int q = 0; q < 5; q++) {
+            Integer k = rnd.nextInt(RANGE);
+            check(path, "get(" + k + ")", t.get(k), m.get(k));
+            check(path, "ceilingKey(" + k + ")",
+                  t.ceilingKey(k), m.ceilingKey(k));
+            check(path, "lowerKey(" + k + ")", t.lowerKey(k), m.lowerKey(k));
+        }
+        if (depth == 0)
+            return;
+        for (int q = 0; q < 6; q++) {
+            int op = rnd.nextInt(7);
+            Integer a = rnd.nextInt(RANGE), b = rnd.nextInt(RANGE);
+            boolean ai = rnd.nextBoolean(), bi = rnd.nextBoolean();
+            String p = path + "/" + op + "(" + a + "," + ai + ","
+                + b + "," + bi + ")";
+            Object x = view(t, op, a, ai, b, bi);
+            Object y = view(m, op, a, ai, b, bi);
+            if (x == REJECTED || y == REJECTED) {
+                if (x != y)
+                    fail(p, (x == REJECTED ? "accepted" : "rejected") +
+                         " by the mapped map only");
+                continue;
+            }
+            compare((NavigableMap<Integer,Integer>)x,
+                    (NavigableMap<Integer,Integer>)y, depth - 1, p);
+        }
+    }
+
+    static void check(String path, String what, Object expected,
+                      Object actual) {
+        if (expected == null ? actual != null : !expected.equals(actual))
+            fail(path, what + " = " + actual + ", expected " + expected);
+    }
+
+    public static void main(String[] args) throws Exception {
+        File f = File.createTempFile("ViewsMatchTreeMap", ".map");
+        f.deleteOnExit();
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                TreeMap<Integer,Integer> t = new TreeMap<Integer,Integer>();
+                for (int i = 0; i < KEYS; i++)
+                    t.put(rnd.nextInt(RANGE), i);
+                MappedSortedMap<Integer,Integer> m =
+                    MappedSortedMap.create(f, t, MappedCodec.INTEGER,
+                                           MappedCodec.INTEGER);
+                try {
+                    compare(t, m, DEPTH, "round " + round);
+                } finally {
+                    m.close();
+                }
+            }
+        } finally {
+            f.delete();
+        }
+        System.out.println(checks + " views compared, " + failures +
+                           " failures");
+        if (failures != 0)
+            throw new Exception(failures + " divergences from TreeMap");
+        System.out.println("Test passed");
+    }
+}
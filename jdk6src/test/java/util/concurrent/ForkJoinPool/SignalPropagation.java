@@ -0,0 +1,110 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * @test
+ * @summary A worker that forks a batch of tasks must get every worker
+ *          of the pool running them, not only the ones signalled by
+ *          its first pushes
+ * @run main/timeout=120 SignalPropagation
+ */
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class SignalPropagation {
+
+    /**
+     * Waits until all the tasks of its batch are running at once.
+     * This can only happen if the batch has been spread over the whole
+     * pool.  The wait is shorter than the two seconds after which an
+     * idle worker looks for work on its own, so only signalling can
+     * bring the workers together in time.
+     */
+    static class Rendezvous extends ForkJoinTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+        final CyclicBarrier barrier;
+        Boolean result;
+
+        Rendezvous(CyclicBarrier barrier) {
+            this.barrier = barrier;
+        }
+        public Boolean getRawResult() {
+            return result;
+        }
+        protected void setRawResult(Boolean v) {
+            result = v;
+        }
+        protected boolean exec() {
+            try {
+                barrier.await(1, TimeUnit.SECONDS);
+                result = Boolean.TRUE;
+            } catch (TimeoutException e) {
+                result = Boolean.FALSE;
+            } catch (BrokenBarrierException e) {
+                result = Boolean.FALSE;
+            } catch (InterruptedException e) {
+                result = Boolean.FALSE;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Forks one Rendezvous per worker in a row, then joins them.
+     */
+    static class Fork extends ForkJoinTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+        final int parties;
+        Boolean result;
+
+        Fork(int parties) {
+            this.parties = parties;
+        }
+        public Boolean getRawResult() {
+            return result;
+        }
+        protected void setRawResult(Boolean v) {
+            result = v;
+        }
+        protected boolean exec() {
+            CyclicBarrier barrier = new CyclicBarrier(parties);
+            Rendezvous[] tasks = new Rendezvous[parties];
+            for (int i = 0; i < parties; i++) {
+                tasks[i] = new Rendezvous(barrier);
+                tasks[i].fork();
+            }
+            boolean ok = true;
+            for (int i = parties - 1; i >= 0; i--)
+                ok &= tasks[i].join().booleanValue();
+            result = Boolean.valueOf(ok);
+            return true;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int parallelism = 2; parallelism <= 8; parallelism++) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                // Twice: once with workers still to be created, once
+                // with all of them started and parked.
+                for (int round = 0; round < 2; round++) {
+                    if (!pool.invoke(new Fork(parallelism)).booleanValue())
+                        throw new RuntimeException(
+                            "not all " + parallelism + " workers ran" +
+                            " the forked tasks (round " + round + ")");
+                    Thread.sleep(100);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+        System.out.println("Test passed");
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * @test
+ * @summary AsyncHandler.flush returns only after the target has published
+ *          every record queued before the call, and does not hang when
+ *          the dropOldest policy discards records
+ * @run main/timeout=60 FlushWaitsForPublish
+ */
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.AsyncHandler;
+import java.util.logging.AsyncHandlerMXBean;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+public class FlushWaitsForPublish {
+
+    static final AtomicInteger published = new AtomicInteger();
+
+    // A target slow enough that the writer is still inside publish
+    // when flush is called.
+    static class SlowHandler extends Handler {
+        public void publish(LogRecord record) {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+            }
+            published.incrementAndGet();
+        }
+        public void flush() {
+        }
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        AsyncHandler h = new AsyncHandler(new SlowHandler(), 16);
+        for (int i = 0; i < 200; i++) {
+            h.publish(new LogRecord(Level.INFO, "record " + i));
+            h.flush();
+            if (published.get() != i + 1) {
+                throw new RuntimeException("flush returned with " +
+                    published.get() + " of " + (i + 1) + " published");
+            }
+        }
+        h.close();
+
+        LogManager.getLogManager().readConfiguration(new ByteArrayInputStream(
+            "java.util.logging.AsyncHandler.overflow=dropOldest\n".getBytes()));
+        AsyncHandler d = new AsyncHandler(new SlowHandler(), 4);
+        for (int i = 0; i < 500; i++)
+            d.publish(new LogRecord(Level.INFO, "record " + i));
+        d.flush();
+        if (d.getQueueDepth() != 0)
+            throw new RuntimeException("flush returned with a queue");
+        if (d.getDroppedOldestCount() == 0 ||
+            d.getDroppedOldestCount() > d.getDroppedCount())
+            throw new RuntimeException("dropOldest count " +
+                d.getDroppedOldestCount() + ", dropped " + d.getDroppedCount());
+
+        AsyncHandlerMXBean mbean = AsyncHandler.getAsyncHandlerMXBean();
+        if (mbean.getDroppedOldestCount() < d.getDroppedOldestCount())
+            throw new RuntimeException("MXBean does not report the drops");
+        d.close();
+        System.out.println("Test passed");
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2006 Sun Microsystems, Inc. All rights reserved.
+ * SUN PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ */
+
+/*
+ * Times SimpleFormatter, which caches compiled message patterns and
+ * reuses its buffers and date text, against UncachedFormatter, a copy of
+ * the earlier SimpleFormatter that compiles a MessageFormat and allocates
+ * new buffers for every record.  Records come from a fixed set of
+ * message patterns, with and without parameters.  Not a regression test;
+ * run it by hand with
+ *
+ *     java FormatterBench [records] [rounds]
+ */
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+public class FormatterBench {
+
+    static volatile long sink;
+
+    static final String[] PATTERNS = {
+        "Connection from {0} accepted",
+        "Request {0} for {1} took {2} ms",
+        "Cache {0}: {1} hits, {2} misses",
+        "Starting service",
+        "Session {0} closed by {1}",
+        "Queue depth {0} exceeds {1}",
+        "Shutting down",
+        "Loaded {0} entries from {1}",
+    };
+
+    public static void main(String[] args) {
+        int records = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+        LogRecord[] recs = records(records);
+        for (int r = 0; r < rounds; r++) {
+            boolean report = (r == rounds - 1);   // earlier rounds warm up
+            run("SimpleFormatter", new SimpleFormatter(), recs, report);
+            run("UncachedFormatter", new UncachedFormatter(), recs, report);
+        }
+    }
+
+    /*
+     * Records are a millisecond apart, so about a thousand records share
+     * each second of date/time text.
+     */
+    static LogRecord[] records(int n) {
+        LogRecord[] recs = new LogRecord[n];
+        long millis = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            String pattern = PATTERNS[i % PATTERNS.length];
+            LogRecord rec = new LogRecord(Level.INFO, pattern);
+            rec.setMillis(millis + i);
+            rec.setLoggerName("bench");
+            rec.setSourceClassName("FormatterBench");
+            rec.setSourceMethodName("run");
+            if (pattern.indexOf('{') >= 0) {
+                rec.setParameters(new Object[] {
+                    "host" + (i % 100), Integer.valueOf(i), Long.valueOf(i * 7L)
+                });
+            }
+            recs[i] = rec;
+        }
+        return recs;
+    }
+
+    static void run(String name, Formatter f, LogRecord[] recs,
+                    boolean report) {
+        long chars = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < recs.length; i++)
+            chars += f.format(recs[i]).length();
+        long t1 = System.nanoTime();
+        sink = chars;
+        if (report) {
+            System.out.println(name + ": " + ((t1 - t0) / recs.length) +
+                               " ns/record");
+        }
+    }
+
+    /*
+     * SimpleFormatter and Formatter.formatMessage as they were before
+     * pattern caching and buffer reuse.
+     */
+    static class UncachedFormatter extends Formatter {
+        private final Date dat = new Date();
+        private final Object[] args = new Object[1];
+        private MessageFormat formatter;
+        private final String lineSeparator =
+            System.getProperty("line.separator");
+
+        public synchronized String format(LogRecord record) {
+            StringBuffer sb = new StringBuffer();
+            dat.setTime(record.getMillis());
+            args[0] = dat;
+            StringBuffer text = new StringBuffer();
+            if (formatter == null)
+                formatter = new MessageFormat("{0,date} {0,time}");
+            formatter.format(args, text, null);
+            sb.append(text);
+            sb.append(" ");
+            if (record.getSourceClassName() != null)
+                sb.append(record.getSourceClassName());
+            else
+                sb.append(record.getLoggerName());
+            if (record.getSourceMethodName() != null) {
+                sb.append(" ");
+                sb.append(record.getSourceMethodName());
+            }
+            sb.append(lineSeparator);
+            sb.append(record.getLevel().getLocalizedName());
+            sb.append(": ");
+            sb.append(uncachedFormatMessage(record));
+            sb.append(lineSeparator);
+            if (record.getThrown() != null) {
+                StringWriter sw = new StringWriter();
+                PrintWriter pw = new PrintWriter(sw);
+                record.getThrown().printStackTrace(pw);
+                pw.close();
+                sb.append(sw.toString());
+            }
+            return sb.toString();
+        }
+
+        private String uncachedFormatMessage(LogRecord record) {
+            String format = record.getMessage();
+            Object[] parameters = record.getParameters();
+            if (parameters == null || parameters.length == 0)
+                return format;
+            if (format.indexOf("{0") >= 0 || format.indexOf("{1") >= 0 ||
+                format.indexOf("{2") >= 0 || format.indexOf("{3") >= 0)
+                return MessageFormat.format(format, parameters);
+            return format;
+        }
+    }
+}